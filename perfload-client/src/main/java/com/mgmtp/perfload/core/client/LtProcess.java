@@ -18,23 +18,31 @@ package com.mgmtp.perfload.core.client;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static com.mgmtp.perfload.core.common.util.LtUtils.currentTimeNanos;
 
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -42,23 +50,32 @@ import org.jboss.netty.channel.MessageEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.assistedinject.Assisted;
 import com.mgmtp.perfload.core.client.config.AbstractLtModule;
 import com.mgmtp.perfload.core.client.config.ModulesLoader;
+import com.mgmtp.perfload.core.client.config.Preloader;
 import com.mgmtp.perfload.core.client.config.annotations.DaemonId;
 import com.mgmtp.perfload.core.client.config.annotations.ProcessId;
 import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScopePool;
+import com.mgmtp.perfload.core.client.driver.LtDriver;
 import com.mgmtp.perfload.core.client.event.LtProcessEvent;
 import com.mgmtp.perfload.core.client.event.LtProcessEventListener;
+import com.mgmtp.perfload.core.client.event.StatusBatcher;
 import com.mgmtp.perfload.core.client.lang.LocalFirstClassLoader;
 import com.mgmtp.perfload.core.client.runner.LtRunner;
+import com.mgmtp.perfload.core.client.util.IdGenerator;
 import com.mgmtp.perfload.core.client.util.LtContext;
+import com.mgmtp.perfload.core.client.util.WarmUp;
 import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.clientserver.client.Client;
 import com.mgmtp.perfload.core.clientserver.client.ClientMessageListener;
 import com.mgmtp.perfload.core.clientserver.client.DefaultClient;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 import com.mgmtp.perfload.core.common.clientserver.Payload;
 import com.mgmtp.perfload.core.common.clientserver.PayloadType;
 import com.mgmtp.perfload.core.common.config.LoadProfileEvent;
@@ -69,6 +86,7 @@ import com.mgmtp.perfload.core.common.util.LtStatus;
 import com.mgmtp.perfload.core.common.util.MemoryInfo;
 import com.mgmtp.perfload.core.common.util.MemoryInfo.Unit;
 import com.mgmtp.perfload.core.common.util.PropertiesMap;
+import com.mgmtp.perfload.logging.SimpleLogger;
 
 /**
  * Represents a test process and runs the test threads associated with this process.
@@ -81,6 +99,9 @@ public final class LtProcess implements ClientMessageListener {
 	private final int processId;
 	private final int daemonId;
 	private final Set<LtProcessEventListener> listeners;
+	private final Set<Preloader> preloaders;
+	private final IdGenerator idGenerator;
+	private final StatusBatcher statusBatcher;
 	private final Provider<LtRunner> ltRunnerProvider;
 	private final DelayingExecutorService execService;
 	private final Client daemonClient;
@@ -88,8 +109,13 @@ public final class LtProcess implements ClientMessageListener {
 	private final CountDownLatch exitLatch = new CountDownLatch(1);
 	private final TestConfig config;
 	private final ExecutionScope executionScope;
+	private ExecutionScopePool executionScopePool;
+	private boolean nonBlockingWaits;
+	private final BlockingQueue<Future<?>> completedExecutions = new LinkedBlockingQueue<>();
 
 	private volatile boolean aborted = false;
+	private volatile long startNanoTime;
+	private long pollerDelaySeconds = 30L;
 
 	/**
 	 * @param processId
@@ -109,11 +135,18 @@ public final class LtProcess implements ClientMessageListener {
 	 *            the test configuration for the test process
 	 * @param executionScope
 	 *            the Guice scope for executions
+	 * @param preloaders
+	 *            {@link Preloader}s called during setup before the process reports ready
+	 * @param idGenerator
+	 *            generates the execution ids
+	 * @param statusBatcher
+	 *            sends status events to the daemon; flushed before disconnecting
 	 */
 	@Inject
 	protected LtProcess(@ProcessId final int processId, @DaemonId final int daemonId, final Provider<LtRunner> ltRunnerProvider,
 			final Set<LtProcessEventListener> listeners, final DelayingExecutorService execService, final Client daemonClient,
-			@Assisted final TestConfig config, final ExecutionScope executionScope) {
+			@Assisted final TestConfig config, final ExecutionScope executionScope, final Set<Preloader> preloaders,
+			final IdGenerator idGenerator, final StatusBatcher statusBatcher) {
 		this.processId = processId;
 		this.daemonId = daemonId;
 		this.ltRunnerProvider = ltRunnerProvider;
@@ -122,6 +155,55 @@ public final class LtProcess implements ClientMessageListener {
 		this.daemonClient = daemonClient;
 		this.config = config;
 		this.executionScope = executionScope;
+		this.preloaders = preloaders;
+		this.idGenerator = idGenerator;
+		this.statusBatcher = statusBatcher;
+	}
+
+	/**
+	 * Enables pooling of execution-scoped objects. If enabled, expensive objects (e. g. HTTP
+	 * clients) are reset after an execution and recycled for the next execution with the same
+	 * operation and target (see {@link ExecutionScopePool}).
+	 *
+	 * @param executionPooling
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="execution.pooling">true</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setExecutionPooling(@Named("execution.pooling") final String executionPooling) {
+		this.executionScopePool = Boolean.parseBoolean(executionPooling.trim()) ? new ExecutionScopePool() : null;
+	}
+
+	/**
+	 * Enables non-blocking waiting times. If enabled, test threads are not put to sleep during
+	 * waiting times but suspended and resumed on a shared timer (see {@link ThinkTimeScheduler}),
+	 * so that the number of threads tracks the number of requests in flight rather than the number
+	 * of simulated users. The load test driver must support this (see
+	 * {@link LtDriver#executeAsync()}), otherwise it blocks as usual.
+	 *
+	 * @param nonBlockingWaits
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="wtm.nonBlocking">true</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setNonBlockingWaits(@Named("wtm.nonBlocking") final String nonBlockingWaits) {
+		this.nonBlockingWaits = Boolean.parseBoolean(nonBlockingWaits.trim());
+	}
+
+	/**
+	 * Sets the delay after which the status poller starts collecting completed executions. Meant
+	 * for testing.
+	 */
+	void setPollerDelaySeconds(final long pollerDelaySeconds) {
+		this.pollerDelaySeconds = pollerDelaySeconds;
 	}
 
 	private List<TestInfo> setUp() {
@@ -132,18 +214,38 @@ public final class LtProcess implements ClientMessageListener {
 		LOG.info("Number of load profile events for this process: {}", eventCount);
 
 		List<TestInfo> result = newArrayListWithCapacity(eventCount);
+		Set<String> operations = new LinkedHashSet<>();
 		for (LoadProfileEvent event : events) {
 			result.add(new TestInfo(event.getOperation(), event.getTarget(), event.getStartTime()));
+			operations.add(event.getOperation());
 		}
 
+		preload(operations);
+
 		return result;
 	}
 
+	private void preload(final Set<String> operations) {
+		for (Preloader preloader : preloaders) {
+			long start = System.nanoTime();
+			try {
+				preloader.preload(operations);
+				LOG.info("Preloading with {} took {} ms.", preloader.getClass().getSimpleName(),
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			} catch (Exception ex) {
+				// Resources will be loaded on demand later on, reporting the error per execution.
+				LOG.error("Error preloading with " + preloader.getClass().getSimpleName(), ex);
+			}
+		}
+	}
+
 	@Override
 	public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) {
 		Payload payload = (Payload) e.getMessage();
 		switch (payload.getPayloadType()) {
 			case START:
+				Long startInstant = payload.getContent();
+				startNanoTime = toNanoTime(startInstant);
 				startLatch.countDown();
 				break;
 			case ABORT:
@@ -191,43 +293,22 @@ public final class LtProcess implements ClientMessageListener {
 		}
 
 		try {
+			// start times of all test threads are relative to the common start instant
+			execService.alignOrigin(startNanoTime);
 			fireProcessStarted();
 			for (int i = 0; i < testInfoList.size(); ++i) {
 				final TestInfo ti = testInfoList.get(i);
 				final int threadId = i + 1; // one-based
 
-				final long scheduledStartTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) + ti.getStartTime();
-
-				Runnable runnerWrapper = () -> {
-					// Create instance for the current execution and populate it.
-					LtContext context = new LtContext();
-					context.setOperation(ti.getOperation());
-					context.setTarget(ti.getTarget());
-					context.setThreadId(threadId);
+				final long scheduledStartTime = TimeUnit.NANOSECONDS.toMillis(startNanoTime) + ti.getStartTime();
 
-					try {
-						// Add context to the executions scopeCache, so the correct instances may be injected later on.
-						// LtContext is bound in ExecutionScope!
-						final Map<Key<?>, Object> scopeCache = new HashMap<>();
-						scopeCache.put(Key.get(LtContext.class), context);
-
-						executionScope.enterScope(context.getExecutionId(), scopeCache);
-
-						LtRunner testRunner = ltRunnerProvider.get();
-
-						long actualStartTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
-						LOG.info("Execution time delta (actualStartTime - scheduledStartTime): {} - {} = {}", new Object[] {
-								actualStartTime, scheduledStartTime, actualStartTime - scheduledStartTime });
-						LOG.info("Thread pool status [activeCount={}, poolSize={}, largestPoolSize={}]",
-								new Object[] { execService.getActiveCount(), execService.getPoolSize(),
-										execService.getLargestPoolSize() });
-
-						testRunner.execute();
-					} finally {
-						executionScope.exitScope(context.getExecutionId());
-					}
-				};
-				execService.schedule(runnerWrapper, ti.getStartTime(), TimeUnit.MILLISECONDS);
+				if (nonBlockingWaits) {
+					Runnable starter = () -> startExecution(ti, threadId, scheduledStartTime);
+					execService.scheduleUntrackedFromOrigin(starter, ti.getStartTime(), TimeUnit.MILLISECONDS);
+				} else {
+					Runnable runnerWrapper = () -> runExecution(ti, threadId, scheduledStartTime);
+					execService.scheduleFromOrigin(runnerWrapper, ti.getStartTime(), TimeUnit.MILLISECONDS);
+				}
 			}
 
 			final int taskCount = testInfoList.size();
@@ -235,7 +316,8 @@ public final class LtProcess implements ClientMessageListener {
 				try {
 					for (int i = 0; i < taskCount; ++i) {
 						try {
-							execService.takeNextCompleted().get();
+							Future<?> completed = nonBlockingWaits ? completedExecutions.take() : execService.takeNextCompleted();
+							completed.get();
 						} catch (CancellationException ex1) {
 							// Cannot happen because we do not cancel tasks
 							LOG.error(ex1.getMessage(), ex1);
@@ -260,6 +342,7 @@ public final class LtProcess implements ClientMessageListener {
 
 				} finally {
 					LOG.debug("Disconnecting...");
+					statusBatcher.flush();
 					daemonClient.sendMessage(new Payload(PayloadType.TEST_PROC_DISCONNECTED, new ProcessKey(processId, daemonId)));
 					LOG.debug("Disconnected from daemon. Awaiting exit latch...");
 					try {
@@ -272,7 +355,7 @@ public final class LtProcess implements ClientMessageListener {
 			};
 			if (!execService.isShutdown()) {
 				LOG.debug("Schedule status poller...");
-				result = execService.schedule(poller, 30L, TimeUnit.SECONDS).get();
+				result = execService.schedule(poller, pollerDelaySeconds, TimeUnit.SECONDS).get();
 				LOG.debug("Polling result: {}", result);
 				execService.shutdownNow();
 				execService.awaitTermination(30L, TimeUnit.SECONDS);
@@ -290,6 +373,108 @@ public final class LtProcess implements ClientMessageListener {
 		}
 	}
 
+	private void runExecution(final TestInfo ti, final int threadId, final long scheduledStartTime) {
+		LtContext context = enterScope(ti, threadId);
+		try {
+			LtRunner testRunner = ltRunnerProvider.get();
+			logExecutionStart(scheduledStartTime);
+			testRunner.execute();
+		} finally {
+			exitScope(context);
+		}
+	}
+
+	private void startExecution(final TestInfo ti, final int threadId, final long scheduledStartTime) {
+		try {
+			LtContext context = enterScope(ti, threadId);
+			CompletionStage<Void> execution;
+			try {
+				LtRunner testRunner = ltRunnerProvider.get();
+				logExecutionStart(scheduledStartTime);
+				execution = testRunner.executeAsync();
+			} catch (Throwable th) {
+				execution = failedFuture(th);
+			} finally {
+				// The execution may be resumed on other threads, so we must not exit the scope yet.
+				executionScope.disjoinScope(context.getExecutionId());
+			}
+
+			final CompletableFuture<Void> future = execution.toCompletableFuture();
+			future.whenComplete((value, th) -> {
+				try {
+					exitScope(context);
+				} finally {
+					completedExecutions.add(future);
+				}
+			});
+		} catch (Throwable th) {
+			// The poller waits for a completed future per execution, so one must be added in any case.
+			completedExecutions.add(failedFuture(th));
+		}
+	}
+
+	private static CompletableFuture<Void> failedFuture(final Throwable th) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		future.completeExceptionally(th);
+		return future;
+	}
+
+	private LtContext enterScope(final TestInfo ti, final int threadId) {
+		// Create instance for the current execution and populate it.
+		LtContext context = new LtContext(idGenerator.nextId());
+		context.setOperation(ti.getOperation());
+		context.setTarget(ti.getTarget());
+		context.setThreadId(threadId);
+
+		// Add context to the executions scopeCache, so the correct instances may be injected later on.
+		// LtContext is bound in ExecutionScope!
+		final Map<Key<?>, Object> scopeCache = executionScopePool != null
+				? executionScopePool.acquire(ti.getOperation(), ti.getTarget())
+				: new HashMap<>();
+		scopeCache.put(Key.get(LtContext.class), context);
+
+		executionScope.enterScope(context.getExecutionId(), scopeCache);
+		return context;
+	}
+
+	private void exitScope(final LtContext context) {
+		Map<Key<?>, Object> scopeCache = executionScope.exitScope(context.getExecutionId());
+		if (executionScopePool != null) {
+			executionScopePool.release(context.getOperation(), context.getTarget(), scopeCache);
+		}
+	}
+
+	/**
+	 * Converts the start instant received from the daemon to {@link System#nanoTime()} units.
+	 * 
+	 * @param startInstant
+	 *            the start instant in nanoseconds since the epoch, or {@code null} for starting
+	 *            immediately
+	 * @return the start time in {@link System#nanoTime()} units
+	 */
+	private long toNanoTime(final Long startInstant) {
+		long now = System.nanoTime();
+		if (startInstant == null) {
+			return now;
+		}
+		long delay = startInstant - currentTimeNanos();
+		if (delay < 0L) {
+			LOG.warn("START signal received {} ms after the scheduled start instant.", TimeUnit.NANOSECONDS.toMillis(-delay));
+		} else {
+			LOG.info("Test starts in {} ms at the scheduled start instant.", TimeUnit.NANOSECONDS.toMillis(delay));
+		}
+		return now + delay;
+	}
+
+	private void logExecutionStart(final long scheduledStartTime) {
+		long actualStartTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+		LOG.info("Execution time delta (actualStartTime - scheduledStartTime): {} - {} = {}", new Object[] {
+				actualStartTime, scheduledStartTime, actualStartTime - scheduledStartTime });
+		LOG.info("Thread pool status [activeCount={}, poolSize={}, largestPoolSize={}]",
+				new Object[] { execService.getActiveCount(), execService.getPoolSize(),
+						execService.getLargestPoolSize() });
+	}
+
 	private void fireProcessStarted() {
 		LtProcessEvent event = new LtProcessEvent(processId, daemonId);
 		LOG.debug("fireProcessStarted: {}", event);
@@ -335,38 +520,104 @@ public final class LtProcess implements ClientMessageListener {
 	}
 
 	public static void main(final String[] args) {
+		int exitCode = run(args);
+
+		boolean debug = false;
+		for (int i = 0; i < args.length - 1; ++i) {
+			if (args[i].equals("-debug-inline")) {
+				debug = Boolean.parseBoolean(args[i + 1]);
+			}
+		}
+		if (!debug) {
+			System.exit(exitCode);
+		}
+	}
+
+	/**
+	 * Runs a test process without terminating the VM afterwards. This is the entry point for test
+	 * processes running inside the daemon's VM, which pass {@code -inJvm true} in order to talk to
+	 * the daemon in memory using {@link Transport#LOCAL}.
+	 * 
+	 * @param args
+	 *            the command-line arguments as for {@link #main(String[])}
+	 * @return the exit code of the test process
+	 */
+	public static int run(final String[] args) {
 		LOG.info("Initializing test process...");
 
+		String[] processArgs = args;
+		Client pooledClient = null;
+		if (args.length > 0 && args[0].equals("-pooled")) {
+			// Process started ahead of time, turns into a regular test process on assignment
+			PoolListener poolListener = new PoolListener();
+			try {
+				int slot = -1;
+				int daemonPort = -1;
+				for (int i = 1; i < args.length; ++i) {
+					if (args[i].equals("-poolSlot")) {
+						slot = Integer.parseInt(args[++i]);
+						continue;
+					}
+					if (args[i].equals("-daemonPort")) {
+						daemonPort = Integer.parseInt(args[++i]);
+						continue;
+					}
+				}
+				checkArgument(slot != -1 && daemonPort != -1);
+
+				WarmUp.run();
+				pooledClient = new DefaultClient("pooled" + slot, "localhost", daemonPort);
+				pooledClient.addClientMessageListener(poolListener);
+				pooledClient.connect();
+				pooledClient.sendMessage(new Payload(PayloadType.TEST_PROC_POOLED, slot));
+				LOG.info("Waiting for assignment to a test process...");
+				processArgs = poolListener.awaitAssignment(pooledClient);
+			} catch (Exception ex) {
+				LOG.error(ex.getMessage(), ex);
+				return -1;
+			}
+			if (processArgs == null) {
+				LOG.info("Connection to daemon closed before assignment to a test process.");
+				return 0;
+			}
+			pooledClient.removeClientMessageListener(poolListener);
+		}
+
 		Integer processId = null;
 		Integer daemonId = null;
 		int daemonPort = -1;
 		File testLibDir = null;
 		String[] testJarNames = null;
-		boolean debug = false;
+		boolean inJvm = false;
+		File clientDir = null;
 		try {
-			for (int i = 0; i < args.length; ++i) {
-				if (args[i].equals("-processId")) {
-					processId = Integer.valueOf(args[++i]);
+			for (int i = 0; i < processArgs.length; ++i) {
+				if (processArgs[i].equals("-processId")) {
+					processId = Integer.valueOf(processArgs[++i]);
+					continue;
+				}
+				if (processArgs[i].equals("-daemonId")) {
+					daemonId = Integer.valueOf(processArgs[++i]);
 					continue;
 				}
-				if (args[i].equals("-daemonId")) {
-					daemonId = Integer.valueOf(args[++i]);
+				if (processArgs[i].equals("-daemonPort")) {
+					daemonPort = Integer.parseInt(processArgs[++i]);
 					continue;
 				}
-				if (args[i].equals("-daemonPort")) {
-					daemonPort = Integer.parseInt(args[++i]);
+				if (processArgs[i].equals("-testLibDir")) {
+					testLibDir = new File(processArgs[++i]);
 					continue;
 				}
-				if (args[i].equals("-testLibDir")) {
-					testLibDir = new File(args[++i]);
+				if (processArgs[i].equals("-testJars")) {
+					testJarNames = processArgs[++i].split(";");
 					continue;
 				}
-				if (args[i].equals("-testJars")) {
-					testJarNames = args[++i].split(";");
+				if (processArgs[i].equals("-inJvm")) {
+					inJvm = Boolean.parseBoolean(processArgs[++i]);
 					continue;
 				}
-				if (args[i].equals("-debug-inline")) {
-					debug = Boolean.parseBoolean(args[++i]);
+				if (processArgs[i].equals("-clientDir")) {
+					clientDir = new File(processArgs[++i]);
 					continue;
 				}
 			}
@@ -376,26 +627,34 @@ public final class LtProcess implements ClientMessageListener {
 			ex.printStackTrace();
 			System.out.println();
 			printUsage();
-			if (!debug) {
-				System.exit(-1);
-			}
+			return -1;
 		}
 
 		final CountDownLatch propsLatch = new CountDownLatch(1);
 		MessageListener listener = new MessageListener(propsLatch, daemonId, processId);
 
-		Client client = new DefaultClient("testproc" + processId, "localhost", daemonPort);
-		LOG.debug("Creating daemon client: {}", client);
+		Client client = pooledClient;
+		if (client == null) {
+			client = new DefaultClient("testproc" + processId, "localhost", daemonPort,
+					inJvm ? Transport.LOCAL : Transport.fromSystemProperty());
+			LOG.debug("Creating daemon client: {}", client);
+		}
 
 		client.addClientMessageListener(listener);
-		client.connect();
+		if (pooledClient == null) {
+			client.connect();
+		}
 		client.sendMessage(new Payload(PayloadType.TEST_PROC_CONNECTED, processId));
 
 		int exitCode = 0;
+		Injector injector = null;
 		try {
 			if (!propsLatch.await(2L, TimeUnit.MINUTES)) {
 				throw new TimeoutException("Timeout waiting for properties.");
 			}
+			if (listener.isAborted()) {
+				return -1;
+			}
 
 			TestConfig config = listener.getConfig();
 			client.removeClientMessageListener(listener);
@@ -418,7 +677,9 @@ public final class LtProcess implements ClientMessageListener {
 				classpathUrls = new URL[] {};
 			}
 
-			ClassLoader loader = new LocalFirstClassLoader(classpathUrls);
+			// The parent is the loader of the perfLoad classes, which is not necessarily the system
+			// class loader, if the process runs inside the daemon's VM
+			ClassLoader loader = new LocalFirstClassLoader(LtProcess.class.getClassLoader(), classpathUrls);
 			Thread.currentThread().setContextClassLoader(loader);
 
 			String moduleClassName = config.getGuiceModule();
@@ -430,8 +691,9 @@ public final class LtProcess implements ClientMessageListener {
 					.getConstructor(PropertiesMap.class);
 			PropertiesMap testplanProperties = config.getProperties();
 			AbstractLtModule testplanModule = constructor.newInstance(testplanProperties);
-			ModulesLoader modulesLoader = new ModulesLoader(testplanModule, testplanProperties, client, daemonId, processId);
-			Injector injector = modulesLoader.createInjector();
+			ModulesLoader modulesLoader = new ModulesLoader(testplanModule, testplanProperties, client, daemonId, processId,
+					clientDir);
+			injector = modulesLoader.createInjector();
 
 			LtProcessFactory procFac = injector.getInstance(LtProcessFactory.class);
 			LtProcess proc = procFac.create(config);
@@ -444,15 +706,18 @@ public final class LtProcess implements ClientMessageListener {
 			LOG.error(ex.getMessage(), ex);
 			exitCode = 1;
 		} finally {
+			if (injector != null) {
+				// The process may run inside the daemon's VM, so we must not wait for the VM to exit
+				injector.getInstance(SimpleLogger.class).close();
+			}
 			client.disconnect();
 		}
-		if (!debug) {
-			System.exit(exitCode);
-		}
+		return exitCode;
 	}
 
 	static class MessageListener implements ClientMessageListener {
 		private volatile TestConfig config;
+		private volatile boolean aborted;
 		private final CountDownLatch latch;
 		private final Integer daemonId;
 		private final Integer processId;
@@ -471,7 +736,8 @@ public final class LtProcess implements ClientMessageListener {
 					LOG.info("Test aborted.");
 					e.getChannel().write(new Payload(PayloadType.TEST_PROC_DISCONNECTED, new ProcessKey(processId, daemonId)));
 					e.getChannel().close().awaitUninterruptibly(30L, TimeUnit.SECONDS);
-					System.exit(-1);
+					aborted = true;
+					latch.countDown();
 					break;
 				case CONFIG:
 					config = payload.getContent();
@@ -485,6 +751,42 @@ public final class LtProcess implements ClientMessageListener {
 		public TestConfig getConfig() {
 			return config;
 		}
+
+		public boolean isAborted() {
+			return aborted;
+		}
+	}
+
+	static class PoolListener implements ClientMessageListener {
+		private final BlockingQueue<String[]> assignments = new ArrayBlockingQueue<>(1);
+
+		@Override
+		public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) {
+			Payload payload = (Payload) e.getMessage();
+			if (payload.getPayloadType() == PayloadType.TEST_PROC_ASSIGN) {
+				assignments.offer(payload.<String[]>getContent());
+			}
+		}
+
+		/**
+		 * Waits until the daemon assigns the process to a test process.
+		 * 
+		 * @param client
+		 *            the client connected to the daemon
+		 * @return the command-line arguments of the test process, or {@code null} if the connection
+		 *         has been closed
+		 */
+		public String[] awaitAssignment(final Client client) throws InterruptedException {
+			for (;;) {
+				String[] arguments = assignments.poll(1L, TimeUnit.SECONDS);
+				if (arguments != null) {
+					return arguments;
+				}
+				if (!client.isConnected()) {
+					return null;
+				}
+			}
+		}
 	}
 
 	private static void printUsage() {
@@ -496,6 +798,14 @@ public final class LtProcess implements ClientMessageListener {
 		sb.append("-daemonPort <port>  The port of the daemon this process is associated with (required).\n");
 		sb.append("-testLibDir <dir>   Directory where the jars for the testplan dwell in (required).\n");
 		sb.append("-testJars <jars>    A semi-colon-separated list of jar files names for the testplan (required).\n");
+		sb.append("-inJvm <true|false> Whether the process runs inside the daemon's VM (optional).\n");
+		sb.append("-clientDir <dir>    Directory the measuring log is written to (optional, defaults to the\n");
+		sb.append("                    working directory).\n");
+		sb.append("\n");
+		sb.append("Usage LtProcess for processes started ahead of time:\n");
+		sb.append("-pooled             Must be the first argument.\n");
+		sb.append("-poolSlot <slot>    The slot of this process in the daemon's pool (required).\n");
+		sb.append("-daemonPort <port>  The port of the daemon this process is associated with (required).\n");
 		System.out.println(sb.toString());
 	}
 }
@@ -41,6 +41,7 @@ public abstract class AbstractLtModule extends AbstractModule {
 
 	private Multibinder<LtProcessEventListener> ltProcessListeners;
 	private Multibinder<LtRunnerEventListener> ltRunnerListeners;
+	private Multibinder<Preloader> preloaders;
 	private MapBinder<String, LtDriver> ltDrivers;
 	private MapBinder<String, DriverSelectionPredicate> ltDriverPredicates;
 
@@ -64,6 +65,7 @@ public abstract class AbstractLtModule extends AbstractModule {
 	protected final void configure() {
 		ltProcessListeners = Multibinder.newSetBinder(binder(), LtProcessEventListener.class);
 		ltRunnerListeners = Multibinder.newSetBinder(binder(), LtRunnerEventListener.class);
+		preloaders = Multibinder.newSetBinder(binder(), Preloader.class);
 		ltDrivers = MapBinder.newMapBinder(binder(), String.class, LtDriver.class);
 		ltDriverPredicates = MapBinder.newMapBinder(binder(), String.class, DriverSelectionPredicate.class);
 		doConfigure();
@@ -108,6 +110,15 @@ public abstract class AbstractLtModule extends AbstractModule {
 		return ltRunnerListeners.addBinding();
 	}
 
+	/**
+	 * Binds a {@link Preloader}.
+	 * 
+	 * @see Multibinder#addBinding()
+	 */
+	protected final LinkedBindingBuilder<Preloader> bindPreloader() {
+		return preloaders.addBinding();
+	}
+
 	/**
 	 * Binds a {@link LtDriver}.
 	 * 
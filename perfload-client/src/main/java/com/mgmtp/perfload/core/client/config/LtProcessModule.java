@@ -61,17 +61,22 @@ import com.mgmtp.perfload.core.client.driver.LtDriver;
 import com.mgmtp.perfload.core.client.driver.ProcessInfo;
 import com.mgmtp.perfload.core.client.driver.ScriptLtDriver;
 import com.mgmtp.perfload.core.client.event.LtClientListener;
+import com.mgmtp.perfload.core.client.event.StatusBatcher;
 import com.mgmtp.perfload.core.client.logging.LtResultLogger;
 import com.mgmtp.perfload.core.client.runner.DefaultErrorHandler;
 import com.mgmtp.perfload.core.client.runner.ErrorHandler;
 import com.mgmtp.perfload.core.client.runner.LtRunner;
 import com.mgmtp.perfload.core.client.util.ConstantWaitingTimeStrategy;
 import com.mgmtp.perfload.core.client.util.DefaultPlaceholderContainer;
+import com.mgmtp.perfload.core.client.util.FastIdGenerator;
+import com.mgmtp.perfload.core.client.util.IdGenerator;
 import com.mgmtp.perfload.core.client.util.LtContext;
 import com.mgmtp.perfload.core.client.util.PlaceholderContainer;
+import com.mgmtp.perfload.core.client.util.RandomSource;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
 import com.mgmtp.perfload.core.client.util.WaitingTimeStrategy;
 import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.clientserver.client.Client;
 import com.mgmtp.perfload.core.common.util.PropertiesMap;
 import com.mgmtp.perfload.core.common.util.PropertiesUtils;
@@ -91,6 +96,7 @@ final class LtProcessModule extends AbstractLtModule {
 	private final int daemonId;
 	private final int processId;
 	private final Client client;
+	private final File clientDir;
 
 	/**
 	 * Creates a new instance.
@@ -106,10 +112,32 @@ final class LtProcessModule extends AbstractLtModule {
 	 *            daemon.
 	 */
 	public LtProcessModule(final PropertiesMap testplanProperties, final Client client, final int daemonId, final int processId) {
+		this(testplanProperties, client, daemonId, processId, null);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param testplanProperties
+	 *            properties set in the testplan xml file
+	 * @param client
+	 *            the client to talk to the daemon
+	 * @param daemonId
+	 *            The id of the daemon. Daemon IDs are global one-based consecutive integers.
+	 * @param processId
+	 *            The id of the process. Process IDs are one-based consecutive integers assigned by
+	 *            daemon.
+	 * @param clientDir
+	 *            the directory the measuring log is written to; if {@code null}, the current
+	 *            working directory is used
+	 */
+	public LtProcessModule(final PropertiesMap testplanProperties, final Client client, final int daemonId, final int processId,
+			final File clientDir) {
 		super(testplanProperties);
 		this.client = client;
 		this.daemonId = daemonId;
 		this.processId = processId;
+		this.clientDir = clientDir;
 	}
 
 	@Override
@@ -136,13 +164,17 @@ final class LtProcessModule extends AbstractLtModule {
 		bindConstant().annotatedWith(Names.named("wtm.strategy.constant.waitingTimeMillis")).to("500");
 
 		bind(LtContext.class);
+		bind(IdGenerator.class).to(FastIdGenerator.class);
 		bind(PlaceholderContainer.class).to(DefaultPlaceholderContainer.class);
 		bind(WaitingTimeStrategy.class).to(ConstantWaitingTimeStrategy.class);
 		bind(WaitingTimeManager.class);
+		bind(RandomSource.class);
+		bind(ThinkTimeScheduler.class);
 		bind(ErrorHandler.class).to(DefaultErrorHandler.class);
 		bind(ResultLogger.class).to(LtResultLogger.class);
 
 		// listener for status info and ThreadScope clean-up
+		bind(StatusBatcher.class);
 		bindLtProcessEventListener().to(LtClientListener.class);
 		bindLtRunnerEventListener().to(LtClientListener.class);
 
@@ -175,26 +207,22 @@ final class LtProcessModule extends AbstractLtModule {
 	@MeasuringLog
 	@Singleton
 	protected File provideMeasuringLogFile() {
-		return new File(String.format("perfload-client-process-%s_measuring.log", processId));
+		return new File(clientDir, String.format("perfload-client-process-%s_measuring.log", processId));
 	}
 
+	/**
+	 * Provides the logger for the measuring log. The logger is opened here and must be closed
+	 * by whoever created the injector when the test process has finished.
+	 */
 	@Provides
 	@Singleton
 	protected SimpleLogger provideSimpleLogger(@MeasuringLog final File measuringLogfile) {
-		final SimpleLogger fileLogger = new SimpleFileLogger(measuringLogfile);
+		SimpleLogger fileLogger = new SimpleFileLogger(measuringLogfile);
 		try {
 			fileLogger.open();
 		} catch (IOException ex) {
 			addError(ex);
 		}
-
-		Runtime.getRuntime().addShutdownHook(new Thread() {
-			@Override
-			public void run() {
-				fileLogger.close();
-			}
-		});
-
 		return fileLogger;
 	}
 
@@ -15,6 +15,7 @@
  */
 package com.mgmtp.perfload.core.client.config;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.slf4j.Logger;
@@ -42,6 +43,7 @@ public final class ModulesLoader {
 	private final int processId;
 	private final AbstractLtModule testplanModule;
 	private final PropertiesMap testplanProps;
+	private final File clientDir;
 
 	/**
 	 * @param testplanModule
@@ -58,11 +60,33 @@ public final class ModulesLoader {
 	 */
 	public ModulesLoader(final AbstractLtModule testplanModule, final PropertiesMap testplanProps, final Client client,
 			final int daemonId, final int processId) {
+		this(testplanModule, testplanProps, client, daemonId, processId, null);
+	}
+
+	/**
+	 * @param testplanModule
+	 *            the Guice module configured in the testplan configuration file; must have a public
+	 *            zero-args constructor and extend {@link AbstractLtModule}
+	 * @param testplanProps
+	 *            testplan properties as specified in the testplan configuration file
+	 * @param client
+	 *            the client for communicating with the daemon
+	 * @param daemonId
+	 *            the one-based id of the daemon
+	 * @param processId
+	 *            the one-base id of the process
+	 * @param clientDir
+	 *            the directory the measuring log is written to; if {@code null}, the current
+	 *            working directory is used
+	 */
+	public ModulesLoader(final AbstractLtModule testplanModule, final PropertiesMap testplanProps, final Client client,
+			final int daemonId, final int processId, final File clientDir) {
 		this.testplanModule = testplanModule;
 		this.testplanProps = testplanProps;
 		this.client = client;
 		this.daemonId = daemonId;
 		this.processId = processId;
+		this.clientDir = clientDir;
 	}
 
 	/**
@@ -77,7 +101,7 @@ public final class ModulesLoader {
 		log.info("Creating Guice injector...");
 
 		// Internal Guice module that is always installed
-		LtProcessModule ltProcessModule = new LtProcessModule(testplanProps, client, daemonId, processId);
+		LtProcessModule ltProcessModule = new LtProcessModule(testplanProps, client, daemonId, processId, clientDir);
 
 		PropertiesMap defaultProps = ltProcessModule.getProperties();
 		PropertiesMap driverProps = testplanModule.getProperties();
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.config;
+
+import java.util.Set;
+
+import com.mgmtp.perfload.core.client.LtProcess;
+
+/**
+ * Hook for loading expensive, shared resources (e. g. parsed request flows) eagerly. All bound
+ * preloaders are called by {@link LtProcess} during its setup, i. e. before the daemon is told that
+ * the process is ready and thus before the test is started, so that the cost of loading does not
+ * skew the measurements at the beginning of the test.
+ * 
+ * @author agent
+ */
+public interface Preloader {
+
+	/**
+	 * Preloads resources for the specified operations.
+	 * 
+	 * @param operations
+	 *            the distinct operations of the load profile events of this process
+	 */
+	void preload(Set<String> operations) throws Exception;
+}
@@ -18,27 +18,36 @@ package com.mgmtp.perfload.core.client.config.scope;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
 import com.google.inject.Key;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
 
 /**
  * <p>
- * Guice scope for executions. Uses thread-local storage to bind executionIds. A global cache by
- * executionId is used for the scope cache. Thus, threads may join an existing scope, which is e. g.
- * necessary for asynchronous HTTP operations.
+ * Guice scope for executions. Uses thread-local storage to bind a scope context, which holds the
+ * scope cache of an execution. A global registry by executionId is used to look up contexts. Thus,
+ * threads may join an existing scope, which is e. g. necessary for asynchronous HTTP operations.
+ * </p>
+ * <p>
+ * Looking up an object that is already cached does not acquire any lock. Creating an object
+ * synchronizes on the execution's context, so only threads of the same execution may contend.
  * </p>
  * <p>
  * The scope must initially be entered using {@link #enterScope(UUID, Map)}. Further threads may
  * join the scope calling {@link #joinScope(UUID)}. In order to free up resources and to avoid
  * memory leaks, {@link #disjoinScope(UUID)} and {@link #exitScope(UUID)} should be called in turn.
+ * Code continuing an execution on another thread may be wrapped using
+ * {@link #transferScope(Runnable)}.
  * </p>
  * <p>
  * The scope should be bound as follows:
@@ -60,9 +69,12 @@ public final class ExecutionScope implements Scope {
 	private static final String MSG_NOT_ENTERED = "Scope has not been entered. Forgot to call enterScope()?";
 	private static final String MSG_ALREADY_ENTERED = "Scope has already been entered. Forgot to call exitScope()?";
 
-	private final ThreadLocal<UUID> threadLocalExecutionId = new ThreadLocal<>();
+	// ConcurrentHashMap does not support null values
+	private static final Object NULL = new Object();
+
+	private final ThreadLocal<ScopeContext> threadLocalContext = new ThreadLocal<>();
 
-	private final Map<UUID, Map<Key<?>, Object>> scopeCaches = new HashMap<>();
+	private final ConcurrentMap<UUID, ScopeContext> scopeContexts = new ConcurrentHashMap<>();
 
 	@Override
 	public <T> Provider<T> scope(final Key<T> key, final Provider<T> unscoped) {
@@ -74,6 +86,14 @@ public final class ExecutionScope implements Scope {
 		return "ExecutionScope";
 	}
 
+	private static final class ScopeContext {
+		private final ConcurrentMap<Key<?>, Object> scopeCache;
+
+		private ScopeContext(final Map<Key<?>, Object> scopeCache) {
+			this.scopeCache = new ConcurrentHashMap<>(scopeCache);
+		}
+	}
+
 	private final class ExecutionScopeProvider<T> implements Provider<T> {
 		private final Key<T> key;
 		private final Provider<T> unscoped;
@@ -85,31 +105,27 @@ public final class ExecutionScope implements Scope {
 
 		@Override
 		public T get() {
-			UUID executionId = threadLocalExecutionId.get();
-			requireNonNull(executionId, MSG_NOT_ENTERED);
-
-			//			UUID executionId = ref.get();
-			//			requireNonNull(ref.get(), MSG_NOT_ENTERED);
-
-			synchronized (this) {
-				Map<Key<?>, Object> scopeCache = scopeCaches.computeIfAbsent(executionId, id -> new HashMap<>());
-
-				@SuppressWarnings("unchecked")
-				// cast ok, because we know what we'd put in before
-				/* computeIfAbsent can no longer be used since Java 9 because it now throws a
-				ConcurrentModificationException in this context
-				T result = (T) scopeCache.computeIfAbsent(key, k -> unscoped.get());
-				therefore, it has been replaced by this code: */
-				T result;
-				synchronized(this) {
-					result = (T) scopeCache.get(key);
+			ScopeContext context = threadLocalContext.get();
+			requireNonNull(context, MSG_NOT_ENTERED);
+
+			Object result = context.scopeCache.get(key);
+			if (result == null) {
+				// computeIfAbsent cannot be used, because creating an object
+				// may recursively look up further objects of the same scope
+				synchronized (context) {
+					result = context.scopeCache.get(key);
 					if (result == null) {
-						result = unscoped.get();
-						scopeCache.put(key, result);
+						T created = unscoped.get();
+						result = created != null ? created : NULL;
+						context.scopeCache.put(key, result);
 					}
 				}
-				return result;
 			}
+
+			@SuppressWarnings("unchecked")
+			// cast ok, because we know what we'd put in before
+			T scoped = result != NULL ? (T) result : null;
+			return scoped;
 		}
 
 		@Override
@@ -120,17 +136,17 @@ public final class ExecutionScope implements Scope {
 
 	/**
 	 * Enters a new scope context for the current thread setting a scope map to the internal
-	 * {@link ThreadLocal}.
+	 * {@link ThreadLocal}. The entries of the specified map are copied into the scope's cache.
 	 *
 	 * @throws IllegalStateException
 	 *             if there is already a scope context for the given {@code executionId} or the
 	 *             current thread
 	 */
-	public synchronized void enterScope(final UUID executionId, final Map<Key<?>, Object> scopeCache) {
-		checkState(!scopeCaches.containsKey(executionId), MSG_ALREADY_ENTERED);
-		checkState(threadLocalExecutionId.get() == null, MSG_ALREADY_ENTERED);
-		threadLocalExecutionId.set(executionId);
-		scopeCaches.put(executionId, scopeCache);
+	public void enterScope(final UUID executionId, final Map<Key<?>, Object> scopeCache) {
+		checkState(threadLocalContext.get() == null, MSG_ALREADY_ENTERED);
+		ScopeContext context = new ScopeContext(scopeCache);
+		checkState(scopeContexts.putIfAbsent(executionId, context) == null, MSG_ALREADY_ENTERED);
+		threadLocalContext.set(context);
 		LOGGER.debug("Entered scope for executionId: {}", executionId);
 	}
 
@@ -143,9 +159,10 @@ public final class ExecutionScope implements Scope {
 	 *             if there is no scope context for the given {@code executionId}, i. e.
 	 *             {@link #enterScope(UUID, Map)} has not been called
 	 */
-	public synchronized void joinScope(final UUID executionId) {
-		checkState(scopeCaches.containsKey(executionId), MSG_NOT_ENTERED);
-		threadLocalExecutionId.set(executionId);
+	public void joinScope(final UUID executionId) {
+		ScopeContext context = scopeContexts.get(executionId);
+		checkState(context != null, MSG_NOT_ENTERED);
+		threadLocalContext.set(context);
 		LOGGER.debug("Joined scope for executionId: {}", executionId);
 	}
 
@@ -158,25 +175,80 @@ public final class ExecutionScope implements Scope {
 	 *             if there is no scope context for the given {@code executionId}, i. e.
 	 *             {@link #enterScope(UUID, Map)} has not been called
 	 */
-	public synchronized void disjoinScope(final UUID executionId) {
-		checkState(scopeCaches.containsKey(executionId), MSG_NOT_ENTERED);
-		threadLocalExecutionId.remove();
+	public void disjoinScope(final UUID executionId) {
+		checkState(scopeContexts.containsKey(executionId), MSG_NOT_ENTERED);
+		threadLocalContext.remove();
 		LOGGER.debug("Disjoined scope for executionId: {}", executionId);
 	}
 
+	/**
+	 * Wraps the specified {@link Runnable} so that it runs in the scope context of the current
+	 * thread, no matter which thread it is eventually run on. The thread running it is bound to the
+	 * context only for the duration of the call. This is e. g. necessary to resume an execution
+	 * that has been suspended. In contrast to {@link #disjoinScope(UUID)}, the binding is also
+	 * removed properly if the scope has been exited in the meantime.
+	 *
+	 * @param runnable
+	 *            the runnable to wrap
+	 * @return the wrapped runnable
+	 * @throws IllegalStateException
+	 *             if the current thread has not entered or joined a scope
+	 */
+	public Runnable transferScope(final Runnable runnable) {
+		ScopeContext context = threadLocalContext.get();
+		checkState(context != null, MSG_NOT_ENTERED);
+		return () -> {
+			ScopeContext previous = threadLocalContext.get();
+			threadLocalContext.set(context);
+			try {
+				runnable.run();
+			} finally {
+				if (previous != null) {
+					threadLocalContext.set(previous);
+				} else {
+					threadLocalContext.remove();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Looks up an object in the scope context of the current thread without creating it. This is
+	 * e. g. useful for releasing resources at the end of an execution, which should not be created
+	 * just in order to be released.
+	 *
+	 * @param key
+	 *            the key of the object
+	 * @return the object, or {@code null} if it has not been created in the current scope
+	 * @throws IllegalStateException
+	 *             if the current thread has not entered or joined a scope
+	 */
+	public <T> T getIfCreated(final Key<T> key) {
+		ScopeContext context = threadLocalContext.get();
+		checkState(context != null, MSG_NOT_ENTERED);
+		Object result = context.scopeCache.get(key);
+
+		@SuppressWarnings("unchecked")
+		// cast ok, because the scope only caches objects of the key's type
+		T scoped = result != NULL ? (T) result : null;
+		return scoped;
+	}
+
 	/**
 	 * Exits the scope context for the current thread. Call this method after a thread is done in
 	 * order to avoid memory leaks and to enable the thread to enter a new scope context again.
 	 *
+	 * @return an unmodifiable view of the objects that were cached in the scope, which may e. g. be
+	 *         returned to an {@link ExecutionScopePool}
 	 * @throws IllegalStateException
 	 *             if there is no scope context for the given {@code executionId}, i. e.
 	 *             {@link #enterScope(UUID, Map)} has not been called
 	 */
-	public synchronized void exitScope(final UUID executionId) {
-		checkState(scopeCaches.containsKey(executionId), MSG_NOT_ENTERED);
-		requireNonNull(threadLocalExecutionId.get() == null, MSG_NOT_ENTERED);
-		threadLocalExecutionId.remove();
-		scopeCaches.remove(executionId);
+	public Map<Key<?>, Object> exitScope(final UUID executionId) {
+		ScopeContext context = scopeContexts.remove(executionId);
+		checkState(context != null, MSG_NOT_ENTERED);
+		threadLocalContext.remove();
 		LOGGER.debug("Exited scope for executionId: {}", executionId);
+		return Collections.unmodifiableMap(Maps.filterValues(context.scopeCache, value -> value != NULL));
 	}
 }
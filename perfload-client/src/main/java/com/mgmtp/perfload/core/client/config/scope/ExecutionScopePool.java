@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.config.scope;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Key;
+
+/**
+ * <p>
+ * Pool for recycling {@link ExecutionScope} objects across executions with the same operation and
+ * target. After an execution, the scope's objects that implement {@link Resettable} are reset and
+ * returned to the pool. The next execution for the same operation and target starts with these
+ * objects in its scope cache, so they need not be created again. All other objects are created
+ * for each execution as usual.
+ * </p>
+ * <p>
+ * Objects are never shared by concurrent executions, because a set of objects is removed from the
+ * pool for the whole duration of an execution. Thus, the number of pooled sets per operation and
+ * target never exceeds the maximum number of concurrent executions.
+ * </p>
+ *
+ * @author agent
+ */
+@ThreadSafe
+public final class ExecutionScopePool {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionScopePool.class);
+
+	private final ConcurrentMap<List<String>, Deque<Map<Key<?>, Object>>> pool = new ConcurrentHashMap<>();
+
+	/**
+	 * Takes a set of recycled objects from the pool.
+	 *
+	 * @param operation
+	 *            the operation of the execution
+	 * @param target
+	 *            the target of the execution
+	 * @return a mutable scope cache which contains recycled objects or is empty if there are none
+	 *         available
+	 */
+	public Map<Key<?>, Object> acquire(final String operation, final String target) {
+		Deque<Map<Key<?>, Object>> deque = pool.get(Arrays.asList(operation, target));
+		Map<Key<?>, Object> scopeCache = deque != null ? deque.pollFirst() : null;
+		return scopeCache != null ? scopeCache : newHashMap();
+	}
+
+	/**
+	 * Resets the {@link Resettable} objects of a finished execution and returns them to the pool.
+	 * Objects that fail to reset are discarded.
+	 *
+	 * @param operation
+	 *            the operation of the execution
+	 * @param target
+	 *            the target of the execution
+	 * @param scopeCache
+	 *            the objects that were cached in the execution's scope
+	 */
+	public void release(final String operation, final String target, final Map<Key<?>, Object> scopeCache) {
+		Map<Key<?>, Object> recycled = newHashMap();
+		for (Entry<Key<?>, Object> entry : scopeCache.entrySet()) {
+			Object value = entry.getValue();
+			if (value instanceof Resettable) {
+				try {
+					((Resettable) value).reset();
+					recycled.put(entry.getKey(), value);
+				} catch (Exception ex) {
+					LOGGER.warn("Discarding object that could not be reset: " + value, ex);
+				}
+			}
+		}
+		if (!recycled.isEmpty()) {
+			pool.computeIfAbsent(Arrays.asList(operation, target), k -> new ConcurrentLinkedDeque<>()).offerFirst(recycled);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.config.scope;
+
+/**
+ * Implemented by {@link ExecutionScoped} classes whose instances may be recycled for a subsequent
+ * execution with the same operation and target if pooling is enabled (see
+ * {@link ExecutionScopePool}). Before an instance is recycled, {@link #reset()} is called. Only
+ * classes that are expensive to create and whose state does not depend on the identity of an
+ * execution (e. g. its execution id or thread id) should implement this interface.
+ *
+ * @author agent
+ */
+public interface Resettable {
+
+	/**
+	 * Resets this object to the state it had right after creation. Resources that belong to an
+	 * execution, e. g. connections or cookies, must be released. An implementation may throw an
+	 * exception if it cannot be reset, in which case the instance is discarded.
+	 */
+	void reset() throws Exception;
+}
@@ -15,6 +15,9 @@
  */
 package com.mgmtp.perfload.core.client.driver;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Interface for a load test driver. Implementions of this class must execute the actual load test
  * functionality.
@@ -28,4 +31,23 @@ public interface LtDriver {
 	 * 
 	 */
 	void execute() throws Exception;
+
+	/**
+	 * Carries out the actual load test logic without blocking during waiting times, if supported.
+	 * This method is called instead of {@link #execute()} if non-blocking waiting times are
+	 * enabled. The default implementation calls {@link #execute()}, i. e. it blocks and returns a
+	 * completed stage.
+	 * 
+	 * @return a stage that completes when the load test logic is done
+	 */
+	default CompletionStage<Void> executeAsync() {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		try {
+			execute();
+			result.complete(null);
+		} catch (Exception ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
 }
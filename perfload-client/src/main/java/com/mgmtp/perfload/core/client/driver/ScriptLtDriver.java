@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.util.IdGenerator;
 import com.mgmtp.perfload.core.common.util.LoggingGobbleCallback;
 import com.mgmtp.perfload.core.common.util.LoggingGobbleCallback.Level;
 import com.mgmtp.perfload.core.common.util.StreamGobbler;
@@ -45,13 +46,15 @@ public class ScriptLtDriver implements LtDriver {
 	private final Provider<ProcessInfo> processInfoProvider;
 	private final Provider<ResultLogger> loggerProvider;
 	private final Provider<UUID> executionIdProvider;
+	private final IdGenerator idGenerator;
 
 	@Inject
 	public ScriptLtDriver(final Provider<ProcessInfo> processInfoProvider, final Provider<ResultLogger> loggerProvider,
-			@ExecutionId final Provider<UUID> executionIdProvider) {
+			@ExecutionId final Provider<UUID> executionIdProvider, final IdGenerator idGenerator) {
 		this.processInfoProvider = processInfoProvider;
 		this.loggerProvider = loggerProvider;
 		this.executionIdProvider = executionIdProvider;
+		this.idGenerator = idGenerator;
 	}
 
 	/**
@@ -104,6 +107,6 @@ public class ScriptLtDriver implements LtDriver {
 		ti.stop();
 
 		loggerProvider.get().logResult(System.currentTimeMillis(), ti, ti, "SCRIPT", null, null, executionIdProvider.get(),
-				UUID.randomUUID());
+				idGenerator.nextId());
 	}
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an event listener whose callbacks are executed on a separate thread, so they don't delay
+ * the load-generating thread. The callbacks of all asynchronous listeners are executed in order on
+ * a single thread per test process (see {@link AsyncListenerExecutor}). Asynchronous listeners must be thread-safe and must not look up
+ * execution-scoped objects, because they are not called within the execution scope.
+ *
+ * @author agent
+ */
+@Documented
+@Inherited
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface AsyncListener {
+	//
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * <p>
+ * Runs tasks for asynchronous listeners (see {@link AsyncListener}) in order on a single daemon
+ * thread. Exceptions are logged. Each test process has its own instance, so test processes
+ * running in the same VM do not compete for the thread. The thread terminates when idle and is
+ * started again on demand.
+ * </p>
+ * <p>
+ * Tasks wait in a bounded queue. If listeners cannot keep up and the queue is full, a task is run
+ * on the calling thread instead, which slows down the load-generating threads rather than letting
+ * the queue grow without limit. Such tasks may overtake queued ones. The number of tasks run on
+ * calling threads is logged with the first one and available via {@link #getOverflowCount()}.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class AsyncListenerExecutor implements Executor {
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncListenerExecutor.class);
+
+	static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	private final AtomicLong overflowCount = new AtomicLong();
+	private volatile ThreadPoolExecutor executor;
+
+	@Inject
+	public AsyncListenerExecutor() {
+		executor = createExecutor(DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Sets the maximum number of tasks waiting for the listener thread.
+	 *
+	 * @param queueCapacity
+	 *            the queue capacity; if present value is taken from testplan.xml where it may be
+	 *            configured in the following way:
+	 * <properties>
+	 * ...
+	 * <property name="listener.asyncQueueCapacity">100000</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setQueueCapacity(@Named("listener.asyncQueueCapacity") final String queueCapacity) {
+		ThreadPoolExecutor previous = executor;
+		executor = createExecutor(Integer.parseInt(queueCapacity.trim()));
+		previous.shutdown();
+	}
+
+	private ThreadPoolExecutor createExecutor(final int queueCapacity) {
+		ThreadPoolExecutor result = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueCapacity),
+				new ThreadFactoryBuilder().setNameFormat("perfload-async-listener").setDaemon(true).build(),
+				(task, exec) -> {
+					if (overflowCount.getAndIncrement() == 0L) {
+						LOG.warn("Asynchronous listeners cannot keep up. Running them on the calling thread.");
+					}
+					if (!exec.isShutdown()) {
+						task.run();
+					}
+				});
+		result.allowCoreThreadTimeOut(true);
+		return result;
+	}
+
+	@Override
+	public void execute(final Runnable task) {
+		executor.execute(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				LOG.error("Error executing asynchronous listener", ex);
+			}
+		});
+	}
+
+	/**
+	 * @return the number of tasks that were run on the calling thread, because the queue was full
+	 */
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Utility methods for compiling event listeners into arrays that are iterated when events are
+ * fired.
+ *
+ * @author agent
+ */
+public final class ListenerSupport {
+	// Does not keep listener classes, and thus their class loaders, from being unloaded
+	private static final ClassValue<ConcurrentMap<String, Boolean>> OVERRIDES =
+			new ClassValue<ConcurrentMap<String, Boolean>>() {
+		@Override
+		protected ConcurrentMap<String, Boolean> computeValue(final Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private ListenerSupport() {
+		// utility class
+	}
+
+	/**
+	 * Checks whether the specified listener overrides a callback method, i. e. whether it
+	 * implements it itself instead of inheriting the interface's no-op default method. The result
+	 * is cached per class.
+	 *
+	 * @param listener
+	 *            the listener
+	 * @param callback
+	 *            the name of the callback method
+	 * @param eventType
+	 *            the callback's parameter type
+	 * @return {@code true} if the callback must be called
+	 */
+	public static boolean overrides(final Object listener, final String callback, final Class<?> eventType) {
+		Class<?> listenerClass = listener.getClass();
+		return OVERRIDES.get(listenerClass).computeIfAbsent(callback + '(' + eventType.getName() + ')', key -> {
+			try {
+				return !listenerClass.getMethod(callback, eventType).getDeclaringClass().isInterface();
+			} catch (NoSuchMethodException ex) {
+				throw new IllegalArgumentException(ex);
+			}
+		});
+	}
+
+	/**
+	 * @param listener
+	 *            the listener
+	 * @return {@code true} if the listener's class is annotated with {@link AsyncListener}
+	 */
+	public static boolean isAsync(final Object listener) {
+		return listener.getClass().isAnnotationPresent(AsyncListener.class);
+	}
+
+	/**
+	 * Checks whether all bindings of the specified listener type are singletons. In this case, the
+	 * set of listeners is the same for all executions and may be compiled once.
+	 *
+	 * @param injector
+	 *            the injector
+	 * @param listenerType
+	 *            the listener type
+	 * @return {@code true} if all listeners are singletons
+	 */
+	public static boolean allSingletons(final Injector injector, final Class<?> listenerType) {
+		for (Binding<?> binding : injector.findBindingsByType(TypeLiteral.get(listenerType))) {
+			if (!Scopes.isSingleton(binding)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
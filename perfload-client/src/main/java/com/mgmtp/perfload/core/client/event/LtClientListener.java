@@ -26,9 +26,6 @@ import com.mgmtp.perfload.core.client.config.annotations.ActiveThreads;
 import com.mgmtp.perfload.core.client.config.annotations.DaemonId;
 import com.mgmtp.perfload.core.client.config.annotations.ProcessId;
 import com.mgmtp.perfload.core.client.util.LtContext;
-import com.mgmtp.perfload.core.clientserver.client.Client;
-import com.mgmtp.perfload.core.common.clientserver.Payload;
-import com.mgmtp.perfload.core.common.clientserver.PayloadType;
 import com.mgmtp.perfload.core.common.util.LtStatus;
 import com.mgmtp.perfload.core.common.util.StatusInfo;
 import com.mgmtp.perfload.core.common.util.StatusInfoType;
@@ -36,7 +33,7 @@ import com.mgmtp.perfload.core.common.util.StatusInfoType;
 /**
  * <p>
  * Listener implementation for sending status events to the daemon. The daemon will forward these
- * events to the console.
+ * events to the console. Run events are sent in batches using a {@link StatusBatcher}.
  * </p>
  * <p>
  * Additionally, this class is responsible for cleaning up the thread scope after each run.
@@ -52,15 +49,15 @@ import com.mgmtp.perfload.core.common.util.StatusInfoType;
 @ThreadSafe
 public final class LtClientListener implements LtProcessEventListener, LtRunnerEventListener {
 
-	private final Client client;
+	private final StatusBatcher statusBatcher;
 	private final Provider<LtContext> contextProvider;
 	private final int processId;
 	private final int daemonId;
 	private final Provider<Integer> activeThreadsProvider;
 
 	/**
-	 * @param client
-	 *            The client to the daemon which is used to send to status events.
+	 * @param statusBatcher
+	 *            The batcher which is used to send to status events to the daemon.
 	 * @param contextProvider
 	 *            Provider for {@link LtContext}. Since {@link LtContext} has thread scope and
 	 *            {@link LtClientListener} is a {@link Singleton}, a provider must be injected in
@@ -74,9 +71,10 @@ public final class LtClientListener implements LtProcessEventListener, LtRunnerE
 	 *            because the latest value must be retrieved whenever a status event is sent.
 	 */
 	@Inject
-	public LtClientListener(final Client client, final Provider<LtContext> contextProvider, @ProcessId final int processId,
-			@DaemonId final int daemonId, @ActiveThreads final Provider<Integer> activeThreadsProvider) {
-		this.client = client;
+	public LtClientListener(final StatusBatcher statusBatcher, final Provider<LtContext> contextProvider,
+			@ProcessId final int processId, @DaemonId final int daemonId,
+			@ActiveThreads final Provider<Integer> activeThreadsProvider) {
+		this.statusBatcher = statusBatcher;
 		this.contextProvider = contextProvider;
 		this.processId = processId;
 		this.daemonId = daemonId;
@@ -86,22 +84,25 @@ public final class LtClientListener implements LtProcessEventListener, LtRunnerE
 	// LtProcessEventListener methods
 
 	/**
-	 * Not implemented.
+	 * Starts the periodic flushing of status batches.
 	 */
 	@Override
 	public void processStarted(final LtProcessEvent event) {
-		//
+		statusBatcher.start();
 	}
 
 	/**
-	 * Sends a {@link StatusInfo} object to the daemon when a process has finished.
+	 * Sends a {@link StatusInfo} object to the daemon when a process has finished after any
+	 * pending run events.
 	 */
 	@Override
 	public void processFinished(final LtProcessEvent event) {
+		statusBatcher.stop();
 		StatusInfo si = new StatusInfo.Builder(StatusInfoType.PROCESS_FINISHED, processId, daemonId)
 				.error(event.getResult() != LtStatus.SUCCESSFUL)
 				.build();
-		sendStatus(si);
+		statusBatcher.send(si);
+		statusBatcher.flush();
 	}
 
 	// LtRunnerEventListener methods
@@ -134,11 +135,6 @@ public final class LtClientListener implements LtProcessEventListener, LtRunnerE
 				.finished(type == StatusInfoType.RUN_FINISHED)
 				.build();
 
-		sendStatus(si);
-	}
-
-	private void sendStatus(final StatusInfo statusInfo) {
-		Payload payload = new Payload(PayloadType.STATUS, statusInfo);
-		client.sendMessage(payload);
+		statusBatcher.send(si);
 	}
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import static com.mgmtp.perfload.core.client.event.ListenerSupport.overrides;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import com.mgmtp.perfload.core.client.runner.LtRunner;
+
+/**
+ * Fires {@link LtRunnerEvent}s for {@link LtRunner}. The listeners are compiled into arrays per
+ * callback, which only contain the listeners that actually override the callback. If all listeners
+ * are singletons, this is done only once. Otherwise, the listeners are looked up and compiled for
+ * each execution.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class LtRunnerEventDispatcher {
+	private static final Logger LOG = LoggerFactory.getLogger(LtRunnerEventDispatcher.class);
+
+	private final Provider<? extends Collection<? extends LtRunnerEventListener>> listenersProvider;
+	private final boolean cacheable;
+	private final Executor asyncExecutor;
+	private volatile Pipeline cachedPipeline;
+
+	/**
+	 * @param injector
+	 *            the injector, used to determine whether the listeners are all singletons
+	 * @param listenersProvider
+	 *            provider for the set of listeners
+	 * @param asyncExecutor
+	 *            the executor for asynchronous listeners
+	 */
+	@Inject
+	public LtRunnerEventDispatcher(final Injector injector, final Provider<Set<LtRunnerEventListener>> listenersProvider,
+			final AsyncListenerExecutor asyncExecutor) {
+		this(listenersProvider, ListenerSupport.allSingletons(injector, LtRunnerEventListener.class), asyncExecutor);
+	}
+
+	/**
+	 * @param listeners
+	 *            a fixed collection of listeners
+	 */
+	public LtRunnerEventDispatcher(final Collection<? extends LtRunnerEventListener> listeners) {
+		this(() -> ImmutableSet.copyOf(listeners), true, new AsyncListenerExecutor());
+	}
+
+	private LtRunnerEventDispatcher(final Provider<? extends Collection<? extends LtRunnerEventListener>> listenersProvider,
+			final boolean cacheable, final Executor asyncExecutor) {
+		this.listenersProvider = listenersProvider;
+		this.cacheable = cacheable;
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * Returns the compiled listeners. Must be called within the execution scope, because
+	 * listeners may have to be looked up.
+	 *
+	 * @return the pipeline for firing events
+	 */
+	public Pipeline pipeline() {
+		if (!cacheable) {
+			return new Pipeline(listenersProvider.get(), asyncExecutor);
+		}
+		Pipeline pipeline = cachedPipeline;
+		if (pipeline == null) {
+			// a race is harmless, all pipelines are equivalent
+			pipeline = new Pipeline(listenersProvider.get(), asyncExecutor);
+			cachedPipeline = pipeline;
+		}
+		return pipeline;
+	}
+
+	/**
+	 * Compiled listeners for firing events.
+	 */
+	@Immutable
+	public static final class Pipeline {
+		private final LtRunnerEventListener[] runStartedListeners;
+		private final LtRunnerEventListener[] runFinishedListeners;
+
+		Pipeline(final Collection<? extends LtRunnerEventListener> listeners, final Executor asyncExecutor) {
+			List<LtRunnerEventListener> runStarted = new ArrayList<>(listeners.size());
+			List<LtRunnerEventListener> runFinished = new ArrayList<>(listeners.size());
+			for (LtRunnerEventListener listener : listeners) {
+				LtRunnerEventListener target = ListenerSupport.isAsync(listener)
+						? new AsyncLtRunnerEventListener(listener, asyncExecutor)
+						: listener;
+				if (overrides(listener, "runStarted", LtRunnerEvent.class)) {
+					runStarted.add(target);
+				}
+				if (overrides(listener, "runFinished", LtRunnerEvent.class)) {
+					runFinished.add(target);
+				}
+			}
+			this.runStartedListeners = runStarted.toArray(new LtRunnerEventListener[runStarted.size()]);
+			this.runFinishedListeners = runFinished.toArray(new LtRunnerEventListener[runFinished.size()]);
+		}
+
+		public void fireRunStarted(final LtRunnerEvent event) {
+			LOG.debug("fireRunStarted: {}", event);
+			for (LtRunnerEventListener listener : runStartedListeners) {
+				listener.runStarted(event);
+			}
+		}
+
+		public void fireRunFinished(final LtRunnerEvent event) {
+			LOG.debug("fireRunFinished: {}", event);
+			for (LtRunnerEventListener listener : runFinishedListeners) {
+				listener.runFinished(event);
+			}
+		}
+	}
+
+	private static final class AsyncLtRunnerEventListener implements LtRunnerEventListener {
+		private final LtRunnerEventListener delegate;
+		private final Executor executor;
+
+		AsyncLtRunnerEventListener(final LtRunnerEventListener delegate, final Executor executor) {
+			this.delegate = delegate;
+			this.executor = executor;
+		}
+
+		@Override
+		public void runStarted(final LtRunnerEvent event) {
+			executor.execute(() -> delegate.runStarted(event));
+		}
+
+		@Override
+		public void runFinished(final LtRunnerEvent event) {
+			executor.execute(() -> delegate.runFinished(event));
+		}
+	}
+}
@@ -20,7 +20,9 @@ import java.util.EventListener;
 import com.mgmtp.perfload.core.client.runner.LtRunner;
 
 /**
- * Event listener that can be registered with {@link LtRunner}.
+ * Event listener that can be registered with {@link LtRunner}. All callbacks have no-op default
+ * implementations. Callbacks that are not overridden are not called at all. Listeners annotated
+ * with {@link AsyncListener} are called on a separate thread.
  * 
  * @author rnaegele
  */
@@ -32,7 +34,9 @@ public interface LtRunnerEventListener extends EventListener {
 	 * @param event
 	 *            the event
 	 */
-	void runStarted(LtRunnerEvent event);
+	default void runStarted(final LtRunnerEvent event) {
+		// no-op
+	}
 
 	/**
 	 * Called after the driver execution has completed.
@@ -40,5 +44,7 @@ public interface LtRunnerEventListener extends EventListener {
 	 * @param event
 	 *            the event
 	 */
-	void runFinished(LtRunnerEvent event);
+	default void runFinished(final LtRunnerEvent event) {
+		// no-op
+	}
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+
+/**
+ * Sends {@link StatusInfo} objects to the daemon in batches. Test threads add status objects to a
+ * lock-free queue, which is flushed as a single {@link PayloadType#STATUS_BATCH} message once it
+ * holds {@code status.batchSize} objects or every {@code status.batchIntervalMillis} milliseconds,
+ * whichever comes first. Flushes are serialized, so the order of status objects is retained. A
+ * batch size of {@code 1} disables batching.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class StatusBatcher {
+	private static final Logger LOG = LoggerFactory.getLogger(StatusBatcher.class);
+
+	private final Client client;
+	private final Queue<StatusInfo> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private int batchSize = 100;
+	private long batchIntervalMillis = 250L;
+
+	@GuardedBy("this")
+	private ScheduledExecutorService flusher;
+
+	/**
+	 * @param client
+	 *            the client to the daemon
+	 */
+	@Inject
+	public StatusBatcher(final Client client) {
+		this.client = client;
+	}
+
+	/**
+	 * Sets the maximum number of status objects per batch. Defaults to 100.
+	 *
+	 * @param batchSize
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="status.batchSize">100</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setBatchSize(@Named("status.batchSize") final String batchSize) {
+		this.batchSize = Integer.parseInt(batchSize.trim());
+	}
+
+	/**
+	 * Sets the maximum time in milliseconds status objects are held back before they are sent.
+	 * Defaults to 250.
+	 *
+	 * @param batchIntervalMillis
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="status.batchIntervalMillis">250</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setBatchIntervalMillis(@Named("status.batchIntervalMillis") final String batchIntervalMillis) {
+		this.batchIntervalMillis = Long.parseLong(batchIntervalMillis.trim());
+	}
+
+	/**
+	 * Starts flushing pending status objects periodically.
+	 */
+	public synchronized void start() {
+		if (batchSize > 1 && flusher == null) {
+			flusher = Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactoryBuilder().setNameFormat("perfload-status-flusher").setDaemon(true).build());
+			flusher.scheduleWithFixedDelay(() -> {
+				try {
+					flush();
+				} catch (RuntimeException ex) {
+					LOG.error("Error flushing status batch", ex);
+				}
+			}, batchIntervalMillis, batchIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the periodic flushing and sends any pending status objects.
+	 */
+	public synchronized void stop() {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flusher = null;
+		}
+		flush();
+	}
+
+	/**
+	 * Adds a status object to the current batch. The batch is sent immediately if it is full.
+	 *
+	 * @param statusInfo
+	 *            the status object
+	 */
+	public void send(final StatusInfo statusInfo) {
+		if (batchSize <= 1) {
+			client.sendMessage(new Payload(PayloadType.STATUS, statusInfo));
+			return;
+		}
+		pending.offer(statusInfo);
+		if (pendingCount.incrementAndGet() >= batchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Sends all pending status objects to the daemon.
+	 */
+	public synchronized void flush() {
+		int count;
+		while ((count = Math.min(pendingCount.get(), batchSize)) > 0) {
+			StatusInfo[] batch = new StatusInfo[count];
+			for (int i = 0; i < count; ++i) {
+				batch[i] = pending.poll();
+			}
+			pendingCount.addAndGet(-count);
+			client.sendMessage(count == 1
+					? new Payload(PayloadType.STATUS, batch[0])
+					: new Payload(PayloadType.STATUS_BATCH, batch));
+		}
+	}
+}
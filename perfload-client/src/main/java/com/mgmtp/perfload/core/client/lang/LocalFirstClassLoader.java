@@ -38,6 +38,16 @@ public final class LocalFirstClassLoader extends URLClassLoader {
 		super(urls);
 	}
 
+	/**
+	 * @param parent
+	 *            The class loader to delegate to for classes not found locally.
+	 * @param urls
+	 *            The URLs making up the local classpath for this class loader.
+	 */
+	public LocalFirstClassLoader(final ClassLoader parent, final URL... urls) {
+		super(urls, parent);
+	}
+
 	/**
 	 * Loads the class with the specified binary name trying to load it from the local classpath
 	 * first before delegating to the normal class loading mechanism.
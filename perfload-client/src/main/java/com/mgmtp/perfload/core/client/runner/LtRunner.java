@@ -17,18 +17,20 @@ package com.mgmtp.perfload.core.client.runner;
 
 import static com.mgmtp.perfload.core.common.util.LtUtils.checkInterrupt;
 
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import javax.inject.Inject;
-import javax.inject.Provider;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.mgmtp.perfload.core.client.driver.LtDriver;
 import com.mgmtp.perfload.core.client.event.LtRunnerEvent;
+import com.mgmtp.perfload.core.client.event.LtRunnerEventDispatcher;
 import com.mgmtp.perfload.core.client.event.LtRunnerEventListener;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
+import com.mgmtp.perfload.core.common.util.AbortionException;
+import com.mgmtp.perfload.core.common.util.LtStatus;
 import com.mgmtp.perfload.core.common.util.LtUtils;
 
 /**
@@ -37,30 +39,34 @@ import com.mgmtp.perfload.core.common.util.LtUtils;
  * @author rnaegele
  */
 public final class LtRunner {
-	private final Logger log = LoggerFactory.getLogger(getClass());
-
-	private final Provider<Set<LtRunnerEventListener>> listenersProvider;
+	private final LtRunnerEventDispatcher eventDispatcher;
 	private final LtDriver driver;
 	private final WaitingTimeManager waitingTimeManager;
 	private final ErrorHandler errorHandler;
+	private final ThinkTimeScheduler thinkTimeScheduler;
 
 	/**
 	 * @param driver
 	 *            the load test driver to execute
 	 * @param waitingTimeManager
 	 *            determines waiting times between requests
-	 * @param listenersProvider
-	 *            provider for a set of event listeners
+	 * @param eventDispatcher
+	 *            fires events to the registered event listeners
 	 * @param errorHandler
 	 *            the error handler that decides what to do if exceptions occur
+	 * @param thinkTimeScheduler
+	 *            suspends the execution during the waiting time before the test starts if executed
+	 *            asynchronously
 	 */
 	@Inject
 	public LtRunner(final LtDriver driver, final WaitingTimeManager waitingTimeManager,
-			final Provider<Set<LtRunnerEventListener>> listenersProvider, final ErrorHandler errorHandler) {
+			final LtRunnerEventDispatcher eventDispatcher, final ErrorHandler errorHandler,
+			final ThinkTimeScheduler thinkTimeScheduler) {
 		this.driver = driver;
 		this.waitingTimeManager = waitingTimeManager;
-		this.listenersProvider = listenersProvider;
+		this.eventDispatcher = eventDispatcher;
 		this.errorHandler = errorHandler;
+		this.thinkTimeScheduler = thinkTimeScheduler;
 	}
 
 	/**
@@ -72,10 +78,11 @@ public final class LtRunner {
 	 * @see LtRunnerEventListener
 	 */
 	public void execute() {
+		LtRunnerEventDispatcher.Pipeline listeners = eventDispatcher.pipeline();
 		Throwable throwable = null;
 		try {
 			waitingTimeManager.sleepBeforeTestStart();
-			fireRunStarted();
+			listeners.fireRunStarted(new LtRunnerEvent());
 
 			checkInterrupt();
 			driver.execute();
@@ -92,25 +99,59 @@ public final class LtRunner {
 			throwable = th;
 			errorHandler.execute(th);
 		} finally {
-			fireRunFinished(throwable);
+			listeners.fireRunFinished(new LtRunnerEvent(throwable));
 		}
 	}
 
-	private void fireRunStarted() {
-		LtRunnerEvent event = new LtRunnerEvent();
-		log.debug("fireRunStarted: {}", event);
-		for (LtRunnerEventListener listener : listenersProvider.get()) {
-			log.debug("Executing listener: {}", listener);
-			listener.runStarted(event);
+	/**
+	 * Executes the {@link LtDriver load test driver} implementation like {@link #execute()}, but
+	 * without blocking during waiting times (see {@link LtDriver#executeAsync()}). The returned stage
+	 * completes exceptionally with an {@link AbortionException} if the test is to be aborted.
+	 *
+	 * @return a stage that completes after the {@link LtRunnerEvent}s have been fired
+	 */
+	public CompletionStage<Void> executeAsync() {
+		LtRunnerEventDispatcher.Pipeline listeners = eventDispatcher.pipeline();
+		CompletableFuture<Void> result = new CompletableFuture<>();
+
+		CompletionStage<Void> execution;
+		try {
+			long waitingTime = waitingTimeManager.calculateWaitingTimeBeforeTestStart();
+			execution = waitingTime > 0L
+					? thinkTimeScheduler.resumeAfter(waitingTime, () -> startDriver(listeners))
+					: startDriver(listeners);
+		} catch (Throwable th) {
+			CompletableFuture<Void> failed = new CompletableFuture<>();
+			failed.completeExceptionally(th);
+			execution = failed;
 		}
+
+		execution.whenComplete((value, th) -> {
+			Throwable throwable = th instanceof CompletionException && th.getCause() != null ? th.getCause() : th;
+			try {
+				try {
+					if (throwable instanceof InterruptedException) {
+						// The thread completing the execution is not necessarily the one that was interrupted.
+						throw new AbortionException(LtStatus.INTERRUPTED, "Aborting test due to interrupt.", throwable);
+					}
+					if (throwable != null) {
+						errorHandler.execute(throwable);
+					}
+				} finally {
+					listeners.fireRunFinished(new LtRunnerEvent(throwable));
+				}
+				result.complete(null);
+			} catch (Throwable failure) {
+				result.completeExceptionally(failure);
+			}
+		});
+		return result;
 	}
 
-	private void fireRunFinished(final Throwable throwable) {
-		LtRunnerEvent event = new LtRunnerEvent(throwable);
-		log.debug("fireRunFinished: {}", event);
-		for (LtRunnerEventListener listener : listenersProvider.get()) {
-			log.debug("Executing listener: {}", listener);
-			listener.runFinished(event);
-		}
+	private CompletionStage<Void> startDriver(final LtRunnerEventDispatcher.Pipeline listeners) {
+		listeners.fireRunStarted(new LtRunnerEvent());
+
+		checkInterrupt();
+		return driver.executeAsync();
 	}
 }
@@ -24,10 +24,21 @@ public abstract class AbstractDistWaitingTimeStrategy implements WaitingTimeStra
 
 	private final long intervalMinMillis;
 	private final long intervalMaxMillis;
+	protected final RandomSource randomSource;
 
 	public AbstractDistWaitingTimeStrategy(final long intervalMinMillis, final long intervalMaxMillis) {
+		this(intervalMinMillis, intervalMaxMillis, new RandomSource());
+	}
+
+	/**
+	 * @param randomSource
+	 *            the source of random numbers, which provides a generator per thread
+	 */
+	public AbstractDistWaitingTimeStrategy(final long intervalMinMillis, final long intervalMaxMillis,
+			final RandomSource randomSource) {
 		this.intervalMinMillis = intervalMinMillis;
 		this.intervalMaxMillis = intervalMaxMillis;
+		this.randomSource = randomSource;
 	}
 
 	protected long calculateNormedValue(final double probability) {
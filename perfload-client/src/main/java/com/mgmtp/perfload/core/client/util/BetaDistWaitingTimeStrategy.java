@@ -21,29 +21,113 @@ import javax.inject.Named;
 import org.apache.commons.math3.distribution.BetaDistribution;
 
 /**
- * Beta-distributed waiting time strategy.
+ * Beta-distributed waiting time strategy. The cumulative distribution function is tabulated once
+ * on construction and interpolated linearly, so that calculating a waiting time neither creates a
+ * {@link BetaDistribution} nor evaluates the regularized incomplete beta function. Near zero and
+ * one, where the density is unbounded for shape parameters below one, the table is interpolated
+ * with power laws instead, which keeps the error below 1e-4 for shape parameters down to 0.1.
  * 
  * @author rnaegele
  */
 public final class BetaDistWaitingTimeStrategy extends AbstractDistWaitingTimeStrategy {
 
-	private final double betaDistParamA;
-	private final double betaDistParamB;
+	static final int TABLE_SIZE = 4096;
+
+	/** The number of intervals at either end of the table that are interpolated with power laws. */
+	static final int EDGE_INTERVALS = 16;
+
+	private final double[] cdfTable = new double[TABLE_SIZE + 1];
+
+	// the upper tail 1 - F(1 - y) for y up to EDGE_INTERVALS / TABLE_SIZE, i. e. the CDF with swapped parameters
+	private final double[] upperTailTable = new double[EDGE_INTERVALS + 1];
+
+	// the exponents of the power laws per edge interval
+	private final double[] lowerExponents = new double[EDGE_INTERVALS];
+	private final double[] upperExponents = new double[EDGE_INTERVALS];
+
+	public BetaDistWaitingTimeStrategy(final long intervalMinMillis, final long intervalMaxMillis,
+			final double betaDistParamA, final double betaDistParamB) {
+		this(intervalMinMillis, intervalMaxMillis, betaDistParamA, betaDistParamB, new RandomSource());
+	}
 
 	@Inject
 	public BetaDistWaitingTimeStrategy(@Named("wtm.strategy.betadist.intervalMinMillis") final long intervalMinMillis,
 			@Named("wtm.strategy.betadist.intervalMaxMillis") final long intervalMaxMillis,
 			@Named("wtm.strategy.betadist.betaDistParamA") final double betaDistParamA,
-			@Named("wtm.strategy.betadist.betaDistParamB") final double betaDistParamB) {
-		super(intervalMinMillis, intervalMaxMillis);
-		this.betaDistParamA = betaDistParamA;
-		this.betaDistParamB = betaDistParamB;
+			@Named("wtm.strategy.betadist.betaDistParamB") final double betaDistParamB, final RandomSource randomSource) {
+		super(intervalMinMillis, intervalMaxMillis, randomSource);
+
+		// no random generator needed, the distribution is only used for building the table
+		BetaDistribution betaDist = new BetaDistribution(null, betaDistParamA, betaDistParamB);
+		for (int i = 0; i <= TABLE_SIZE; ++i) {
+			cdfTable[i] = betaDist.cumulativeProbability((double) i / TABLE_SIZE);
+		}
+		BetaDistribution swappedBetaDist = new BetaDistribution(null, betaDistParamB, betaDistParamA);
+		for (int i = 0; i <= EDGE_INTERVALS; ++i) {
+			upperTailTable[i] = swappedBetaDist.cumulativeProbability((double) i / TABLE_SIZE);
+		}
+
+		// F(x) is proportional to x^a near zero, 1 - F(x) to (1 - x)^b near one
+		lowerExponents[0] = betaDistParamA;
+		upperExponents[0] = betaDistParamB;
+		for (int i = 1; i < EDGE_INTERVALS; ++i) {
+			lowerExponents[i] = exponent(cdfTable, i);
+			upperExponents[i] = exponent(upperTailTable, i);
+		}
+	}
+
+	/**
+	 * Computes the exponent of the power law through two adjacent table entries.
+	 *
+	 * @return the exponent, or {@code NaN} if the table entries are zero
+	 */
+	private static double exponent(final double[] table, final int index) {
+		double lower = table[index];
+		double upper = table[index + 1];
+		return lower > 0d && upper > 0d ? Math.log(upper / lower) / Math.log((index + 1d) / index) : Double.NaN;
 	}
 
 	@Override
 	public long calculateWaitingTime() {
-		BetaDistribution betaDist = new BetaDistribution(betaDistParamA, betaDistParamB);
-		double probability = betaDist.cumulativeProbability(Math.random());
+		double probability = cumulativeProbability(randomSource.nextDouble());
 		return calculateNormedValue(probability);
 	}
+
+	/**
+	 * @param x
+	 *            a value between zero and one
+	 * @return the cumulative probability of the beta distribution at {@code x}, interpolated from
+	 *         the table
+	 */
+	double cumulativeProbability(final double x) {
+		double pos = x * TABLE_SIZE;
+		if (pos < EDGE_INTERVALS) {
+			return interpolateEdge(cdfTable, lowerExponents, pos);
+		}
+		if (pos > TABLE_SIZE - EDGE_INTERVALS) {
+			return 1d - interpolateEdge(upperTailTable, upperExponents, TABLE_SIZE - pos);
+		}
+		return interpolateLinearly(cdfTable, pos);
+	}
+
+	private static double interpolateEdge(final double[] table, final double[] exponents, final double pos) {
+		int index = (int) pos;
+		if (index == 0) {
+			return table[1] * Math.pow(pos, exponents[0]);
+		}
+		double exponent = exponents[index];
+		if (Double.isNaN(exponent)) {
+			return interpolateLinearly(table, pos);
+		}
+		return table[index] * Math.pow(pos / index, exponent);
+	}
+
+	private static double interpolateLinearly(final double[] table, final double pos) {
+		int index = (int) pos;
+		if (index >= table.length - 1) {
+			return table[table.length - 1];
+		}
+		double lower = table[index];
+		return lower + (pos - index) * (table[index + 1] - lower);
+	}
 }
@@ -24,6 +24,7 @@ import net.jcip.annotations.NotThreadSafe;
 
 import com.google.common.collect.ForwardingMap;
 import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.config.scope.Resettable;
 
 /**
  * Default {@link PlaceholderContainer} implementation.
@@ -32,7 +33,7 @@ import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
  */
 @NotThreadSafe
 @ExecutionScoped
-public class DefaultPlaceholderContainer extends ForwardingMap<String, String> implements PlaceholderContainer {
+public class DefaultPlaceholderContainer extends ForwardingMap<String, String> implements PlaceholderContainer, Resettable {
 	private final Map<String, String> placeholders = newHashMap();
 
 	@Override
@@ -55,4 +56,12 @@ public class DefaultPlaceholderContainer extends ForwardingMap<String, String> i
 
 		return placeholders.put(key, value);
 	}
+
+	/**
+	 * Removes all placeholders.
+	 */
+	@Override
+	public void reset() {
+		placeholders.clear();
+	}
 }
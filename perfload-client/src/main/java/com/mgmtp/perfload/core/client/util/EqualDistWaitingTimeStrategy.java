@@ -25,15 +25,19 @@ import javax.inject.Named;
  */
 public final class EqualDistWaitingTimeStrategy extends AbstractDistWaitingTimeStrategy {
 
+	public EqualDistWaitingTimeStrategy(final long intervalMinMillis, final long intervalMaxMillis) {
+		super(intervalMinMillis, intervalMaxMillis);
+	}
+
 	@Inject
 	public EqualDistWaitingTimeStrategy(@Named("wtm.strategy.equaldist.intervalMinMillis") final long intervalMinMillis,
-			@Named("wtm.strategy.equaldist.intervalMaxMillis") final long intervalMaxMillis) {
-		super(intervalMinMillis, intervalMaxMillis);
+			@Named("wtm.strategy.equaldist.intervalMaxMillis") final long intervalMaxMillis, final RandomSource randomSource) {
+		super(intervalMinMillis, intervalMaxMillis, randomSource);
 	}
 
 	@Override
 	public long calculateWaitingTime() {
-		double probability = Math.random();
+		double probability = randomSource.nextDouble();
 		return calculateNormedValue(probability);
 	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * <p>
+ * Fast, non-cryptographic {@link IdGenerator}. Unlike {@link UUID#randomUUID()}, which goes through
+ * a shared {@link SecureRandom} for every id, ids are made up of a random per-process prefix and a
+ * counter. Each thread reserves a block of counter values at a time and then counts without any
+ * synchronization.
+ * </p>
+ * <p>
+ * Ids are valid UUIDs of version 8 (custom) with the IETF variant. The 60 random bits of the prefix
+ * make collisions between processes very unlikely; within a process, ids are unique as long as
+ * fewer than 2^62 ids are generated.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class FastIdGenerator implements IdGenerator {
+
+	private static final long BLOCK_SIZE = 1L << 12;
+	private static final long COUNTER_MASK = 0x3fffffffffffffffL;
+
+	private final long mostSigBits;
+	private final AtomicLong nextBlock = new AtomicLong();
+	private final ThreadLocal<long[]> counters = ThreadLocal.withInitial(() -> new long[2]);
+
+	public FastIdGenerator() {
+		this(new SecureRandom().nextLong() ^ System.nanoTime());
+	}
+
+	/**
+	 * @param prefix
+	 *            the random prefix for the ids of this generator
+	 */
+	FastIdGenerator(final long prefix) {
+		// version 8
+		this.mostSigBits = prefix & ~0xf000L | 0x8000L;
+	}
+
+	@Override
+	public UUID nextId() {
+		// [0] = next counter value, [1] = end of the current block (exclusive)
+		long[] counter = counters.get();
+		if (counter[0] == counter[1]) {
+			long start = nextBlock.getAndIncrement() * BLOCK_SIZE;
+			counter[0] = start;
+			counter[1] = start + BLOCK_SIZE;
+		}
+		long value = counter[0]++;
+
+		// IETF variant
+		return new UUID(mostSigBits, value & COUNTER_MASK | 0x8000000000000000L);
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.util.UUID;
+
+/**
+ * Generates the ids for executions and requests. The default implementation is
+ * {@link FastIdGenerator}. It may be replaced in the testplan module, e. g. with
+ * {@code bind(IdGenerator.class).toInstance(UUID::randomUUID)} for random UUIDs.
+ *
+ * @author agent
+ */
+public interface IdGenerator {
+
+	/**
+	 * @return a new, unique id
+	 */
+	UUID nextId();
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.util.UUID;
+
+/**
+ * Creates the textual form of ids as used in request headers. The string for the last id is cached
+ * per thread, so that the execution id, which is sent with every request of an execution, is
+ * formatted only once. Ids that are used only once, such as request ids, should be formatted
+ * directly in order not to evict the cached execution id.
+ *
+ * @author agent
+ */
+public final class IdStrings {
+
+	private static final ThreadLocal<Object[]> LAST = ThreadLocal.withInitial(() -> new Object[2]);
+
+	private IdStrings() {
+		// don't allow instantiation
+	}
+
+	/**
+	 * @param id
+	 *            the id
+	 * @return the string representation of the id, as returned by {@link UUID#toString()}
+	 */
+	public static String toString(final UUID id) {
+		Object[] last = LAST.get();
+		if (id.equals(last[0])) {
+			return (String) last[1];
+		}
+		String result = id.toString();
+		last[0] = id;
+		last[1] = result;
+		return result;
+	}
+}
@@ -34,11 +34,26 @@ import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
 @NotThreadSafe
 public final class LtContext {
 
-	private final UUID executionId = UUID.randomUUID();
+	private final UUID executionId;
 	private String operation;
 	private String target;
 	private int threadId;
 
+	/**
+	 * Creates a new context with a random execution id.
+	 */
+	public LtContext() {
+		this(UUID.randomUUID());
+	}
+
+	/**
+	 * @param executionId
+	 *            the id of the execution
+	 */
+	public LtContext(final UUID executionId) {
+		this.executionId = executionId;
+	}
+
 	/**
 	 * @return the executionId
 	 */
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.util.SplittableRandom;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.inject.Inject;
+
+/**
+ * <p>
+ * Source of random numbers for waiting times. Every thread draws from its own
+ * {@link SplittableRandom}, which is split off a common root generator on first use. Unlike
+ * {@link Math#random()} or a shared {@link java.util.Random}, there is no contention between test
+ * threads.
+ * </p>
+ * <p>
+ * If a seed is configured, the root generator and thus the sequence of generators handed out to
+ * threads is reproducible. The numbers a thread draws are then the same in every run, provided
+ * that threads request their generators in the same order, e. g. in a single-threaded test.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class RandomSource {
+
+	private volatile SplittableRandom root;
+	private final ThreadLocal<SplittableRandom> threadRandom = ThreadLocal.withInitial(this::split);
+
+	/**
+	 * Creates a new instance with a random seed.
+	 */
+	@Inject
+	public RandomSource() {
+		this.root = new SplittableRandom();
+	}
+
+	/**
+	 * Creates a new instance with the specified seed.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public RandomSource(final long seed) {
+		this.root = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Sets a seed in order to make waiting times reproducible.
+	 *
+	 * @param seed
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="wtm.randomSeed">42</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setSeed(@Named("wtm.randomSeed") final String seed) {
+		this.root = new SplittableRandom(Long.parseLong(seed.trim()));
+	}
+
+	private synchronized SplittableRandom split() {
+		return root.split();
+	}
+
+	/**
+	 * @return the random number generator of the current thread; must not be shared with other
+	 *         threads
+	 */
+	public SplittableRandom current() {
+		return threadRandom.get();
+	}
+
+	/**
+	 * @return a pseudorandom value between zero (inclusive) and one (exclusive) from the current
+	 *         thread's generator
+	 */
+	public double nextDouble() {
+		return threadRandom.get().nextDouble();
+	}
+
+	/**
+	 * @param bound
+	 *            the upper bound (exclusive); must be positive
+	 * @return a pseudorandom value between zero (inclusive) and the specified bound (exclusive)
+	 *         from the current thread's generator
+	 */
+	public long nextLong(final long bound) {
+		return threadRandom.get().nextLong(bound);
+	}
+}
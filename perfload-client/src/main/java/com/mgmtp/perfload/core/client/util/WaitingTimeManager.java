@@ -15,8 +15,6 @@
  */
 package com.mgmtp.perfload.core.client.util;
 
-import java.util.Random;
-
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -35,36 +33,66 @@ public final class WaitingTimeManager {
 
 	private final WaitingTimeStrategy beforeRequestStrategy;
 	private final long beforeTestStartMillis;
-	private final Random rnd = new Random();
+	private final RandomSource randomSource;
+
+	/**
+	 * @param beforeTestStartMillis
+	 *            sleep time in milliseconds before the test starts
+	 * @param beforeRequestStrategy
+	 *            strategy used to calculate the sleep time before each request
+	 */
+	public WaitingTimeManager(final long beforeTestStartMillis, final WaitingTimeStrategy beforeRequestStrategy) {
+		this(beforeTestStartMillis, beforeRequestStrategy, new RandomSource());
+	}
 
 	/**
 	 * @param beforeTestStartMillis
 	 *            sleep time in milliseconds before the test starts
 	 * @param beforeRequestStrategy
 	 *            strategy used to calculate the sleep time before each request
+	 * @param randomSource
+	 *            the source of random numbers for the sleep time before the test starts
 	 */
 	@Inject
 	public WaitingTimeManager(@Named("wtm.beforeTestStartMillis") final long beforeTestStartMillis,
-			final WaitingTimeStrategy beforeRequestStrategy) {
+			final WaitingTimeStrategy beforeRequestStrategy, final RandomSource randomSource) {
 		this.beforeTestStartMillis = beforeTestStartMillis;
 		this.beforeRequestStrategy = beforeRequestStrategy;
+		this.randomSource = randomSource;
 	}
 
 	/**
 	 * Sleeps the time configured with {@code beforeTestStartMillis}.
 	 */
 	public void sleepBeforeTestStart() {
-		if (beforeTestStartMillis > 0L) {
-			sleep("sleepBeforeTestStart", rnd.nextInt((int) beforeTestStartMillis));
-		}
+		sleep("sleepBeforeTestStart", calculateWaitingTimeBeforeTestStart());
 	}
 
 	/**
 	 * Sleeps the time determined by {@code beforeRequestStrategy}.
 	 */
 	public void sleepBeforeRequest() {
-		long delay = beforeRequestStrategy.calculateWaitingTime();
-		sleep("sleepBeforeRequest", delay);
+		sleep("sleepBeforeRequest", calculateWaitingTimeBeforeRequest());
+	}
+
+	/**
+	 * Calculates the waiting time before the test starts without sleeping. The waiting time is a
+	 * random value less than {@code beforeTestStartMillis}.
+	 *
+	 * @return the waiting time in milliseconds
+	 */
+	public long calculateWaitingTimeBeforeTestStart() {
+		return beforeTestStartMillis > 0L ? randomSource.nextLong(beforeTestStartMillis) : 0L;
+	}
+
+	/**
+	 * Calculates the waiting time before a request using {@code beforeRequestStrategy} without
+	 * sleeping.
+	 *
+	 * @return the waiting time in milliseconds
+	 */
+	public long calculateWaitingTimeBeforeRequest() {
+		return beforeRequestStrategy.calculateWaitingTime();
 	}
 
 	/**
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.frame.CorruptedFrameException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadCodec;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+import com.mgmtp.perfload.core.common.util.StatusInfoType;
+
+/**
+ * Warms up a test process that is started ahead of time. The classes of the perfLoad core
+ * libraries are loaded, Guice is bootstrapped once, and the encoding of status messages is
+ * exercised so it is compiled by the JIT before the test starts.
+ * 
+ * @author agent
+ */
+public final class WarmUp {
+	private static final Logger LOG = LoggerFactory.getLogger(WarmUp.class);
+
+	private static final String PACKAGE_PATH = "com/mgmtp/perfload/core/";
+	private static final int CODEC_ITERATIONS = 20000;
+
+	private WarmUp() {
+		// don't allow instantiation
+	}
+
+	/**
+	 * Performs the warm-up. The warm-up is an optimization only, so failures are logged but do not
+	 * prevent the process from being used.
+	 */
+	public static void run() {
+		long start = System.nanoTime();
+		int classCount = loadClasses(WarmUp.class, PayloadCodec.class, Payload.class);
+		try {
+			Guice.createInjector(binder -> binder.bind(IdGenerator.class).to(FastIdGenerator.class)).getInstance(IdGenerator.class);
+		} catch (RuntimeException ex) {
+			LOG.warn("Could not warm up Guice", ex);
+		}
+		exerciseCodec();
+		LOG.info("Warm-up completed in {} ms. Loaded {} classes.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+				classCount);
+	}
+
+	/**
+	 * Loads, but does not initialize, the perfLoad classes in the jars or directories the specified
+	 * classes were loaded from.
+	 * 
+	 * @param anchors
+	 *            classes determining the class path entries to load classes from
+	 * @return the number of classes loaded
+	 */
+	static int loadClasses(final Class<?>... anchors) {
+		Set<File> locations = new LinkedHashSet<>();
+		for (Class<?> anchor : anchors) {
+			CodeSource codeSource = anchor.getProtectionDomain().getCodeSource();
+			if (codeSource != null) {
+				try {
+					locations.add(new File(codeSource.getLocation().toURI()));
+				} catch (URISyntaxException ex) {
+					LOG.debug("Ignoring code source: {}", codeSource.getLocation());
+				}
+			}
+		}
+
+		ClassLoader loader = WarmUp.class.getClassLoader();
+		int count = 0;
+		for (File location : locations) {
+			List<String> classNames;
+			try {
+				classNames = location.isDirectory() ? listClasses(location) : listJarClasses(location);
+			} catch (IOException ex) {
+				LOG.warn("Could not list classes in {}", location, ex);
+				continue;
+			}
+			for (String className : classNames) {
+				try {
+					Class.forName(className, false, loader);
+					++count;
+				} catch (ClassNotFoundException | LinkageError ex) {
+					// e. g. optional dependencies that are not available
+					LOG.debug("Could not load class {}", className, ex);
+				}
+			}
+		}
+		return count;
+	}
+
+	private static List<String> listClasses(final File dir) throws IOException {
+		Path root = dir.toPath();
+		try (Stream<Path> paths = Files.walk(root.resolve(PACKAGE_PATH))) {
+			return paths.map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+					.filter(WarmUp::isLoadableClass)
+					.map(WarmUp::toClassName)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static List<String> listJarClasses(final File jar) throws IOException {
+		List<String> classNames = Lists.newArrayList();
+		try (JarFile jarFile = new JarFile(jar)) {
+			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+				String name = entries.nextElement().getName();
+				if (isLoadableClass(name)) {
+					classNames.add(toClassName(name));
+				}
+			}
+		}
+		return classNames;
+	}
+
+	private static boolean isLoadableClass(final String path) {
+		return path.startsWith(PACKAGE_PATH) && path.endsWith(".class") && !path.endsWith("package-info.class");
+	}
+
+	private static String toClassName(final String path) {
+		return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+	}
+
+	private static void exerciseCodec() {
+		StatusInfo statusInfo = new StatusInfo.Builder(StatusInfoType.RUN_FINISHED, 1, 1)
+				.threadId(1)
+				.operation("warmUp")
+				.target("warmUp")
+				.error(false)
+				.activeThreads(1)
+				.finished(true)
+				.build();
+		Payload payload = new Payload(PayloadType.STATUS, statusInfo);
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(256);
+		try {
+			for (int i = 0; i < CODEC_ITERATIONS; ++i) {
+				buffer.clear();
+				PayloadCodec.encode(payload, buffer);
+				PayloadCodec.decode(buffer);
+			}
+		} catch (CorruptedFrameException ex) {
+			// cannot happen
+			throw new IllegalStateException(ex);
+		}
+	}
+}
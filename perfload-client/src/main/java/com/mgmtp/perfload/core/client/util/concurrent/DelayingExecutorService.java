@@ -53,7 +53,8 @@ import org.slf4j.LoggerFactory;
  * </p>
  * <p>
  * This class maintains an additional queue that completed tasks are added to. A callback may be
- * executed whenever a task is done (see {@link #setDoneCallback(Runnable)}).
+ * executed whenever a task is done (see {@link #setDoneCallback(Runnable)}). Tasks scheduled with
+ * {@link #scheduleUntracked(Runnable, long, TimeUnit)} are not added to this queue.
  * </p>
  * 
  * @author rnaegele
@@ -79,6 +80,9 @@ public final class DelayingExecutorService extends AbstractExecutorService {
 	/** Base of nanosecond timings, to avoid wrapping */
 	private final long nanoOrigin = System.nanoTime();
 
+	/** Origin of the schedule offset by {@link #nanoOrigin}, see {@link #alignOrigin(long)} */
+	private volatile long scheduleOrigin;
+
 	/**
 	 * Creates a new instance.
 	 */
@@ -229,6 +233,84 @@ public final class DelayingExecutorService extends AbstractExecutorService {
 		return t;
 	}
 
+	/**
+	 * Schedules a task to be executed at some time in the future on the same worker threads as
+	 * regular tasks. Unlike with {@link #schedule(Runnable, long, TimeUnit)}, the task is neither
+	 * added to the completion queue nor does it trigger the done callback. This is intended for
+	 * continuations of test threads that have been suspended during a waiting time.
+	 * 
+	 * @param runnable
+	 *            the task
+	 * @param delay
+	 *            the delay
+	 * @param unit
+	 *            the time unit for the delay
+	 * @return the resulting future
+	 */
+	public ScheduledFuture<?> scheduleUntracked(final Runnable runnable, final long delay, final TimeUnit unit) {
+		checkArgument(delay >= 0, "Delay must be greather than or equal to zero.");
+		long triggerTime = now() + unit.toNanos(delay);
+		RunnableScheduledFuture<?> t = new ScheduledFutureTask<Void>(Executors.callable(runnable, (Void) null), triggerTime,
+				sequencer.getAndIncrement(), false);
+		executeDelayed(t);
+		return t;
+	}
+
+	/**
+	 * Sets the origin that offsets passed to {@link #scheduleFromOrigin(Runnable, long, TimeUnit)}
+	 * and {@link #scheduleUntrackedFromOrigin(Runnable, long, TimeUnit)} refer to. Initially, the
+	 * origin is the creation time of this executor service. The origin may be in the past, in which
+	 * case tasks that are already due are executed immediately.
+	 * 
+	 * @param originNanoTime
+	 *            the origin in {@link System#nanoTime()} units
+	 */
+	public void alignOrigin(final long originNanoTime) {
+		scheduleOrigin = originNanoTime - nanoOrigin;
+	}
+
+	/**
+	 * Schedules a task to be executed at some time in the future. The time is expressed as an
+	 * offset relative to the origin set with {@link #alignOrigin(long)}, so tasks scheduled at
+	 * different times share a common time base.
+	 * 
+	 * @param runnable
+	 *            the task
+	 * @param offset
+	 *            the offset from the origin
+	 * @param unit
+	 *            the time unit for the offset
+	 * @return the resulting future
+	 */
+	public ScheduledFuture<?> scheduleFromOrigin(final Runnable runnable, final long offset, final TimeUnit unit) {
+		checkArgument(offset >= 0, "Offset must be greather than or equal to zero.");
+		long triggerTime = scheduleOrigin + unit.toNanos(offset);
+		RunnableScheduledFuture<?> t = new ScheduledFutureTask<Void>(runnable, null, triggerTime, sequencer.getAndIncrement());
+		executeDelayed(t);
+		return t;
+	}
+
+	/**
+	 * Like {@link #scheduleFromOrigin(Runnable, long, TimeUnit)}, but the task is not tracked (see
+	 * {@link #scheduleUntracked(Runnable, long, TimeUnit)}).
+	 * 
+	 * @param runnable
+	 *            the task
+	 * @param offset
+	 *            the offset from the origin
+	 * @param unit
+	 *            the time unit for the offset
+	 * @return the resulting future
+	 */
+	public ScheduledFuture<?> scheduleUntrackedFromOrigin(final Runnable runnable, final long offset, final TimeUnit unit) {
+		checkArgument(offset >= 0, "Offset must be greather than or equal to zero.");
+		long triggerTime = scheduleOrigin + unit.toNanos(offset);
+		RunnableScheduledFuture<?> t = new ScheduledFutureTask<Void>(Executors.callable(runnable, (Void) null), triggerTime,
+				sequencer.getAndIncrement(), false);
+		executeDelayed(t);
+		return t;
+	}
+
 	/**
 	 * Returns nanosecond time offset by origin
 	 */
@@ -272,6 +354,9 @@ public final class DelayingExecutorService extends AbstractExecutorService {
 		/** The time the task is enabled to execute in nanoTime units */
 		private final long time;
 
+		/** Whether the task is added to the completion queue when done */
+		private final boolean tracked;
+
 		/**
 		 * Creates a task with the given nanoTime-based trigger time.
 		 */
@@ -283,13 +368,25 @@ public final class DelayingExecutorService extends AbstractExecutorService {
 		 * Creates a task with the given nanoTime-based trigger.
 		 */
 		ScheduledFutureTask(final Callable<V> callable, final long time, final long sequenceNumber) {
+			this(callable, time, sequenceNumber, true);
+		}
+
+		/**
+		 * Creates a task with the given nanoTime-based trigger, which is only added to the
+		 * completion queue if {@code tracked} is {@code true}.
+		 */
+		ScheduledFutureTask(final Callable<V> callable, final long time, final long sequenceNumber, final boolean tracked) {
 			super(callable);
 			this.time = time;
 			this.sequenceNumber = sequenceNumber;
+			this.tracked = tracked;
 		}
 
 		@Override
 		protected void done() {
+			if (!tracked) {
+				return;
+			}
 			completionQueue.add(this);
 			if (doneCallback != null) {
 				doneCallback.run();
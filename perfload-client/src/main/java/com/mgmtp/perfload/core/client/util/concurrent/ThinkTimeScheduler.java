@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+
+/**
+ * <p>
+ * Suspends test threads during waiting times without blocking a thread. A continuation is scheduled
+ * on the {@link DelayingExecutorService}, whose delay queue is shared by all test threads of a
+ * process, and later resumed on one of its worker threads. Thus, the number of threads tracks the
+ * number of requests in flight rather than the number of simulated users.
+ * </p>
+ * <p>
+ * Continuations run in the execution scope of the thread that suspended the execution, so
+ * execution-scoped objects may be looked up as usual.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class ThinkTimeScheduler {
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final DelayingExecutorService execService;
+	private final ExecutionScope executionScope;
+
+	/**
+	 * @param execService
+	 *            the executor service that runs the test threads
+	 * @param executionScope
+	 *            the Guice scope for executions
+	 */
+	@Inject
+	public ThinkTimeScheduler(final DelayingExecutorService execService, final ExecutionScope executionScope) {
+		this.execService = execService;
+		this.executionScope = executionScope;
+	}
+
+	/**
+	 * Suspends the current execution for the given amount of time and then resumes it calling the
+	 * specified continuation. This method returns immediately. The continuation may itself suspend
+	 * the execution again returning the stage of the remainder of the execution.
+	 *
+	 * @param delayMillis
+	 *            the waiting time in milliseconds
+	 * @param continuation
+	 *            the continuation of the execution, which returns a stage that completes when the
+	 *            remainder of the execution is done
+	 * @return a future that completes when the stage returned by the continuation completes
+	 */
+	public <T> CompletableFuture<T> resumeAfter(final long delayMillis, final Callable<? extends CompletionStage<T>> continuation) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Runnable task = executionScope.transferScope(() -> {
+			CompletionStage<T> stage;
+			try {
+				stage = continuation.call();
+			} catch (Throwable th) {
+				result.completeExceptionally(th);
+				return;
+			}
+			stage.whenComplete((value, th) -> {
+				if (th != null) {
+					result.completeExceptionally(th);
+				} else {
+					result.complete(value);
+				}
+			});
+		});
+
+		log.info("Suspending execution: {} ms", delayMillis);
+		execService.scheduleUntracked(task, delayMillis, TimeUnit.MILLISECONDS);
+		return result;
+	}
+
+	/**
+	 * Suspends the current execution for the given amount of time and then resumes it running the
+	 * specified continuation. This method returns immediately. Unlike with
+	 * {@link #resumeAfter(long, Callable)}, the continuation is responsible for completing the
+	 * execution, so an execution may be suspended any number of times without nesting stages.
+	 *
+	 * @param delayMillis
+	 *            the waiting time in milliseconds
+	 * @param continuation
+	 *            the continuation of the execution
+	 */
+	public void continueAfter(final long delayMillis, final Runnable continuation) {
+		log.info("Suspending execution: {} ms", delayMillis);
+		execService.scheduleUntracked(executionScope.transferScope(continuation), delayMillis, TimeUnit.MILLISECONDS);
+	}
+}
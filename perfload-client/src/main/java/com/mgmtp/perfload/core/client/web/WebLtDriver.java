@@ -15,6 +15,8 @@
  */
 package com.mgmtp.perfload.core.client.web;
 
+import java.util.concurrent.CompletionStage;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -60,4 +62,13 @@ public final class WebLtDriver implements LtDriver {
 		// and gets reset after each run
 		requestFlowHandlerProvider.get().execute();
 	}
+
+	/**
+	 * Delegates to {@link RequestFlowHandler#executeAsync()}.
+	 */
+	@Override
+	public CompletionStage<Void> executeAsync() {
+		log.info("Executing test driver asynchronously...");
+		return requestFlowHandlerProvider.get().executeAsync();
+	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.config;
+
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mgmtp.perfload.core.client.config.Preloader;
+import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
+import com.mgmtp.perfload.core.client.web.io.XmlRequestFlowReader;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplateInterner;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * <p>
+ * Process-wide cache for request flows. Each request flow file is parsed exactly once, no matter
+ * how many threads ask for it at the same time: the first caller parses the file, concurrent
+ * callers wait for its result. Failed reads are not cached, so they are retried on the next
+ * request.
+ * </p>
+ * <p>
+ * Flows are cached per file and their contents are interned (see {@link RequestTemplateInterner}),
+ * so operations sharing flow files, or flow files sharing requests, share the same instances.
+ * </p>
+ * <p>
+ * As a {@link Preloader}, the cache parses all request flows of the process's operations in
+ * parallel before the test is started.
+ * </p>
+ * 
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class RequestFlowCache implements Preloader {
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final ConcurrentMap<String, Future<RequestFlow>> flowCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, List<RequestFlow>> flowListCache = new ConcurrentHashMap<>();
+	private final RequestTemplateInterner interner = new RequestTemplateInterner();
+	private final PropertiesMap properties;
+	private final String path;
+
+	/**
+	 * @param properties
+	 *            the properties containing the request flow configuration
+	 */
+	@Inject
+	public RequestFlowCache(final PropertiesMap properties) {
+		this.properties = properties;
+
+		String requestFlowsPath = trimToEmpty(properties.get("requestflows.path"));
+		if (requestFlowsPath.length() > 0 && !requestFlowsPath.endsWith("/")) {
+			requestFlowsPath += "/";
+		}
+		this.path = requestFlowsPath;
+	}
+
+	/**
+	 * Returns the request flows configured for the specified operation.
+	 * 
+	 * @param operation
+	 *            the operation
+	 * @return an immutable list of request flows
+	 */
+	public List<RequestFlow> getRequestFlows(final String operation) throws Exception {
+		String resources = properties.get("operation." + operation + ".requestflows");
+		List<RequestFlow> requestFlows = flowListCache.get(resources);
+		if (requestFlows == null) {
+			List<String> resourceNames = splitResources(resources);
+			List<RequestFlow> newRequestFlows = newArrayListWithCapacity(resourceNames.size());
+			for (String resourceName : resourceNames) {
+				newRequestFlows.add(getRequestFlow(resourceName));
+			}
+
+			// Flows are cached, so assembling the list multiple times concurrently is cheap
+			requestFlows = ImmutableList.copyOf(newRequestFlows);
+			List<RequestFlow> existing = flowListCache.putIfAbsent(resources, requestFlows);
+			if (existing != null) {
+				requestFlows = existing;
+			}
+		}
+		return requestFlows;
+	}
+
+	/**
+	 * Parses the request flows of all specified operations in parallel. Operations without request
+	 * flows are ignored.
+	 */
+	@Override
+	public void preload(final Set<String> operations) throws Exception {
+		Set<String> resourceNames = new LinkedHashSet<>();
+		for (String operation : operations) {
+			String resources = properties.get("operation." + operation + ".requestflows");
+			if (resources != null) {
+				resourceNames.addAll(splitResources(resources));
+			}
+		}
+		if (resourceNames.isEmpty()) {
+			return;
+		}
+
+		int threads = Math.min(resourceNames.size(), Runtime.getRuntime().availableProcessors());
+		log.info("Preloading {} request flow(s) using {} thread(s)...", resourceNames.size(), threads);
+
+		ExecutorService execService = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("perfload-flow-preloader-%d").setDaemon(true).build());
+		try {
+			List<Future<RequestFlow>> futures = newArrayListWithCapacity(resourceNames.size());
+			for (String resourceName : resourceNames) {
+				futures.add(execService.submit(() -> getRequestFlow(resourceName)));
+			}
+			for (Future<RequestFlow> future : futures) {
+				getResult(future);
+			}
+		} finally {
+			execService.shutdownNow();
+		}
+
+		for (String operation : operations) {
+			if (properties.containsKey("operation." + operation + ".requestflows")) {
+				getRequestFlows(operation);
+			}
+		}
+	}
+
+	private RequestFlow getRequestFlow(final String resourceName) throws Exception {
+		Future<RequestFlow> future = flowCache.get(resourceName);
+		if (future == null) {
+			FutureTask<RequestFlow> task = new FutureTask<>(() -> {
+				log.debug("Reading request flow: {}{}", path, resourceName);
+				return interner.intern(new XmlRequestFlowReader(path, resourceName).readFlow());
+			});
+			future = flowCache.putIfAbsent(resourceName, task);
+			if (future == null) {
+				future = task;
+				task.run();
+			}
+		}
+
+		try {
+			return getResult(future);
+		} catch (Exception ex) {
+			flowCache.remove(resourceName, future);
+			throw ex;
+		}
+	}
+
+	private static RequestFlow getResult(final Future<RequestFlow> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			Throwables.propagateIfPossible(cause, Exception.class);
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static List<String> splitResources(final String resources) {
+		return ImmutableList.copyOf(resources.split("\\s*,\\s*"));
+	}
+}
@@ -16,15 +16,11 @@
 package com.mgmtp.perfload.core.client.web.config;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static com.google.common.collect.Sets.newHashSetWithExpectedSize;
-import static java.util.Arrays.asList;
-import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import javax.inject.Singleton;
@@ -34,7 +30,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.MapMaker;
 import com.google.inject.Key;
 import com.google.inject.Provides;
 import com.mgmtp.perfload.core.client.config.annotations.Operation;
@@ -48,9 +43,9 @@ import com.mgmtp.perfload.core.client.web.config.annotations.LoggingListener;
 import com.mgmtp.perfload.core.client.web.event.DefaultLoggingListener;
 import com.mgmtp.perfload.core.client.web.event.RequestFlowEventListener;
 import com.mgmtp.perfload.core.client.web.flow.DefaultRequestFlowHandler;
+import com.mgmtp.perfload.core.client.web.grpc.GrpcModule;
 import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
 import com.mgmtp.perfload.core.client.web.flow.RequestFlowHandler;
-import com.mgmtp.perfload.core.client.web.io.XmlRequestFlowReader;
 import com.mgmtp.perfload.core.client.web.okhttp.OkHttpModule;
 import com.mgmtp.perfload.core.client.web.response.DefaultDetailExtractor;
 import com.mgmtp.perfload.core.client.web.response.DefaultHeaderExtractor;
@@ -58,18 +53,22 @@ import com.mgmtp.perfload.core.client.web.response.DefaultResponseValidator;
 import com.mgmtp.perfload.core.client.web.response.DetailExtractor;
 import com.mgmtp.perfload.core.client.web.response.HeaderExtractor;
 import com.mgmtp.perfload.core.client.web.response.ResponseValidator;
+import com.mgmtp.perfload.core.client.web.socket.SocketModule;
 import com.mgmtp.perfload.core.client.web.template.DefaultTemplateTransformer;
 import com.mgmtp.perfload.core.client.web.template.TemplateTransformer;
+import com.mgmtp.perfload.core.client.web.websocket.WebSocketModule;
 import com.mgmtp.perfload.core.common.util.PropertiesMap;
 
 /**
- * Guice module for binding Web-specific classes.
+ * Guice module for binding Web-specific classes. The request types {@code TCP} and {@code UDP}
+ * are only available if the testplan property {@code socket.enabled} is {@code true} (see
+ * {@link SocketModule}), the WebSocket request types only if {@code websocket.enabled} is
+ * {@code true} (see {@link WebSocketModule}).
  *
  * @author rnaegele
  */
 public class WebLtModule extends AbstractWebLtModule {
 	private final Logger log = LoggerFactory.getLogger(getClass());
-	private final ConcurrentMap<String, List<RequestFlow>> requestFlowCache = new MapMaker().initialCapacity(3).makeMap();
 
 	public WebLtModule(final PropertiesMap testplanProperties) {
 		super(testplanProperties);
@@ -78,9 +77,19 @@ public class WebLtModule extends AbstractWebLtModule {
 	@Override
 	protected void doConfigureWebModule() {
 		install(new OkHttpModule(testplanProperties));
+		if (testplanProperties.getBoolean("socket.enabled", false)) {
+			install(new SocketModule(testplanProperties));
+		}
+		if (testplanProperties.getBoolean("websocket.enabled", false)) {
+			install(new WebSocketModule(testplanProperties));
+		}
+		install(new GrpcModule(testplanProperties));
 
 		bind(RequestFlowHandler.class).to(DefaultRequestFlowHandler.class);
 
+		// Request flows are parsed eagerly and in parallel before the test starts
+		bindPreloader().to(RequestFlowCache.class);
+
 		bind(TemplateTransformer.class).to(DefaultTemplateTransformer.class);
 		bind(ResponseValidator.class).to(DefaultResponseValidator.class);
 		bind(DetailExtractor.class).to(DefaultDetailExtractor.class);
@@ -159,47 +168,21 @@ public class WebLtModule extends AbstractWebLtModule {
 	 * <p>
 	 * Multiple request flow files per {@code operation} must be comma-separated.
 	 * </p>
+	 * <p>
+	 * Request flows are parsed only once per process and usually preloaded before the test is
+	 * started (see {@link RequestFlowCache}).
+	 * </p>
 	 *
 	 * @param operation
 	 *            the operation
-	 * @param properties
-	 *            the properties
+	 * @param requestFlowCache
+	 *            the process-wide request flow cache
 	 * @return a list of {@link RequestFlow} objects
 	 */
 	@Provides
-	protected List<RequestFlow> provideRequestFlows(@Operation final String operation, final PropertiesMap properties) {
+	protected List<RequestFlow> provideRequestFlows(@Operation final String operation, final RequestFlowCache requestFlowCache) {
 		try {
-			String templates = properties.get("operation." + operation + ".requestflows");
-			String path = trimToEmpty(properties.get("requestflows.path"));
-			if (path.length() > 0 && !path.endsWith("/")) {
-				path += "/";
-			}
-
-			// Templates are cached in order to save heap memory
-			List<RequestFlow> requestFlows = requestFlowCache.get(templates);
-			if (requestFlows == null) {
-				// It might happen that multiple threads do the read at the same time,
-				// but on the other hand, we don't have to synchronize. In the end only one read wins anyways.
-
-				List<String> templateResources = asList(templates.split("\\s*,\\s*"));
-
-				List<RequestFlow> newRequestFlows = newArrayListWithCapacity(templateResources.size());
-				for (String templateResource : templateResources) {
-					XmlRequestFlowReader reader = new XmlRequestFlowReader(path, templateResource);
-					RequestFlow flow = reader.readFlow();
-					newRequestFlows.add(flow);
-				}
-
-				// We store immutable lists
-				newRequestFlows = ImmutableList.copyOf(newRequestFlows);
-
-				requestFlows = requestFlowCache.putIfAbsent(templates, newRequestFlows);
-				// If non-null, another thread was faster
-				if (requestFlows == null) {
-					requestFlows = newRequestFlows;
-				}
-			}
-
+			List<RequestFlow> requestFlows = requestFlowCache.getRequestFlows(operation);
 			log.debug("Providing request flows for operation '{}': {}", operation, requestFlows);
 			return requestFlows;
 		} catch (Exception ex) {
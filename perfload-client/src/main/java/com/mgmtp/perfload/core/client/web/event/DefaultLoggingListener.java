@@ -25,6 +25,7 @@ import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 import com.mgmtp.perfload.core.client.web.config.WebLtModule;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
 import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
 import com.mgmtp.perfload.logging.ResultLogger;
 import com.mgmtp.perfload.logging.TimeInterval;
@@ -53,30 +54,10 @@ public final class DefaultLoggingListener implements RequestFlowEventListener {
 		this.loggerProvider = loggerProvider;
 	}
 
-	/**
-	 * Does nothing.
-	 */
-	@Override
-	public void beforeRequestFlow(final RequestFlowEvent event) { /* no-op */
-	}
-
-	/**
-	 * Does nothing.
-	 */
-	@Override
-	public void afterRequestFlow(final RequestFlowEvent event) { /* no-op */
-	}
-
-	/**
-	 * Does nothing.
-	 */
-	@Override
-	public void beforeRequest(final RequestFlowEvent event) { /* no-op */
-	}
-
 	/**
 	 * Retrieves the {@link ResponseInfo} from the {@code event} and, if {@code non-null}, logs it
-	 * with the current {@link ResultLogger}.
+	 * with the current {@link ResultLogger}, which is taken from the event's
+	 * {@link ExecutionContext} if available.
 	 */
 	@Override
 	public void afterRequest(final RequestFlowEvent event) {
@@ -95,7 +76,8 @@ public final class DefaultLoggingListener implements RequestFlowEventListener {
 			UUID execId = responseInfo.getExecutionId();
 			UUID requestId = responseInfo.getRequestId();
 
-			ResultLogger logger = loggerProvider.get();
+			ExecutionContext context = event.getExecutionContext();
+			ResultLogger logger = context != null ? context.getResultLogger() : loggerProvider.get();
 			logger.logResult(errorMsg, responseInfo.getTimestamp(), tiBeforeBody, tiTotal, type, uri, uriAlias, execId, requestId);
 		}
 	}
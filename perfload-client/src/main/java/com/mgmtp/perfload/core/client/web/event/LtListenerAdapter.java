@@ -17,7 +17,6 @@ package com.mgmtp.perfload.core.client.web.event;
 
 import com.mgmtp.perfload.core.client.event.LtProcessEvent;
 import com.mgmtp.perfload.core.client.event.LtProcessEventListener;
-import com.mgmtp.perfload.core.client.event.LtRunnerEvent;
 import com.mgmtp.perfload.core.client.event.LtRunnerEventListener;
 
 /**
@@ -39,37 +38,6 @@ public class LtListenerAdapter implements LtProcessEventListener, LtRunnerEventL
 		// no-op
 	}
 
-	// LtRunnerEventListener
-
-	@Override
-	public void runStarted(final LtRunnerEvent event) {
-		// no-op
-	}
-
-	@Override
-	public void runFinished(final LtRunnerEvent event) {
-		// no-op
-	}
-
-	// RequestFlowEventListener
-
-	@Override
-	public void beforeRequestFlow(final RequestFlowEvent event) {
-		// no-op
-	}
-
-	@Override
-	public void afterRequestFlow(final RequestFlowEvent event) {
-		// no-op
-	}
-
-	@Override
-	public void beforeRequest(final RequestFlowEvent event) {
-		// no-op
-	}
-
-	@Override
-	public void afterRequest(final RequestFlowEvent event) {
-		// no-op
-	}
+	// The callbacks of LtRunnerEventListener and RequestFlowEventListener are inherited as no-op
+	// default methods, so they are recognized as not overridden and skipped when events are fired.
 }
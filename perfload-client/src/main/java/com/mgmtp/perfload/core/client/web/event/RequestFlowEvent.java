@@ -19,6 +19,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import com.mgmtp.perfload.core.client.web.flow.DefaultRequestFlowHandler;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
 import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
 
@@ -30,6 +31,7 @@ import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
  */
 public final class RequestFlowEvent {
 
+	private final ExecutionContext executionContext;
 	private final RequestTemplate requestTemplate;
 	private final int flowIndex;
 	private final Exception exception;
@@ -76,6 +78,24 @@ public final class RequestFlowEvent {
 	 */
 	public RequestFlowEvent(final int flowIndex, final RequestTemplate requestTemplate,
 			final Exception exception, final ResponseInfo responseInfo) {
+		this(null, flowIndex, requestTemplate, exception, responseInfo);
+	}
+
+	/**
+	 * @param executionContext
+	 *            the context of the current execution
+	 * @param flowIndex
+	 *            the current request flow index (1-based)
+	 * @param requestTemplate
+	 *            the request template
+	 * @param exception
+	 *            an exception that occurred during the execution of the request flow
+	 * @param responseInfo
+	 *            the response info object
+	 */
+	public RequestFlowEvent(final ExecutionContext executionContext, final int flowIndex,
+			final RequestTemplate requestTemplate, final Exception exception, final ResponseInfo responseInfo) {
+		this.executionContext = executionContext;
 		this.flowIndex = flowIndex;
 		this.requestTemplate = requestTemplate;
 		this.exception = exception;
@@ -89,6 +109,17 @@ public final class RequestFlowEvent {
 		return exception != null;
 	}
 
+	/**
+	 * Returns the context of the current execution, which gives listeners access to execution-scoped
+	 * objects without provider lookups.
+	 * 
+	 * @return the executionContext, or {@code null} if the event was not fired by a request flow
+	 *         handler
+	 */
+	public ExecutionContext getExecutionContext() {
+		return executionContext;
+	}
+
 	/**
 	 * Returns the request template of the current request.
 	 * 
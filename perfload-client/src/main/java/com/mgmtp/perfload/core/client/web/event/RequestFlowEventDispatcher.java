@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.event;
+
+import static com.mgmtp.perfload.core.client.event.ListenerSupport.overrides;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import com.mgmtp.perfload.core.client.event.AsyncListenerExecutor;
+import com.mgmtp.perfload.core.client.event.ListenerSupport;
+import com.mgmtp.perfload.core.client.web.flow.DefaultRequestFlowHandler;
+
+/**
+ * Fires {@link RequestFlowEvent}s for {@link DefaultRequestFlowHandler}. The listeners are compiled
+ * into arrays per callback, which only contain the listeners that actually override the callback.
+ * If all listeners are singletons, this is done only once. Otherwise, the listeners are looked up
+ * and compiled for each execution.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class RequestFlowEventDispatcher {
+	private static final Logger LOG = LoggerFactory.getLogger(RequestFlowEventDispatcher.class);
+
+	private final Provider<? extends Collection<? extends RequestFlowEventListener>> listenersProvider;
+	private final boolean cacheable;
+	private final Executor asyncExecutor;
+	private volatile Pipeline cachedPipeline;
+
+	/**
+	 * @param injector
+	 *            the injector, used to determine whether the listeners are all singletons
+	 * @param listenersProvider
+	 *            provider for the set of listeners
+	 * @param asyncExecutor
+	 *            the executor for asynchronous listeners
+	 */
+	@Inject
+	public RequestFlowEventDispatcher(final Injector injector,
+			final Provider<Set<RequestFlowEventListener>> listenersProvider, final AsyncListenerExecutor asyncExecutor) {
+		this(listenersProvider, ListenerSupport.allSingletons(injector, RequestFlowEventListener.class), asyncExecutor);
+	}
+
+	/**
+	 * @param listeners
+	 *            a fixed collection of listeners
+	 */
+	public RequestFlowEventDispatcher(final Collection<? extends RequestFlowEventListener> listeners) {
+		this(() -> ImmutableSet.copyOf(listeners), true, new AsyncListenerExecutor());
+	}
+
+	private RequestFlowEventDispatcher(
+			final Provider<? extends Collection<? extends RequestFlowEventListener>> listenersProvider,
+			final boolean cacheable, final Executor asyncExecutor) {
+		this.listenersProvider = listenersProvider;
+		this.cacheable = cacheable;
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * Returns the compiled listeners. Must be called within the execution scope, because
+	 * listeners may have to be looked up.
+	 *
+	 * @return the pipeline for firing events
+	 */
+	public Pipeline pipeline() {
+		if (!cacheable) {
+			return new Pipeline(listenersProvider.get(), asyncExecutor);
+		}
+		Pipeline pipeline = cachedPipeline;
+		if (pipeline == null) {
+			// a race is harmless, all pipelines are equivalent
+			pipeline = new Pipeline(listenersProvider.get(), asyncExecutor);
+			cachedPipeline = pipeline;
+		}
+		return pipeline;
+	}
+
+	/**
+	 * Compiled listeners for firing events.
+	 */
+	@Immutable
+	public static final class Pipeline {
+		private final RequestFlowEventListener[] beforeRequestFlowListeners;
+		private final RequestFlowEventListener[] afterRequestFlowListeners;
+		private final RequestFlowEventListener[] beforeRequestListeners;
+		private final RequestFlowEventListener[] afterRequestListeners;
+
+		Pipeline(final Collection<? extends RequestFlowEventListener> listeners, final Executor asyncExecutor) {
+			List<RequestFlowEventListener> beforeRequestFlow = new ArrayList<>(listeners.size());
+			List<RequestFlowEventListener> afterRequestFlow = new ArrayList<>(listeners.size());
+			List<RequestFlowEventListener> beforeRequest = new ArrayList<>(listeners.size());
+			List<RequestFlowEventListener> afterRequest = new ArrayList<>(listeners.size());
+			for (RequestFlowEventListener listener : listeners) {
+				RequestFlowEventListener target = ListenerSupport.isAsync(listener)
+						? new AsyncRequestFlowEventListener(listener, asyncExecutor)
+						: listener;
+				if (overrides(listener, "beforeRequestFlow", RequestFlowEvent.class)) {
+					beforeRequestFlow.add(target);
+				}
+				if (overrides(listener, "afterRequestFlow", RequestFlowEvent.class)) {
+					afterRequestFlow.add(target);
+				}
+				if (overrides(listener, "beforeRequest", RequestFlowEvent.class)) {
+					beforeRequest.add(target);
+				}
+				if (overrides(listener, "afterRequest", RequestFlowEvent.class)) {
+					afterRequest.add(target);
+				}
+			}
+			this.beforeRequestFlowListeners = toArray(beforeRequestFlow);
+			this.afterRequestFlowListeners = toArray(afterRequestFlow);
+			this.beforeRequestListeners = toArray(beforeRequest);
+			this.afterRequestListeners = toArray(afterRequest);
+		}
+
+		private static RequestFlowEventListener[] toArray(final List<RequestFlowEventListener> listeners) {
+			return listeners.toArray(new RequestFlowEventListener[listeners.size()]);
+		}
+
+		public void fireBeforeRequestFlow(final RequestFlowEvent event) {
+			LOG.debug("fireBeforeRequestFlow: {}", event);
+			for (RequestFlowEventListener listener : beforeRequestFlowListeners) {
+				listener.beforeRequestFlow(event);
+			}
+		}
+
+		public void fireAfterRequestFlow(final RequestFlowEvent event) {
+			LOG.debug("fireAfterRequestFlow: {}", event);
+			for (RequestFlowEventListener listener : afterRequestFlowListeners) {
+				listener.afterRequestFlow(event);
+			}
+		}
+
+		public void fireBeforeRequest(final RequestFlowEvent event) {
+			LOG.debug("fireBeforeRequest: {}", event);
+			for (RequestFlowEventListener listener : beforeRequestListeners) {
+				listener.beforeRequest(event);
+			}
+		}
+
+		public void fireAfterRequest(final RequestFlowEvent event) {
+			LOG.debug("fireAfterRequest: {}", event);
+			for (RequestFlowEventListener listener : afterRequestListeners) {
+				listener.afterRequest(event);
+			}
+		}
+	}
+
+	private static final class AsyncRequestFlowEventListener implements RequestFlowEventListener {
+		private final RequestFlowEventListener delegate;
+		private final Executor executor;
+
+		AsyncRequestFlowEventListener(final RequestFlowEventListener delegate, final Executor executor) {
+			this.delegate = delegate;
+			this.executor = executor;
+		}
+
+		@Override
+		public void beforeRequestFlow(final RequestFlowEvent event) {
+			executor.execute(() -> delegate.beforeRequestFlow(event));
+		}
+
+		@Override
+		public void afterRequestFlow(final RequestFlowEvent event) {
+			executor.execute(() -> delegate.afterRequestFlow(event));
+		}
+
+		@Override
+		public void beforeRequest(final RequestFlowEvent event) {
+			executor.execute(() -> delegate.beforeRequest(event));
+		}
+
+		@Override
+		public void afterRequest(final RequestFlowEvent event) {
+			executor.execute(() -> delegate.afterRequest(event));
+		}
+	}
+}
@@ -15,12 +15,15 @@
  */
 package com.mgmtp.perfload.core.client.web.event;
 
+import com.mgmtp.perfload.core.client.event.AsyncListener;
 import com.mgmtp.perfload.core.client.web.flow.DefaultRequestFlowHandler;
 import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
 
 /**
- * Event listener that can be registered with {@link DefaultRequestFlowHandler}.
+ * Event listener that can be registered with {@link DefaultRequestFlowHandler}. All callbacks have
+ * no-op default implementations. Callbacks that are not overridden are not called at all.
+ * Listeners annotated with {@link AsyncListener} are called on a separate thread.
  * 
  * @author rnaegele
  */
@@ -32,7 +35,9 @@ public interface RequestFlowEventListener {
 	 * @param event
 	 *            the event
 	 */
-	void beforeRequestFlow(RequestFlowEvent event);
+	default void beforeRequestFlow(final RequestFlowEvent event) {
+		// no-op
+	}
 
 	/**
 	 * Executed after a {@link RequestFlow} was executed.
@@ -40,7 +45,9 @@ public interface RequestFlowEventListener {
 	 * @param event
 	 *            the event
 	 */
-	void afterRequestFlow(RequestFlowEvent event);
+	default void afterRequestFlow(final RequestFlowEvent event) {
+		// no-op
+	}
 
 	/**
 	 * Executed before a {@link RequestTemplate} is executed.
@@ -48,7 +55,9 @@ public interface RequestFlowEventListener {
 	 * @param event
 	 *            the event
 	 */
-	void beforeRequest(RequestFlowEvent event);
+	default void beforeRequest(final RequestFlowEvent event) {
+		// no-op
+	}
 
 	/**
 	 * Executed after a {@link RequestTemplate} was executed.
@@ -56,6 +65,8 @@ public interface RequestFlowEventListener {
 	 * @param event
 	 *            the event
 	 */
-	void afterRequest(RequestFlowEvent event);
+	default void afterRequest(final RequestFlowEvent event) {
+		// no-op
+	}
 
 }
@@ -17,24 +17,29 @@ package com.mgmtp.perfload.core.client.web.flow;
 
 import static com.mgmtp.perfload.core.common.util.LtUtils.checkInterrupt;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import javax.inject.Inject;
 
+import net.jcip.annotations.NotThreadSafe;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
 import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
 import com.mgmtp.perfload.core.client.runner.ErrorHandler;
+import com.mgmtp.perfload.core.client.util.IdGenerator;
 import com.mgmtp.perfload.core.client.util.PlaceholderContainer;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.client.web.event.RequestFlowEvent;
-import com.mgmtp.perfload.core.client.web.event.RequestFlowEventListener;
+import com.mgmtp.perfload.core.client.web.event.RequestFlowEventDispatcher;
 import com.mgmtp.perfload.core.client.web.request.InvalidRequestHandlerException;
 import com.mgmtp.perfload.core.client.web.request.RequestHandler;
 import com.mgmtp.perfload.core.client.web.response.DetailExtractor;
@@ -65,9 +70,11 @@ public final class DefaultRequestFlowHandler implements RequestFlowHandler {
 	private final HeaderExtractor headerExtractor;
 	private final WaitingTimeManager waitingTimeManager;
 	private final PlaceholderContainer placeholderContainer;
-	private final Set<RequestFlowEventListener> listeners;
+	private final RequestFlowEventDispatcher.Pipeline listeners;
 	private final ErrorHandler errorHandler;
-	private final UUID executionId;
+	private final ExecutionContext executionContext;
+	private final IdGenerator idGenerator;
+	private final ThinkTimeScheduler thinkTimeScheduler;
 
 	/**
 	 * Constructs a new instance.
@@ -90,20 +97,26 @@ public final class DefaultRequestFlowHandler implements RequestFlowHandler {
 	 *            each request
 	 * @param placeholderContainer
 	 *            the {@link PlaceholderContainer}
-	 * @param listeners
-	 *            a set of {@link RequestFlowEventListener}s
+	 * @param eventDispatcher
+	 *            fires events to the registered listeners
 	 * @param errorHandler
 	 *            the error handler which determines whether and exception should lead to the
 	 *            abortion of the whole test
-	 * @param executionId
-	 *            the execution id
+	 * @param executionContext
+	 *            the context of the current execution, which is passed on to request handlers and
+	 *            listeners
+	 * @param idGenerator
+	 *            generates the request ids
+	 * @param thinkTimeScheduler
+	 *            suspends the execution during waiting times if executed asynchronously
 	 */
 	@Inject
 	public DefaultRequestFlowHandler(final List<RequestFlow> requestFlows, final Map<String, RequestHandler> requestHandlers,
 			final TemplateTransformer templateTransformer, final ResponseValidator responseValidator,
 			final DetailExtractor detailExtractor, final HeaderExtractor headerExtractor,
 			final WaitingTimeManager waitingTimeManager, final PlaceholderContainer placeholderContainer,
-			final Set<RequestFlowEventListener> listeners, final ErrorHandler errorHandler, @ExecutionId final UUID executionId) {
+			final RequestFlowEventDispatcher eventDispatcher, final ErrorHandler errorHandler, final ExecutionContext executionContext,
+			final IdGenerator idGenerator, final ThinkTimeScheduler thinkTimeScheduler) {
 		this.requestFlows = requestFlows;
 		this.requestHandlers = requestHandlers;
 		this.templateTransformer = templateTransformer;
@@ -112,155 +125,229 @@ public final class DefaultRequestFlowHandler implements RequestFlowHandler {
 		this.headerExtractor = headerExtractor;
 		this.waitingTimeManager = waitingTimeManager;
 		this.placeholderContainer = placeholderContainer;
-		this.listeners = listeners;
+		this.listeners = eventDispatcher.pipeline();
 		this.errorHandler = errorHandler;
-		this.executionId = executionId;
+		this.executionContext = executionContext;
+		this.idGenerator = idGenerator;
+		this.thinkTimeScheduler = thinkTimeScheduler;
 	}
 
 	@Override
 	public void execute() throws Exception {
-		Exception exception = null;
-
-		for (ListIterator<RequestFlow> it = requestFlows.listIterator(); it.hasNext();) {
-			RequestFlow requestFlow = it.next();
-			// 1-based index, so we use "nextIndex()"
-			int flowIndex = it.nextIndex();
+		FlowCursor cursor = new FlowCursor();
 
+		while (cursor.nextFlow()) {
 			try {
 				// fire event
-				fireBeforeRequestFlow(flowIndex);
+				listeners.fireBeforeRequestFlow(new RequestFlowEvent(executionContext, cursor.flowIndex, null, null, null));
 
 				// process requests
-				for (final RequestTemplate template : requestFlow) {
-
-					RequestTemplate executableTemplate = null;
-					ResponseInfo responseInfo = null;
-					UUID requestId = UUID.randomUUID();
-					try {
-						waitingTimeManager.sleepBeforeRequest();
+				while (cursor.templates.hasNext()) {
+					waitingTimeManager.sleepBeforeRequest();
+					if (!executeRequest(cursor, cursor.templates.next())) {
+						break;
+					}
+				}
+			} catch (Exception ex) {
+				cursor.exception = ex;
+				errorHandler.execute(ex);
+			} finally {
 
-						// check for interrupt and abort if necessary
-						checkInterrupt();
+				// fire event
+				listeners.fireAfterRequestFlow(new RequestFlowEvent(executionContext, cursor.flowIndex, null, cursor.exception, null));
+			}
+		}
+	}
 
-						// fire event, also called for skipped requests, because event handler may decide whether to skip
-						// must be called before the template is made executable, so parameters
-						// can be put into the placeholder container
-						fireBeforeRequest(flowIndex, template);
+	/**
+	 * Runs the request flows like {@link #execute()}, but instead of sleeping before a request, the
+	 * execution is suspended using the {@link ThinkTimeScheduler} and resumed with the pending
+	 * request once the waiting time has elapsed. Events are fired in the same order as with
+	 * {@link #execute()}.
+	 */
+	@Override
+	public CompletionStage<Void> executeAsync() {
+		FlowCursor cursor = new FlowCursor();
+		resume(cursor);
+		return cursor.completion;
+	}
 
-						executableTemplate = templateTransformer.makeExecutable(template, placeholderContainer);
-						if (executableTemplate.isSkipped()) {
-							log.info("Skipping request: {}", executableTemplate);
-							continue;
-						}
+	/**
+	 * Continues the execution where it left off and completes the cursor's future unless the
+	 * execution is suspended again.
+	 */
+	private void resume(final FlowCursor cursor) {
+		try {
+			if (proceed(cursor)) {
+				cursor.completion.complete(null);
+			}
+		} catch (Throwable th) {
+			cursor.completion.completeExceptionally(th);
+		}
+	}
 
-						log.debug("Executing request template: {}", executableTemplate);
-						
-						// look up request handler for the request's type
-						String type = template.getType();
-						RequestHandler handler = requestHandlers.get(type);
-						if (handler == null) {
-							throw new InvalidRequestHandlerException(String.format("No request handler for type '%s' available.",
-									type));
-						}
+	/**
+	 * @return {@code true} if all request flows are done, {@code false} if the execution was
+	 *         suspended
+	 */
+	private boolean proceed(final FlowCursor cursor) throws Exception {
+		boolean resumed = cursor.pending != null;
 
-						responseInfo = handler.execute(executableTemplate, requestId);
-						if (responseInfo != null) {
-							log.debug(responseInfo.toString());
+		while (resumed || cursor.nextFlow()) {
+			boolean suspended = false;
+			try {
+				if (!resumed) {
+					// fire event
+					listeners.fireBeforeRequestFlow(new RequestFlowEvent(executionContext, cursor.flowIndex, null, null, null));
+				}
+				resumed = false;
 
-							// process response
-							if (executableTemplate.isValidateResponse()) {
-								responseValidator.validate(responseInfo);
+				// process requests
+				while (cursor.pending != null || cursor.templates.hasNext()) {
+					RequestTemplate template = cursor.pending;
+					if (template == null) {
+						template = cursor.templates.next();
+						long waitingTime = waitingTimeManager.calculateWaitingTimeBeforeRequest();
+						if (waitingTime > 0L) {
+							cursor.pending = template;
+							try {
+								thinkTimeScheduler.continueAfter(waitingTime, () -> resume(cursor));
+							} catch (RuntimeException ex) {
+								// the execution could not be suspended, so the request flow ends here
+								cursor.pending = null;
+								throw ex;
 							}
-							detailExtractor.extractDetails(responseInfo, executableTemplate.getDetailExtractions(),
-									placeholderContainer);
-							headerExtractor.extractHeaders(responseInfo, executableTemplate.getHeaderExtractions(),
-									placeholderContainer);
+							suspended = true;
+							return false;
 						}
-					} catch (Exception ex) {
-						exception = ex;
-
-						// Handle error. Depending on the exception, the error handler may choose to abort the test.
-						errorHandler.execute(ex);
-
-						if (responseInfo != null) {
-							// In case of an error we additionally log the response info at warn level
-							log.warn(responseInfo.toString());
-						}
-
-						// In any case, we don't want to execute the remainder of
-						// the current request flow if an exception occurred and break out of the loop.
+					}
+					cursor.pending = null;
+					if (!executeRequest(cursor, template)) {
 						break;
-					} finally {
-						RequestTemplate template4Event = executableTemplate != null ? executableTemplate : template;
-						// ResponseInfo is null the request is skipped of if an exception occurs when the HttpClient executes
-						// the request. In order to make sure that we still get an entry in the measuring log in the case of and
-						// exceptiohn, we need to create one. However, it must remain null, when the request is skipped in
-						// order to avoid an entry in the measuring log.
-						if (responseInfo == null && executableTemplate != null && !executableTemplate.isSkipped()) {
-							responseInfo = new ResponseInfo.Builder()
-									.methodType(template4Event.getType())
-									.uri(template4Event.getUri())
-									.uriAlias(template4Event.getUriAlias())
-									.timestamp(System.currentTimeMillis())
-									.executionId(executionId)
-									.requestId(requestId)
-									.build();
-						}
-
-						// always fire event, including skipped requests
-						fireAfterRequest(flowIndex, template4Event, exception, responseInfo);
 					}
 				}
 			} catch (Exception ex) {
-				exception = ex;
+				cursor.exception = ex;
 				errorHandler.execute(ex);
 			} finally {
+				if (!suspended) {
+					// fire event
+					listeners.fireAfterRequestFlow(new RequestFlowEvent(executionContext, cursor.flowIndex, null, cursor.exception,
+							null));
+				}
+			}
+		}
+		return true;
+	}
 
-				// fire event
-				fireAfterRequestFlow(flowIndex, exception);
+	/**
+	 * Executes a single request firing the corresponding events.
+	 *
+	 * @return {@code false} if an exception occurred, in which case the remainder of the request
+	 *         flow must not be executed
+	 */
+	private boolean executeRequest(final FlowCursor cursor, final RequestTemplate template) throws Exception {
+		RequestTemplate executableTemplate = null;
+		ResponseInfo responseInfo = null;
+		UUID requestId = idGenerator.nextId();
+		try {
+			// check for interrupt and abort if necessary
+			checkInterrupt();
+
+			// fire event, also called for skipped requests, because event handler may decide whether to skip
+			// must be called before the template is made executable, so parameters
+			// can be put into the placeholder container
+			listeners.fireBeforeRequest(new RequestFlowEvent(executionContext, cursor.flowIndex, template, null, null));
+
+			executableTemplate = templateTransformer.makeExecutable(template, placeholderContainer);
+			if (executableTemplate.isSkipped()) {
+				log.info("Skipping request: {}", executableTemplate);
+				return true;
 			}
 
-			// In case of an exception, we don't want to execute potential subsequent request flows.
-			if (exception != null) {
-				break;
+			log.debug("Executing request template: {}", executableTemplate);
+			
+			// look up request handler for the request's type
+			String type = template.getType();
+			RequestHandler handler = requestHandlers.get(type);
+			if (handler == null) {
+				throw new InvalidRequestHandlerException(String.format("No request handler for type '%s' available.",
+						type));
 			}
-		}
-	}
 
-	private void fireBeforeRequestFlow(final int flowIndex) {
-		RequestFlowEvent event = new RequestFlowEvent(flowIndex);
-		log.debug("fireBeforeRequestFlow: {}", event);
-		for (RequestFlowEventListener listener : listeners) {
-			log.debug("Executing listener: {}", listener);
-			listener.beforeRequestFlow(event);
-		}
-	}
+			responseInfo = handler.execute(executionContext, executableTemplate, requestId);
+			if (responseInfo != null) {
+				log.debug(responseInfo.toString());
 
-	private void fireAfterRequestFlow(final int flowIndex, final Exception ex) {
-		RequestFlowEvent event = new RequestFlowEvent(flowIndex, ex);
-		log.debug("fireAfterRequestFlow: {}", event);
-		for (RequestFlowEventListener listener : listeners) {
-			log.debug("Executing listener: {}", listener);
-			listener.afterRequestFlow(event);
-		}
-	}
+				// process response
+				if (executableTemplate.isValidateResponse()) {
+					responseValidator.validate(responseInfo);
+				}
+				detailExtractor.extractDetails(responseInfo, executableTemplate.getDetailExtractions(),
+						placeholderContainer);
+				headerExtractor.extractHeaders(responseInfo, executableTemplate.getHeaderExtractions(),
+						placeholderContainer);
+			}
+		} catch (Exception ex) {
+			cursor.exception = ex;
+
+			// Handle error. Depending on the exception, the error handler may choose to abort the test.
+			errorHandler.execute(ex);
+
+			if (responseInfo != null) {
+				// In case of an error we additionally log the response info at warn level
+				log.warn(responseInfo.toString());
+			}
 
-	private void fireBeforeRequest(final int flowIndex, final RequestTemplate template) {
-		RequestFlowEvent event = new RequestFlowEvent(flowIndex, template);
-		log.debug("fireBeforeRequestTemplate: {}", event);
-		for (RequestFlowEventListener listener : listeners) {
-			log.debug("Executing listener: {}", listener);
-			listener.beforeRequest(event);
+			// In any case, we don't want to execute the remainder of
+			// the current request flow if an exception occurred and break out of the loop.
+			return false;
+		} finally {
+			RequestTemplate template4Event = executableTemplate != null ? executableTemplate : template;
+			// ResponseInfo is null the request is skipped of if an exception occurs when the HttpClient executes
+			// the request. In order to make sure that we still get an entry in the measuring log in the case of and
+			// exceptiohn, we need to create one. However, it must remain null, when the request is skipped in
+			// order to avoid an entry in the measuring log.
+			if (responseInfo == null && executableTemplate != null && !executableTemplate.isSkipped()) {
+				responseInfo = new ResponseInfo.Builder()
+						.methodType(template4Event.getType())
+						.uri(template4Event.getUri())
+						.uriAlias(template4Event.getUriAlias())
+						.timestamp(System.currentTimeMillis())
+						.executionId(executionContext.getExecutionId())
+						.requestId(requestId)
+						.build();
+			}
+
+			// always fire event, including skipped requests
+			listeners.fireAfterRequest(new RequestFlowEvent(executionContext, cursor.flowIndex, template4Event, cursor.exception,
+					responseInfo));
 		}
+		return true;
 	}
 
-	private void fireAfterRequest(final int flowIndex, final RequestTemplate template,
-			final Exception ex, final ResponseInfo responseInfo) {
-		RequestFlowEvent event = new RequestFlowEvent(flowIndex, template, ex, responseInfo);
-		log.debug("fireAfterRequestTemplate: {}", event);
-		for (RequestFlowEventListener listener : listeners) {
-			log.debug("Executing listener: {}", listener);
-			listener.afterRequest(event);
+	/**
+	 * Keeps track of the progress of an execution, so it can be continued after being suspended.
+	 */
+	@NotThreadSafe
+	private final class FlowCursor {
+		private final CompletableFuture<Void> completion = new CompletableFuture<>();
+		private final ListIterator<RequestFlow> flows = requestFlows.listIterator();
+		private int flowIndex;
+		private Iterator<RequestTemplate> templates;
+		private RequestTemplate pending;
+		private Exception exception;
+
+		private boolean nextFlow() {
+			// In case of an exception, we don't want to execute potential subsequent request flows.
+			if (exception != null || !flows.hasNext()) {
+				return false;
+			}
+			RequestFlow requestFlow = flows.next();
+			// 1-based index, so we use "nextIndex()"
+			flowIndex = flows.nextIndex();
+			templates = requestFlow.iterator();
+			return true;
 		}
 	}
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.flow;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.Operation;
+import com.mgmtp.perfload.core.client.config.annotations.Target;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.core.client.config.annotations.ThreadId;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.web.event.RequestFlowEventListener;
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpManager;
+import com.mgmtp.perfload.core.client.web.request.RequestHandler;
+import com.mgmtp.perfload.logging.ResultLogger;
+
+/**
+ * Holds the execution-scoped objects needed while processing requests. The instance is created by
+ * Guice once per execution, i. e. all bindings may still be customized in the usual way, and then
+ * passed along to {@link RequestHandler}s and {@link RequestFlowEventListener}s, so these don't
+ * have to look up the execution scope through providers for every single request.
+ *
+ * @author agent
+ */
+@ExecutionScoped
+@Immutable
+public final class ExecutionContext {
+
+	private final UUID executionId;
+	private final String operation;
+	private final String target;
+	private final int threadId;
+	private final String targetHost;
+	private final ResultLogger resultLogger;
+	private final OkHttpManager okHttpManager;
+
+	/**
+	 * @param executionId
+	 *            the execution id
+	 * @param operation
+	 *            the operation
+	 * @param target
+	 *            the target
+	 * @param threadId
+	 *            the thread id
+	 * @param targetHost
+	 *            the target host
+	 * @param resultLogger
+	 *            the result logger for the execution
+	 * @param okHttpManager
+	 *            the manager for the execution's HTTP client
+	 */
+	@Inject
+	public ExecutionContext(@ExecutionId final UUID executionId, @Operation final String operation,
+			@Target final String target, @ThreadId final int threadId, @TargetHost final String targetHost,
+			final ResultLogger resultLogger, final OkHttpManager okHttpManager) {
+		this.executionId = executionId;
+		this.operation = operation;
+		this.target = target;
+		this.threadId = threadId;
+		this.targetHost = targetHost;
+		this.resultLogger = resultLogger;
+		this.okHttpManager = okHttpManager;
+	}
+
+	/**
+	 * @return the executionId
+	 */
+	public UUID getExecutionId() {
+		return executionId;
+	}
+
+	/**
+	 * @return the operation
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the target
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the threadId
+	 */
+	public int getThreadId() {
+		return threadId;
+	}
+
+	/**
+	 * @return the targetHost
+	 */
+	public String getTargetHost() {
+		return targetHost;
+	}
+
+	/**
+	 * @return the resultLogger
+	 */
+	public ResultLogger getResultLogger() {
+		return resultLogger;
+	}
+
+	/**
+	 * @return the okHttpManager
+	 */
+	public OkHttpManager getOkHttpManager() {
+		return okHttpManager;
+	}
+
+	@Override
+	public String toString() {
+		ToStringBuilder tsb = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+		tsb.append("executionId", executionId);
+		tsb.append("operation", operation);
+		tsb.append("target", target);
+		tsb.append("threadId", threadId);
+		tsb.append("targetHost", targetHost);
+		return tsb.toString();
+	}
+}
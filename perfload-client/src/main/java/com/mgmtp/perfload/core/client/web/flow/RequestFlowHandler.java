@@ -15,6 +15,9 @@
  */
 package com.mgmtp.perfload.core.client.web.flow;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Interface for handling request flows.
  * 
@@ -26,4 +29,21 @@ public interface RequestFlowHandler {
 	 * Runs the request flows.
 	 */
 	void execute() throws Exception;
+
+	/**
+	 * Runs the request flows suspending the execution instead of blocking during waiting times.
+	 * The default implementation calls {@link #execute()}.
+	 * 
+	 * @return a stage that completes when the request flows are done
+	 */
+	default CompletionStage<Void> executeAsync() {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		try {
+			execute();
+			result.complete(null);
+		} catch (Exception ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.grpc;
+
+import com.mgmtp.perfload.core.client.web.config.AbstractWebLtModule;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * Guice module for gRPC support. Binds the request type {@code GRPC}.
+ *
+ * @author agent
+ */
+public class GrpcModule extends AbstractWebLtModule {
+
+	public GrpcModule(final PropertiesMap testplanProperties) {
+		super(testplanProperties);
+	}
+
+	@Override
+	protected void doConfigureWebModule() {
+		bindRequestHandler("GRPC").to(GrpcRequestHandler.class);
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.grpc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import okhttp3.Call;
+import okhttp3.CookieJar;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.Okio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.Operation;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.core.client.util.IdStrings;
+import com.mgmtp.perfload.core.client.web.constants.WebConstants;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.request.RequestHandler;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * <p>
+ * A {@link RequestHandler} for unary and server streaming gRPC calls over HTTP/2. The request URI
+ * is the method path, e. g. {@code /helloworld.Greeter/SayHello}. The request body is sent as the
+ * serialized protobuf message, typically taken from a binary resource. Request headers are sent as
+ * metadata.
+ * </p>
+ * <p>
+ * Unlike HTTP requests, gRPC calls share one client for all threads, so that many threads are
+ * multiplexed over few HTTP/2 connections per target. Targets with an {@code http} URI are
+ * accessed via cleartext HTTP/2 with prior knowledge.
+ * </p>
+ * <p>
+ * The response body contains the payloads of all response messages. The gRPC status is
+ * reported as its HTTP equivalent (see {@link GrpcStatus}), and trailers are added to the response
+ * headers, so {@code grpc-status} and {@code grpc-message} are available for header extraction.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class GrpcRequestHandler implements RequestHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(GrpcRequestHandler.class);
+
+	private static final MediaType GRPC_CONTENT_TYPE = MediaType.get("application/grpc");
+
+	private final Provider<OkHttpClient> okHttpClientProvider;
+	private final Provider<String> targetHostProvider;
+	private final Provider<UUID> executionIdProvider;
+	private final Provider<String> operationProvider;
+	private final Provider<Request.Builder> requestBuilderProvider;
+
+	private volatile OkHttpClient cleartextClient;
+	private volatile OkHttpClient tlsClient;
+
+	@Inject
+	public GrpcRequestHandler(final Provider<OkHttpClient> okHttpClientProvider,
+			@TargetHost final Provider<String> targetHostProvider, @ExecutionId final Provider<UUID> executionIdProvider,
+			@Operation final Provider<String> operationProvider, final Provider<Request.Builder> requestBuilderProvider) {
+		this.okHttpClientProvider = okHttpClientProvider;
+		this.targetHostProvider = targetHostProvider;
+		this.executionIdProvider = executionIdProvider;
+		this.operationProvider = operationProvider;
+		this.requestBuilderProvider = requestBuilderProvider;
+	}
+
+	@Override
+	public ResponseInfo execute(final RequestTemplate template, final UUID requestId) throws Exception {
+		return execute(targetHostProvider.get(), executionIdProvider.get(), operationProvider.get(), template, requestId);
+	}
+
+	@Override
+	public ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(context.getTargetHost(), context.getExecutionId(), context.getOperation(), template, requestId);
+	}
+
+	private ResponseInfo execute(final String targetHost, final UUID executionId, final String operation,
+			final RequestTemplate template, final UUID requestId) throws Exception {
+		URI uri = createUri(targetHost, template.getUri());
+
+		Body body = template.getBody();
+		Buffer frame = new Buffer();
+		byte[] message = body != null ? body.getContent() : new byte[0];
+		frame.writeByte(0); // not compressed
+		frame.writeInt(message.length);
+		frame.write(message);
+
+		Request.Builder requestBuilder = requestBuilderProvider.get()
+				.url(uri.toURL())
+				.addHeader("te", "trailers")
+				.addHeader(WebConstants.EXECUTION_ID_HEADER, IdStrings.toString(executionId))
+				.addHeader(WebConstants.OPERATION_HEADER, operation)
+				.addHeader(WebConstants.REQUEST_ID_HEADER, requestId.toString())
+				.addHeader("grpc-accept-encoding", "gzip");
+		template.getHeaders().forEach(requestBuilder::addHeader);
+		Request request = requestBuilder.post(RequestBody.create(frame.readByteArray(), GRPC_CONTENT_TYPE)).build();
+
+		LOG.info("Executing gRPC request: {}", request);
+
+		Call call = getClient("https".equals(uri.getScheme())).newCall(request);
+
+		TimeInterval tiBeforeBody = new TimeInterval();
+		TimeInterval tiTotal = new TimeInterval();
+
+		tiBeforeBody.start();
+		tiTotal.start();
+		long timestamp = System.currentTimeMillis();
+
+		try (Response response = call.execute()) {
+			tiBeforeBody.stop();
+
+			ResponseBody responseBody = response.body();
+			Buffer messages = new Buffer();
+			int messageCount = readMessages(responseBody.source(), "gzip".equals(response.header("grpc-encoding")), messages);
+			// trailers are only available once the body has been consumed
+			Headers trailers = response.trailers();
+
+			tiTotal.stop();
+
+			SetMultimap<String, String> headers = HashMultimap.create(response.headers().size() + trailers.size(), 2);
+			for (Headers h : ImmutableList.of(response.headers(), trailers)) {
+				h.names().forEach(name -> headers.putAll(name.toLowerCase(), h.values(name)));
+			}
+
+			// a trailers-only response carries the status in the headers
+			String grpcStatus = trailers.get("grpc-status");
+			String grpcMessage = trailers.get("grpc-message");
+			if (grpcStatus == null) {
+				grpcStatus = response.header("grpc-status");
+				grpcMessage = response.header("grpc-message");
+			}
+
+			int statusCode = response.code();
+			String statusMsg = response.message();
+			if (statusCode == 200) {
+				GrpcStatus status = grpcStatus != null ? GrpcStatus.fromCode(Integer.parseInt(grpcStatus)) : GrpcStatus.UNKNOWN;
+				statusCode = status.getHttpStatus();
+				statusMsg = grpcMessage != null ? status + ": " + grpcMessage : status.toString();
+			}
+
+			long bodySize = messages.size();
+			byte[] bodyBytes = messages.readByteArray();
+			LOG.debug("Received {} gRPC message(s) with {} bytes.", messageCount, bodySize);
+
+			return new ResponseInfo.Builder()
+					.methodType(template.getType())
+					.uri(uri.toString())
+					.uriAlias(template.getUriAlias())
+					.statusCode(statusCode)
+					.statusMsg(statusMsg)
+					.headers(headers)
+					.body(bodyBytes)
+					.bodyAsString(new String(bodyBytes, UTF_8))
+					.charset(UTF_8.name())
+					.contentType(response.header("content-type"))
+					.timestamp(timestamp)
+					.timeIntervalBeforeBody(tiBeforeBody)
+					.timeIntervalTotal(tiTotal)
+					.executionId(executionId)
+					.requestId(requestId)
+					.protocol(response.protocol())
+					.compressedBodySize(bodySize)
+					.uncompressedBodySize(bodySize)
+					.build();
+		}
+	}
+
+	/**
+	 * Reads length-prefixed gRPC messages until the end of the stream.
+	 *
+	 * @return the number of messages read
+	 */
+	private int readMessages(final BufferedSource source, final boolean gzip, final Buffer sink) throws IOException {
+		int count = 0;
+		while (!source.exhausted()) {
+			boolean compressed = source.readByte() != 0;
+			long length = source.readInt() & 0xffffffffL;
+			if (compressed) {
+				if (!gzip) {
+					throw new ProtocolException("Compressed gRPC message without supported grpc-encoding");
+				}
+				Buffer compressedMessage = new Buffer();
+				source.readFully(compressedMessage, length);
+				Okio.buffer(new GzipSource(compressedMessage)).readAll(sink);
+			} else {
+				source.readFully(sink, length);
+			}
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the shared client, creating it on first use. The client is derived from the regular
+	 * client configuration, so TLS settings apply to gRPC as well. Because the client is shared by
+	 * all executions, it does not keep cookies.
+	 */
+	private OkHttpClient getClient(final boolean tls) {
+		OkHttpClient client = tls ? tlsClient : cleartextClient;
+		if (client == null) {
+			synchronized (this) {
+				client = tls ? tlsClient : cleartextClient;
+				if (client == null) {
+					client = okHttpClientProvider.get().newBuilder()
+							.cookieJar(CookieJar.NO_COOKIES)
+							.protocols(tls
+									? ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+									: ImmutableList.of(Protocol.H2_PRIOR_KNOWLEDGE))
+							.build();
+					if (tls) {
+						tlsClient = client;
+					} else {
+						cleartextClient = client;
+					}
+				}
+			}
+		}
+		return client;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.grpc;
+
+/**
+ * gRPC status codes with their HTTP equivalents as defined by {@code google.rpc.Code}. The HTTP
+ * equivalents are reported as response status codes, so that status code validation works for
+ * gRPC just as for HTTP.
+ *
+ * @author agent
+ */
+public enum GrpcStatus {
+	OK(200),
+	CANCELLED(499),
+	UNKNOWN(500),
+	INVALID_ARGUMENT(400),
+	DEADLINE_EXCEEDED(504),
+	NOT_FOUND(404),
+	ALREADY_EXISTS(409),
+	PERMISSION_DENIED(403),
+	RESOURCE_EXHAUSTED(429),
+	FAILED_PRECONDITION(400),
+	ABORTED(409),
+	OUT_OF_RANGE(400),
+	UNIMPLEMENTED(501),
+	INTERNAL(500),
+	UNAVAILABLE(503),
+	DATA_LOSS(500),
+	UNAUTHENTICATED(401);
+
+	private static final GrpcStatus[] VALUES = values();
+
+	private final int httpStatus;
+
+	private GrpcStatus(final int httpStatus) {
+		this.httpStatus = httpStatus;
+	}
+
+	/**
+	 * @return the numeric gRPC status code
+	 */
+	public int getCode() {
+		return ordinal();
+	}
+
+	/**
+	 * @return the equivalent HTTP status code
+	 */
+	public int getHttpStatus() {
+		return httpStatus;
+	}
+
+	/**
+	 * Looks up the status for a numeric gRPC status code.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the status, {@link #UNKNOWN} for undefined codes
+	 */
+	public static GrpcStatus fromCode(final int code) {
+		return code >= 0 && code < VALUES.length ? VALUES[code] : UNKNOWN;
+	}
+}
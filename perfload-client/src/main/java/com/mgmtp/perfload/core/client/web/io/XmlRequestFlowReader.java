@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
@@ -31,9 +32,8 @@ import org.dom4j.Element;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
 import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
+import com.mgmtp.perfload.core.client.web.template.NameValueList;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
@@ -49,6 +49,12 @@ public final class XmlRequestFlowReader {
 
 	private static final String SCHEMA_RESOURCE = "perfload-request-flow.xsd";
 
+	/**
+	 * The compiled schema is thread-safe and shared by all readers of the process, so it only has
+	 * to be compiled once.
+	 */
+	private static volatile Schema schema;
+
 	private final String resourcePath;
 	private final String resourceName;
 
@@ -86,20 +92,20 @@ public final class XmlRequestFlowReader {
 
 			@SuppressWarnings("unchecked")
 			List<Element> params = requestElem.elements("param");
-			SetMultimap<String, String> paramsMultiMap = HashMultimap.create(params.size(), 3);
+			NameValueList.Builder paramsBuilder = NameValueList.builder(params.size());
 			for (Element paramElem : params) {
 				String key = paramElem.attributeValue("name");
 				String value = paramElem.getText();
-				paramsMultiMap.put(key, value);
+				paramsBuilder.add(key, value);
 			}
 
 			@SuppressWarnings("unchecked")
 			List<Element> headers = requestElem.elements("header");
-			SetMultimap<String, String> headersMultiMap = HashMultimap.create(headers.size(), 3);
+			NameValueList.Builder headersBuilder = NameValueList.builder(headers.size());
 			for (Element headerElem : headers) {
 				String key = headerElem.attributeValue("name");
 				String value = headerElem.getText();
-				headersMultiMap.put(key, value);
+				headersBuilder.add(key, value);
 			}
 
 			Element bodyElement = requestElem.element("body");
@@ -108,6 +114,7 @@ public final class XmlRequestFlowReader {
 				String bodyContent = emptyToNull(bodyElement.getText());
 				String resPath = bodyElement.attributeValue("resourcePath");
 				String resourceType = bodyElement.attributeValue("resourceType");
+				String contentEncoding = emptyToNull(bodyElement.attributeValue("contentEncoding"));
 
 				checkState(bodyContent != null ^ (resPath != null && resourceType != null),
 						"Must specify either body content or resource path and type. [" + requestElem.asXML() + "]");
@@ -117,6 +124,9 @@ public final class XmlRequestFlowReader {
 				} else {
 					body = Body.create(resPath, resourceType);
 				}
+				if (contentEncoding != null) {
+					body = body.withContentEncoding(contentEncoding);
+				}
 			}
 
 			@SuppressWarnings("unchecked")
@@ -143,7 +153,7 @@ public final class XmlRequestFlowReader {
 				extractDetailsList.add(ed);
 			}
 
-			templates.add(new RequestTemplate(id, type, skip, uri, uriAlias, headersMultiMap, paramsMultiMap, body,
+			templates.add(new RequestTemplate(id, type, skip, uri, uriAlias, headersBuilder.build(), paramsBuilder.build(), body,
 					extractHeadersList, extractDetailsList, validateResponse));
 		}
 
@@ -152,9 +162,23 @@ public final class XmlRequestFlowReader {
 
 	private Document loadDocument() throws ParserConfigurationException, SAXException, DocumentException {
 		ClassLoader loader = Thread.currentThread().getContextClassLoader();
-		String schemaUrl = loader.getResource(SCHEMA_RESOURCE).toString();
 		String resource = resourcePath + resourceName;
 		String xmlResourceUrl = loader.getResource(resource).toString();
-		return Dom4jReader.loadDocument(new InputSource(xmlResourceUrl), new StreamSource(schemaUrl), "UTF-8");
+		return Dom4jReader.loadDocument(new InputSource(xmlResourceUrl), getSchema(loader), true, "UTF-8");
+	}
+
+	private static Schema getSchema(final ClassLoader loader) throws SAXException {
+		Schema result = schema;
+		if (result == null) {
+			synchronized (XmlRequestFlowReader.class) {
+				result = schema;
+				if (result == null) {
+					String schemaUrl = loader.getResource(SCHEMA_RESOURCE).toString();
+					result = Dom4jReader.compileSchema(new StreamSource(schemaUrl));
+					schema = result;
+				}
+			}
+		}
+		return result;
 	}
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import java.io.IOException;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Network interceptor that counts the response body bytes as they are read from the wire, i. e.
+ * before OkHttp transparently decompresses them. Counting only happens for requests tagged with a
+ * {@link ByteCount} instance.
+ *
+ * @author agent
+ */
+@ThreadSafe
+@Immutable
+public final class ByteCountingInterceptor implements Interceptor {
+
+	@Override
+	public Response intercept(final Chain chain) throws IOException {
+		Response response = chain.proceed(chain.request());
+
+		ByteCount counter = chain.request().tag(ByteCount.class);
+		ResponseBody body = response.body();
+		if (counter == null || body == null) {
+			return response;
+		}
+
+		// Reset for each network response, so only the last one of a redirect chain counts
+		counter.reset(response.header("Content-Encoding"));
+
+		ForwardingSource countingSource = new ForwardingSource(body.source()) {
+			@Override
+			public long read(final Buffer sink, final long byteCount) throws IOException {
+				long read = super.read(sink, byteCount);
+				if (read > 0L) {
+					counter.add(read);
+				}
+				return read;
+			}
+		};
+		ResponseBody countingBody = ResponseBody.create(Okio.buffer(countingSource), body.contentType(), body.contentLength());
+		return response.newBuilder().body(countingBody).build();
+	}
+
+	/**
+	 * Holds the number of response body bytes received over the network for a single request.
+	 */
+	@NotThreadSafe
+	public static final class ByteCount {
+		private long count = -1L;
+		private String contentEncoding;
+
+		void reset(final String encoding) {
+			this.count = 0L;
+			this.contentEncoding = encoding;
+		}
+
+		void add(final long bytes) {
+			count += bytes;
+		}
+
+		/**
+		 * @return {@code true}, if a network response has been recorded
+		 */
+		public boolean isRecorded() {
+			return count >= 0L;
+		}
+
+		/**
+		 * @return the number of bytes read from the wire, or {@code -1} if nothing was recorded
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the value of the response's {@code Content-Encoding} header as received over the
+		 *         network
+		 */
+		public String getContentEncoding() {
+			return contentEncoding;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+import com.mgmtp.perfload.core.client.web.template.ContentEncoding;
+
+/**
+ * {@link RequestBody} that compresses its content while it is written to the network. The content
+ * length is unknown in advance, so the body is sent using chunked transfer encoding.
+ *
+ * @author agent
+ */
+final class EncodedRequestBody extends RequestBody {
+
+	private final byte[] content;
+	private final ContentEncoding encoding;
+
+	/**
+	 * @param content
+	 *            the uncompressed content
+	 * @param encoding
+	 *            the encoding to apply; must not be {@link ContentEncoding#IDENTITY}
+	 */
+	EncodedRequestBody(final byte[] content, final ContentEncoding encoding) {
+		this.content = content;
+		this.encoding = encoding;
+	}
+
+	@Override
+	public MediaType contentType() {
+		return null;
+	}
+
+	@Override
+	public long contentLength() {
+		return -1L;
+	}
+
+	@Override
+	public void writeTo(final BufferedSink sink) throws IOException {
+		try (BufferedSink encodingSink = Okio.buffer(createEncodingSink(sink))) {
+			encodingSink.write(content);
+		}
+	}
+
+	private Sink createEncodingSink(final BufferedSink sink) {
+		switch (encoding) {
+			case GZIP:
+				return new GzipSink(sink);
+			case DEFLATE:
+				// HTTP's "deflate" is the zlib format, i. e. deflate data with zlib header and trailer
+				return new DeflaterSink(sink, new Deflater());
+			default:
+				throw new IllegalStateException("Unsupported content encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Encodes the specified content in memory.
+	 *
+	 * @param content
+	 *            the uncompressed content
+	 * @param encoding
+	 *            the encoding to apply; must not be {@link ContentEncoding#IDENTITY}
+	 * @return the encoded content
+	 */
+	static byte[] encode(final byte[] content, final ContentEncoding encoding) throws IOException {
+		Buffer buffer = new Buffer();
+		new EncodedRequestBody(content, encoding).writeTo(buffer);
+		return buffer.readByteArray();
+	}
+}
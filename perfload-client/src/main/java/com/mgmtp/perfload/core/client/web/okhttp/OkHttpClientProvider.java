@@ -24,6 +24,7 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSocketFactory;
 
 import com.google.inject.Inject;
+import com.mgmtp.perfload.core.client.config.scope.Resettable;
 import com.mgmtp.perfload.core.client.web.net.LocalAddressSocketFactory;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
@@ -181,6 +182,8 @@ public class OkHttpClientProvider implements Provider<OkHttpClient> {
                 builder = builder.proxy(localProxy);
             }
             builder.cookieJar(new MyCookieJar(dumpCookiesFlag));
+            // counts compressed response bytes before OkHttp transparently decompresses them
+            builder.addNetworkInterceptor(new ByteCountingInterceptor());
 
             if (insecureHostsList.size() > 0) {
                 LOG.warn("Using HandshakeCertificate.Builder for ssl factory");
@@ -236,7 +239,7 @@ public class OkHttpClientProvider implements Provider<OkHttpClient> {
         }
     }
 
-    static class MyCookieJar implements CookieJar {
+    static class MyCookieJar implements CookieJar, Resettable {
 
         private List<Cookie> cookies;
         private boolean dumpCookies;
@@ -268,5 +271,10 @@ public class OkHttpClientProvider implements Provider<OkHttpClient> {
             }
             return new ArrayList<Cookie>();
         }
+
+        @Override
+        public void reset() {
+            cookies = null;
+        }
     }
 }
@@ -22,16 +22,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.config.scope.Resettable;
+import okhttp3.CookieJar;
 import okhttp3.OkHttpClient;
 
 /**
  * Manages a thread's OkHttpClient. The client is cached internally and released by calling
- * {@link #close()}.
+ * {@link #close()}. If execution pooling is enabled, the client is kept across executions;
+ * {@link #reset()} then only evicts its connections and clears its cookies.
  *
  * @author rnaegele
  */
 @ExecutionScoped
-public class OkHttpManager implements AutoCloseable {
+public class OkHttpManager implements AutoCloseable, Resettable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(OkHttpManager.class);
 
 	private final Provider<OkHttpClient> okHttpClientProvider;
@@ -62,7 +65,27 @@ public class OkHttpManager implements AutoCloseable {
 	 */
 	@Override
 	public void close() throws Exception {
-		client.connectionPool().evictAll();
-		client = null;
+		if (client != null) {
+			client.connectionPool().evictAll();
+			client = null;
+		}
+	}
+
+	/**
+	 * Evicts all connections from the client's pool and clears its cookies, so the client may be
+	 * reused for another execution. If the client's cookie jar cannot be reset, the client is
+	 * released and a new one is created on demand.
+	 */
+	@Override
+	public void reset() throws Exception {
+		if (client != null) {
+			client.connectionPool().evictAll();
+			CookieJar cookieJar = client.cookieJar();
+			if (cookieJar instanceof Resettable) {
+				((Resettable) cookieJar).reset();
+			} else if (cookieJar != CookieJar.NO_COOKIES) {
+				client = null;
+			}
+		}
 	}
 }
@@ -15,31 +15,31 @@
  */
 package com.mgmtp.perfload.core.client.web.okhttp;
 
-import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
-import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.inject.Inject;
 import com.mgmtp.perfload.core.client.event.LtRunnerEvent;
 import com.mgmtp.perfload.core.client.event.LtRunnerEventListener;
 
 /**
  * Event listener for closing the {@link OkHttpManager}. After each run, the current thread's OkHttp
- * client is nulled out and open connections are closed.
+ * client is nulled out and open connections are closed, unless execution pooling is enabled.
  *
  * @author rnaegele
  */
 @Singleton
 @ThreadSafe
-@Immutable
 public final class OkHttpManagerCloseListener implements LtRunnerEventListener {
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final Provider<OkHttpManager> okHttpManagerProvider;
+	private volatile boolean executionPooling;
 
 	/**
 	 * @param okHttpManagerProvider
@@ -51,18 +51,25 @@ public final class OkHttpManagerCloseListener implements LtRunnerEventListener {
 	}
 
 	/**
-	 * Does nothing.
+	 * @param executionPooling
+	 *            if {@code true}, execution-scoped objects are pooled (see
+	 *            {@link com.mgmtp.perfload.core.client.config.scope.ExecutionScopePool}); the
+	 *            {@link OkHttpManager} is then not closed, but reset when it is returned to the pool
 	 */
-	@Override
-	public void runStarted(final LtRunnerEvent event) {
-		// no-op
+	@Inject(optional = true)
+	public void setExecutionPooling(@Named("execution.pooling") final String executionPooling) {
+		this.executionPooling = Boolean.parseBoolean(executionPooling.trim());
 	}
 
 	/**
-	 * Calls {@link OkHttpManager#close()}.
+	 * Calls {@link OkHttpManager#close()}, unless execution pooling is enabled.
 	 */
 	@Override
 	public void runFinished(final LtRunnerEvent event) {
+		if (executionPooling) {
+			// Reset by the pool after the execution has exited its scope
+			return;
+		}
 		try {
 			log.info("Closing OkHttpManager...");
 			okHttpManagerProvider.get().close();
@@ -61,6 +61,9 @@ public class OkHttpModule extends AbstractWebLtModule {
 		bindRequestHandler("HEAD").to(OkHttpRequestHandler.class);
 		bindRequestHandler("OPTIONS").to(OkHttpRequestHandler.class);
 		bindRequestHandler("TRACE").to(OkHttpRequestHandler.class);
+
+		bindRequestHandler(StreamingRequestHandler.SSE).to(StreamingRequestHandler.class);
+		bindRequestHandler(StreamingRequestHandler.STREAM).to(StreamingRequestHandler.class);
 	}
 
 	/**
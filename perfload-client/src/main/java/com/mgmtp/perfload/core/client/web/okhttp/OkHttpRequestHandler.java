@@ -15,37 +15,39 @@
  */
 package com.mgmtp.perfload.core.client.web.okhttp;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
 
-import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
-import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 import okhttp3.*;
-import org.apache.commons.lang3.text.StrBuilder;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.SetMultimap;
+import com.google.inject.Inject;
 import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
 import com.mgmtp.perfload.core.client.config.annotations.Operation;
 import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.core.client.util.IdStrings;
 import com.mgmtp.perfload.core.client.web.constants.WebConstants;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.okhttp.ByteCountingInterceptor.ByteCount;
 import com.mgmtp.perfload.core.client.web.request.RequestHandler;
 import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.NameValueList;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.ContentEncoding;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
 import com.mgmtp.perfload.logging.TimeInterval;
 
@@ -59,15 +61,20 @@ import org.slf4j.LoggerFactory;
 /**
  * A {@link RequestHandler} that uses <a href="http://square.github.io/okhttp/">OkHttp</a> as the
  * underlying HTTP client.
+ * <p>
+ * Request bodies may be compressed. The encoding is taken from the body's
+ * {@code contentEncoding} attribute in the request flow, or else from the property
+ * {@code http.requestBodyEncoding} (see {@link ContentEncoding}).
  *
  * @author rnaegele
  */
 @Singleton
 @ThreadSafe
-@Immutable
 public class OkHttpRequestHandler implements RequestHandler {
 	private static final Logger LOG = LoggerFactory.getLogger(OkHttpRequestHandler.class);
 
+	private static final byte[] NOT_YET_ENCODED = new byte[0];
+
 	private static enum HttpMethod {
 		GET,
 		POST,
@@ -83,7 +90,11 @@ public class OkHttpRequestHandler implements RequestHandler {
 	private final Provider<UUID> executionIdProvider;
 	private final Provider<String> operationProvider;
 	private final Provider<Builder> requestBuilderProvider;
-	
+
+	// weak keys are compared by identity, which is what we want here
+	private final ConcurrentMap<Body, byte[]> encodedBodies = new MapMaker().weakKeys().makeMap();
+	private ContentEncoding defaultContentEncoding = ContentEncoding.IDENTITY;
+
 	@Inject
 	public OkHttpRequestHandler(final Provider<OkHttpManager> okHttpClientManagerProvider, @TargetHost final Provider<String> targetHostProvider,
 			@ExecutionId final Provider<UUID> executionIdProvider, @Operation final Provider<String> operationProvider,
@@ -95,12 +106,41 @@ public class OkHttpRequestHandler implements RequestHandler {
 		this.requestBuilderProvider = requestBuilderProvider;
 	}
 
+	/**
+	 * Sets the encoding for request bodies which do not specify an encoding themselves.
+	 *
+	 * @param requestBodyEncoding
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="http.requestBodyEncoding">gzip</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setRequestBodyEncoding(@Named("http.requestBodyEncoding") final String requestBodyEncoding) {
+		this.defaultContentEncoding = ContentEncoding.fromToken(requestBodyEncoding);
+	}
+
 	@Override
 	public ResponseInfo execute(final RequestTemplate template, final UUID requestId) throws Exception {
-		URI uri = createUri(targetHostProvider.get(), template.getUri());
+		return execute(okHttpClientManagerProvider.get().getClient(), targetHostProvider.get(), executionIdProvider.get(),
+				operationProvider.get(), template, requestId);
+	}
+
+	@Override
+	public ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(context.getOkHttpManager().getClient(), context.getTargetHost(), context.getExecutionId(),
+				context.getOperation(), template, requestId);
+	}
+
+	private ResponseInfo execute(final OkHttpClient client, final String targetHost, final UUID executionId,
+			final String operation, final RequestTemplate template, final UUID requestId) throws Exception {
+		URI uri = createUri(targetHost, template.getUri());
 		String method = template.getType();
 
-		Request request = prepareRequest(uri, method, template, requestId);
+		Request request = prepareRequest(uri, method, template, executionId, operation, requestId);
 		
 		LOG.info("Executing request: {}", request.toString());
 
@@ -122,7 +162,7 @@ public class OkHttpRequestHandler implements RequestHandler {
 			}
 		}
 		
-		Call call = okHttpClientManagerProvider.get().getClient().newCall(request);
+		Call call = client.newCall(request);
 
 		TimeInterval tiBeforeBody = new TimeInterval();
 		TimeInterval tiTotal = new TimeInterval();
@@ -147,6 +187,9 @@ public class OkHttpRequestHandler implements RequestHandler {
 			Charset charset = contentType!=null?contentType.charset(StandardCharsets.UTF_8):StandardCharsets.UTF_8;
 			String responseCharset = charset != null ? charset.name() : null;
 			byte[] bodyBytes = body != null ? body.bytes() : null;
+			long uncompressedBodySize = bodyBytes != null ? bodyBytes.length : 0L;
+			ByteCount byteCount = request.tag(ByteCount.class);
+			long compressedBodySize = byteCount != null && byteCount.isRecorded() ? byteCount.getCount() : uncompressedBodySize;
 			String bodyAsString = "";
 			if  (contentType == null 
 					|| contentType.subtype().equals("json") 
@@ -181,9 +224,11 @@ public class OkHttpRequestHandler implements RequestHandler {
 					.timestamp(timestamp)
 					.timeIntervalBeforeBody(tiBeforeBody)
 					.timeIntervalTotal(tiTotal)
-					.executionId(executionIdProvider.get())
+					.executionId(executionId)
 					.requestId(requestId)
 					.protocol(protocol)
+					.compressedBodySize(compressedBodySize)
+					.uncompressedBodySize(uncompressedBodySize)
 					.build();
 		}
 	}
@@ -205,11 +250,41 @@ public class OkHttpRequestHandler implements RequestHandler {
 	 *             occurred while constructing the URL
 	 * @throws URISyntaxException
 	 *             If the given string violates RFC 2396, as augmented by the above deviations
+	 * @throws IOException
+	 *             if the request body cannot be encoded
 	 */
-	protected Request prepareRequest(URI uri, final String method, final RequestTemplate template, final UUID requestId)
-			throws MalformedURLException, URISyntaxException {
-		SetMultimap<String, String> parameters = template.getRequestParameters();
+	protected Request prepareRequest(final URI uri, final String method, final RequestTemplate template, final UUID requestId)
+			throws URISyntaxException, IOException {
+		return prepareRequest(uri, method, template, executionIdProvider.get(), operationProvider.get(), requestId);
+	}
+
+	/**
+	 * Prepares the request using the specified execution id and operation instead of looking them
+	 * up.
+	 *
+	 * @param uri
+	 *            the uri
+	 * @param method
+	 *            the HTTP method
+	 * @param template
+	 *            the request template
+	 * @param executionId
+	 *            the execution id
+	 * @param operation
+	 *            the operation
+	 * @param requestId
+	 *            the requestId
+	 * @return the request object
+	 * @throws URISyntaxException
+	 *             If the given string violates RFC 2396, as augmented by the above deviations
+	 * @throws IOException
+	 *             if the request body cannot be encoded
+	 */
+	protected Request prepareRequest(URI uri, final String method, final RequestTemplate template, final UUID executionId,
+			final String operation, final UUID requestId) throws URISyntaxException, IOException {
+		NameValueList parameters = template.getParameters();
 		RequestBody requestBody = null;
+		ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
 
 		switch (HttpMethod.valueOf(method)) {
 			case GET:
@@ -218,8 +293,7 @@ public class OkHttpRequestHandler implements RequestHandler {
 			case HEAD:
 			case TRACE:
 				if (!parameters.isEmpty()) {
-					String query = createQueryStringFromParams(parameters);
-					uri = new URI(uri.getRawQuery() == null ? uri.toString() + '?' + query : uri.toString() + '&' + query);
+					uri = appendQueryString(uri, parameters);
 				}
 				break;
 			case POST:
@@ -227,14 +301,17 @@ public class OkHttpRequestHandler implements RequestHandler {
 				Body body = template.getBody();
 				if (body != null) {
 					if (!parameters.isEmpty()) {
-						String query = createQueryStringFromParams(parameters);
-						uri = new URI(uri.getRawQuery() == null ? uri.toString() + '?' + query : uri.toString() + '&' + query);
+						uri = appendQueryString(uri, parameters);
 					}
-					requestBody = RequestBody.create(body.getContent(), null);
+					String bodyEncoding = body.getContentEncoding();
+					contentEncoding = bodyEncoding != null ? ContentEncoding.fromToken(bodyEncoding) : defaultContentEncoding;
+					requestBody = createRequestBody(body, contentEncoding);
 				} else {
-                    FormBody.Builder feb = new FormBody.Builder();
-                    parameters.entries().forEach(entry -> feb.add(entry.getKey(), entry.getValue()));
-                    requestBody = feb.build();
+					FormBody.Builder feb = new FormBody.Builder();
+					for (int i = 0, size = parameters.size(); i < size; ++i) {
+						feb.addEncoded(parameters.encodedName(i), parameters.encodedValue(i));
+					}
+					requestBody = feb.build();
 				}
 				break;
 			default:
@@ -243,14 +320,44 @@ public class OkHttpRequestHandler implements RequestHandler {
 
 		Request.Builder requestBuilder = requestBuilderProvider.get()
 				.url(uri.toURL())
-				.addHeader(WebConstants.EXECUTION_ID_HEADER, executionIdProvider.get().toString())
-				.addHeader(WebConstants.OPERATION_HEADER, operationProvider.get())
-				.addHeader(WebConstants.REQUEST_ID_HEADER, requestId.toString());
+				.addHeader(WebConstants.EXECUTION_ID_HEADER, IdStrings.toString(executionId))
+				.addHeader(WebConstants.OPERATION_HEADER, operation)
+				.addHeader(WebConstants.REQUEST_ID_HEADER, requestId.toString())
+				.tag(ByteCount.class, new ByteCount());
 
-		template.getRequestHeaders().entries().forEach(entry -> requestBuilder.addHeader(entry.getKey(), entry.getValue()));
+		if (contentEncoding != ContentEncoding.IDENTITY) {
+			requestBuilder.addHeader("Content-Encoding", contentEncoding.getToken());
+		}
+
+		template.getHeaders().forEach(requestBuilder::addHeader);
 		return requestBuilder.method(method, requestBody).build();
 	}
 
+	/**
+	 * Creates the request body applying the specified encoding. The
+	 * {@link com.mgmtp.perfload.core.client.web.template.DefaultTemplateTransformer} returns the
+	 * same body instance for every execution if neither the inline content nor the resource the
+	 * body is loaded from contain placeholders. Such constant bodies are encoded only once, when
+	 * they are seen for the second time, and then served from a cache. All others are encoded on
+	 * the fly while being written to the network; their cache entries are weak and vanish with the
+	 * body.
+	 */
+	private RequestBody createRequestBody(final Body body, final ContentEncoding encoding) throws IOException {
+		if (encoding == ContentEncoding.IDENTITY) {
+			return RequestBody.create(body.getContent(), null);
+		}
+
+		byte[] encoded = encodedBodies.putIfAbsent(body, NOT_YET_ENCODED);
+		if (encoded == null) {
+			return new EncodedRequestBody(body.getContent(), encoding);
+		}
+		if (encoded == NOT_YET_ENCODED) {
+			encoded = EncodedRequestBody.encode(body.getContent(), encoding);
+			encodedBodies.put(body, encoded);
+		}
+		return RequestBody.create(encoded, null);
+	}
+
 	private String responseBodyAsString(final byte[] body, final String contentCharset) throws UnsupportedEncodingException {
 		if (body != null && contentCharset != null) {
 			return new String(body, contentCharset);
@@ -275,19 +382,11 @@ public class OkHttpRequestHandler implements RequestHandler {
         }
 }
 
-	private String createQueryStringFromParams(final SetMultimap<String, String> parameters) {
-		StrBuilder sb = new StrBuilder();
-		parameters.entries().forEach(entry -> {
-			sb.appendSeparator('&');
-			try {
-				sb.append(URLEncoder.encode(entry.getKey(), UTF_8.name()));
-				sb.append('=');
-				sb.append(URLEncoder.encode(entry.getValue(), UTF_8.name()));
-			} catch (UnsupportedEncodingException ex) {
-				Throwables.propagate(ex);
-			}
-		});
-		return sb.toString();
+	private static URI appendQueryString(final URI uri, final NameValueList parameters) throws URISyntaxException {
+		String uriString = uri.toString();
+		StringBuilder sb = new StringBuilder(uriString.length() + parameters.size() * 32);
+		sb.append(uriString).append(uri.getRawQuery() == null ? '?' : '&');
+		return new URI(parameters.appendQueryString(sb).toString());
 	}
 	
 	
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Utf8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.inject.Inject;
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.Operation;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.core.client.web.config.annotations.ErrorPatterns;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.okhttp.ByteCountingInterceptor.ByteCount;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.response.StreamStatistics;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.logging.ResultLogger;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * <p>
+ * Request handler for streamed responses. The response is consumed event by event and never held
+ * in memory as a whole. Two request types are supported:
+ * </p>
+ * <ul>
+ * <li>{@code SSE}: Server-Sent Events, delimited by blank lines. An {@code Accept} header of
+ * {@code text/event-stream} is added unless the request specifies one.</li>
+ * <li>{@code STREAM}: line-delimited events, e. g. newline-delimited JSON.</li>
+ * </ul>
+ * <p>
+ * Requests with a body are sent as {@code POST}, all others as {@code GET}. The measured time
+ * before body is the time to the first byte of the body. In addition, an entry of type
+ * {@code <type>_EVENTS} is logged for every N events, N being configured by the property
+ * {@code stream.eventsPerMeasurement} (default: 100, 0 disables these entries). Such an entry
+ * carries the longest gap between two events as time before body and the time for the N events as
+ * total time. Statistics for the whole stream are available as {@link StreamStatistics} in the
+ * response's extra info.
+ * </p>
+ * <p>
+ * Detail extraction patterns and error patterns are applied to individual events. The response body
+ * only contains the events matching any of these patterns, and only as many of them as the
+ * patterns need.
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class StreamingRequestHandler extends OkHttpRequestHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingRequestHandler.class);
+
+	public static final String SSE = "SSE";
+	public static final String STREAM = "STREAM";
+
+	private final Provider<OkHttpManager> okHttpManagerProvider;
+	private final Provider<String> targetHostProvider;
+	private final Provider<UUID> executionIdProvider;
+	private final Provider<String> operationProvider;
+	private final Provider<ResultLogger> resultLoggerProvider;
+	private final List<Pattern> errorPatterns;
+
+	private int eventsPerMeasurement = 100;
+
+	@Inject
+	public StreamingRequestHandler(final Provider<OkHttpManager> okHttpManagerProvider,
+			@TargetHost final Provider<String> targetHostProvider, @ExecutionId final Provider<UUID> executionIdProvider,
+			@Operation final Provider<String> operationProvider, final Provider<Request.Builder> requestBuilderProvider,
+			final Provider<ResultLogger> resultLoggerProvider, @ErrorPatterns final List<Pattern> errorPatterns) {
+		super(okHttpManagerProvider, targetHostProvider, executionIdProvider, operationProvider, requestBuilderProvider);
+		this.okHttpManagerProvider = okHttpManagerProvider;
+		this.targetHostProvider = targetHostProvider;
+		this.executionIdProvider = executionIdProvider;
+		this.operationProvider = operationProvider;
+		this.resultLoggerProvider = resultLoggerProvider;
+		this.errorPatterns = errorPatterns;
+	}
+
+	/**
+	 * Sets the number of events per logged measurement.
+	 *
+	 * @param eventsPerMeasurement
+	 *            If present value is taken from testplan.xml where it may be configured in the
+	 *            following way:
+	 * <properties>
+	 * ...
+	 * <property name="stream.eventsPerMeasurement">10</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setEventsPerMeasurement(@Named("stream.eventsPerMeasurement") final String eventsPerMeasurement) {
+		this.eventsPerMeasurement = Integer.parseInt(eventsPerMeasurement.trim());
+	}
+
+	@Override
+	public ResponseInfo execute(final RequestTemplate template, final UUID requestId) throws Exception {
+		return execute(okHttpManagerProvider.get().getClient(), targetHostProvider.get(), executionIdProvider.get(),
+				operationProvider.get(), resultLoggerProvider.get(), template, requestId);
+	}
+
+	@Override
+	public ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(context.getOkHttpManager().getClient(), context.getTargetHost(), context.getExecutionId(),
+				context.getOperation(), context.getResultLogger(), template, requestId);
+	}
+
+	private ResponseInfo execute(final OkHttpClient client, final String targetHost, final UUID executionId,
+			final String operation, final ResultLogger resultLogger, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		URI uri = createUri(targetHost, template.getUri());
+		String type = template.getType();
+		String method = template.getBody() != null ? "POST" : "GET";
+
+		Request request = prepareRequest(uri, method, template, executionId, operation, requestId);
+		if (SSE.equals(type) && request.header("Accept") == null) {
+			request = request.newBuilder().header("Accept", "text/event-stream").build();
+		}
+
+		LOG.info("Executing {} request: {}", type, request);
+
+		Call call = client.newCall(request);
+
+		TimeInterval tiBeforeBody = new TimeInterval();
+		TimeInterval tiTotal = new TimeInterval();
+
+		tiBeforeBody.start();
+		tiTotal.start();
+		long timestamp = System.currentTimeMillis();
+
+		try (Response response = call.execute()) {
+			ResponseBody body = response.body();
+			BufferedSource source = body.source();
+			source.request(1L);
+			tiBeforeBody.stop();
+
+			String uriAlias = template.getUriAlias();
+			EventConsumer consumer = new EventConsumer(template.getDetailExtractions(), type + "_EVENTS", uri.toString(),
+					uriAlias != null ? uriAlias : uri.toString(), resultLogger, executionId, requestId);
+			long byteCount = readEvents(source, SSE.equals(type), consumer);
+
+			tiTotal.stop();
+
+			ByteCount wireCount = request.tag(ByteCount.class);
+			long compressedBodySize = wireCount != null && wireCount.isRecorded() ? wireCount.getCount() : byteCount;
+
+			SetMultimap<String, String> headers = HashMultimap.create(response.headers().size(), 2);
+			response.headers().names().forEach(name -> headers.putAll(name.toLowerCase(), response.headers(name)));
+
+			String retained = consumer.retained.toString();
+			return new ResponseInfo.Builder()
+					.methodType(type)
+					.uri(uri.toString())
+					.uriAlias(uriAlias)
+					.statusCode(response.code())
+					.statusMsg(response.message())
+					.headers(headers)
+					.body(retained.getBytes(UTF_8))
+					.bodyAsString(retained)
+					.charset(UTF_8.name())
+					.contentType(body.contentType() != null ? body.contentType().toString() : null)
+					.timestamp(timestamp)
+					.timeIntervalBeforeBody(tiBeforeBody)
+					.timeIntervalTotal(tiTotal)
+					.executionId(executionId)
+					.requestId(requestId)
+					.protocol(response.protocol())
+					.compressedBodySize(compressedBodySize)
+					.uncompressedBodySize(byteCount)
+					.extraInfo(consumer.getStatistics())
+					.build();
+		}
+	}
+
+	/**
+	 * Reads events line by line.
+	 *
+	 * @return the number of bytes read
+	 */
+	private long readEvents(final BufferedSource source, final boolean blankLineDelimited, final EventConsumer consumer)
+			throws IOException {
+		long byteCount = 0L;
+		StringBuilder event = new StringBuilder();
+		for (String line; (line = source.readUtf8Line()) != null;) {
+			// only an approximation, as line breaks may be CRLF
+			byteCount += Utf8.size(line) + 1L;
+			if (line.isEmpty()) {
+				if (event.length() > 0) {
+					consumer.accept(event.toString());
+					event.setLength(0);
+				}
+			} else if (blankLineDelimited) {
+				if (event.length() > 0) {
+					event.append('\n');
+				}
+				event.append(line);
+			} else {
+				consumer.accept(line);
+			}
+		}
+		if (event.length() > 0) {
+			consumer.accept(event.toString());
+		}
+		return byteCount;
+	}
+
+	/**
+	 * Consumes the events of one response, keeps track of timings, and retains events matching
+	 * extraction or error patterns.
+	 */
+	@NotThreadSafe
+	private final class EventConsumer {
+		private final Pattern[] extractionPatterns;
+		private final boolean[] indexed;
+		private final boolean[] satisfied;
+		private final String measurementType;
+		private final String uri;
+		private final String uriAlias;
+		private final ResultLogger resultLogger;
+		private final UUID executionId;
+		private final UUID requestId;
+
+		private final StringBuilder retained = new StringBuilder();
+		private boolean errorRetained;
+
+		private long eventCount;
+		private long maxGapNanos;
+		private long totalGapNanos;
+
+		private TimeInterval gap;
+		private long gapStart;
+
+		private TimeInterval window;
+		private long windowTimestamp;
+		private TimeInterval windowMaxGap;
+		private long windowMaxGapNanos;
+
+		EventConsumer(final List<DetailExtraction> detailExtractions, final String measurementType, final String uri,
+				final String uriAlias, final ResultLogger resultLogger, final UUID executionId, final UUID requestId) {
+			int size = detailExtractions.size();
+			this.extractionPatterns = new Pattern[size];
+			this.indexed = new boolean[size];
+			this.satisfied = new boolean[size];
+			for (int i = 0; i < size; ++i) {
+				DetailExtraction detailExtraction = detailExtractions.get(i);
+				extractionPatterns[i] = Pattern.compile(detailExtraction.getPattern());
+				indexed[i] = detailExtraction.isIndexed();
+			}
+			this.measurementType = measurementType;
+			this.uri = uri;
+			this.uriAlias = uriAlias;
+			this.resultLogger = resultLogger;
+			this.executionId = executionId;
+			this.requestId = requestId;
+			startWindow();
+		}
+
+		void accept(final String event) {
+			long now = System.nanoTime();
+			++eventCount;
+			if (gap != null) {
+				gap.stop();
+				long gapNanos = now - gapStart;
+				totalGapNanos += gapNanos;
+				maxGapNanos = Math.max(maxGapNanos, gapNanos);
+				if (windowMaxGap == null || gapNanos > windowMaxGapNanos) {
+					windowMaxGap = gap;
+					windowMaxGapNanos = gapNanos;
+				}
+			}
+
+			retain(event);
+
+			if (eventsPerMeasurement > 0 && eventCount % eventsPerMeasurement == 0) {
+				window.stop();
+				resultLogger.logResult(windowTimestamp, windowMaxGap != null ? windowMaxGap : window, window,
+						measurementType, uri, uriAlias, executionId, requestId);
+				startWindow();
+			}
+
+			gap = new TimeInterval();
+			gap.start();
+			gapStart = System.nanoTime();
+		}
+
+		private void retain(final String event) {
+			boolean retain = false;
+			for (int i = 0; i < extractionPatterns.length; ++i) {
+				// non-indexed extractions only need their first match
+				if (!satisfied[i] && extractionPatterns[i].matcher(event).find()) {
+					retain = true;
+					satisfied[i] = !indexed[i];
+				}
+			}
+			if (!errorRetained) {
+				for (Pattern pattern : errorPatterns) {
+					if (pattern.matcher(event).find()) {
+						retain = true;
+						errorRetained = true;
+						break;
+					}
+				}
+			}
+			if (retain) {
+				retained.append(event).append('\n');
+			}
+		}
+
+		private void startWindow() {
+			window = new TimeInterval();
+			window.start();
+			windowTimestamp = System.currentTimeMillis();
+			windowMaxGap = null;
+		}
+
+		StreamStatistics getStatistics() {
+			return new StreamStatistics(eventCount, maxGapNanos, totalGapNanos);
+		}
+	}
+}
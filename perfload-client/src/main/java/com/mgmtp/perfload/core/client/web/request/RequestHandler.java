@@ -19,6 +19,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.UUID;
 
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
 import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
 
@@ -40,6 +41,25 @@ public interface RequestHandler {
 	 */
 	ResponseInfo execute(RequestTemplate template, UUID requestId) throws Exception;
 
+	/**
+	 * Handles a request using the execution-scoped objects from the specified context. This is what
+	 * the request flow handler calls. Implementations should override it in order to avoid
+	 * execution scope lookups for each request. The default implementation simply delegates to
+	 * {@link #execute(RequestTemplate, UUID)}.
+	 *
+	 * @param context
+	 *            the context of the current execution
+	 * @param template
+	 *            the request template
+	 * @param requestId
+	 *            the unique request id
+	 * @return a response info object
+	 */
+	default ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(template, requestId);
+	}
+
 	/**
 	 * Creates a URI contatenating the specified {@code base} and {@code relativeUri}.
 	 *
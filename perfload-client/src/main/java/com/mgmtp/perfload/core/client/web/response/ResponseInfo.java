@@ -53,6 +53,8 @@ public final class ResponseInfo {
 	private final UUID executionId;
 	private final UUID requestId;
 	private final Protocol protocol;
+	private final long compressedBodySize;
+	private final long uncompressedBodySize;
 
 	private ResponseInfo(final Builder builder) {
 		this.methodType = builder.methodType;
@@ -72,6 +74,8 @@ public final class ResponseInfo {
 		this.requestId = builder.requestId;
 		this.extraInfo = builder.extraInfo;
 		this.protocol = builder.protocol;
+		this.compressedBodySize = builder.compressedBodySize;
+		this.uncompressedBodySize = builder.uncompressedBodySize;
 	}
 
 	/**
@@ -183,6 +187,25 @@ public final class ResponseInfo {
 		return requestId;
 	}
 
+	/**
+	 * Returns the size of the response body as received over the network, i. e. before any
+	 * decompression. Equals {@link #getUncompressedBodySize()} if the body was not compressed.
+	 *
+	 * @return the compressedBodySize in bytes
+	 */
+	public long getCompressedBodySize() {
+		return compressedBodySize;
+	}
+
+	/**
+	 * Returns the size of the decoded response body.
+	 *
+	 * @return the uncompressedBodySize in bytes
+	 */
+	public long getUncompressedBodySize() {
+		return uncompressedBodySize;
+	}
+
 	/**
 	 * @return the extraInfo
 	 */
@@ -209,6 +232,8 @@ public final class ResponseInfo {
 		tsb.append("timeIntervalTotal", timeIntervalTotal);
 		tsb.append("headers", headers);
 		tsb.append("charset", charset);
+		tsb.append("compressedBodySize", compressedBodySize);
+		tsb.append("uncompressedBodySize", uncompressedBodySize);
 		tsb.append("extraInfo", extraInfo);
 		tsb.append("executionId", executionId);
 		if (bodyAsString != null) {
@@ -236,6 +261,8 @@ public final class ResponseInfo {
 		private UUID executionId;
 		private UUID requestId;
 		private Protocol protocol;
+		private long compressedBodySize;
+		private long uncompressedBodySize;
 
 		public Builder() {
 			//
@@ -259,6 +286,8 @@ public final class ResponseInfo {
 			this.executionId = responseInfo.executionId;
 			this.requestId = responseInfo.requestId;
 			this.protocol = responseInfo.protocol;
+			this.compressedBodySize = responseInfo.compressedBodySize;
+			this.uncompressedBodySize = responseInfo.uncompressedBodySize;
 		}
 
 		public Builder statusCode(final int statusCode) {
@@ -346,6 +375,16 @@ public final class ResponseInfo {
 			return this;
 		}
 
+		public Builder compressedBodySize(final long compressedBodySize) {
+			this.compressedBodySize = compressedBodySize;
+			return this;
+		}
+
+		public Builder uncompressedBodySize(final long uncompressedBodySize) {
+			this.uncompressedBodySize = uncompressedBodySize;
+			return this;
+		}
+
 		public ResponseInfo build() {
 			return new ResponseInfo(this);
 		}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.response;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Statistics of a streamed response, available as {@link ResponseInfo#getExtraInfo() extra info}
+ * of responses of streaming request types.
+ *
+ * @author agent
+ */
+@Immutable
+public final class StreamStatistics {
+	private final long eventCount;
+	private final long maxGapNanos;
+	private final long totalGapNanos;
+
+	/**
+	 * @param eventCount
+	 *            the number of events received
+	 * @param maxGapNanos
+	 *            the longest gap between two consecutive events in nanoseconds
+	 * @param totalGapNanos
+	 *            the sum of all gaps between consecutive events in nanoseconds
+	 */
+	public StreamStatistics(final long eventCount, final long maxGapNanos, final long totalGapNanos) {
+		this.eventCount = eventCount;
+		this.maxGapNanos = maxGapNanos;
+		this.totalGapNanos = totalGapNanos;
+	}
+
+	/**
+	 * @return the number of events received
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return the longest gap between two consecutive events in nanoseconds
+	 */
+	public long getMaxGapNanos() {
+		return maxGapNanos;
+	}
+
+	/**
+	 * @return the average gap between two consecutive events in nanoseconds
+	 */
+	public long getAverageGapNanos() {
+		return eventCount > 1 ? totalGapNanos / (eventCount - 1) : 0L;
+	}
+
+	@Override
+	public String toString() {
+		ToStringBuilder tsb = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+		tsb.append("eventCount", eventCount);
+		tsb.append("maxGapNanos", maxGapNanos);
+		tsb.append("averageGapNanos", getAverageGapNanos());
+		return tsb.toString();
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.inject.Inject;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.request.RequestHandler;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * Base class for {@link RequestHandler}s exchanging raw messages over non-blocking socket
+ * channels. The request's body is sent as message payload, request headers and parameters are
+ * ignored. The request URI must resolve to an absolute URI with host and port, e. g.
+ * {@code tcp://localhost:7000}. Relative URIs are resolved against the target host.
+ * <p>
+ * Socket protocols have no notion of a status code. A complete exchange yields status code 200,
+ * so response validation configured for HTTP does not reject socket responses. The response
+ * payload is decoded as string using the charset configured with the property
+ * {@code socket.charset} (default: UTF-8), so that detail extractions and error patterns work as
+ * usual.
+ *
+ * @author agent
+ */
+public abstract class AbstractSocketRequestHandler implements RequestHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractSocketRequestHandler.class);
+
+	private static final long DEFAULT_TIMEOUT_MILLIS = 180000L;
+
+	protected final Provider<SocketChannelManager> channelManagerProvider;
+	protected final ByteBufferPool bufferPool;
+	private final Provider<String> targetHostProvider;
+	private final Provider<UUID> executionIdProvider;
+
+	private long connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+	private long readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+	private Charset charset = StandardCharsets.UTF_8;
+
+	protected AbstractSocketRequestHandler(final Provider<SocketChannelManager> channelManagerProvider,
+			final ByteBufferPool bufferPool, final Provider<String> targetHostProvider,
+			final Provider<UUID> executionIdProvider) {
+		this.channelManagerProvider = channelManagerProvider;
+		this.bufferPool = bufferPool;
+		this.targetHostProvider = targetHostProvider;
+		this.executionIdProvider = executionIdProvider;
+	}
+
+	/**
+	 * Sets the timeout for establishing connections.
+	 *
+	 * @param connectTimeout
+	 *            the timeout in milliseconds; if present value is taken from testplan.xml where it
+	 *            may be configured in the following way:
+	 * <properties>
+	 * ...
+	 * <property name="socket.connectTimeout">5000</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setConnectTimeout(@Named("socket.connectTimeout") final String connectTimeout) {
+		this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(connectTimeout.trim()));
+	}
+
+	/**
+	 * Sets the timeout for sending a request and receiving the complete response.
+	 *
+	 * @param readTimeout
+	 *            the timeout in milliseconds; if present value is taken from testplan.xml where it
+	 *            may be configured in the following way:
+	 * <properties>
+	 * ...
+	 * <property name="socket.readTimeout">5000</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setReadTimeout(@Named("socket.readTimeout") final String readTimeout) {
+		this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(readTimeout.trim()));
+	}
+
+	/**
+	 * Sets the charset for decoding response payloads as string.
+	 *
+	 * @param charset
+	 *            the charset name; if present value is taken from testplan.xml where it may be
+	 *            configured in the following way:
+	 * <properties>
+	 * ...
+	 * <property name="socket.charset">ISO-8859-1</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setCharset(@Named("socket.charset") final String charset) {
+		this.charset = Charset.forName(charset.trim());
+	}
+
+	@Override
+	public ResponseInfo execute(final RequestTemplate template, final UUID requestId) throws Exception {
+		return execute(targetHostProvider.get(), executionIdProvider.get(), template, requestId);
+	}
+
+	@Override
+	public ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(context.getTargetHost(), context.getExecutionId(), template, requestId);
+	}
+
+	private ResponseInfo execute(final String targetHost, final UUID executionId, final RequestTemplate template,
+			final UUID requestId) throws Exception {
+		URI uri = createUri(targetHost, template.getUri());
+		checkArgument(uri.getHost() != null && uri.getPort() != -1, "URI must specify host and port: %s", uri);
+		InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort());
+
+		Body body = template.getBody();
+		byte[] payload = body != null ? body.getContent() : new byte[0];
+
+		LOG.info("Executing {} request: {}", template.getType(), uri);
+
+		TimeInterval tiBeforeBody = new TimeInterval();
+		TimeInterval tiTotal = new TimeInterval();
+
+		tiBeforeBody.start();
+		tiTotal.start();
+		long timestamp = System.currentTimeMillis();
+
+		byte[] response = exchange(address, payload, tiBeforeBody);
+
+		tiTotal.stop();
+
+		return new ResponseInfo.Builder()
+				.methodType(template.getType())
+				.uri(uri.toString())
+				.uriAlias(template.getUriAlias())
+				.statusCode(200)
+				.statusMsg("OK")
+				.headers(ImmutableSetMultimap.<String, String>of())
+				.body(response)
+				.bodyAsString(new String(response, charset))
+				.charset(charset.name())
+				.timestamp(timestamp)
+				.timeIntervalBeforeBody(tiBeforeBody)
+				.timeIntervalTotal(tiTotal)
+				.executionId(executionId)
+				.requestId(requestId)
+				.compressedBodySize(response.length)
+				.uncompressedBodySize(response.length)
+				.build();
+	}
+
+	/**
+	 * Sends the specified payload to the specified address and waits for the response.
+	 * Implementations must stop {@code tiBeforeBody} when the first response bytes arrive.
+	 *
+	 * @param address
+	 *            the remote address
+	 * @param payload
+	 *            the request payload
+	 * @param tiBeforeBody
+	 *            the running time interval to be stopped when the response starts
+	 * @return the response payload
+	 */
+	protected abstract byte[] exchange(InetSocketAddress address, byte[] payload, TimeInterval tiBeforeBody)
+			throws IOException;
+
+	/**
+	 * @return the {@link System#nanoTime()} by which a connection must be established
+	 */
+	protected long connectDeadline() {
+		return System.nanoTime() + connectTimeoutNanos;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} by which a response must have been received
+	 */
+	protected long readDeadline() {
+		return System.nanoTime() + readTimeoutNanos;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Pool of direct {@link ByteBuffer}s of a fixed size. Allocating direct buffers is expensive, so
+ * they are recycled across requests and threads. Since each thread holds at most one buffer at a
+ * time, the pool is bounded by the number of threads and does not need an explicit limit.
+ *
+ * @author agent
+ */
+@ThreadSafe
+public final class ByteBufferPool {
+	private final int bufferSize;
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param bufferSize
+	 *            the capacity of pooled buffers
+	 */
+	public ByteBufferPool(final int bufferSize) {
+		checkArgument(bufferSize > 0, "Buffer size must be positive but was %s", bufferSize);
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @return the capacity of pooled buffers
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Acquires a cleared buffer with at least the specified capacity. Requests exceeding the pool's
+	 * buffer size are served with a new heap buffer, which is not pooled.
+	 *
+	 * @param minCapacity
+	 *            the minimum capacity
+	 * @return the buffer
+	 */
+	public ByteBuffer acquire(final int minCapacity) {
+		if (minCapacity > bufferSize) {
+			return ByteBuffer.allocate(minCapacity);
+		}
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. Buffers not acquired from the pool are ignored.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 */
+	public void release(final ByteBuffer buffer) {
+		if (buffer.isDirect() && buffer.capacity() == bufferSize) {
+			buffers.offer(buffer);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link Framing} that terminates each payload with a delimiter, e. g. a line feed. The delimiter
+ * is not part of the payload and must not occur within it.
+ *
+ * @author agent
+ */
+@ThreadSafe
+@Immutable
+public final class DelimiterFraming implements Framing {
+	private final byte[] delimiter;
+
+	/**
+	 * @param delimiter
+	 *            the delimiter bytes; must not be empty
+	 */
+	public DelimiterFraming(final byte[] delimiter) {
+		checkArgument(delimiter.length > 0, "Delimiter must not be empty");
+		this.delimiter = delimiter.clone();
+	}
+
+	@Override
+	public int getFrameLength(final int payloadLength) {
+		return payloadLength + delimiter.length;
+	}
+
+	@Override
+	public void writeFrame(final byte[] payload, final ByteBuffer target) {
+		target.put(payload);
+		target.put(delimiter);
+	}
+
+	@Override
+	public byte[] readFrame(final ByteBuffer source) {
+		int start = source.position();
+		int last = source.limit() - delimiter.length;
+
+		outer: for (int i = start; i <= last; ++i) {
+			for (int j = 0; j < delimiter.length; ++j) {
+				if (source.get(i + j) != delimiter[j]) {
+					continue outer;
+				}
+			}
+			byte[] payload = new byte[i - start];
+			source.get(payload);
+			source.position(i + delimiter.length);
+			return payload;
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "DelimiterFraming[delimiter=" + Arrays.toString(delimiter) + "]";
+	}
+}
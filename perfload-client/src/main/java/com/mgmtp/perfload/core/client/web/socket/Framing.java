@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Delimits request and response messages on a stream-oriented connection. Implementations must be
+ * thread-safe, since a single instance is shared by all threads.
+ *
+ * @author agent
+ */
+public interface Framing {
+
+	/**
+	 * Computes the number of bytes a frame for a payload of the specified length occupies on the
+	 * wire.
+	 *
+	 * @param payloadLength
+	 *            the payload length
+	 * @return the frame length
+	 */
+	int getFrameLength(int payloadLength);
+
+	/**
+	 * Writes a complete frame for the specified payload to the target buffer. The buffer is
+	 * guaranteed to have at least {@link #getFrameLength(int)} bytes remaining.
+	 *
+	 * @param payload
+	 *            the payload
+	 * @param target
+	 *            the buffer to write to
+	 */
+	void writeFrame(byte[] payload, ByteBuffer target);
+
+	/**
+	 * Tries to read a complete frame from the source buffer, which is in read mode. If the buffer
+	 * contains a complete frame, it is consumed and its payload is returned. Otherwise, the buffer's
+	 * position must be left unchanged.
+	 *
+	 * @param source
+	 *            the buffer to read from
+	 * @return the payload, or {@code null} if the buffer does not yet contain a complete frame
+	 */
+	byte[] readFrame(ByteBuffer source);
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link Framing} that prefixes each payload with its length as an unsigned big-endian integer of
+ * one, two, or four bytes. The length does not include the prefix itself.
+ *
+ * @author agent
+ */
+@ThreadSafe
+@Immutable
+public final class LengthPrefixedFraming implements Framing {
+	private final int lengthFieldSize;
+	private final long maxPayloadLength;
+
+	/**
+	 * @param lengthFieldSize
+	 *            the number of bytes of the length prefix; must be 1, 2, or 4
+	 */
+	public LengthPrefixedFraming(final int lengthFieldSize) {
+		checkArgument(lengthFieldSize == 1 || lengthFieldSize == 2 || lengthFieldSize == 4,
+				"Length field size must be 1, 2, or 4 but was %s", lengthFieldSize);
+		this.lengthFieldSize = lengthFieldSize;
+		this.maxPayloadLength = lengthFieldSize == 4 ? Integer.MAX_VALUE : (1L << lengthFieldSize * 8) - 1L;
+	}
+
+	@Override
+	public int getFrameLength(final int payloadLength) {
+		return lengthFieldSize + payloadLength;
+	}
+
+	@Override
+	public void writeFrame(final byte[] payload, final ByteBuffer target) {
+		checkArgument(payload.length <= maxPayloadLength, "Payload of %s bytes exceeds the maximum of %s bytes",
+				payload.length, maxPayloadLength);
+		switch (lengthFieldSize) {
+			case 1:
+				target.put((byte) payload.length);
+				break;
+			case 2:
+				target.putShort((short) payload.length);
+				break;
+			default:
+				target.putInt(payload.length);
+		}
+		target.put(payload);
+	}
+
+	@Override
+	public byte[] readFrame(final ByteBuffer source) {
+		int start = source.position();
+		if (source.remaining() < lengthFieldSize) {
+			return null;
+		}
+
+		long payloadLength;
+		switch (lengthFieldSize) {
+			case 1:
+				payloadLength = source.get(start) & 0xff;
+				break;
+			case 2:
+				payloadLength = source.getShort(start) & 0xffff;
+				break;
+			default:
+				payloadLength = source.getInt(start) & 0xffffffffL;
+		}
+		checkArgument(payloadLength <= Integer.MAX_VALUE, "Invalid frame length: %s", payloadLength);
+
+		if (source.remaining() < lengthFieldSize + payloadLength) {
+			return null;
+		}
+
+		byte[] payload = new byte[(int) payloadLength];
+		source.position(start + lengthFieldSize);
+		source.get(payload);
+		return payload;
+	}
+
+	@Override
+	public String toString() {
+		return "LengthPrefixedFraming[lengthFieldSize=" + lengthFieldSize + "]";
+	}
+}
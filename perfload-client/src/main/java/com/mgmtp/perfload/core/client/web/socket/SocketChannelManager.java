@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.config.scope.Resettable;
+
+/**
+ * Manages a thread's non-blocking socket channels. Channels are cached per remote address, so
+ * subsequent requests of a request flow reuse the connection. All channels are registered with a
+ * single {@link Selector}, which is used to wait for readiness with a timeout. Channels are released
+ * by calling {@link #close()}. If execution pooling is enabled, {@link #reset()} closes the channels
+ * but keeps the selector for the next execution.
+ *
+ * @author agent
+ */
+@ExecutionScoped
+public class SocketChannelManager implements AutoCloseable, Resettable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SocketChannelManager.class);
+
+	private final Provider<InetAddress> localAddressProvider;
+	private final Map<InetSocketAddress, SocketChannel> socketChannels = newHashMapWithExpectedSize(2);
+	private final Map<InetSocketAddress, DatagramChannel> datagramChannels = newHashMapWithExpectedSize(2);
+
+	private Selector selector;
+
+	/**
+	 * @param localAddressProvider
+	 *            provides the local address to bind channels to; the provided value may be
+	 *            {@code null}
+	 */
+	@Inject
+	public SocketChannelManager(final Provider<InetAddress> localAddressProvider) {
+		this.localAddressProvider = localAddressProvider;
+	}
+
+	/**
+	 * Gets the cached TCP channel for the specified address or opens and connects a new one.
+	 *
+	 * @param address
+	 *            the remote address
+	 * @param deadline
+	 *            the {@link System#nanoTime()} by which the connection must be established
+	 * @return the connected channel
+	 * @throws SocketTimeoutException
+	 *             if the connection could not be established in time
+	 */
+	public SocketChannel getSocketChannel(final InetSocketAddress address, final long deadline) throws IOException {
+		SocketChannel channel = socketChannels.get(address);
+		if (channel != null && channel.isOpen()) {
+			return channel;
+		}
+
+		LOGGER.info("Opening TCP connection to {}...", address);
+		channel = SocketChannel.open();
+		try {
+			channel.configureBlocking(false);
+			bindLocalAddress(channel);
+			if (!channel.connect(address)) {
+				while (!channel.finishConnect()) {
+					await(channel, SelectionKey.OP_CONNECT, deadline);
+				}
+			}
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+		socketChannels.put(address, channel);
+		return channel;
+	}
+
+	/**
+	 * Gets the cached UDP channel for the specified address or opens and connects a new one.
+	 * Connecting a datagram channel only sets its remote address, no packets are exchanged.
+	 *
+	 * @param address
+	 *            the remote address
+	 * @return the connected channel
+	 */
+	public DatagramChannel getDatagramChannel(final InetSocketAddress address) throws IOException {
+		DatagramChannel channel = datagramChannels.get(address);
+		if (channel != null && channel.isOpen()) {
+			return channel;
+		}
+
+		LOGGER.info("Opening UDP channel to {}...", address);
+		channel = DatagramChannel.open();
+		try {
+			channel.configureBlocking(false);
+			bindLocalAddress(channel);
+			channel.connect(address);
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+		datagramChannels.put(address, channel);
+		return channel;
+	}
+
+	private void bindLocalAddress(final NetworkChannel channel) throws IOException {
+		InetAddress localAddress = localAddressProvider.get();
+		if (localAddress != null) {
+			channel.bind(new InetSocketAddress(localAddress, 0));
+		}
+	}
+
+	/**
+	 * Waits until the specified channel is ready for the specified operation. Spurious wake-ups are
+	 * possible, so callers must retry their operation in a loop.
+	 *
+	 * @param channel
+	 *            the channel, which must have been obtained from this manager
+	 * @param op
+	 *            the operation, one of the {@link SelectionKey} {@code OP_*} constants
+	 * @param deadline
+	 *            the {@link System#nanoTime()} by which the channel must be ready
+	 * @throws SocketTimeoutException
+	 *             if the deadline has passed
+	 */
+	public void await(final SelectableChannel channel, final int op, final long deadline) throws IOException {
+		long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (remainingMillis <= 0L) {
+			throw new SocketTimeoutException("Timed out waiting for " + opToString(op));
+		}
+
+		if (selector == null) {
+			selector = Selector.open();
+		}
+		SelectionKey key = channel.keyFor(selector);
+		if (key == null) {
+			key = channel.register(selector, op);
+		} else {
+			key.interestOps(op);
+		}
+		try {
+			selector.select(remainingMillis);
+		} finally {
+			key.interestOps(0);
+			selector.selectedKeys().clear();
+		}
+	}
+
+	private static String opToString(final int op) {
+		switch (op) {
+			case SelectionKey.OP_CONNECT:
+				return "connect";
+			case SelectionKey.OP_READ:
+				return "read";
+			case SelectionKey.OP_WRITE:
+				return "write";
+			default:
+				return "op " + op;
+		}
+	}
+
+	/**
+	 * Closes the specified channel and removes it from the cache. This must be called if an
+	 * exchange fails, so the next request starts with a channel in a well-defined state.
+	 *
+	 * @param channel
+	 *            the channel
+	 */
+	public void discard(final SelectableChannel channel) {
+		socketChannels.values().remove(channel);
+		datagramChannels.values().remove(channel);
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			LOGGER.warn("Error closing channel: " + channel, ex);
+		}
+	}
+
+	/**
+	 * Closes all channels but keeps the selector.
+	 */
+	@Override
+	public void reset() throws IOException {
+		for (SocketChannel channel : socketChannels.values()) {
+			channel.close();
+		}
+		socketChannels.clear();
+		for (DatagramChannel channel : datagramChannels.values()) {
+			channel.close();
+		}
+		datagramChannels.clear();
+		if (selector != null) {
+			// flushes the keys of the closed channels
+			selector.selectNow();
+		}
+	}
+
+	/**
+	 * Closes all channels and the selector.
+	 */
+	@Override
+	public void close() throws Exception {
+		reset();
+		if (selector != null) {
+			selector.close();
+			selector = null;
+		}
+	}
+}
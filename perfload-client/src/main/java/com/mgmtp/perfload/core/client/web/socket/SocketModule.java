@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import com.google.inject.Provides;
+import com.mgmtp.perfload.core.client.web.config.AbstractWebLtModule;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * Guice module for raw socket request handlers. Binds the request types {@code TCP} and
+ * {@code UDP}. {@link com.mgmtp.perfload.core.client.web.config.WebLtModule} only installs it if
+ * the testplan property {@code socket.enabled} is {@code true}, so tests that don't need sockets
+ * don't pay for it. In testplan.xml, this may be configured in the following way:
+ * <properties>
+ * ...
+ * <property name="socket.enabled">true</property>
+ * </properties>
+ *
+ * @author agent
+ */
+public class SocketModule extends AbstractWebLtModule {
+
+	public SocketModule(final PropertiesMap testplanProperties) {
+		super(testplanProperties);
+	}
+
+	@Override
+	protected void doConfigureWebModule() {
+		bind(SocketChannelManager.class);
+
+		bindRequestHandler("TCP").to(TcpRequestHandler.class);
+		bindRequestHandler("UDP").to(UdpRequestHandler.class);
+
+		bindLtRunnerEventListener().to(SocketChannelManagerCloseListener.class);
+	}
+
+	/**
+	 * Provides the pool of buffers used for socket I/O. The buffer size is read from the property
+	 * {@code socket.bufferSize} (default: 16384).
+	 *
+	 * @param properties
+	 *            the properties
+	 * @return the buffer pool
+	 */
+	@Provides
+	@Singleton
+	protected ByteBufferPool provideByteBufferPool(final PropertiesMap properties) {
+		return new ByteBufferPool(properties.getInteger("socket.bufferSize", 16384));
+	}
+
+	/**
+	 * <p>
+	 * Provides the {@link Framing} for TCP messages. The property {@code socket.framing} selects
+	 * the implementation:
+	 * </p>
+	 * <ul>
+	 * <li>{@code length} (default): a length prefix of {@code socket.framing.lengthFieldSize}
+	 * bytes (1, 2, or 4; default: 4)</li>
+	 * <li>{@code delimiter}: a delimiter given by {@code socket.framing.delimiter}, which may
+	 * contain Java escape sequences (default: {@code \n})</li>
+	 * </ul>
+	 * <p>
+	 * Other protocols may be supported by overriding this binding.
+	 * </p>
+	 *
+	 * @param properties
+	 *            the properties
+	 * @return the framing
+	 */
+	@Provides
+	@Singleton
+	protected Framing provideFraming(final PropertiesMap properties) {
+		String framing = properties.get("socket.framing", "length");
+		switch (framing) {
+			case "length":
+				return new LengthPrefixedFraming(properties.getInteger("socket.framing.lengthFieldSize", 4));
+			case "delimiter":
+				String delimiter = StringEscapeUtils.unescapeJava(properties.get("socket.framing.delimiter", "\\n"));
+				return new DelimiterFraming(delimiter.getBytes(UTF_8));
+			default:
+				throw new IllegalStateException("Unknown socket framing: " + framing);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * Request handler for request/response exchanges over TCP. Messages are delimited using the
+ * configured {@link Framing}. Connections are kept open for subsequent requests of the same
+ * execution. If an exchange fails, its connection is closed.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class TcpRequestHandler extends AbstractSocketRequestHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(TcpRequestHandler.class);
+
+	private final Framing framing;
+
+	@Inject
+	public TcpRequestHandler(final Provider<SocketChannelManager> channelManagerProvider, final ByteBufferPool bufferPool,
+			final Framing framing, @TargetHost final Provider<String> targetHostProvider,
+			@ExecutionId final Provider<UUID> executionIdProvider) {
+		super(channelManagerProvider, bufferPool, targetHostProvider, executionIdProvider);
+		this.framing = framing;
+	}
+
+	@Override
+	protected byte[] exchange(final InetSocketAddress address, final byte[] payload, final TimeInterval tiBeforeBody)
+			throws IOException {
+		SocketChannelManager channelManager = channelManagerProvider.get();
+		SocketChannel channel = channelManager.getSocketChannel(address, connectDeadline());
+		try {
+			long deadline = readDeadline();
+			write(channelManager, channel, payload, deadline);
+			return read(channelManager, channel, deadline, tiBeforeBody);
+		} catch (IOException | RuntimeException ex) {
+			channelManager.discard(channel);
+			throw ex;
+		}
+	}
+
+	private void write(final SocketChannelManager channelManager, final SocketChannel channel, final byte[] payload,
+			final long deadline) throws IOException {
+		ByteBuffer buffer = bufferPool.acquire(framing.getFrameLength(payload.length));
+		try {
+			framing.writeFrame(payload, buffer);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				if (channel.write(buffer) == 0) {
+					channelManager.await(channel, SelectionKey.OP_WRITE, deadline);
+				}
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	private byte[] read(final SocketChannelManager channelManager, final SocketChannel channel, final long deadline,
+			final TimeInterval tiBeforeBody) throws IOException {
+		ByteBuffer buffer = bufferPool.acquire(bufferPool.getBufferSize());
+		try {
+			boolean started = false;
+			for (;;) {
+				int count = channel.read(buffer);
+				if (count < 0) {
+					throw new EOFException("Connection closed by peer: " + channel.getRemoteAddress());
+				}
+				if (count == 0) {
+					channelManager.await(channel, SelectionKey.OP_READ, deadline);
+					continue;
+				}
+				if (!started) {
+					tiBeforeBody.stop();
+					started = true;
+				}
+
+				buffer.flip();
+				byte[] frame = framing.readFrame(buffer);
+				if (frame != null) {
+					if (buffer.hasRemaining()) {
+						LOG.warn("Discarding {} bytes received after the response frame.", buffer.remaining());
+					}
+					return frame;
+				}
+				buffer.compact();
+
+				if (!buffer.hasRemaining()) {
+					// frame does not fit into the buffer, continue with a larger one
+					ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					bufferPool.release(buffer);
+					buffer = larger;
+				}
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+}
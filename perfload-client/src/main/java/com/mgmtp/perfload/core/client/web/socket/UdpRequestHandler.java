@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * Request handler for request/response exchanges over UDP. The request payload is sent as a single
+ * datagram, and the first datagram received is the response. Datagram boundaries delimit messages,
+ * so no {@link Framing} is applied. Responses larger than the pooled buffer size (property
+ * {@code socket.bufferSize}) are truncated.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class UdpRequestHandler extends AbstractSocketRequestHandler {
+
+	@Inject
+	public UdpRequestHandler(final Provider<SocketChannelManager> channelManagerProvider, final ByteBufferPool bufferPool,
+			@TargetHost final Provider<String> targetHostProvider, @ExecutionId final Provider<UUID> executionIdProvider) {
+		super(channelManagerProvider, bufferPool, targetHostProvider, executionIdProvider);
+	}
+
+	@Override
+	protected byte[] exchange(final InetSocketAddress address, final byte[] payload, final TimeInterval tiBeforeBody)
+			throws IOException {
+		SocketChannelManager channelManager = channelManagerProvider.get();
+		DatagramChannel channel = channelManager.getDatagramChannel(address);
+		try {
+			long deadline = readDeadline();
+			send(channelManager, channel, payload, deadline);
+			byte[] response = receive(channelManager, channel, deadline);
+			tiBeforeBody.stop();
+			return response;
+		} catch (IOException | RuntimeException ex) {
+			// also gets rid of late responses to this request
+			channelManager.discard(channel);
+			throw ex;
+		}
+	}
+
+	private void send(final SocketChannelManager channelManager, final DatagramChannel channel, final byte[] payload,
+			final long deadline) throws IOException {
+		ByteBuffer buffer = bufferPool.acquire(payload.length);
+		try {
+			buffer.put(payload);
+			buffer.flip();
+			while (channel.write(buffer) == 0 && payload.length > 0) {
+				channelManager.await(channel, SelectionKey.OP_WRITE, deadline);
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	private byte[] receive(final SocketChannelManager channelManager, final DatagramChannel channel, final long deadline)
+			throws IOException {
+		ByteBuffer buffer = bufferPool.acquire(bufferPool.getBufferSize());
+		try {
+			// unlike read(), receive() tells an empty datagram from none
+			while (channel.receive(buffer) == null) {
+				channelManager.await(channel, SelectionKey.OP_READ, deadline);
+			}
+			buffer.flip();
+			byte[] response = new byte[buffer.remaining()];
+			buffer.get(response);
+			return response;
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+}
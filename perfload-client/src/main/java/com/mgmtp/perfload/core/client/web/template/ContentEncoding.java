@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.template;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+
+/**
+ * Content encodings for request bodies. Each encoding has the token used in the HTTP
+ * {@code Content-Encoding} header, which is also the value to configure it with.
+ *
+ * @author agent
+ */
+public enum ContentEncoding {
+	IDENTITY("identity"),
+	GZIP("gzip"),
+	DEFLATE("deflate");
+
+	private final String token;
+
+	private ContentEncoding(final String token) {
+		this.token = token;
+	}
+
+	/**
+	 * @return the token used in the HTTP {@code Content-Encoding} header
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Looks up the encoding for the specified token ignoring case and surrounding whitespace.
+	 *
+	 * @param token
+	 *            the token, e. g. {@code gzip}
+	 * @return the encoding
+	 * @throws IllegalArgumentException
+	 *             if the token does not denote a supported encoding
+	 */
+	public static ContentEncoding fromToken(final String token) {
+		String trimmedToken = token.trim();
+		for (ContentEncoding encoding : values()) {
+			if (encoding.token.equalsIgnoreCase(trimmedToken)) {
+				return encoding;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported content encoding '" + token + "'. Supported encodings are: "
+				+ Arrays.stream(values()).map(ContentEncoding::getToken).collect(joining(", ")));
+	}
+}
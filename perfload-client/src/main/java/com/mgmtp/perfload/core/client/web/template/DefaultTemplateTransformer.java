@@ -22,20 +22,19 @@ import static com.mgmtp.perfload.core.client.util.PlaceholderUtils.resolvePlaceh
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Singleton;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.MapMaker;
 import com.mgmtp.perfload.core.client.util.PlaceholderContainer;
 import com.mgmtp.perfload.core.client.util.PlaceholderUtils;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
 
-import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 /**
@@ -45,9 +44,14 @@ import net.jcip.annotations.ThreadSafe;
  */
 @Singleton
 @ThreadSafe
-@Immutable
 public final class DefaultTemplateTransformer implements TemplateTransformer {
 
+	/**
+	 * Bodies loaded from resources without any placeholders, keyed by the template's body. They are
+	 * loaded only once, and request handlers may cache derived data per body instance.
+	 */
+	private final ConcurrentMap<Body, Body> constantResourceBodies = new MapMaker().weakKeys().makeMap();
+
 	/**
 	 * Creates a new {@link RequestTemplate} based on the specified one replacing placeholder tokens
 	 * with their resolved values from the specified {@link PlaceholderContainer}. Placeholder
@@ -68,25 +72,9 @@ public final class DefaultTemplateTransformer implements TemplateTransformer {
 		String id = template.getId();
 		String type = resolvePlaceholders(template.getType(), placeholderContainer);
 
-		SetMultimap<String, String> requestParameters = template.getRequestParameters();
-		SetMultimap<String, String> resolvedParams = HashMultimap.create();
-
-		// Resolve placeholders in parameters
-		for (Entry<String, String> entry : requestParameters.entries()) {
-			String resolvedKey = resolvePlaceholders(entry.getKey(), placeholderContainer);
-			String resolvedValue = resolvePlaceholders(entry.getValue(), placeholderContainer);
-			resolvedParams.put(resolvedKey, resolvedValue);
-		}
-
-		SetMultimap<String, String> requestHeaders = template.getRequestHeaders();
-		SetMultimap<String, String> resolvedHeaders = HashMultimap.create();
-
-		// Resolve placeholders in headers
-		for (Entry<String, String> entry : requestHeaders.entries()) {
-			String resolvedKey = resolvePlaceholders(entry.getKey(), placeholderContainer);
-			String resolvedValue = resolvePlaceholders(entry.getValue(), placeholderContainer);
-			resolvedHeaders.put(resolvedKey, resolvedValue);
-		}
+		// Resolve placeholders in parameters and headers
+		NameValueList resolvedParams = resolvePlaceholdersInList(template.getParameters(), placeholderContainer);
+		NameValueList resolvedHeaders = resolvePlaceholdersInList(template.getHeaders(), placeholderContainer);
 
 		// Resolve placeholders in skip
 		String skip = resolvePlaceholders(template.getSkip(), placeholderContainer);
@@ -103,29 +91,25 @@ public final class DefaultTemplateTransformer implements TemplateTransformer {
 		// Resolve placeholders in body, if body is of type text
 		Body body = template.getBody();
 		if (body != null) {
+			String contentEncoding = resolvePlaceholders(body.getContentEncoding(), placeholderContainer);
 			byte[] content = body.getContent();
 			if (content != null) {
 				if(body.getResourceType() != ResourceType.binary.name()) {
 					// content comes from request flow and is always considered UTF-8
-					String bodyAsString = new String(content, Charsets.UTF_8);
-					bodyAsString = resolvePlaceholders(bodyAsString, placeholderContainer);
-					body = Body.create(bodyAsString);					
+					String originalBody = new String(content, Charsets.UTF_8);
+					String bodyAsString = resolvePlaceholders(originalBody, placeholderContainer);
+					// Keep the original instance for constant bodies, so request handlers may cache
+					// derived data, e. g. the compressed form, per body instance.
+					if (!bodyAsString.equals(originalBody) || !Objects.equals(contentEncoding, body.getContentEncoding())) {
+						body = Body.create(bodyAsString).withContentEncoding(contentEncoding);
+					}
 				}
 			} else {
-				String resourcePath = resolvePlaceholders(body.getResourcePath(), placeholderContainer);
-				ResourceType resourceType = ResourceType
-						.valueOf(resolvePlaceholders(body.getResourceType(), placeholderContainer));
-				byte[] byteContent = toByteArray(getResource(resourcePath));
-				switch (resourceType) {
-					case text:
-						String stringContent = resolvePlaceholders(new String(byteContent, Charsets.UTF_8), placeholderContainer);
-						body = Body.create(stringContent);
-						break;
-					case binary:
-						body = Body.create(byteContent);
-						break;
-					default:
-						throw new IllegalStateException("Invalid resource type: " + resourceType);
+				Body constantBody = constantResourceBodies.get(body);
+				if (constantBody != null) {
+					body = constantBody;
+				} else {
+					body = loadResourceBody(body, contentEncoding, placeholderContainer);
 				}
 			}
 		}
@@ -164,4 +148,78 @@ public final class DefaultTemplateTransformer implements TemplateTransformer {
 		return new RequestTemplate(id, type, skip, uri, uriAlias, resolvedHeaders, resolvedParams, body,
 				transformedHeaderExtractions, transformedDetailExtractions, validateResponse);
 	}
+
+	/**
+	 * Loads the body from its resource resolving placeholders. If neither the body's attributes nor
+	 * the loaded text contain placeholders, the loaded body is kept and returned for subsequent
+	 * executions.
+	 */
+	private Body loadResourceBody(final Body body, final String contentEncoding, final PlaceholderContainer placeholderContainer)
+			throws IOException {
+		String resourcePath = resolvePlaceholders(body.getResourcePath(), placeholderContainer);
+		ResourceType resourceType = ResourceType
+				.valueOf(resolvePlaceholders(body.getResourceType(), placeholderContainer));
+		byte[] byteContent = toByteArray(getResource(resourcePath));
+
+		boolean constant = !containsPlaceholder(body.getResourcePath()) && !containsPlaceholder(body.getResourceType())
+				&& !containsPlaceholder(body.getContentEncoding());
+		Body loadedBody;
+		switch (resourceType) {
+			case text:
+				String originalContent = new String(byteContent, Charsets.UTF_8);
+				constant &= !containsPlaceholder(originalContent);
+				loadedBody = Body.create(resolvePlaceholders(originalContent, placeholderContainer))
+						.withContentEncoding(contentEncoding);
+				break;
+			case binary:
+				loadedBody = Body.create(byteContent).withContentEncoding(contentEncoding);
+				break;
+			default:
+				throw new IllegalStateException("Invalid resource type: " + resourceType);
+		}
+
+		if (constant) {
+			Body previous = constantResourceBodies.putIfAbsent(body, loadedBody);
+			if (previous != null) {
+				return previous;
+			}
+		}
+		return loadedBody;
+	}
+
+	private static boolean containsPlaceholder(final String input) {
+		return input != null && input.contains("${");
+	}
+
+	/**
+	 * Resolves placeholders in names and values. Entries without placeholders are copied together
+	 * with their cached encoded form. If no entry contains placeholders, the original list is
+	 * returned.
+	 */
+	private NameValueList resolvePlaceholdersInList(final NameValueList list, final PlaceholderContainer placeholderContainer) {
+		NameValueList.Builder builder = null;
+		for (int i = 0, size = list.size(); i < size; ++i) {
+			String name = list.name(i);
+			String value = list.value(i);
+			String resolvedName = resolvePlaceholders(name, placeholderContainer);
+			String resolvedValue = resolvePlaceholders(value, placeholderContainer);
+			boolean constant = name.equals(resolvedName) && value.equals(resolvedValue);
+			if (builder == null) {
+				if (constant) {
+					continue;
+				}
+				// first entry with placeholders, copy preceding ones
+				builder = NameValueList.builder(size);
+				for (int j = 0; j < i; ++j) {
+					builder.add(list, j);
+				}
+			}
+			if (constant) {
+				builder.add(list, i);
+			} else {
+				builder.add(resolvedName, resolvedValue);
+			}
+		}
+		return builder != null ? builder.build() : list;
+	}
 }
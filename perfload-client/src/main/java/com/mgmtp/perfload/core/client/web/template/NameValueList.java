@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.template;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * <p>
+ * Ordered list of name/value pairs, e. g. request headers or parameters. Unlike a
+ * {@link SetMultimap}, insertion order and duplicate entries are preserved. Names and values are
+ * stored in a single array, so the list can be iterated by index without creating entry objects.
+ * </p>
+ * <p>
+ * The URL-encoded form of each entry is computed on first use and then kept, so that entries of
+ * request templates without placeholders, which are shared by all executions, are encoded only
+ * once.
+ * </p>
+ *
+ * @author agent
+ */
+@ThreadSafe
+@Immutable
+public final class NameValueList {
+
+	/**
+	 * The empty list.
+	 */
+	public static final NameValueList EMPTY = new NameValueList(new String[0], new String[0]);
+
+	private final String[] namesAndValues;
+
+	/**
+	 * Encoded names and values; filled lazily. Races are benign because strings are immutable and
+	 * encoding is deterministic.
+	 */
+	private final String[] encoded;
+
+	private NameValueList(final String[] namesAndValues, final String[] encoded) {
+		this.namesAndValues = namesAndValues;
+		this.encoded = encoded;
+	}
+
+	/**
+	 * Creates a list from the entries of the specified multimap in iteration order.
+	 *
+	 * @param multimap
+	 *            the multimap
+	 * @return the list
+	 */
+	public static NameValueList copyOf(final Multimap<String, String> multimap) {
+		if (multimap.isEmpty()) {
+			return EMPTY;
+		}
+		Builder builder = builder(multimap.size());
+		for (Entry<String, String> entry : multimap.entries()) {
+			builder.add(entry.getKey(), entry.getValue());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @return a new builder
+	 */
+	public static Builder builder(final int expectedSize) {
+		return new Builder(expectedSize);
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return namesAndValues.length / 2;
+	}
+
+	public boolean isEmpty() {
+		return namesAndValues.length == 0;
+	}
+
+	/**
+	 * @return the name of the entry at the specified index
+	 */
+	public String name(final int index) {
+		return namesAndValues[index * 2];
+	}
+
+	/**
+	 * @return the value of the entry at the specified index
+	 */
+	public String value(final int index) {
+		return namesAndValues[index * 2 + 1];
+	}
+
+	/**
+	 * @return the URL-encoded name of the entry at the specified index
+	 */
+	public String encodedName(final int index) {
+		return encoded(index * 2);
+	}
+
+	/**
+	 * @return the URL-encoded value of the entry at the specified index
+	 */
+	public String encodedValue(final int index) {
+		return encoded(index * 2 + 1);
+	}
+
+	private String encoded(final int arrayIndex) {
+		String result = encoded[arrayIndex];
+		if (result == null) {
+			try {
+				result = URLEncoder.encode(namesAndValues[arrayIndex], "UTF-8");
+			} catch (UnsupportedEncodingException ex) {
+				throw new IllegalStateException(ex);
+			}
+			encoded[arrayIndex] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @param name
+	 *            the name
+	 * @return the value of the first entry with the specified name, or {@code null} if there is no
+	 *         such entry
+	 */
+	public String get(final String name) {
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			if (namesAndValues[i].equals(name)) {
+				return namesAndValues[i + 1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Passes all entries in order to the specified consumer.
+	 *
+	 * @param consumer
+	 *            the consumer of names and values
+	 */
+	public void forEach(final BiConsumer<String, String> consumer) {
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			consumer.accept(namesAndValues[i], namesAndValues[i + 1]);
+		}
+	}
+
+	/**
+	 * Appends all entries URL-encoded in the form {@code name1=value1&name2=value2}.
+	 *
+	 * @param sb
+	 *            the builder to append to
+	 * @return the specified builder
+	 */
+	public StringBuilder appendQueryString(final StringBuilder sb) {
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			if (i > 0) {
+				sb.append('&');
+			}
+			sb.append(encoded(i)).append('=').append(encoded(i + 1));
+		}
+		return sb;
+	}
+
+	/**
+	 * @return the entries as {@link SetMultimap}, i. e. without duplicates
+	 */
+	public SetMultimap<String, String> toSetMultimap() {
+		ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+		forEach(builder::put);
+		return builder.build();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(namesAndValues);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return Arrays.equals(namesAndValues, ((NameValueList) obj).namesAndValues);
+	}
+
+	@Override
+	public String toString() {
+		ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+		forEach(builder::put);
+		return builder.build().toString();
+	}
+
+	/**
+	 * Builder for {@link NameValueList}s.
+	 */
+	public static final class Builder {
+		private String[] namesAndValues;
+		private String[] encoded;
+		private int length;
+
+		private Builder(final int expectedSize) {
+			namesAndValues = new String[expectedSize * 2];
+			encoded = new String[expectedSize * 2];
+		}
+
+		/**
+		 * Adds an entry.
+		 *
+		 * @param name
+		 *            the name; must not be {@code null}
+		 * @param value
+		 *            the value; must not be {@code null}
+		 * @return this builder
+		 */
+		public Builder add(final String name, final String value) {
+			checkArgument(name != null, "Parameter 'name' must not be null.");
+			checkArgument(value != null, "Parameter 'value' must not be null.");
+			ensureCapacity();
+			namesAndValues[length] = name;
+			namesAndValues[length + 1] = value;
+			length += 2;
+			return this;
+		}
+
+		/**
+		 * Adds the entry at the specified index of another list, including its encoded form if
+		 * already computed.
+		 *
+		 * @param list
+		 *            the source list
+		 * @param index
+		 *            the index of the entry in the source list
+		 * @return this builder
+		 */
+		public Builder add(final NameValueList list, final int index) {
+			ensureCapacity();
+			System.arraycopy(list.namesAndValues, index * 2, namesAndValues, length, 2);
+			System.arraycopy(list.encoded, index * 2, encoded, length, 2);
+			length += 2;
+			return this;
+		}
+
+		private void ensureCapacity() {
+			if (length == namesAndValues.length) {
+				int newLength = Math.max(4, length * 2);
+				namesAndValues = Arrays.copyOf(namesAndValues, newLength);
+				encoded = Arrays.copyOf(encoded, newLength);
+			}
+		}
+
+		/**
+		 * @return the list
+		 */
+		public NameValueList build() {
+			if (length == 0) {
+				return EMPTY;
+			}
+			return new NameValueList(Arrays.copyOf(namesAndValues, length), Arrays.copyOf(encoded, length));
+		}
+	}
+}
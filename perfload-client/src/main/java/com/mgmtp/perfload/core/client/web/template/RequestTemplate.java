@@ -18,6 +18,7 @@ package com.mgmtp.perfload.core.client.web.template;
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.mgmtp.perfload.core.client.web.template.NameValueList.copyOf;
 import static com.mgmtp.perfload.core.common.util.LtUtils.toDefaultString;
 
 import java.util.Arrays;
@@ -28,7 +29,6 @@ import net.jcip.annotations.ThreadSafe;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
 
 /**
@@ -45,8 +45,8 @@ public final class RequestTemplate {
 	private final String type;
 	private final String uri;
 	private final String uriAlias;
-	private final SetMultimap<String, String> requestParameters;
-	private final SetMultimap<String, String> requestHeaders;
+	private final NameValueList requestParameters;
+	private final NameValueList requestHeaders;
 	private final List<HeaderExtraction> headerExtractions;
 	private final List<DetailExtraction> detailExtractions;
 	private Body body;
@@ -64,14 +64,15 @@ public final class RequestTemplate {
 	 *            string
 	 * @param uriAlias
 	 *            an alias for the URI used for logging measurings
+	 * @param requestHeaders
+	 *            the request headers in the order they are to be sent
 	 * @param requestParameters
-	 *            a {@link SetMultimap} of request parameters
+	 *            the request parameters in the order they are to be sent
 	 * @param detailExtractions
 	 *            a map of details extractions
 	 */
 	public RequestTemplate(final String id, final String type, final String skip, final String uri,
-			final String uriAlias,
-			final SetMultimap<String, String> requestHeaders, final SetMultimap<String, String> requestParameters,
+			final String uriAlias, final NameValueList requestHeaders, final NameValueList requestParameters,
 			final Body body, final List<HeaderExtraction> headerExtractions,
 			final List<DetailExtraction> detailExtractions,
 			final String validateResponse) {
@@ -86,14 +87,41 @@ public final class RequestTemplate {
 		this.skip = skip;
 		this.uri = uri;
 		this.uriAlias = uriAlias;
-		this.requestHeaders = ImmutableSetMultimap.copyOf(requestHeaders);
-		this.requestParameters = ImmutableSetMultimap.copyOf(requestParameters);
+		this.requestHeaders = requestHeaders;
+		this.requestParameters = requestParameters;
 		this.body = body;
 		this.headerExtractions = ImmutableList.copyOf(headerExtractions);
 		this.detailExtractions = ImmutableList.copyOf(detailExtractions);
 		this.validateResponse = validateResponse;
 	}
 
+	/**
+	 * @param id
+	 *            an optional id for the request
+	 * @param type
+	 *            the type of the request
+	 * @param uri
+	 *            the context-relativ URL (i. e. the pathinfo part of the URL) without the query
+	 *            string
+	 * @param uriAlias
+	 *            an alias for the URI used for logging measurings
+	 * @param requestHeaders
+	 *            a {@link SetMultimap} of request headers
+	 * @param requestParameters
+	 *            a {@link SetMultimap} of request parameters
+	 * @param detailExtractions
+	 *            a map of details extractions
+	 */
+	public RequestTemplate(final String id, final String type, final String skip, final String uri,
+			final String uriAlias,
+			final SetMultimap<String, String> requestHeaders, final SetMultimap<String, String> requestParameters,
+			final Body body, final List<HeaderExtraction> headerExtractions,
+			final List<DetailExtraction> detailExtractions,
+			final String validateResponse) {
+		this(id, type, skip, uri, uriAlias, copyOf(requestHeaders), copyOf(requestParameters), body, headerExtractions,
+				detailExtractions, validateResponse);
+	}
+
 	public RequestTemplate(final String type, final String skip, final String uri,
 						   final String uriAlias,
 						   final SetMultimap<String, String> requestHeaders, final SetMultimap<String, String> requestParameters,
@@ -143,17 +171,37 @@ public final class RequestTemplate {
 	}
 
 	/**
+	 * @return the request headers in order, including duplicates
+	 */
+	public NameValueList getHeaders() {
+		return requestHeaders;
+	}
+
+	/**
+	 * @return the request parameters in order, including duplicates
+	 */
+	public NameValueList getParameters() {
+		return requestParameters;
+	}
+
+	/**
+	 * Creates a {@link SetMultimap} of the request headers. Prefer {@link #getHeaders()}, which
+	 * does not create a copy.
+	 *
 	 * @return the requestHeaders
 	 */
 	public SetMultimap<String, String> getRequestHeaders() {
-		return requestHeaders;
+		return requestHeaders.toSetMultimap();
 	}
 
 	/**
+	 * Creates a {@link SetMultimap} of the request parameters. Prefer {@link #getParameters()},
+	 * which does not create a copy.
+	 *
 	 * @return the requestParameters
 	 */
 	public SetMultimap<String, String> getRequestParameters() {
-		return requestParameters;
+		return requestParameters.toSetMultimap();
 	}
 
 	/**
@@ -560,6 +608,7 @@ public final class RequestTemplate {
 		private final byte[] content;
 		private final String resourcePath;
 		private final String resourceType;
+		private final String contentEncoding;
 
 		/**
 		 * Either content or resource path (and optionally charset) must be specified.
@@ -570,13 +619,17 @@ public final class RequestTemplate {
 		 *            the path to the body resource
 		 * @param resourceType
 		 *            the type of the resource
+		 * @param contentEncoding
+		 *            the encoding the body is to be sent with, or {@code null} for the default
 		 */
-		private Body(final byte[] content, final String resourcePath, final String resourceType) {
+		private Body(final byte[] content, final String resourcePath, final String resourceType,
+				final String contentEncoding) {
 			checkState(content != null ^ (resourcePath != null && resourceType != null),
 					"Must specify either body content or resource path and type.");
 			this.content = content;
 			this.resourcePath = resourcePath;
 			this.resourceType = resourceType;
+			this.contentEncoding = contentEncoding;
 		}
 
 		/**
@@ -588,7 +641,7 @@ public final class RequestTemplate {
 		 * @return the Body object
 		 */
 		public static Body create(final String content) {
-			return new Body(content.getBytes(Charsets.UTF_8), null, ResourceType.text.name());
+			return new Body(content.getBytes(Charsets.UTF_8), null, ResourceType.text.name(), null);
 		}
 
 		/**
@@ -601,7 +654,7 @@ public final class RequestTemplate {
 		 * @return the Body object
 		 */
 		public static Body create(final String resourcePath, final String resourceType) {
-			return new Body(null, resourcePath, resourceType);
+			return new Body(null, resourcePath, resourceType, null);
 		}
 
 		/**
@@ -614,7 +667,19 @@ public final class RequestTemplate {
 		 * @return the Body object
 		 */
 		public static Body create(final byte[] content) {			
-			return new Body(content, null, ResourceType.binary.name());
+			return new Body(content, null, ResourceType.binary.name(), null);
+		}
+
+		/**
+		 * Creates a copy of this Body instance with the specified content encoding.
+		 *
+		 * @param encoding
+		 *            the content encoding (see {@link ContentEncoding}), or {@code null} for the
+		 *            default encoding
+		 * @return the new Body object
+		 */
+		public Body withContentEncoding(final String encoding) {
+			return new Body(content, resourcePath, resourceType, encoding);
 		}
 
 		/**
@@ -638,6 +703,13 @@ public final class RequestTemplate {
 			return resourceType;
 		}
 
+		/**
+		 * @return the contentEncoding, or {@code null} if the default encoding is to be used
+		 */
+		public String getContentEncoding() {
+			return contentEncoding;
+		}
+
 		@Override
 		public int hashCode() {
 			final int prime = 31;
@@ -645,6 +717,7 @@ public final class RequestTemplate {
 			result = prime * result + Arrays.hashCode(content);
 			result = prime * result + (resourcePath == null ? 0 : resourcePath.hashCode());
 			result = prime * result + (resourceType == null ? 0 : resourceType.hashCode());
+			result = prime * result + (contentEncoding == null ? 0 : contentEncoding.hashCode());
 			return result;
 		}
 
@@ -677,6 +750,13 @@ public final class RequestTemplate {
 			} else if (!resourceType.equals(other.resourceType)) {
 				return false;
 			}
+			if (contentEncoding == null) {
+				if (other.contentEncoding != null) {
+					return false;
+				}
+			} else if (!contentEncoding.equals(other.contentEncoding)) {
+				return false;
+			}
 			return true;
 		}
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.template;
+
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+import java.util.List;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+
+/**
+ * Deduplicates the contents of request flows. Equal request templates, bodies, header and parameter
+ * lists, extractions, and strings are replaced with a single canonical instance, so that large flow
+ * libraries whose files share requests are held in memory only once. Interned templates are shared
+ * and must therefore not be modified.
+ * 
+ * @author agent
+ */
+@ThreadSafe
+public final class RequestTemplateInterner {
+
+	private final Interner<String> strings = Interners.newStrongInterner();
+	private final Interner<NameValueList> nameValueLists = Interners.newStrongInterner();
+	private final Interner<Body> bodies = Interners.newStrongInterner();
+	private final Interner<HeaderExtraction> headerExtractions = Interners.newStrongInterner();
+	private final Interner<DetailExtraction> detailExtractions = Interners.newStrongInterner();
+	private final Interner<List<HeaderExtraction>> headerExtractionLists = Interners.newStrongInterner();
+	private final Interner<List<DetailExtraction>> detailExtractionLists = Interners.newStrongInterner();
+	private final Interner<RequestTemplate> templates = Interners.newStrongInterner();
+
+	/**
+	 * Creates a copy of the specified request flow that consists of interned templates.
+	 * 
+	 * @param flow
+	 *            the request flow
+	 * @return the request flow with interned templates
+	 */
+	public RequestFlow intern(final RequestFlow flow) {
+		List<RequestTemplate> result = newArrayListWithCapacity(16);
+		for (RequestTemplate template : flow) {
+			result.add(intern(template));
+		}
+		return new RequestFlow(intern(flow.getResourceName()), result);
+	}
+
+	/**
+	 * Returns the canonical instance of the specified request template.
+	 * 
+	 * @param template
+	 *            the request template
+	 * @return the interned template
+	 */
+	public RequestTemplate intern(final RequestTemplate template) {
+		List<HeaderExtraction> headerExtractionList = newArrayListWithCapacity(template.getHeaderExtractions().size());
+		for (HeaderExtraction he : template.getHeaderExtractions()) {
+			headerExtractionList.add(headerExtractions.intern(new HeaderExtraction(intern(he.getName()),
+					intern(he.getPlaceholderName()))));
+		}
+
+		List<DetailExtraction> detailExtractionList = newArrayListWithCapacity(template.getDetailExtractions().size());
+		for (DetailExtraction de : template.getDetailExtractions()) {
+			detailExtractionList.add(detailExtractions.intern(new DetailExtraction(intern(de.getName()),
+					intern(de.getPattern()), intern(de.getGroupIndexString()), intern(de.getDefaultValue()),
+					intern(de.getIndexedString()), intern(de.getFailIfNotFoundString()))));
+		}
+
+		Body body = template.getBody();
+		RequestTemplate result = new RequestTemplate(intern(template.getId()), intern(template.getType()),
+				intern(template.getSkip()), intern(template.getUri()), intern(template.getUriAlias()),
+				intern(template.getHeaders()), intern(template.getParameters()),
+				body != null ? bodies.intern(body) : null,
+				headerExtractionLists.intern(ImmutableList.copyOf(headerExtractionList)),
+				detailExtractionLists.intern(ImmutableList.copyOf(detailExtractionList)), intern(template.getValidateResponse()));
+
+		return templates.intern(result);
+	}
+
+	/**
+	 * Returns the canonical instance of the specified string.
+	 * 
+	 * @param s
+	 *            the string; may be {@code null}
+	 * @return the interned string, or {@code null} if {@code s} is {@code null}
+	 */
+	public String intern(final String s) {
+		return s != null ? strings.intern(s) : null;
+	}
+
+	private NameValueList intern(final NameValueList list) {
+		NameValueList.Builder builder = NameValueList.builder(list.size());
+		for (int i = 0, size = list.size(); i < size; ++i) {
+			builder.add(intern(list.name(i)), intern(list.value(i)));
+		}
+		return nameValueLists.intern(builder.build());
+	}
+}
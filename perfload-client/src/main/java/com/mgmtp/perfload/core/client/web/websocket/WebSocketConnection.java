@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.ThreadSafe;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+
+/**
+ * A WebSocket connection. Incoming messages are queued by OkHttp's reader thread and consumed by
+ * the load test thread waiting for a message.
+ *
+ * @author agent
+ */
+@ThreadSafe
+final class WebSocketConnection extends WebSocketListener {
+	private static final Logger LOG = LoggerFactory.getLogger(WebSocketConnection.class);
+
+	private final CompletableFuture<Response> handshake = new CompletableFuture<>();
+	private final BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+
+	private volatile WebSocket webSocket;
+
+	void setWebSocket(final WebSocket webSocket) {
+		this.webSocket = webSocket;
+	}
+
+	WebSocket getWebSocket() {
+		return webSocket;
+	}
+
+	/**
+	 * Waits for the opening handshake to complete.
+	 *
+	 * @return the handshake response
+	 */
+	Response awaitOpen(final long timeoutNanos) throws IOException, InterruptedException {
+		try {
+			return handshake.get(timeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException ex) {
+			throw new SocketTimeoutException("Timed out waiting for WebSocket handshake");
+		} catch (ExecutionException ex) {
+			Throwables.propagateIfPossible(ex.getCause(), IOException.class);
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Waits for a message matching the specified pattern. Non-matching messages received before are
+	 * discarded.
+	 *
+	 * @param pattern
+	 *            the pattern a message must contain a match for, or {@code null} to accept any
+	 *            message
+	 * @return the message, either a {@link String} or a {@link ByteString}
+	 */
+	Object awaitMessage(final Pattern pattern, final long timeoutNanos) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		for (;;) {
+			Object message = messages.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			if (message == null) {
+				throw new SocketTimeoutException("Timed out waiting for WebSocket message matching: " + pattern);
+			}
+			if (message instanceof Throwable) {
+				// keep the failure for subsequent calls
+				messages.offer(message);
+				throw new IOException("WebSocket failed", (Throwable) message);
+			}
+			if (pattern == null || pattern.matcher(toString(message)).find()) {
+				return message;
+			}
+			LOG.debug("Discarding WebSocket message not matching '{}': {}", pattern, message);
+		}
+	}
+
+	static String toString(final Object message) {
+		return message instanceof ByteString ? ((ByteString) message).utf8() : (String) message;
+	}
+
+	@Override
+	public void onOpen(final WebSocket socket, final Response response) {
+		handshake.complete(response);
+	}
+
+	@Override
+	public void onMessage(final WebSocket socket, final String text) {
+		messages.offer(text);
+	}
+
+	@Override
+	public void onMessage(final WebSocket socket, final ByteString bytes) {
+		messages.offer(bytes);
+	}
+
+	@Override
+	public void onClosing(final WebSocket socket, final int code, final String reason) {
+		socket.close(code, null);
+		messages.offer(new IOException("WebSocket closed by peer: " + code + " " + reason));
+	}
+
+	@Override
+	public void onFailure(final WebSocket socket, final Throwable th, final Response response) {
+		if (!handshake.completeExceptionally(th)) {
+			messages.offer(th);
+		}
+	}
+}
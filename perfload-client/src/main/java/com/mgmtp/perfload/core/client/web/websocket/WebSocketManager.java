@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.config.scope.Resettable;
+
+/**
+ * Manages an execution's WebSocket connections, keyed by URI. Connections are held for the
+ * duration of the execution and closed by calling {@link #close()}. If execution pooling is
+ * enabled, {@link #reset()} closes them before the manager is recycled.
+ *
+ * @author agent
+ */
+@ExecutionScoped
+public class WebSocketManager implements AutoCloseable, Resettable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketManager.class);
+
+	static final int NORMAL_CLOSURE = 1000;
+
+	private final Map<String, WebSocketConnection> connections = newHashMapWithExpectedSize(2);
+
+	@Inject
+	public WebSocketManager() {
+		// for Guice
+	}
+
+	WebSocketConnection get(final String uri) {
+		return connections.get(uri);
+	}
+
+	void put(final String uri, final WebSocketConnection connection) {
+		connections.put(uri, connection);
+	}
+
+	WebSocketConnection remove(final String uri) {
+		return connections.remove(uri);
+	}
+
+	/**
+	 * Closes all connections that have not been closed explicitly.
+	 */
+	@Override
+	public void close() {
+		for (WebSocketConnection connection : connections.values()) {
+			LOGGER.info("Closing WebSocket: {}", connection.getWebSocket().request().url());
+			connection.getWebSocket().close(NORMAL_CLOSURE, null);
+		}
+		connections.clear();
+	}
+
+	/**
+	 * Closes all connections that have not been closed explicitly.
+	 */
+	@Override
+	public void reset() {
+		close();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+import com.mgmtp.perfload.core.client.event.LtRunnerEvent;
+import com.mgmtp.perfload.core.client.event.LtRunnerEventListener;
+
+/**
+ * Event listener for closing the {@link WebSocketManager}. After each run, the current
+ * execution's WebSocket connections are closed, unless execution pooling is enabled. Executions
+ * that did not open any WebSockets have no {@link WebSocketManager}, and none is created for them.
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public final class WebSocketManagerCloseListener implements LtRunnerEventListener {
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private static final Key<WebSocketManager> WEB_SOCKET_MANAGER_KEY = Key.get(WebSocketManager.class);
+
+	private final ExecutionScope executionScope;
+	private volatile boolean executionPooling;
+
+	/**
+	 * @param executionScope
+	 *            the scope the {@link WebSocketManager} is looked up in
+	 */
+	@Inject
+	public WebSocketManagerCloseListener(final ExecutionScope executionScope) {
+		this.executionScope = executionScope;
+	}
+
+	/**
+	 * @param executionPooling
+	 *            if {@code true}, execution-scoped objects are pooled (see
+	 *            {@link com.mgmtp.perfload.core.client.config.scope.ExecutionScopePool}); the
+	 *            {@link WebSocketManager} is then not closed, but reset when it is returned to the pool
+	 */
+	@Inject(optional = true)
+	public void setExecutionPooling(@Named("execution.pooling") final String executionPooling) {
+		this.executionPooling = Boolean.parseBoolean(executionPooling.trim());
+	}
+
+	/**
+	 * Calls {@link WebSocketManager#close()}, unless execution pooling is enabled or the execution
+	 * has not created a {@link WebSocketManager}.
+	 */
+	@Override
+	public void runFinished(final LtRunnerEvent event) {
+		if (executionPooling) {
+			// Reset by the pool after the execution has exited its scope
+			return;
+		}
+		WebSocketManager webSocketManager = executionScope.getIfCreated(WEB_SOCKET_MANAGER_KEY);
+		if (webSocketManager == null) {
+			return;
+		}
+		try {
+			webSocketManager.close();
+		} catch (Exception ex) {
+			log.error("Error closing WebSocketManager", ex);
+		}
+	}
+}
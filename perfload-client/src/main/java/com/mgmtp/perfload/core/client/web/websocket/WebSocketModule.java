@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import com.mgmtp.perfload.core.client.web.config.AbstractWebLtModule;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * Guice module for WebSocket support. Binds the request types handled by
+ * {@link WebSocketRequestHandler}. {@link com.mgmtp.perfload.core.client.web.config.WebLtModule}
+ * only installs it if the testplan property {@code websocket.enabled} is {@code true}, so tests
+ * that don't need WebSockets don't pay for it. In testplan.xml, this may be configured in the
+ * following way:
+ * <properties>
+ * ...
+ * <property name="websocket.enabled">true</property>
+ * </properties>
+ *
+ * @author agent
+ */
+public class WebSocketModule extends AbstractWebLtModule {
+
+	public WebSocketModule(final PropertiesMap testplanProperties) {
+		super(testplanProperties);
+	}
+
+	@Override
+	protected void doConfigureWebModule() {
+		bind(WebSocketManager.class);
+
+		bindRequestHandler(WebSocketRequestHandler.CONNECT).to(WebSocketRequestHandler.class);
+		bindRequestHandler(WebSocketRequestHandler.SEND).to(WebSocketRequestHandler.class);
+		bindRequestHandler(WebSocketRequestHandler.AWAIT).to(WebSocketRequestHandler.class);
+		bindRequestHandler(WebSocketRequestHandler.CLOSE).to(WebSocketRequestHandler.class);
+
+		bindLtRunnerEventListener().to(WebSocketManagerCloseListener.class);
+	}
+}
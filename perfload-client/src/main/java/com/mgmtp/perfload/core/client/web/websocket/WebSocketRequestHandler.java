@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import net.jcip.annotations.ThreadSafe;
+
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okio.ByteString;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.inject.Inject;
+import com.mgmtp.perfload.core.client.config.annotations.ExecutionId;
+import com.mgmtp.perfload.core.client.config.annotations.Operation;
+import com.mgmtp.perfload.core.client.config.annotations.TargetHost;
+import com.mgmtp.perfload.core.client.util.IdStrings;
+import com.mgmtp.perfload.core.client.web.constants.WebConstants;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpManager;
+import com.mgmtp.perfload.core.client.web.request.RequestHandler;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.ResourceType;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * <p>
+ * A {@link RequestHandler} for WebSockets. A WebSocket conversation is modelled as a sequence of
+ * requests in a request flow, all of which use the same URI, e. g. {@code ws://host/push}:
+ * </p>
+ * <ul>
+ * <li>{@code WS_CONNECT}: opens the connection sending the request's headers with the handshake.
+ * The connection is held until {@code WS_CLOSE} or the end of the execution.</li>
+ * <li>{@code WS_SEND}: sends the request body as a text frame, or as a binary frame for binary
+ * resources. If the request has an {@code await} parameter, the handler then waits for a message
+ * containing a match for this regular expression, so the measured time is the message round-trip
+ * latency.</li>
+ * <li>{@code WS_AWAIT}: waits for a message containing a match for the {@code await} parameter, or
+ * for any message if the parameter is missing.</li>
+ * <li>{@code WS_CLOSE}: closes the connection.</li>
+ * </ul>
+ * <p>
+ * The awaited message becomes the response body, so detail extractions and error patterns apply
+ * to it. Messages not matching are discarded. Waiting times out after the time configured with the
+ * property {@code websocket.timeout} in milliseconds (default: 180000).
+ * </p>
+ *
+ * @author agent
+ */
+@Singleton
+@ThreadSafe
+public class WebSocketRequestHandler implements RequestHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(WebSocketRequestHandler.class);
+
+	public static final String CONNECT = "WS_CONNECT";
+	public static final String SEND = "WS_SEND";
+	public static final String AWAIT = "WS_AWAIT";
+	public static final String CLOSE = "WS_CLOSE";
+
+	public static final String AWAIT_PARAM = "await";
+
+	private final Provider<OkHttpManager> okHttpManagerProvider;
+	private final Provider<WebSocketManager> webSocketManagerProvider;
+	private final Provider<String> targetHostProvider;
+	private final Provider<UUID> executionIdProvider;
+	private final Provider<String> operationProvider;
+	private final Provider<Request.Builder> requestBuilderProvider;
+
+	// OkHttp holds a dispatcher slot for as long as a WebSocket is open,
+	// so the default limits of 64 (5 per host) would block further connections
+	private final Dispatcher dispatcher = new Dispatcher();
+
+	private long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(180000L);
+
+	@Inject
+	public WebSocketRequestHandler(final Provider<OkHttpManager> okHttpManagerProvider,
+			final Provider<WebSocketManager> webSocketManagerProvider, @TargetHost final Provider<String> targetHostProvider,
+			@ExecutionId final Provider<UUID> executionIdProvider, @Operation final Provider<String> operationProvider,
+			final Provider<Request.Builder> requestBuilderProvider) {
+		this.okHttpManagerProvider = okHttpManagerProvider;
+		this.webSocketManagerProvider = webSocketManagerProvider;
+		this.targetHostProvider = targetHostProvider;
+		this.executionIdProvider = executionIdProvider;
+		this.operationProvider = operationProvider;
+		this.requestBuilderProvider = requestBuilderProvider;
+		dispatcher.setMaxRequests(Integer.MAX_VALUE);
+		dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Sets the timeout for the handshake and for awaiting messages.
+	 *
+	 * @param timeout
+	 *            the timeout in milliseconds; if present value is taken from testplan.xml where it
+	 *            may be configured in the following way:
+	 * <properties>
+	 * ...
+	 * <property name="websocket.timeout">30000</property>
+	 * </properties>
+	 */
+	@Inject(optional = true)
+	public void setTimeout(@Named("websocket.timeout") final String timeout) {
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(timeout.trim()));
+	}
+
+	@Override
+	public ResponseInfo execute(final RequestTemplate template, final UUID requestId) throws Exception {
+		return execute(okHttpManagerProvider.get(), targetHostProvider.get(), executionIdProvider.get(),
+				operationProvider.get(), template, requestId);
+	}
+
+	@Override
+	public ResponseInfo execute(final ExecutionContext context, final RequestTemplate template, final UUID requestId)
+			throws Exception {
+		return execute(context.getOkHttpManager(), context.getTargetHost(), context.getExecutionId(),
+				context.getOperation(), template, requestId);
+	}
+
+	private ResponseInfo execute(final OkHttpManager okHttpManager, final String targetHost, final UUID executionId,
+			final String operation, final RequestTemplate template, final UUID requestId) throws Exception {
+		URI uri = createUri(targetHost, template.getUri());
+		String key = uri.toString();
+		String type = template.getType();
+		WebSocketManager webSocketManager = webSocketManagerProvider.get();
+
+		LOG.info("Executing {} request: {}", type, key);
+
+		TimeInterval tiBeforeBody = new TimeInterval();
+		TimeInterval tiTotal = new TimeInterval();
+
+		tiBeforeBody.start();
+		tiTotal.start();
+		long timestamp = System.currentTimeMillis();
+
+		ResponseInfo.Builder builder = new ResponseInfo.Builder()
+				.methodType(type)
+				.uri(key)
+				.uriAlias(template.getUriAlias())
+				.statusCode(200)
+				.statusMsg("OK")
+				.headers(ImmutableSetMultimap.<String, String>of())
+				.timestamp(timestamp)
+				.timeIntervalBeforeBody(tiBeforeBody)
+				.timeIntervalTotal(tiTotal)
+				.executionId(executionId)
+				.requestId(requestId);
+
+		Object message = null;
+		switch (type) {
+			case CONNECT: {
+				checkState(webSocketManager.get(key) == null, "WebSocket already open: %s", key);
+				Response response = connect(okHttpManager, key, executionId, operation, template, requestId,
+						webSocketManager);
+				Headers responseHeaders = response.headers();
+				SetMultimap<String, String> headers = HashMultimap.create(responseHeaders.size(), 2);
+				responseHeaders.names().forEach(name -> headers.putAll(name.toLowerCase(), responseHeaders.values(name)));
+				builder.statusCode(response.code()).statusMsg(response.message()).headers(headers).protocol(response.protocol());
+				break;
+			}
+			case SEND: {
+				WebSocketConnection connection = getConnection(webSocketManager, key);
+				send(connection.getWebSocket(), template.getBody());
+				String await = template.getParameters().get(AWAIT_PARAM);
+				if (await != null) {
+					message = connection.awaitMessage(Pattern.compile(await), timeoutNanos);
+				}
+				break;
+			}
+			case AWAIT: {
+				WebSocketConnection connection = getConnection(webSocketManager, key);
+				String await = template.getParameters().get(AWAIT_PARAM);
+				message = connection.awaitMessage(await != null ? Pattern.compile(await) : null, timeoutNanos);
+				break;
+			}
+			case CLOSE: {
+				WebSocketConnection connection = webSocketManager.remove(key);
+				checkState(connection != null, "WebSocket not open: %s", key);
+				connection.getWebSocket().close(WebSocketManager.NORMAL_CLOSURE, null);
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown WebSocket request type: " + type);
+		}
+
+		tiBeforeBody.stop();
+		tiTotal.stop();
+
+		if (message != null) {
+			byte[] body = message instanceof ByteString
+					? ((ByteString) message).toByteArray()
+					: ((String) message).getBytes(StandardCharsets.UTF_8);
+			builder.body(body)
+					.bodyAsString(WebSocketConnection.toString(message))
+					.charset(StandardCharsets.UTF_8.name())
+					.uncompressedBodySize(body.length)
+					.compressedBodySize(body.length);
+		} else {
+			builder.bodyAsString("");
+		}
+		return builder.build();
+	}
+
+	private Response connect(final OkHttpManager okHttpManager, final String uri, final UUID executionId,
+			final String operation, final RequestTemplate template, final UUID requestId,
+			final WebSocketManager webSocketManager) throws IOException, InterruptedException {
+		Request.Builder requestBuilder = requestBuilderProvider.get()
+				.url(uri)
+				.addHeader(WebConstants.EXECUTION_ID_HEADER, IdStrings.toString(executionId))
+				.addHeader(WebConstants.OPERATION_HEADER, operation)
+				.addHeader(WebConstants.REQUEST_ID_HEADER, requestId.toString());
+		template.getHeaders().forEach(requestBuilder::addHeader);
+
+		// shares the execution's connection pool and configuration
+		OkHttpClient client = okHttpManager.getClient().newBuilder().dispatcher(dispatcher).build();
+
+		WebSocketConnection connection = new WebSocketConnection();
+		connection.setWebSocket(client.newWebSocket(requestBuilder.build(), connection));
+		try {
+			Response response = connection.awaitOpen(timeoutNanos);
+			webSocketManager.put(uri, connection);
+			return response;
+		} catch (IOException | InterruptedException | RuntimeException ex) {
+			connection.getWebSocket().cancel();
+			throw ex;
+		}
+	}
+
+	private void send(final WebSocket webSocket, final Body body) throws IOException {
+		checkArgument(body != null, "WebSocket message body must not be null");
+		boolean enqueued = ResourceType.binary.name().equals(body.getResourceType())
+				? webSocket.send(ByteString.of(body.getContent()))
+				: webSocket.send(new String(body.getContent(), StandardCharsets.UTF_8));
+		if (!enqueued) {
+			throw new IOException("WebSocket is closed or its outgoing queue is full: " + webSocket.request().url());
+		}
+	}
+
+	private WebSocketConnection getConnection(final WebSocketManager webSocketManager, final String uri) {
+		WebSocketConnection connection = webSocketManager.get(uri);
+		checkState(connection != null, "WebSocket not open: %s", uri);
+		return connection;
+	}
+}
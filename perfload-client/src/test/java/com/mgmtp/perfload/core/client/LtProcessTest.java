@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.inject.Provider;
+
+import okhttp3.OkHttpClient;
+
+import org.jboss.netty.channel.MessageEvent;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.mgmtp.perfload.core.client.config.Preloader;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScoped;
+import com.mgmtp.perfload.core.client.driver.LtDriver;
+import com.mgmtp.perfload.core.client.event.LtProcessEventListener;
+import com.mgmtp.perfload.core.client.event.LtRunnerEventDispatcher;
+import com.mgmtp.perfload.core.client.event.StatusBatcher;
+import com.mgmtp.perfload.core.client.runner.DefaultErrorHandler;
+import com.mgmtp.perfload.core.client.runner.LtRunner;
+import com.mgmtp.perfload.core.client.util.ConstantWaitingTimeStrategy;
+import com.mgmtp.perfload.core.client.util.FastIdGenerator;
+import com.mgmtp.perfload.core.client.util.IdGenerator;
+import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpManager;
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpManagerCloseListener;
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.config.LoadProfileEvent;
+import com.mgmtp.perfload.core.common.config.TestConfig;
+import com.mgmtp.perfload.core.common.util.LtStatus;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * @author agent
+ */
+public class LtProcessTest {
+
+	private final ExecutionScope executionScope = new ExecutionScope();
+
+	private final Injector injector = Guice.createInjector(new AbstractModule() {
+		@Override
+		protected void configure() {
+			bindScope(ExecutionScoped.class, executionScope);
+		}
+
+		@Provides
+		OkHttpClient provideOkHttpClient() {
+			return new OkHttpClient();
+		}
+	});
+
+	@Test
+	public void testPooledOkHttpClientIsReused() {
+		List<OkHttpClient> clients = runTwoExecutions(true);
+		assertThat(clients).hasSize(2);
+		assertThat(clients.get(1)).isSameAs(clients.get(0));
+	}
+
+	@Test
+	public void testOkHttpClientIsClosedWithoutPooling() {
+		List<OkHttpClient> clients = runTwoExecutions(false);
+		assertThat(clients).hasSize(2);
+		assertThat(clients.get(1)).isNotSameAs(clients.get(0));
+	}
+
+	@Test(timeOut = 30000L)
+	public void testAsyncStartFailureInRunnerProviderCompletesExecution() {
+		Provider<LtRunner> runnerProvider = () -> {
+			throw new NoClassDefFoundError("MyDriver");
+		};
+		LtProcess process = createProcess(runnerProvider, new DelayingExecutorService(), new FastIdGenerator(),
+				ImmutableList.of(new LoadProfileEvent(0L, "op", "target", 1, 1)));
+		process.setNonBlockingWaits("true");
+
+		assertThat(process.execute()).isEqualTo(LtStatus.SUCCESSFUL);
+	}
+
+	@Test(timeOut = 30000L)
+	public void testAsyncStartFailureEnteringScopeCompletesExecution() {
+		IdGenerator idGenerator = () -> {
+			throw new IllegalStateException("no id");
+		};
+		LtProcess process = createProcess(() -> {
+			throw new AssertionError("must not be called");
+		}, new DelayingExecutorService(), idGenerator, ImmutableList.of(new LoadProfileEvent(0L, "op", "target", 1, 1)));
+		process.setNonBlockingWaits("true");
+
+		assertThat(process.execute()).isEqualTo(LtStatus.SUCCESSFUL);
+	}
+
+	private List<OkHttpClient> runTwoExecutions(final boolean executionPooling) {
+		final List<OkHttpClient> clients = new CopyOnWriteArrayList<>();
+		final Provider<OkHttpManager> okHttpManagerProvider = injector.getProvider(OkHttpManager.class);
+		final OkHttpManagerCloseListener closeListener = new OkHttpManagerCloseListener(okHttpManagerProvider);
+		closeListener.setExecutionPooling(String.valueOf(executionPooling));
+
+		final DelayingExecutorService execService = new DelayingExecutorService();
+		Provider<LtRunner> runnerProvider = () -> {
+			LtDriver driver = () -> clients.add(okHttpManagerProvider.get().getClient());
+			return new LtRunner(driver, new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)),
+					new LtRunnerEventDispatcher(ImmutableSet.of(closeListener)), new DefaultErrorHandler(),
+					new ThinkTimeScheduler(execService, executionScope));
+		};
+
+		// the second execution starts after the first one has returned its scope to the pool
+		List<LoadProfileEvent> events = ImmutableList.of(new LoadProfileEvent(0L, "op", "target", 1, 1),
+				new LoadProfileEvent(500L, "op", "target", 1, 1));
+		LtProcess process = createProcess(runnerProvider, execService, new FastIdGenerator(), events);
+		process.setExecutionPooling(String.valueOf(executionPooling));
+
+		assertThat(process.execute()).isEqualTo(LtStatus.SUCCESSFUL);
+		return clients;
+	}
+
+	private LtProcess createProcess(final Provider<LtRunner> runnerProvider, final DelayingExecutorService execService,
+			final IdGenerator idGenerator, final List<LoadProfileEvent> events) {
+		Client daemonClient = mock(Client.class);
+		TestConfig config = new TestConfig(1, null, new PropertiesMap(), events);
+		final LtProcess process = new LtProcess(1, 1, runnerProvider, Collections.<LtProcessEventListener>emptySet(),
+				execService, daemonClient, config, executionScope, Collections.<Preloader>emptySet(), idGenerator,
+				new StatusBatcher(daemonClient));
+		process.setPollerDelaySeconds(0L);
+
+		// answers like a daemon would
+		when(daemonClient.sendMessage(any(Payload.class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(final InvocationOnMock invocation) {
+				Payload payload = (Payload) invocation.getArguments()[0];
+				switch (payload.getPayloadType()) {
+					case TEST_PROC_READY:
+						process.messageReceived(null, messageEvent(new Payload(PayloadType.START)));
+						break;
+					case TEST_PROC_DISCONNECTED:
+						process.messageReceived(null, messageEvent(new Payload(PayloadType.TEST_PROC_DISCONNECTED)));
+						break;
+					default:
+						break;
+				}
+				return null;
+			}
+		});
+		return process;
+	}
+
+	private static MessageEvent messageEvent(final Payload payload) {
+		MessageEvent event = mock(MessageEvent.class);
+		when(event.getMessage()).thenReturn(payload);
+		return event;
+	}
+}
@@ -19,6 +19,8 @@ import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.entry;
 import static org.testng.Assert.assertEquals;
 
+import java.io.File;
+
 import org.testng.annotations.Test;
 
 import com.mgmtp.perfload.core.client.driver.ProcessInfo;
@@ -51,4 +53,13 @@ public class LtProcessModuleTest {
 		assertThat(processInfo.getLogPrefix()).isEqualTo("prefix>");
 		assertThat(processInfo.isWaitFor()).isFalse();
 	}
+
+	@Test
+	public void testMeasuringLogFile() {
+		File clientDir = new File("/opt/perfload/client");
+		assertThat(new LtProcessModule(null, null, 1, 2, clientDir).provideMeasuringLogFile())
+				.isEqualTo(new File(clientDir, "perfload-client-process-2_measuring.log"));
+		assertThat(new LtProcessModule(null, null, 1, 2).provideMeasuringLogFile())
+				.isEqualTo(new File("perfload-client-process-2_measuring.log"));
+	}
 }
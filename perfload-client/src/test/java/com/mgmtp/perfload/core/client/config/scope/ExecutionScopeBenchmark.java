@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.config.scope;
+
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.name.Names;
+
+/**
+ * Contention benchmark for {@link ExecutionScope}. Many threads look up scoped objects of their own
+ * executions, as load test threads do for every request. Run with {@link #main(String[])} and
+ * compare against a previous version of the scope.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class ExecutionScopeBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedState {
+		final ExecutionScope executionScope = new ExecutionScope();
+		final Provider<Object> resultLoggerProvider = executionScope.scope(Key.get(Object.class, Names.named("logger")),
+				Object::new);
+		final Provider<Object> placeholderContainerProvider = executionScope.scope(
+				Key.get(Object.class, Names.named("placeholders")), Object::new);
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		UUID executionId;
+
+		@Setup(Level.Iteration)
+		public void enter(final SharedState shared) {
+			executionId = UUID.randomUUID();
+			shared.executionScope.enterScope(executionId, new HashMap<>());
+		}
+
+		@TearDown(Level.Iteration)
+		public void exit(final SharedState shared) {
+			shared.executionScope.exitScope(executionId);
+		}
+	}
+
+	/**
+	 * Looks up objects already cached in the execution's scope, which is the hot path.
+	 */
+	@Benchmark
+	public Object lookup(final SharedState shared, final ThreadState thread) {
+		shared.resultLoggerProvider.get();
+		return shared.placeholderContainerProvider.get();
+	}
+
+	/**
+	 * Runs a complete execution life cycle, which creates the scoped objects.
+	 */
+	@Benchmark
+	public Object enterLookupExit(final SharedState shared) {
+		UUID executionId = UUID.randomUUID();
+		shared.executionScope.enterScope(executionId, new HashMap<>());
+		try {
+			shared.resultLoggerProvider.get();
+			return shared.placeholderContainerProvider.get();
+		} finally {
+			shared.executionScope.exitScope(executionId);
+		}
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ExecutionScopeBenchmark.class.getSimpleName()).build()).run();
+	}
+}
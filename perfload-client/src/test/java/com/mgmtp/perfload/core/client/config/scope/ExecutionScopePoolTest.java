@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.config.scope;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.mgmtp.perfload.core.client.util.DefaultPlaceholderContainer;
+
+/**
+ * @author agent
+ */
+public class ExecutionScopePoolTest {
+
+	private ExecutionScope executionScope;
+	private ExecutionScopePool pool;
+	private Injector injector;
+
+	@BeforeMethod
+	public void setUp() {
+		executionScope = new ExecutionScope();
+		pool = new ExecutionScopePool();
+		injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindScope(ExecutionScoped.class, executionScope);
+			}
+		});
+	}
+
+	@Test
+	public void testResettableObjectsAreRecycled() {
+		UUID executionId = enter("op", "target");
+		PooledObject pooled = injector.getInstance(PooledObject.class);
+		pooled.state = "dirty";
+		DefaultPlaceholderContainer placeholders = injector.getInstance(DefaultPlaceholderContainer.class);
+		placeholders.put("foo", "bar");
+		PlainObject plain = injector.getInstance(PlainObject.class);
+		exit("op", "target", executionId);
+
+		executionId = enter("op", "target");
+		assertThat(injector.getInstance(PooledObject.class)).isSameAs(pooled);
+		assertThat(pooled.state).isNull();
+		assertThat(pooled.resetCount).isEqualTo(1);
+		assertThat(injector.getInstance(DefaultPlaceholderContainer.class)).isSameAs(placeholders);
+		assertThat(placeholders).isEmpty();
+		assertThat(injector.getInstance(PlainObject.class)).isNotSameAs(plain);
+		exit("op", "target", executionId);
+	}
+
+	@Test
+	public void testPoolIsKeyedByOperationAndTarget() {
+		UUID executionId = enter("op", "target");
+		PooledObject pooled = injector.getInstance(PooledObject.class);
+		exit("op", "target", executionId);
+
+		executionId = enter("op", "otherTarget");
+		assertThat(injector.getInstance(PooledObject.class)).isNotSameAs(pooled);
+		exit("op", "otherTarget", executionId);
+
+		executionId = enter("otherOp", "target");
+		assertThat(injector.getInstance(PooledObject.class)).isNotSameAs(pooled);
+		exit("otherOp", "target", executionId);
+	}
+
+	@Test
+	public void testConcurrentExecutionsDoNotShareObjects() {
+		UUID executionId = enter("op", "target");
+		injector.getInstance(PooledObject.class);
+		exit("op", "target", executionId);
+
+		Map<Key<?>, Object> first = pool.acquire("op", "target");
+		Map<Key<?>, Object> second = pool.acquire("op", "target");
+		assertThat(first).hasSize(1);
+		assertThat(second).isEmpty();
+	}
+
+	@Test
+	public void testObjectsFailingToResetAreDiscarded() {
+		UUID executionId = enter("op", "target");
+		PooledObject pooled = injector.getInstance(PooledObject.class);
+		pooled.failOnReset = true;
+		exit("op", "target", executionId);
+
+		assertThat(pool.acquire("op", "target")).isEmpty();
+	}
+
+	private UUID enter(final String operation, final String target) {
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, pool.acquire(operation, target));
+		return executionId;
+	}
+
+	private void exit(final String operation, final String target, final UUID executionId) {
+		pool.release(operation, target, executionScope.exitScope(executionId));
+	}
+
+	@ExecutionScoped
+	static class PooledObject implements Resettable {
+		String state;
+		int resetCount;
+		boolean failOnReset;
+
+		@Override
+		public void reset() {
+			if (failOnReset) {
+				throw new IllegalStateException("Cannot reset");
+			}
+			state = null;
+			++resetCount;
+		}
+	}
+
+	@ExecutionScoped
+	static class PlainObject {
+		// not resettable
+	}
+}
@@ -27,12 +27,15 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Key;
 import com.google.inject.Provider;
+import com.google.inject.name.Names;
 
 /**
  * @author rnaegele
@@ -69,6 +72,23 @@ public class ExecutionScopeTest {
 		assertThat(objects.size()).isEqualTo(2);
 	}
 
+	@Test
+	public void testGetIfCreated() {
+		ExecutionScope es = new ExecutionScope();
+		Key<Object> key = Key.get(Object.class);
+
+		UUID uuid = UUID.randomUUID();
+		es.enterScope(uuid, new HashMap<>());
+		assertThat(es.getIfCreated(key)).isNull();
+
+		Object scoped = es.scope(key, new ObjectProvider()).get();
+		assertThat(es.getIfCreated(key)).isSameAs(scoped);
+
+		// looking up does not create anything
+		assertThat(es.getIfCreated(Key.get(Object.class, Names.named("other")))).isNull();
+		assertThat(es.exitScope(uuid)).hasSize(1);
+	}
+
 	@Test(expectedExceptions = NullPointerException.class)
 	public void testNotEntered() {
 		ExecutionScope es = new ExecutionScope();
@@ -207,6 +227,36 @@ public class ExecutionScopeTest {
 		assertThat(objects.size()).isEqualTo(2);
 	}
 
+	@Test
+	public void testNullIsCached() {
+		ExecutionScope es = new ExecutionScope();
+		AtomicInteger count = new AtomicInteger();
+		Provider<Object> scopedProvider = es.scope(Key.get(Object.class), () -> {
+			count.incrementAndGet();
+			return null;
+		});
+
+		UUID uuid = UUID.randomUUID();
+		es.enterScope(uuid, new HashMap<>());
+		assertThat(scopedProvider.get()).isNull();
+		assertThat(scopedProvider.get()).isNull();
+		es.exitScope(uuid);
+
+		assertThat(count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testNestedLookup() {
+		ExecutionScope es = new ExecutionScope();
+		Provider<Object> inner = es.scope(Key.get(Object.class, Names.named("inner")), new ObjectProvider());
+		Provider<Object> outer = es.scope(Key.get(Object.class, Names.named("outer")), () -> ImmutableList.of(inner.get()));
+
+		UUID uuid = UUID.randomUUID();
+		es.enterScope(uuid, new HashMap<>());
+		assertThat(outer.get()).isEqualTo(ImmutableList.of(inner.get()));
+		es.exitScope(uuid);
+	}
+
 	private static class ObjectProvider implements Provider<Object> {
 		@Override
 		public Object get() {
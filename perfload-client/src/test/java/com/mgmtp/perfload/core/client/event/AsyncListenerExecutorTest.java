@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author agent
+ */
+public class AsyncListenerExecutorTest {
+
+	@Test(timeOut = 10000L)
+	public void testTasksRunOnCallingThreadIfQueueIsFull() throws InterruptedException {
+		AsyncListenerExecutor executor = new AsyncListenerExecutor();
+		executor.setQueueCapacity("2");
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		started.await();
+
+		// fill the queue
+		CountDownLatch queued = new CountDownLatch(2);
+		executor.execute(queued::countDown);
+		executor.execute(queued::countDown);
+		assertThat(executor.getOverflowCount()).isEqualTo(0L);
+
+		AtomicReference<Thread> thread = new AtomicReference<>();
+		executor.execute(() -> thread.set(Thread.currentThread()));
+		assertThat(thread.get()).isSameAs(Thread.currentThread());
+		assertThat(executor.getOverflowCount()).isEqualTo(1L);
+
+		release.countDown();
+		assertThat(queued.await(5L, TimeUnit.SECONDS)).isTrue();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.event;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+import com.mgmtp.perfload.core.common.util.StatusInfoType;
+
+/**
+ * @author agent
+ */
+public class StatusBatcherTest {
+
+	@Test
+	public void testBatchesAreSentWhenFull() {
+		Client client = mock(Client.class);
+		StatusBatcher batcher = new StatusBatcher(client);
+		batcher.setBatchSize("3");
+		batcher.setBatchIntervalMillis("60000");
+		batcher.start();
+
+		for (int i = 0; i < 7; ++i) {
+			batcher.send(statusInfo(1, i));
+		}
+		List<StatusInfo> sent = sentStatusInfos(client, 2);
+		assertThat(sent).hasSize(6);
+
+		batcher.stop();
+		sent = sentStatusInfos(client, 3);
+		assertThat(sent).hasSize(7);
+		for (int i = 0; i < 7; ++i) {
+			assertThat(sent.get(i).getActiveThreads()).isEqualTo(i);
+		}
+	}
+
+	@Test
+	public void testBatchesAreSentPeriodically() throws InterruptedException {
+		Client client = mock(Client.class);
+		StatusBatcher batcher = new StatusBatcher(client);
+		batcher.setBatchIntervalMillis("10");
+		batcher.start();
+		try {
+			batcher.send(statusInfo(1, 0));
+			Thread.sleep(200L);
+			verify(client, atLeastOnce()).sendMessage(any(Payload.class));
+		} finally {
+			batcher.stop();
+		}
+	}
+
+	@Test
+	public void testBatchingDisabled() {
+		Client client = mock(Client.class);
+		StatusBatcher batcher = new StatusBatcher(client);
+		batcher.setBatchSize("1");
+		batcher.start();
+
+		batcher.send(statusInfo(1, 0));
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		verify(client).sendMessage(captor.capture());
+		assertThat(captor.getValue().getPayloadType()).isEqualTo(PayloadType.STATUS);
+
+		batcher.stop();
+		verify(client, times(1)).sendMessage(any(Payload.class));
+	}
+
+	@Test
+	public void testOrderIsRetainedPerThread() throws InterruptedException {
+		Client client = mock(Client.class);
+		StatusBatcher batcher = new StatusBatcher(client);
+		batcher.setBatchSize("50");
+		batcher.setBatchIntervalMillis("1");
+		batcher.start();
+
+		int threads = 8;
+		int eventsPerThread = 1000;
+		ExecutorService execService = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; ++i) {
+			int threadId = i;
+			execService.execute(() -> {
+				for (int j = 0; j < eventsPerThread; ++j) {
+					batcher.send(statusInfo(threadId, j));
+				}
+			});
+		}
+		execService.shutdown();
+		assertThat(execService.awaitTermination(10L, TimeUnit.SECONDS)).isTrue();
+		batcher.stop();
+
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		verify(client, atLeastOnce()).sendMessage(captor.capture());
+		List<StatusInfo> sent = toStatusInfos(captor.getAllValues());
+		assertThat(sent).hasSize(threads * eventsPerThread);
+
+		Map<Integer, Integer> lastByThread = new HashMap<>();
+		for (StatusInfo si : sent) {
+			Integer last = lastByThread.put(si.getThreadId(), si.getActiveThreads());
+			assertThat(si.getActiveThreads()).isEqualTo(last == null ? 0 : last + 1);
+		}
+	}
+
+	@Test
+	public void testStopWithoutPendingStatus() {
+		Client client = mock(Client.class);
+		StatusBatcher batcher = new StatusBatcher(client);
+		batcher.start();
+		batcher.stop();
+		verify(client, never()).sendMessage(any(Payload.class));
+	}
+
+	private static StatusInfo statusInfo(final int threadId, final int sequence) {
+		// activeThreads is misused as sequence number
+		return new StatusInfo.Builder(StatusInfoType.RUN_STARTED, 1, 1).threadId(threadId).activeThreads(sequence).build();
+	}
+
+	private static List<StatusInfo> sentStatusInfos(final Client client, final int messages) {
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		verify(client, times(messages)).sendMessage(captor.capture());
+		return toStatusInfos(captor.getAllValues());
+	}
+
+	private static List<StatusInfo> toStatusInfos(final List<Payload> payloads) {
+		List<StatusInfo> result = new ArrayList<>();
+		for (Payload payload : payloads) {
+			if (payload.getPayloadType() == PayloadType.STATUS_BATCH) {
+				StatusInfo[] batch = payload.getContent();
+				Collections.addAll(result, batch);
+			} else {
+				assertThat(payload.getPayloadType()).isEqualTo(PayloadType.STATUS);
+				result.add(payload.<StatusInfo>getContent());
+			}
+		}
+		return result;
+	}
+}
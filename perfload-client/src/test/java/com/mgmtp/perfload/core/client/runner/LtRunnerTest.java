@@ -16,21 +16,29 @@
 package com.mgmtp.perfload.core.client.runner;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.inject.util.Providers;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
 import com.mgmtp.perfload.core.client.driver.LtDriver;
 import com.mgmtp.perfload.core.client.event.LtRunnerEvent;
+import com.mgmtp.perfload.core.client.event.LtRunnerEventDispatcher;
 import com.mgmtp.perfload.core.client.event.LtRunnerEventListener;
 import com.mgmtp.perfload.core.client.runner.LtRunnerTest.MockDriver.Action;
 import com.mgmtp.perfload.core.client.util.ConstantWaitingTimeStrategy;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.common.util.AbortionException;
 import com.mgmtp.perfload.core.common.util.LtStatus;
 
@@ -38,6 +46,8 @@ import com.mgmtp.perfload.core.common.util.LtStatus;
  * @author rnaegele
  */
 public class LtRunnerTest {
+	private final ExecutionScope executionScope = new ExecutionScope();
+	private final ThinkTimeScheduler thinkTimeScheduler = new ThinkTimeScheduler(new DelayingExecutorService(), executionScope);
 
 	@AfterMethod
 	public void resetInterruptStatus() {
@@ -51,7 +61,7 @@ public class LtRunnerTest {
 		MockDriver driver = new MockDriver(Action.success);
 
 		LtRunner runner = new LtRunner(driver, new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)),
-				Providers.of(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler());
+				new LtRunnerEventDispatcher(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler(), thinkTimeScheduler);
 		runner.execute();
 
 		assertEquals(driver.calls, 1);
@@ -64,7 +74,7 @@ public class LtRunnerTest {
 
 		LtRunner runner = new LtRunner(new MockDriver(Action.success), new WaitingTimeManager(0L,
 				new ConstantWaitingTimeStrategy(0L)),
-				Providers.of(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler());
+				new LtRunnerEventDispatcher(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler(), thinkTimeScheduler);
 
 		Thread.currentThread().interrupt();
 		runAndAssertAbortionException(runner, LtStatus.INTERRUPTED);
@@ -74,23 +84,68 @@ public class LtRunnerTest {
 	public void testErrors() {
 		LtRunner runner = new LtRunner(new MockDriver(Action.abort), new WaitingTimeManager(0L,
 				new ConstantWaitingTimeStrategy(0L)),
-				Providers.of(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler());
+				new LtRunnerEventDispatcher(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler(), thinkTimeScheduler);
 
 		runAndAssertAbortionException(runner, LtStatus.ERROR);
 
 		runner = new LtRunner(new MockDriver(Action.interrupt), new WaitingTimeManager(0L,
 				new ConstantWaitingTimeStrategy(0L)),
-				Providers.of(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler());
+				new LtRunnerEventDispatcher(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler(), thinkTimeScheduler);
 
 		runAndAssertAbortionException(runner, LtStatus.INTERRUPTED);
 
 		Thread.interrupted(); // Clear potential interrupt status
 		runner = new LtRunner(new MockDriver(Action.exception), new WaitingTimeManager(0L,
 				new ConstantWaitingTimeStrategy(0L)),
-				Providers.of(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler());
+				new LtRunnerEventDispatcher(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler(), thinkTimeScheduler);
 		runner.execute();
 	}
 
+	@Test
+	public void testAsyncExecution() throws Exception {
+		MockListener listener = new MockListener();
+		MockDriver driver = new MockDriver(Action.success);
+
+		LtRunner runner = new LtRunner(driver, new WaitingTimeManager(50L, new ConstantWaitingTimeStrategy(0L)),
+				new LtRunnerEventDispatcher(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler(), thinkTimeScheduler);
+		executeAsync(runner);
+
+		assertEquals(driver.calls, 1);
+		assertEquals(listener.calls, 2);
+	}
+
+	@Test
+	public void testAsyncErrors() throws Exception {
+		MockListener listener = new MockListener();
+		LtRunner runner = new LtRunner(new MockDriver(Action.abort), new WaitingTimeManager(50L,
+				new ConstantWaitingTimeStrategy(0L)),
+				new LtRunnerEventDispatcher(ImmutableSet.<LtRunnerEventListener>of(listener)), new DefaultErrorHandler(), thinkTimeScheduler);
+
+		try {
+			executeAsync(runner);
+			fail("Expected AbortionException.");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof AbortionException);
+			assertEquals(((AbortionException) ex.getCause()).getStatus(), LtStatus.ERROR);
+		}
+		assertEquals(listener.calls, 2);
+
+		runner = new LtRunner(new MockDriver(Action.exception), new WaitingTimeManager(50L,
+				new ConstantWaitingTimeStrategy(0L)),
+				new LtRunnerEventDispatcher(Collections.<LtRunnerEventListener>emptySet()), new DefaultErrorHandler(), thinkTimeScheduler);
+		executeAsync(runner);
+	}
+
+	private void executeAsync(final LtRunner runner) throws Exception {
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, new HashMap<>());
+		try {
+			runner.executeAsync().toCompletableFuture().get(5L, TimeUnit.SECONDS);
+		} finally {
+			executionScope.exitScope(executionId);
+		}
+	}
+
 	private void runAndAssertAbortionException(final LtRunner runner, final LtStatus status) {
 		try {
 			runner.execute();
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author agent
+ */
+public class FastIdGeneratorTest {
+
+	@Test
+	public void testIdsAreUnique() throws InterruptedException {
+		FastIdGenerator generator = new FastIdGenerator();
+		Set<UUID> ids = newConcurrentHashSet();
+
+		int threads = 8;
+		int idsPerThread = 10000;
+		ExecutorService execService = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; ++i) {
+			execService.execute(() -> {
+				for (int j = 0; j < idsPerThread; ++j) {
+					ids.add(generator.nextId());
+				}
+			});
+		}
+		execService.shutdown();
+		assertThat(execService.awaitTermination(10L, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(ids).hasSize(threads * idsPerThread);
+	}
+
+	@Test
+	public void testIdsAreValidUuids() {
+		UUID id = new FastIdGenerator(-1L).nextId();
+		assertThat(id.version()).isEqualTo(8);
+		assertThat(id.variant()).isEqualTo(2);
+		assertThat(UUID.fromString(id.toString())).isEqualTo(id);
+	}
+
+	@Test
+	public void testGeneratorsDifferInPrefix() {
+		assertThat(new FastIdGenerator(1L).nextId()).isNotEqualTo(new FastIdGenerator(2L).nextId());
+	}
+
+	@Test
+	public void testIdStrings() {
+		UUID id = new FastIdGenerator().nextId();
+		String s = IdStrings.toString(id);
+		assertThat(s).isEqualTo(id.toString());
+		assertThat(IdStrings.toString(new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits()))).isSameAs(s);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.distribution.BetaDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark for {@link WaitingTimeStrategy} implementations, which are called by every test thread
+ * before every request. The {@code legacyBetaDist} benchmark reproduces the former implementation,
+ * which created a {@link BetaDistribution} per call and used {@link Math#random()}. Run with
+ * {@link #main(String[])}.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class WaitingTimeStrategyBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedState {
+		final RandomSource randomSource = new RandomSource();
+		final WaitingTimeStrategy equalDist = new EqualDistWaitingTimeStrategy(100L, 1000L, randomSource);
+		final WaitingTimeStrategy betaDist = new BetaDistWaitingTimeStrategy(100L, 1000L, 2d, 5d, randomSource);
+	}
+
+	@Benchmark
+	public long equalDist(final SharedState shared) {
+		return shared.equalDist.calculateWaitingTime();
+	}
+
+	@Benchmark
+	public long betaDist(final SharedState shared) {
+		return shared.betaDist.calculateWaitingTime();
+	}
+
+	@Benchmark
+	public long legacyEqualDist() {
+		return Math.round(1000L - Math.random() * 900L);
+	}
+
+	@Benchmark
+	public long legacyBetaDist() {
+		BetaDistribution betaDist = new BetaDistribution(2d, 5d);
+		double probability = betaDist.cumulativeProbability(Math.random());
+		return Math.round(1000L - probability * 900L);
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(WaitingTimeStrategyBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.offset;
+
+import org.apache.commons.math3.distribution.BetaDistribution;
+import org.testng.annotations.Test;
+
+/**
+ * @author agent
+ */
+public class WaitingTimeStrategyTest {
+
+	@Test
+	public void testSeededWaitingTimesAreReproducible() {
+		EqualDistWaitingTimeStrategy strategy1 = new EqualDistWaitingTimeStrategy(100L, 1000L, new RandomSource(42L));
+		EqualDistWaitingTimeStrategy strategy2 = new EqualDistWaitingTimeStrategy(100L, 1000L, new RandomSource(42L));
+
+		for (int i = 0; i < 100; ++i) {
+			long waitingTime = strategy1.calculateWaitingTime();
+			assertThat(waitingTime).isEqualTo(strategy2.calculateWaitingTime());
+			assertThat(waitingTime).isGreaterThanOrEqualTo(100L).isLessThanOrEqualTo(1000L);
+		}
+	}
+
+	@Test
+	public void testSeedFromProperty() {
+		RandomSource randomSource1 = new RandomSource();
+		randomSource1.setSeed(" 4711 ");
+		RandomSource randomSource2 = new RandomSource(4711L);
+		assertThat(randomSource1.nextDouble()).isEqualTo(randomSource2.nextDouble());
+	}
+
+	@Test
+	public void testBetaDistTable() {
+		testBetaDistTable(2d, 5d);
+		testBetaDistTable(0.5d, 0.5d);
+		testBetaDistTable(0.1d, 3d);
+		testBetaDistTable(3d, 0.1d);
+	}
+
+	private void testBetaDistTable(final double a, final double b) {
+		BetaDistWaitingTimeStrategy strategy = new BetaDistWaitingTimeStrategy(0L, 1000L, a, b, new RandomSource(1L));
+		BetaDistribution betaDist = new BetaDistribution(a, b);
+		for (int i = 0; i <= 1000; ++i) {
+			double x = i / 1000d;
+			assertThat(strategy.cumulativeProbability(x)).isEqualTo(betaDist.cumulativeProbability(x), offset(1e-4));
+		}
+
+		// inside the first and last table intervals and their neighbours
+		double h = 1d / BetaDistWaitingTimeStrategy.TABLE_SIZE;
+		for (int i = 1; i < 4 * (BetaDistWaitingTimeStrategy.EDGE_INTERVALS + 2); ++i) {
+			double x = i * h / 4d;
+			assertThat(strategy.cumulativeProbability(x)).isEqualTo(betaDist.cumulativeProbability(x), offset(1e-4));
+			assertThat(strategy.cumulativeProbability(1d - x)).isEqualTo(betaDist.cumulativeProbability(1d - x), offset(1e-4));
+		}
+		for (int i = 0; i < 1000; ++i) {
+			assertThat(strategy.calculateWaitingTime()).isGreaterThanOrEqualTo(0L).isLessThanOrEqualTo(1000L);
+		}
+	}
+}
@@ -173,4 +173,23 @@ public class DelayingExecutorServiceTest {
 			execSrv.takeNextCompleted().get();
 		}
 	}
+
+	@Test
+	public void testScheduleFromOrigin() throws InterruptedException, ExecutionException {
+		DelayingExecutorService execSrv = new DelayingExecutorService();
+
+		// origin lies in the future
+		execSrv.alignOrigin(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300L));
+		ScheduledFuture<?> future = execSrv.scheduleFromOrigin(() -> {}, 100L, TimeUnit.MILLISECONDS);
+		assertTrue(abs(future.getDelay(TimeUnit.MILLISECONDS) - 400L) < EPSILON);
+
+		// origin lies in the past, so the task is due immediately
+		execSrv.alignOrigin(System.nanoTime() - TimeUnit.SECONDS.toNanos(1L));
+		ScheduledFuture<?> overdue = execSrv.scheduleUntrackedFromOrigin(() -> {}, 500L, TimeUnit.MILLISECONDS);
+		assertTrue(overdue.getDelay(TimeUnit.MILLISECONDS) < 0L);
+		overdue.get();
+
+		execSrv.takeNextCompleted().get();
+		execSrv.shutdownNow();
+	}
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.config;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+
+/**
+ * @author agent
+ */
+public class RequestFlowCacheTest {
+
+	private RequestFlowCache cache;
+
+	@BeforeMethod
+	public void setUp() {
+		PropertiesMap properties = new PropertiesMap();
+		properties.put("operation.foo.requestflows", "request-flow.xml");
+		properties.put("operation.bar.requestflows", "request-flow.xml, request-flow.xml");
+		properties.put("operation.broken.requestflows", "missing-request-flow.xml");
+		cache = new RequestFlowCache(properties);
+	}
+
+	@Test
+	public void testFlowIsParsedOnlyOnce() throws Exception {
+		List<RequestFlow> fooFlows = cache.getRequestFlows("foo");
+		List<RequestFlow> barFlows = cache.getRequestFlows("bar");
+
+		assertThat(fooFlows).hasSize(1);
+		assertThat(barFlows).hasSize(2);
+		assertThat(barFlows.get(0)).isSameAs(fooFlows.get(0));
+		assertThat(barFlows.get(1)).isSameAs(fooFlows.get(0));
+		assertThat(cache.getRequestFlows("foo")).isSameAs(fooFlows);
+	}
+
+	@Test
+	public void testConcurrentCallersShareResult() throws Exception {
+		ExecutorService execService = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<List<RequestFlow>>> tasks = Lists.newArrayList();
+			for (int i = 0; i < 16; ++i) {
+				tasks.add(() -> cache.getRequestFlows("foo"));
+			}
+			List<Future<List<RequestFlow>>> futures = execService.invokeAll(tasks);
+			RequestFlow flow = futures.get(0).get().get(0);
+			for (Future<List<RequestFlow>> future : futures) {
+				assertThat(future.get().get(0)).isSameAs(flow);
+			}
+		} finally {
+			execService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPreload() throws Exception {
+		cache.preload(newHashSet("foo", "bar", "noFlows"));
+		RequestFlow flow = cache.getRequestFlows("foo").get(0);
+		assertThat(cache.getRequestFlows("bar").get(0)).isSameAs(flow);
+	}
+
+	@Test
+	public void testFailuresAreNotCached() throws Exception {
+		for (int i = 0; i < 2; ++i) {
+			try {
+				cache.getRequestFlows("broken");
+				fail("Exception expected.");
+			} catch (Exception ex) {
+				// expected, on every call
+			}
+		}
+	}
+}
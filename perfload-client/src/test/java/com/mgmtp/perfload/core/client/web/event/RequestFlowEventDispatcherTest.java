@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.event;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.multibindings.Multibinder;
+import com.mgmtp.perfload.core.client.event.AsyncListener;
+
+/**
+ * @author agent
+ */
+public class RequestFlowEventDispatcherTest {
+
+	@Test
+	public void testNonOverriddenCallbacksAreSkipped() {
+		AfterRequestListener listener = new AfterRequestListener();
+		RequestFlowEventDispatcher.Pipeline pipeline = new RequestFlowEventDispatcher(ImmutableList.of(listener)).pipeline();
+
+		RequestFlowEvent event = new RequestFlowEvent(1);
+		pipeline.fireBeforeRequestFlow(event);
+		pipeline.fireBeforeRequest(event);
+		pipeline.fireAfterRequest(event);
+		pipeline.fireAfterRequestFlow(event);
+
+		assertThat(listener.events).containsExactly(event);
+	}
+
+	@Test
+	public void testAsyncListenerRunsOnSeparateThread() throws InterruptedException {
+		AsyncAfterRequestListener listener = new AsyncAfterRequestListener();
+		RequestFlowEventDispatcher.Pipeline pipeline = new RequestFlowEventDispatcher(ImmutableList.of(listener)).pipeline();
+
+		pipeline.fireAfterRequest(new RequestFlowEvent(1));
+
+		assertThat(listener.latch.await(5L, TimeUnit.SECONDS)).isTrue();
+		assertThat(listener.thread).isNotSameAs(Thread.currentThread());
+	}
+
+	@Test
+	public void testAsyncListenersOfDifferentProcessesRunOnDifferentThreads() throws InterruptedException {
+		AsyncAfterRequestListener listener1 = new AsyncAfterRequestListener();
+		AsyncAfterRequestListener listener2 = new AsyncAfterRequestListener();
+
+		fireAfterRequestInOwnInjector(listener1);
+		fireAfterRequestInOwnInjector(listener2);
+
+		assertThat(listener1.latch.await(5L, TimeUnit.SECONDS)).isTrue();
+		assertThat(listener2.latch.await(5L, TimeUnit.SECONDS)).isTrue();
+		assertThat(listener1.thread).isNotSameAs(listener2.thread);
+	}
+
+	@Test
+	public void testPipelineIsCachedForSingletons() {
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				Multibinder.newSetBinder(binder(), RequestFlowEventListener.class).addBinding().to(SingletonListener.class);
+			}
+		});
+		RequestFlowEventDispatcher dispatcher = injector.getInstance(RequestFlowEventDispatcher.class);
+		assertThat(dispatcher.pipeline()).isSameAs(dispatcher.pipeline());
+	}
+
+	@Test
+	public void testPipelineIsCompiledForUnscopedListeners() {
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				Multibinder<RequestFlowEventListener> binder = Multibinder.newSetBinder(binder(), RequestFlowEventListener.class);
+				binder.addBinding().to(SingletonListener.class);
+				binder.addBinding().to(AfterRequestListener.class);
+			}
+		});
+		RequestFlowEventDispatcher dispatcher = injector.getInstance(RequestFlowEventDispatcher.class);
+		assertThat(dispatcher.pipeline()).isNotSameAs(dispatcher.pipeline());
+	}
+
+	private static void fireAfterRequestInOwnInjector(final RequestFlowEventListener listener) {
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				Multibinder.newSetBinder(binder(), RequestFlowEventListener.class).addBinding().toInstance(listener);
+			}
+		});
+		injector.getInstance(RequestFlowEventDispatcher.class).pipeline().fireAfterRequest(new RequestFlowEvent(1));
+	}
+
+	static class AfterRequestListener extends LtListenerAdapter {
+		final List<RequestFlowEvent> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void afterRequest(final RequestFlowEvent event) {
+			events.add(event);
+		}
+	}
+
+	@Singleton
+	static class SingletonListener extends AfterRequestListener {
+		//
+	}
+
+	@AsyncListener
+	static class AsyncAfterRequestListener implements RequestFlowEventListener {
+		final CountDownLatch latch = new CountDownLatch(1);
+		volatile Thread thread;
+
+		@Override
+		public void afterRequest(final RequestFlowEvent event) {
+			thread = Thread.currentThread();
+			latch.countDown();
+		}
+	}
+}
@@ -19,13 +19,20 @@ import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
@@ -37,11 +44,17 @@ import org.testng.annotations.Test;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
 import com.mgmtp.perfload.core.client.util.ConstantWaitingTimeStrategy;
 import com.mgmtp.perfload.core.client.util.DefaultPlaceholderContainer;
+import com.mgmtp.perfload.core.client.util.FastIdGenerator;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.client.web.WebErrorHandler;
 import com.mgmtp.perfload.core.client.web.event.DefaultLoggingListener;
+import com.mgmtp.perfload.core.client.web.event.RequestFlowEvent;
+import com.mgmtp.perfload.core.client.web.event.RequestFlowEventDispatcher;
 import com.mgmtp.perfload.core.client.web.event.RequestFlowEventListener;
 import com.mgmtp.perfload.core.client.web.mock.MockRequestFlowListener;
 import com.mgmtp.perfload.core.client.web.mock.MockRequestHandler;
@@ -52,6 +65,7 @@ import com.mgmtp.perfload.core.client.web.request.RequestHandler;
 import com.mgmtp.perfload.core.client.web.response.DefaultDetailExtractor;
 import com.mgmtp.perfload.core.client.web.response.DefaultHeaderExtractor;
 import com.mgmtp.perfload.core.client.web.response.DefaultResponseValidator;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
 import com.mgmtp.perfload.core.client.web.template.DefaultTemplateTransformer;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
 import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
@@ -77,6 +91,8 @@ public class DefaultRequestFlowHandlerTest {
 	private final Provider<UUID> uuidProvider = () -> UUID.randomUUID();
 	private final Provider<String> operationProvider = () -> "myOperation";
 	private final Provider<OkHttpManager> okHttpManagerProvider = () -> new OkHttpManager(() -> new OkHttpClient());
+	private final ExecutionScope executionScope = new ExecutionScope();
+	private final ThinkTimeScheduler thinkTimeScheduler = new ThinkTimeScheduler(new DelayingExecutorService(), executionScope);
 
 	@AfterMethod
 	public void clearInterruptStatus() {
@@ -134,8 +150,8 @@ public class DefaultRequestFlowHandlerTest {
 				new DefaultTemplateTransformer(), new DefaultResponseValidator(Collections.<Integer>emptySet(),
 						Collections.<Integer>emptySet(), pattern), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
 						new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)), new DefaultPlaceholderContainer(),
-						ImmutableSet.<RequestFlowEventListener>of(mockListener, loggingListener), new WebErrorHandler(),
-						UUID.randomUUID());
+						new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(mockListener, loggingListener)), new WebErrorHandler(),
+						createExecutionContext(server.url("").toString(), logger), new FastIdGenerator(), thinkTimeScheduler);
 
 		handler.execute();
 
@@ -157,8 +173,8 @@ public class DefaultRequestFlowHandlerTest {
 
 		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows,
 				Collections.<String, RequestHandler>emptyMap(), null, null, null, null, new WaitingTimeManager(0L,
-						new ConstantWaitingTimeStrategy(0L)), null, Collections.<RequestFlowEventListener>emptySet(),
-						new WebErrorHandler(), UUID.randomUUID());
+						new ConstantWaitingTimeStrategy(0L)), null, new RequestFlowEventDispatcher(Collections.<RequestFlowEventListener>emptySet()),
+						new WebErrorHandler(), createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
 
 		Thread.currentThread().interrupt();
 		try {
@@ -183,8 +199,8 @@ public class DefaultRequestFlowHandlerTest {
 
 		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows, requestHandlers,
 				new DefaultTemplateTransformer(), null, null, null, new WaitingTimeManager(0L,
-						new ConstantWaitingTimeStrategy(0L)), null, Collections.<RequestFlowEventListener>emptySet(),
-						new WebErrorHandler(), UUID.randomUUID());
+						new ConstantWaitingTimeStrategy(0L)), null, new RequestFlowEventDispatcher(Collections.<RequestFlowEventListener>emptySet()),
+						new WebErrorHandler(), createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
 
 		try {
 			handler.execute();
@@ -217,7 +233,7 @@ public class DefaultRequestFlowHandlerTest {
 				new DefaultTemplateTransformer(), new DefaultResponseValidator(Collections.<Integer>emptySet(),
 						ImmutableSet.<Integer>of(404), pattern), null, null, new WaitingTimeManager(0L,
 								new ConstantWaitingTimeStrategy(0L)), new DefaultPlaceholderContainer(),
-								ImmutableSet.<RequestFlowEventListener>of(listener), new WebErrorHandler(), UUID.randomUUID());
+								new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(), createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
 
 		handler.execute();
 
@@ -246,10 +262,184 @@ public class DefaultRequestFlowHandlerTest {
 				new DefaultTemplateTransformer(), new DefaultResponseValidator(Collections.<Integer>emptySet(),
 						ImmutableSet.<Integer>of(404), pattern), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
 						new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)), new DefaultPlaceholderContainer(),
-						ImmutableSet.<RequestFlowEventListener>of(listener), new WebErrorHandler(), UUID.randomUUID());
+						new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(), createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
 
 		handler.execute();
 
 		assertEquals(listener.getEventCalls(), 6); // 1 flow x 2 template -> 6 events
 	}
+
+	@Test
+	public void testExecutionContextIsPassedOn() throws Exception {
+		RequestTemplate getTemplate = new RequestTemplate("GET", "false", "/testuri", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(), null,
+				Collections.<HeaderExtraction>emptyList(), Collections.<DetailExtraction>emptyList(), "true");
+
+		List<RequestTemplate> templates = newArrayList(getTemplate);
+		RequestFlow flow = new RequestFlow("flow.xml", templates);
+		List<RequestFlow> requestFlows = asList(flow);
+
+		ExecutionContext context = createExecutionContext(null, mock(ResultLogger.class));
+		List<ExecutionContext> handlerContexts = newArrayList();
+		RequestHandler requestHandler = new MockRequestHandler(200) {
+			@Override
+			public ResponseInfo execute(final ExecutionContext executionContext, final RequestTemplate template,
+					final UUID requestId) throws Exception {
+				handlerContexts.add(executionContext);
+				return super.execute(template, requestId);
+			}
+		};
+		List<ExecutionContext> eventContexts = newArrayList();
+		RequestFlowEventListener listener = new MockRequestFlowListener() {
+			@Override
+			public void afterRequest(final RequestFlowEvent event) {
+				super.afterRequest(event);
+				eventContexts.add(event.getExecutionContext());
+			}
+		};
+
+		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows,
+				ImmutableMap.<String, RequestHandler>of("GET", requestHandler), new DefaultTemplateTransformer(),
+				new DefaultResponseValidator(Collections.<Integer>emptySet(), Collections.<Integer>emptySet(),
+						Collections.<Pattern>emptyList()), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
+				new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)), new DefaultPlaceholderContainer(),
+				new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(), context, new FastIdGenerator(), thinkTimeScheduler);
+
+		handler.execute();
+
+		assertEquals(handlerContexts, asList(context));
+		assertEquals(eventContexts, asList(context));
+	}
+
+	@Test
+	public void testNonBlockingWaitingTimes() throws Exception {
+		RequestTemplate getTemplate = new RequestTemplate("GET", "false", "/testuri", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(), null,
+				Collections.<HeaderExtraction>emptyList(), Collections.<DetailExtraction>emptyList(), "true");
+
+		List<RequestTemplate> templates = newArrayList(getTemplate, getTemplate);
+		RequestFlow flow = new RequestFlow("flow.xml", templates);
+		List<RequestFlow> requestFlows = newArrayList(flow, flow);
+
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		RequestHandler requestHandler = new MockRequestHandler(200) {
+			@Override
+			public ResponseInfo execute(final ExecutionContext executionContext, final RequestTemplate template,
+					final UUID requestId) throws Exception {
+				threadNames.add(Thread.currentThread().getName());
+				return super.execute(template, requestId);
+			}
+		};
+		MockRequestFlowListener listener = new MockRequestFlowListener();
+
+		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows,
+				ImmutableMap.<String, RequestHandler>of("GET", requestHandler), new DefaultTemplateTransformer(),
+				new DefaultResponseValidator(Collections.<Integer>emptySet(), Collections.<Integer>emptySet(),
+						Collections.<Pattern>emptyList()), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
+				new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(50L)), new DefaultPlaceholderContainer(),
+				new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(),
+				createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
+
+		CompletableFuture<Void> future = executeAsync(handler);
+		assertFalse(future.isDone(), "Execution must be suspended during the waiting time.");
+
+		future.get(5L, TimeUnit.SECONDS);
+		assertEquals(listener.getEventCalls(), 12); // 2 flows x 2 templates -> 12 events
+		assertFalse(threadNames.contains(Thread.currentThread().getName()));
+	}
+
+	@Test
+	public void testNonBlockingWaitingTimesInLongFlow() throws Exception {
+		RequestTemplate getTemplate = new RequestTemplate("GET", "false", "/testuri", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(), null,
+				Collections.<HeaderExtraction>emptyList(), Collections.<DetailExtraction>emptyList(), "true");
+
+		int requestCount = 5000;
+		List<RequestTemplate> templates = Collections.nCopies(requestCount, getTemplate);
+		List<RequestFlow> requestFlows = Collections.singletonList(new RequestFlow("flow.xml", templates));
+		MockRequestFlowListener listener = new MockRequestFlowListener();
+
+		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows,
+				ImmutableMap.<String, RequestHandler>of("GET", new MockRequestHandler(200)), new DefaultTemplateTransformer(),
+				new DefaultResponseValidator(Collections.<Integer>emptySet(), Collections.<Integer>emptySet(),
+						Collections.<Pattern>emptyList()), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
+				new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(1L)), new DefaultPlaceholderContainer(),
+				new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(),
+				createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
+
+		// completing the execution must not recurse once per suspension
+		executeAsync(handler).get(60L, TimeUnit.SECONDS);
+		assertEquals(listener.getEventCalls(), 2 * requestCount + 2);
+	}
+
+	@Test
+	public void testNonBlockingInvalidRequestHandler() throws Exception {
+		RequestTemplate getTemplate = new RequestTemplate("GET", "false", "/testuri", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(), null,
+				Collections.<HeaderExtraction>emptyList(), Collections.<DetailExtraction>emptyList(), "true");
+
+		List<RequestTemplate> templates = newArrayList(getTemplate);
+		RequestFlow flow = new RequestFlow("flow.xml", templates);
+		List<RequestFlow> requestFlows = newArrayList(flow, flow);
+
+		Map<String, RequestHandler> requestHandlers = ImmutableMap.<String, RequestHandler>of("POST", (template, requestId) -> null);
+		MockRequestFlowListener listener = new MockRequestFlowListener();
+
+		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows, requestHandlers,
+				new DefaultTemplateTransformer(), null, null, null, new WaitingTimeManager(0L,
+						new ConstantWaitingTimeStrategy(10L)), null, new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)),
+						new WebErrorHandler(), createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(), thinkTimeScheduler);
+
+		try {
+			executeAsync(handler).get(5L, TimeUnit.SECONDS);
+			fail("Expected AbortionException.");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof AbortionException);
+			assertTrue(ex.getCause().getCause() instanceof InvalidRequestHandlerException);
+		}
+		assertEquals(listener.getEventCalls(), 4); // 1 flow x 1 template -> 4 events, 2nd flow is not executed
+	}
+
+	@Test
+	public void testNonBlockingRejectedContinuation() throws Exception {
+		RequestTemplate getTemplate = new RequestTemplate("GET", "false", "/testuri", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(), null,
+				Collections.<HeaderExtraction>emptyList(), Collections.<DetailExtraction>emptyList(), "true");
+
+		List<RequestTemplate> templates = newArrayList(getTemplate);
+		RequestFlow flow = new RequestFlow("flow.xml", templates);
+		List<RequestFlow> requestFlows = newArrayList(flow, flow);
+		MockRequestFlowListener listener = new MockRequestFlowListener();
+
+		// a shut down executor service rejects the continuation
+		DelayingExecutorService execService = new DelayingExecutorService();
+		execService.shutdown();
+
+		DefaultRequestFlowHandler handler = new DefaultRequestFlowHandler(requestFlows,
+				ImmutableMap.<String, RequestHandler>of("GET", new MockRequestHandler(200)), new DefaultTemplateTransformer(),
+				new DefaultResponseValidator(Collections.<Integer>emptySet(), Collections.<Integer>emptySet(),
+						Collections.<Pattern>emptyList()), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
+				new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(50L)), new DefaultPlaceholderContainer(),
+				new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(listener)), new WebErrorHandler(),
+				createExecutionContext(null, mock(ResultLogger.class)), new FastIdGenerator(),
+				new ThinkTimeScheduler(execService, executionScope));
+
+		executeAsync(handler).get(5L, TimeUnit.SECONDS);
+		assertEquals(listener.getEventCalls(), 2); // 1st flow ends without a request, 2nd flow is not executed
+	}
+
+	private CompletableFuture<Void> executeAsync(final DefaultRequestFlowHandler handler) {
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, new HashMap<>());
+		try {
+			return handler.executeAsync().toCompletableFuture();
+		} finally {
+			executionScope.disjoinScope(executionId);
+		}
+	}
+
+	private ExecutionContext createExecutionContext(final String targetHost, final ResultLogger logger) {
+		return new ExecutionContext(UUID.randomUUID(), "myOperation", "myTarget", 1, targetHost, logger,
+				okHttpManagerProvider.get());
+	}
 }
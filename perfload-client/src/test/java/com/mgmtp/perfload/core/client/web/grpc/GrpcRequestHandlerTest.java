@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.grpc;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+
+/**
+ * @author agent
+ */
+public class GrpcRequestHandlerTest {
+	private MockWebServer server;
+	private GrpcRequestHandler requestHandler;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setProtocols(ImmutableList.of(Protocol.H2_PRIOR_KNOWLEDGE));
+		server.start();
+
+		requestHandler = new GrpcRequestHandler(OkHttpClient::new, () -> "http://" + server.getHostName() + ":" + server.getPort(), UUID::randomUUID,
+				() -> "myOperation", Request.Builder::new);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testUnaryCalls() throws Exception {
+		for (int i = 0; i < 3; ++i) {
+			server.enqueue(new MockResponse()
+					.addHeader("content-type", "application/grpc")
+					.setBody(frame("\n\u0005hello"))
+					.setTrailers(Headers.of("grpc-status", "0")));
+		}
+
+		for (int i = 0; i < 3; ++i) {
+			ResponseInfo responseInfo = requestHandler.execute(createTemplate(), UUID.randomUUID());
+			assertEquals(responseInfo.getStatusCode(), 200);
+			assertEquals(responseInfo.getBodyAsString(), "\n\u0005hello");
+			assertEquals(responseInfo.getHeaders().get("grpc-status").iterator().next(), "0");
+
+			RecordedRequest request = server.takeRequest();
+			assertEquals(request.getPath(), "/helloworld.Greeter/SayHello");
+			assertEquals(request.getHeader("content-type"), "application/grpc");
+			assertEquals(request.getHeader("te"), "trailers");
+			assertEquals(request.getBody().readByteString(), frame("\n\u0005world").readByteString());
+			// all calls are multiplexed over the same connection
+			assertEquals(request.getSequenceNumber(), i);
+		}
+	}
+
+	@Test
+	public void testCookiesAreNotSharedAcrossExecutions() throws Exception {
+		// each execution has its own client with its own cookie jar
+		requestHandler = new GrpcRequestHandler(() -> new OkHttpClient.Builder().cookieJar(new SimpleCookieJar()).build(),
+				() -> "http://" + server.getHostName() + ":" + server.getPort(), UUID::randomUUID, () -> "myOperation",
+				Request.Builder::new);
+
+		server.enqueue(new MockResponse()
+				.addHeader("Set-Cookie", "session=user1")
+				.setBody(frame("\n\u0005hello"))
+				.setTrailers(Headers.of("grpc-status", "0")));
+		server.enqueue(new MockResponse()
+				.setBody(frame("\n\u0005hello"))
+				.setTrailers(Headers.of("grpc-status", "0")));
+
+		requestHandler.execute(createTemplate(), UUID.randomUUID());
+		requestHandler.execute(createTemplate(), UUID.randomUUID());
+
+		assertNull(server.takeRequest().getHeader("Cookie"));
+		assertNull(server.takeRequest().getHeader("Cookie"));
+	}
+
+	@Test
+	public void testServerStreaming() throws Exception {
+		Buffer body = frame("first");
+		body.writeAll(frame("second"));
+		server.enqueue(new MockResponse()
+				.setBody(body)
+				.setTrailers(Headers.of("grpc-status", "0")));
+
+		ResponseInfo responseInfo = requestHandler.execute(createTemplate(), UUID.randomUUID());
+		assertEquals(responseInfo.getBodyAsString(), "firstsecond");
+	}
+
+	@Test
+	public void testErrorStatus() throws Exception {
+		server.enqueue(new MockResponse()
+				.addHeader("grpc-status", "5")
+				.addHeader("grpc-message", "no such greeting"));
+
+		ResponseInfo responseInfo = requestHandler.execute(createTemplate(), UUID.randomUUID());
+		assertEquals(responseInfo.getStatusCode(), 404);
+		assertEquals(responseInfo.getStatusMsg(), "NOT_FOUND: no such greeting");
+	}
+
+	private static Buffer frame(final String message) {
+		Buffer buffer = new Buffer();
+		buffer.writeByte(0);
+		buffer.writeInt(message.length());
+		buffer.writeUtf8(message);
+		return buffer;
+	}
+
+	private static RequestTemplate createTemplate() {
+		return new RequestTemplate("GRPC", "false", "/helloworld.Greeter/SayHello", null,
+				ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(),
+				Body.create("\n\u0005world".getBytes()), ImmutableList.<HeaderExtraction>of(),
+				ImmutableList.<DetailExtraction>of(), "true");
+	}
+
+	static class SimpleCookieJar implements CookieJar {
+		private final List<Cookie> cookies = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void saveFromResponse(final HttpUrl url, final List<Cookie> cookies) {
+			this.cookies.addAll(cookies);
+		}
+
+		@Override
+		public List<Cookie> loadForRequest(final HttpUrl url) {
+			return cookies;
+		}
+	}
+}
@@ -18,13 +18,19 @@ package com.mgmtp.perfload.core.client.web.okhttp;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
 import com.mgmtp.perfload.core.client.util.ConstantWaitingTimeStrategy;
 import com.mgmtp.perfload.core.client.util.DefaultPlaceholderContainer;
+import com.mgmtp.perfload.core.client.util.FastIdGenerator;
 import com.mgmtp.perfload.core.client.util.WaitingTimeManager;
+import com.mgmtp.perfload.core.client.util.concurrent.DelayingExecutorService;
+import com.mgmtp.perfload.core.client.util.concurrent.ThinkTimeScheduler;
 import com.mgmtp.perfload.core.client.web.WebErrorHandler;
 import com.mgmtp.perfload.core.client.web.event.DefaultLoggingListener;
+import com.mgmtp.perfload.core.client.web.event.RequestFlowEventDispatcher;
 import com.mgmtp.perfload.core.client.web.event.RequestFlowEventListener;
 import com.mgmtp.perfload.core.client.web.flow.DefaultRequestFlowHandler;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
 import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
 import com.mgmtp.perfload.core.client.web.mock.MockRequestFlowListener;
 import com.mgmtp.perfload.core.client.web.request.RequestHandler;
@@ -58,6 +64,8 @@ import okhttp3.mockwebserver.MockWebServer;
 public class OkHttpClientProviderTest {
     private final Provider<UUID> uuidProvider = () -> UUID.randomUUID();
     private final Provider<String> operationProvider = () -> "myOperation";
+    private final ThinkTimeScheduler thinkTimeScheduler = new ThinkTimeScheduler(new DelayingExecutorService(),
+            new ExecutionScope());
 
     @Test
     public void testDontFollowRedirects() throws Exception {
@@ -119,8 +127,9 @@ public class OkHttpClientProviderTest {
                 new DefaultTemplateTransformer(), new DefaultResponseValidator(Collections.<Integer>emptySet(),
                 Collections.<Integer>emptySet(), pattern), new DefaultDetailExtractor(), new DefaultHeaderExtractor(),
                 new WaitingTimeManager(0L, new ConstantWaitingTimeStrategy(0L)), new DefaultPlaceholderContainer(),
-                ImmutableSet.<RequestFlowEventListener>of(mockListener, loggingListener), new WebErrorHandler(),
-                UUID.randomUUID());
+                new RequestFlowEventDispatcher(ImmutableSet.<RequestFlowEventListener>of(mockListener, loggingListener)), new WebErrorHandler(),
+                new ExecutionContext(UUID.randomUUID(), "myOperation", "myTarget", 1, targetHostProvider.get(), logger,
+                        okHttpManagerProvider.get()), new FastIdGenerator(), thinkTimeScheduler);
 
         handler.execute();
         // number of events is the same in both cases
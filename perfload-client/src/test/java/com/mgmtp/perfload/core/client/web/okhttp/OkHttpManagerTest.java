@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpClientProvider.MyCookieJar;
+
+/**
+ * @author agent
+ */
+public class OkHttpManagerTest {
+
+	private MockWebServer server;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	public void testResetKeepsClientButClearsCookies() throws Exception {
+		OkHttpManager manager = new OkHttpManager(() -> new OkHttpClient.Builder().cookieJar(new MyCookieJar(false)).build());
+		server.enqueue(new MockResponse().addHeader("Set-Cookie", "session=4711"));
+		server.enqueue(new MockResponse());
+		server.enqueue(new MockResponse());
+
+		OkHttpClient client = manager.getClient();
+		execute(client);
+		execute(client);
+		server.takeRequest();
+		assertThat(server.takeRequest().getHeader("Cookie")).isEqualTo("session=4711");
+
+		manager.reset();
+
+		assertThat(manager.getClient()).isSameAs(client);
+		assertThat(client.connectionPool().connectionCount()).isZero();
+		execute(manager.getClient());
+		assertThat(server.takeRequest().getHeader("Cookie")).isNull();
+	}
+
+	@Test
+	public void testResetReleasesClientWithUnknownCookieJar() throws Exception {
+		CookieJar cookieJar = new CookieJar() {
+			@Override
+			public void saveFromResponse(final HttpUrl url, final List<Cookie> cookies) {
+				// no-op
+			}
+
+			@Override
+			public List<Cookie> loadForRequest(final HttpUrl url) {
+				return Collections.emptyList();
+			}
+		};
+		OkHttpManager manager = new OkHttpManager(() -> new OkHttpClient.Builder().cookieJar(cookieJar).build());
+
+		OkHttpClient client = manager.getClient();
+		manager.reset();
+
+		assertThat(manager.getClient()).isNotSameAs(client);
+	}
+
+	private void execute(final OkHttpClient client) throws Exception {
+		try (Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute()) {
+			assertThat(response.code()).isEqualTo(200);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.InflaterInputStream;
+
+import javax.inject.Provider;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.ContentEncoding;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+
+/**
+ * @author agent
+ */
+public class OkHttpRequestHandlerTest {
+	private static final String CONTENT = "perfLoad perfLoad perfLoad perfLoad perfLoad perfLoad perfLoad perfLoad";
+
+	private MockWebServer server;
+	private OkHttpRequestHandler requestHandler;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.start();
+
+		OkHttpClient client = new OkHttpClient.Builder().addNetworkInterceptor(new ByteCountingInterceptor()).build();
+		Provider<OkHttpManager> okHttpManagerProvider = () -> new OkHttpManager(() -> client);
+		requestHandler = new OkHttpRequestHandler(okHttpManagerProvider, () -> server.url("").toString(),
+				UUID::randomUUID, () -> "myOperation", Request.Builder::new);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testGzipRequestBody() throws Exception {
+		// the same instance is sent several times, which exercises both the streaming and the cached path
+		Body body = Body.create(CONTENT).withContentEncoding(ContentEncoding.GZIP.getToken());
+		for (int i = 0; i < 3; ++i) {
+			server.enqueue(new MockResponse().setBody("ok"));
+			requestHandler.execute(createPostTemplate(body), UUID.randomUUID());
+
+			RecordedRequest request = server.takeRequest();
+			assertEquals(request.getHeader("Content-Encoding"), "gzip");
+			assertEquals(Okio.buffer(new GzipSource(request.getBody())).readUtf8(), CONTENT);
+		}
+	}
+
+	@Test
+	public void testDefaultRequestBodyEncoding() throws Exception {
+		// tokens are case-insensitive like in the Content-Encoding header
+		requestHandler.setRequestBodyEncoding(" Deflate ");
+		server.enqueue(new MockResponse().setBody("ok"));
+		requestHandler.execute(createPostTemplate(Body.create(CONTENT)), UUID.randomUUID());
+
+		RecordedRequest request = server.takeRequest();
+		assertEquals(request.getHeader("Content-Encoding"), "deflate");
+		byte[] inflated = IOUtils.toByteArray(new InflaterInputStream(request.getBody().inputStream()));
+		assertEquals(new String(inflated, StandardCharsets.UTF_8), CONTENT);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class,
+			expectedExceptionsMessageRegExp = "Unsupported content encoding 'br'\\. Supported encodings are: identity, gzip, deflate")
+	public void testUnsupportedRequestBodyEncoding() {
+		requestHandler.setRequestBodyEncoding("br");
+	}
+
+	@Test
+	public void testIdentityOverridesDefaultEncoding() throws Exception {
+		requestHandler.setRequestBodyEncoding("gzip");
+		server.enqueue(new MockResponse().setBody("ok"));
+		Body body = Body.create(CONTENT).withContentEncoding(ContentEncoding.IDENTITY.getToken());
+		requestHandler.execute(createPostTemplate(body), UUID.randomUUID());
+
+		RecordedRequest request = server.takeRequest();
+		assertEquals(request.getHeader("Content-Encoding"), null);
+		assertEquals(request.getBody().readUtf8(), CONTENT);
+	}
+
+	@Test
+	public void testResponseBodySizes() throws Exception {
+		Buffer gzipped = new Buffer();
+		gzipped.write(EncodedRequestBody.encode(CONTENT.getBytes(StandardCharsets.UTF_8), ContentEncoding.GZIP));
+		long compressedSize = gzipped.size();
+		server.enqueue(new MockResponse().addHeader("Content-Encoding", "gzip").setBody(gzipped));
+		server.enqueue(new MockResponse().setBody(CONTENT));
+
+		ResponseInfo compressed = requestHandler.execute(createGetTemplate(), UUID.randomUUID());
+		assertEquals(compressed.getBodyAsString(), CONTENT);
+		assertEquals(compressed.getCompressedBodySize(), compressedSize);
+		assertEquals(compressed.getUncompressedBodySize(), CONTENT.length());
+
+		ResponseInfo uncompressed = requestHandler.execute(createGetTemplate(), UUID.randomUUID());
+		assertEquals(uncompressed.getCompressedBodySize(), CONTENT.length());
+		assertEquals(uncompressed.getUncompressedBodySize(), CONTENT.length());
+	}
+
+	private static RequestTemplate createPostTemplate(final Body body) {
+		return new RequestTemplate("POST", "false", "/post", null, ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), body, ImmutableList.<HeaderExtraction>of(),
+				ImmutableList.<DetailExtraction>of(), "true");
+	}
+
+	private static RequestTemplate createGetTemplate() {
+		return new RequestTemplate("GET", "false", "/get", null, ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), null, ImmutableList.<HeaderExtraction>of(),
+				ImmutableList.<DetailExtraction>of(), "true");
+	}
+}
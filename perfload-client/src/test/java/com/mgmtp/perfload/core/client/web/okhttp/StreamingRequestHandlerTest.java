@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.okhttp;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.response.StreamStatistics;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+import com.mgmtp.perfload.logging.ResultLogger;
+import com.mgmtp.perfload.logging.TimeInterval;
+
+/**
+ * @author agent
+ */
+public class StreamingRequestHandlerTest {
+	private MockWebServer server;
+	private ResultLogger resultLogger;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		resultLogger = mock(ResultLogger.class);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testServerSentEvents() throws Exception {
+		server.enqueue(new MockResponse()
+				.addHeader("Content-Type", "text/event-stream")
+				.setChunkedBody("event: tick\ndata: 1\n\n"
+						+ "event: tick\ndata: 2\n\n"
+						+ "event: token\ndata: abc\n\n"
+						+ "event: tick\ndata: 3\n\n"
+						+ "event: token\ndata: def\n\n", 8));
+
+		StreamingRequestHandler handler = createHandler(ImmutableList.<Pattern>of());
+		handler.setEventsPerMeasurement("2");
+
+		List<DetailExtraction> extractions = ImmutableList.of(new DetailExtraction("token", "data: (\\w+)", "1", null,
+				"false", "true"));
+		ResponseInfo responseInfo = handler.execute(createTemplate(StreamingRequestHandler.SSE, extractions), UUID.randomUUID());
+
+		assertEquals(server.takeRequest().getHeader("Accept"), "text/event-stream");
+		assertEquals(responseInfo.getStatusCode(), 200);
+
+		// the first event matches, and the extraction is not indexed
+		assertEquals(responseInfo.getBodyAsString(), "event: tick\ndata: 1\n");
+
+		StreamStatistics statistics = (StreamStatistics) responseInfo.getExtraInfo();
+		assertEquals(statistics.getEventCount(), 5L);
+
+		verify(resultLogger, times(2)).logResult(anyLong(), any(TimeInterval.class), any(TimeInterval.class), eq("SSE_EVENTS"),
+				any(String.class), any(String.class), any(UUID.class), any(UUID.class));
+	}
+
+	@Test
+	public void testLineDelimitedStream() throws Exception {
+		server.enqueue(new MockResponse().setChunkedBody("{\"n\":1}\n{\"n\":2,\"error\":true}\n{\"n\":3}\n{\"n\":4}\n", 5));
+
+		StreamingRequestHandler handler = createHandler(ImmutableList.of(Pattern.compile("\"error\"")));
+
+		List<DetailExtraction> extractions = ImmutableList.of(new DetailExtraction("n", "\"n\":(\\d)", "1", null,
+				"true", "true"));
+		ResponseInfo responseInfo = handler.execute(createTemplate(StreamingRequestHandler.STREAM, extractions),
+				UUID.randomUUID());
+
+		// indexed extraction retains all events
+		assertEquals(responseInfo.getBodyAsString(), "{\"n\":1}\n{\"n\":2,\"error\":true}\n{\"n\":3}\n{\"n\":4}\n");
+		assertEquals(((StreamStatistics) responseInfo.getExtraInfo()).getEventCount(), 4L);
+	}
+
+	@Test
+	public void testErrorPatternOnly() throws Exception {
+		server.enqueue(new MockResponse().setChunkedBody("a\nb error\nc\nd error\n", 3));
+
+		StreamingRequestHandler handler = createHandler(ImmutableList.of(Pattern.compile("error")));
+		ResponseInfo responseInfo = handler.execute(
+				createTemplate(StreamingRequestHandler.STREAM, ImmutableList.<DetailExtraction>of()), UUID.randomUUID());
+
+		assertEquals(responseInfo.getBodyAsString(), "b error\n");
+	}
+
+	private StreamingRequestHandler createHandler(final List<Pattern> errorPatterns) {
+		OkHttpClient client = new OkHttpClient.Builder().addNetworkInterceptor(new ByteCountingInterceptor()).build();
+		return new StreamingRequestHandler(() -> new OkHttpManager(() -> client), () -> server.url("").toString(),
+				UUID::randomUUID, () -> "myOperation", Request.Builder::new, () -> resultLogger, errorPatterns);
+	}
+
+	private static RequestTemplate createTemplate(final String type, final List<DetailExtraction> extractions) {
+		return new RequestTemplate(type, "false", "/stream", null, ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), null, ImmutableList.<HeaderExtraction>of(), extractions, "true");
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * @author agent
+ */
+public class FramingTest {
+
+	@DataProvider
+	public Object[][] framings() {
+		return new Object[][] {
+				{ new LengthPrefixedFraming(1) },
+				{ new LengthPrefixedFraming(2) },
+				{ new LengthPrefixedFraming(4) },
+				{ new DelimiterFraming("\n".getBytes(UTF_8)) },
+				{ new DelimiterFraming("\r\n".getBytes(UTF_8)) }
+		};
+	}
+
+	@Test(dataProvider = "framings")
+	public void testRoundTrip(final Framing framing) {
+		byte[] first = "first message".getBytes(UTF_8);
+		byte[] second = "second".getBytes(UTF_8);
+
+		ByteBuffer buffer = ByteBuffer.allocate(framing.getFrameLength(first.length) + framing.getFrameLength(second.length));
+		framing.writeFrame(first, buffer);
+		framing.writeFrame(second, buffer);
+		assertEquals(buffer.remaining(), 0);
+		buffer.flip();
+
+		assertEquals(framing.readFrame(buffer), first);
+		assertEquals(framing.readFrame(buffer), second);
+		assertEquals(buffer.remaining(), 0);
+		assertNull(framing.readFrame(buffer));
+	}
+
+	@Test(dataProvider = "framings")
+	public void testIncompleteFrame(final Framing framing) {
+		byte[] payload = "payload".getBytes(UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(framing.getFrameLength(payload.length));
+		framing.writeFrame(payload, buffer);
+
+		// expose all but the last byte
+		buffer.flip();
+		buffer.limit(buffer.limit() - 1);
+		assertNull(framing.readFrame(buffer));
+		assertEquals(buffer.position(), 0);
+
+		buffer.limit(buffer.capacity());
+		assertEquals(framing.readFrame(buffer), payload);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testPayloadTooLarge() {
+		new LengthPrefixedFraming(1).writeFrame(new byte[256], ByteBuffer.allocate(257));
+	}
+}
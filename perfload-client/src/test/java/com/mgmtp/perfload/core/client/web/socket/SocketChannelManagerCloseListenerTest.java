@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.google.inject.Key;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+
+/**
+ * @author agent
+ */
+public class SocketChannelManagerCloseListenerTest {
+
+	private final ExecutionScope executionScope = new ExecutionScope();
+	private final SocketChannelManagerCloseListener listener = new SocketChannelManagerCloseListener(executionScope);
+
+	@Test
+	public void testNoChannelManagerIsCreated() {
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, new HashMap<>());
+		listener.runFinished(null);
+		assertThat(executionScope.exitScope(executionId)).isEmpty();
+	}
+
+	@Test
+	public void testCreatedChannelManagerIsClosed() throws Exception {
+		SocketChannelManager channelManager = new SocketChannelManager(() -> null);
+		DatagramChannel channel = channelManager.getDatagramChannel(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7));
+		Map<Key<?>, Object> scopeCache = new HashMap<>();
+		scopeCache.put(Key.get(SocketChannelManager.class), channelManager);
+
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, scopeCache);
+		listener.runFinished(null);
+		executionScope.exitScope(executionId);
+		assertThat(channel.isOpen()).isFalse();
+	}
+
+	@Test
+	public void testPooledChannelManagerIsNotClosed() throws Exception {
+		SocketChannelManager channelManager = new SocketChannelManager(() -> null);
+		DatagramChannel channel = channelManager.getDatagramChannel(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7));
+		Map<Key<?>, Object> scopeCache = new HashMap<>();
+		scopeCache.put(Key.get(SocketChannelManager.class), channelManager);
+		listener.setExecutionPooling("true");
+
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, scopeCache);
+		listener.runFinished(null);
+		executionScope.exitScope(executionId);
+		assertThat(channel.isOpen()).isTrue();
+		channelManager.close();
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.socket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+
+/**
+ * @author agent
+ */
+public class SocketRequestHandlerTest {
+	private ExecutorService executor;
+	private SocketChannelManager channelManager;
+	private ByteBufferPool bufferPool;
+
+	@BeforeMethod
+	public void setUp() {
+		executor = Executors.newSingleThreadExecutor();
+		channelManager = new SocketChannelManager(() -> null);
+		// small buffers, so large responses require the buffer to grow
+		bufferPool = new ByteBufferPool(16);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		channelManager.close();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testTcpExchange() throws Exception {
+		try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			executor.submit(() -> {
+				// echoes length-prefixed frames in upper case on a single connection
+				try (Socket socket = serverSocket.accept()) {
+					DataInputStream in = new DataInputStream(socket.getInputStream());
+					DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+					for (;;) {
+						byte[] payload = new byte[in.readInt()];
+						in.readFully(payload);
+						byte[] response = new String(payload, UTF_8).toUpperCase().getBytes(UTF_8);
+						out.writeInt(response.length);
+						out.write(response);
+						out.flush();
+					}
+				}
+			});
+
+			TcpRequestHandler handler = new TcpRequestHandler(() -> channelManager, bufferPool, new LengthPrefixedFraming(4),
+					() -> "tcp://localhost:" + serverSocket.getLocalPort(), UUID::randomUUID);
+
+			ResponseInfo responseInfo = handler.execute(createTemplate("TCP", "hello"), UUID.randomUUID());
+			assertEquals(responseInfo.getBodyAsString(), "HELLO");
+			assertEquals(responseInfo.getStatusCode(), 200);
+			assertEquals(responseInfo.getMethodType(), "TCP");
+
+			// second request reuses the connection, the server accepts only one
+			String longMessage = "a message which does not fit into a single pooled buffer";
+			responseInfo = handler.execute(createTemplate("TCP", longMessage), UUID.randomUUID());
+			assertEquals(responseInfo.getBodyAsString(), longMessage.toUpperCase());
+		}
+	}
+
+	@Test(expectedExceptions = SocketTimeoutException.class)
+	public void testTcpReadTimeout() throws Exception {
+		try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			TcpRequestHandler handler = new TcpRequestHandler(() -> channelManager, bufferPool, new LengthPrefixedFraming(4),
+					() -> "tcp://localhost:" + serverSocket.getLocalPort(), UUID::randomUUID);
+			handler.setReadTimeout("200");
+			handler.execute(createTemplate("TCP", "hello"), UUID.randomUUID());
+		}
+	}
+
+	@Test
+	public void testUdpExchange() throws Exception {
+		try (DatagramSocket serverSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			executor.submit(() -> {
+				byte[] buffer = new byte[1024];
+				for (;;) {
+					DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+					serverSocket.receive(packet);
+					byte[] response = new String(packet.getData(), 0, packet.getLength(), UTF_8).toUpperCase().getBytes(UTF_8);
+					serverSocket.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+				}
+			});
+
+			UdpRequestHandler handler = new UdpRequestHandler(() -> channelManager, new ByteBufferPool(1024),
+					() -> "udp://localhost:" + serverSocket.getLocalPort(), UUID::randomUUID);
+
+			for (String message : ImmutableList.of("ping", "pong")) {
+				ResponseInfo responseInfo = handler.execute(createTemplate("UDP", message), UUID.randomUUID());
+				assertEquals(responseInfo.getBodyAsString(), message.toUpperCase());
+			}
+		}
+	}
+
+	@Test
+	public void testExecutionContextIsUsedInsteadOfProviders() throws Exception {
+		try (DatagramSocket serverSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			executor.submit(() -> {
+				byte[] buffer = new byte[1024];
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				serverSocket.receive(packet);
+				serverSocket.send(new DatagramPacket(packet.getData(), packet.getLength(), packet.getSocketAddress()));
+				return null;
+			});
+
+			UdpRequestHandler handler = new UdpRequestHandler(() -> channelManager, new ByteBufferPool(1024),
+					() -> {
+						throw new AssertionError("target host must be taken from the context");
+					}, () -> {
+						throw new AssertionError("execution id must be taken from the context");
+					});
+
+			ExecutionContext context = new ExecutionContext(UUID.randomUUID(), "myOperation", "myTarget", 1,
+					"udp://localhost:" + serverSocket.getLocalPort(), null, null);
+			ResponseInfo responseInfo = handler.execute(context, createTemplate("UDP", "ping"), UUID.randomUUID());
+			assertEquals(responseInfo.getBodyAsString(), "ping");
+			assertEquals(responseInfo.getExecutionId(), context.getExecutionId());
+		}
+	}
+
+	private static RequestTemplate createTemplate(final String type, final String body) throws IOException {
+		return new RequestTemplate(type, "false", "", null, ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), Body.create(body), ImmutableList.<HeaderExtraction>of(),
+				ImmutableList.<DetailExtraction>of(), "true");
+	}
+}
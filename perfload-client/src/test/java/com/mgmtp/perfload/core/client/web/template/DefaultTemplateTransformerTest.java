@@ -19,6 +19,8 @@ import static com.google.common.io.Resources.getResource;
 import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
@@ -150,4 +152,37 @@ public class DefaultTemplateTransformerTest {
 
 		assertEquals(new String(executableTemplate.getBody().getContent(), Charsets.UTF_8), "test testvalue");
 	}
+
+	@Test
+	public void testConstantBodyResourceIsLoadedOnce() throws IOException {
+		RequestTemplate template = new RequestTemplate("GET", "false", "uri", "alias", ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), Body.create("fooResource", ResourceType.binary.name()),
+				ImmutableList.<HeaderExtraction>of(), ImmutableList.<DetailExtraction>of(), "true");
+
+		PlaceholderContainer pc = new DefaultPlaceholderContainer();
+		TemplateTransformer transformer = new DefaultTemplateTransformer();
+		Body body1 = transformer.makeExecutable(template, pc).getBody();
+		Body body2 = transformer.makeExecutable(template, pc).getBody();
+
+		assertEquals(body1.getContent(), toByteArray(getResource("fooResource")));
+		assertSame(body1, body2);
+	}
+
+	@Test
+	public void testBodyResourceWithPlaceholdersIsLoadedPerExecution() throws IOException {
+		RequestTemplate template = new RequestTemplate("GET", "false", "uri", "alias", ImmutableSetMultimap.<String, String>of(),
+				ImmutableSetMultimap.<String, String>of(), Body.create("fooResource", ResourceType.text.name()),
+				ImmutableList.<HeaderExtraction>of(), ImmutableList.<DetailExtraction>of(), "true");
+
+		PlaceholderContainer pc = new DefaultPlaceholderContainer();
+		TemplateTransformer transformer = new DefaultTemplateTransformer();
+		pc.put("test", "value1");
+		Body body1 = transformer.makeExecutable(template, pc).getBody();
+		pc.put("test", "value2");
+		Body body2 = transformer.makeExecutable(template, pc).getBody();
+
+		assertNotSame(body1, body2);
+		assertEquals(new String(body1.getContent(), Charsets.UTF_8), "test value1");
+		assertEquals(new String(body2.getContent(), Charsets.UTF_8), "test value2");
+	}
 }
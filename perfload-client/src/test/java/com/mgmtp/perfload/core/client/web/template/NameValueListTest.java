@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.template;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.client.util.DefaultPlaceholderContainer;
+
+/**
+ * @author agent
+ */
+public class NameValueListTest {
+
+	@Test
+	public void testOrderAndDuplicatesArePreserved() {
+		NameValueList list = NameValueList.builder(1)
+				.add("b", "1")
+				.add("a", "2")
+				.add("b", "1")
+				.build();
+
+		assertThat(list.size()).isEqualTo(3);
+		assertThat(list.name(0)).isEqualTo("b");
+		assertThat(list.name(1)).isEqualTo("a");
+		assertThat(list.value(2)).isEqualTo("1");
+		assertThat(list.get("b")).isEqualTo("1");
+		assertThat(list.get("c")).isNull();
+		assertThat(list.toSetMultimap().size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testEncoding() {
+		NameValueList list = NameValueList.builder(2)
+				.add("a b", "x&y")
+				.add("c", "ä=")
+				.build();
+
+		assertThat(list.appendQueryString(new StringBuilder()).toString()).isEqualTo("a+b=x%26y&c=%C3%A4%3D");
+		assertThat(list.encodedValue(0)).isSameAs(list.encodedValue(0));
+	}
+
+	@Test
+	public void testEqualsAndHashCode() {
+		NameValueList list1 = NameValueList.builder(2).add("a", "1").add("b", "2").build();
+		NameValueList list2 = NameValueList.builder(2).add("a", "1").add("b", "2").build();
+		NameValueList list3 = NameValueList.builder(2).add("b", "2").add("a", "1").build();
+
+		assertThat(list1).isEqualTo(list2);
+		assertThat(list1.hashCode()).isEqualTo(list2.hashCode());
+		assertThat(list1).isNotEqualTo(list3);
+		assertThat(NameValueList.builder(0).build()).isSameAs(NameValueList.EMPTY);
+	}
+
+	@Test
+	public void testConstantListsAreNotCopiedByTransformer() throws Exception {
+		NameValueList constant = NameValueList.builder(1).add("a", "1").build();
+		String encoded = constant.encodedName(0);
+		NameValueList parameterized = NameValueList.builder(2).add("a", "1").add("b", "${b}").build();
+
+		DefaultPlaceholderContainer placeholders = new DefaultPlaceholderContainer();
+		placeholders.put("b", "2");
+		RequestTemplate template = new RequestTemplate("id", "GET", "false", "/", null, constant, parameterized, null,
+				Collections.<RequestTemplate.HeaderExtraction>emptyList(),
+				Collections.<RequestTemplate.DetailExtraction>emptyList(), "true");
+		RequestTemplate executable = new DefaultTemplateTransformer().makeExecutable(template, placeholders);
+
+		assertThat(executable.getHeaders()).isSameAs(constant);
+		assertThat(executable.getParameters().value(1)).isEqualTo("2");
+		assertThat(executable.getParameters().name(0)).isSameAs(parameterized.name(0));
+		assertThat(constant.encodedName(0)).isSameAs(encoded);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.template;
+
+import static com.google.common.collect.Iterables.get;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.client.web.flow.RequestFlow;
+import com.mgmtp.perfload.core.client.web.io.XmlRequestFlowReader;
+
+/**
+ * @author agent
+ */
+public class RequestTemplateInternerTest {
+
+	@Test
+	public void testTemplatesAreShared() throws Exception {
+		RequestTemplateInterner interner = new RequestTemplateInterner();
+
+		RequestFlow original = new XmlRequestFlowReader("", "request-flow.xml").readFlow();
+		RequestFlow flow1 = interner.intern(original);
+		RequestFlow flow2 = interner.intern(new XmlRequestFlowReader("", "request-flow.xml").readFlow());
+
+		List<RequestTemplate> originalTemplates = newArrayList(original);
+		List<RequestTemplate> templates1 = newArrayList(flow1);
+		List<RequestTemplate> templates2 = newArrayList(flow2);
+
+		assertThat(templates1).isEqualTo(originalTemplates);
+		for (int i = 0; i < templates1.size(); ++i) {
+			assertThat(templates2.get(i)).isSameAs(templates1.get(i));
+		}
+	}
+
+	@Test
+	public void testContentsAreShared() throws Exception {
+		RequestTemplateInterner interner = new RequestTemplateInterner();
+		RequestFlow flow = interner.intern(new XmlRequestFlowReader("", "request-flow.xml").readFlow());
+
+		RequestTemplate template1 = get(flow, 1);
+		RequestTemplate template2 = get(flow, 2);
+		RequestTemplate template3 = get(flow, 3);
+
+		assertThat(template2.getUri()).isSameAs(template1.getUri());
+		assertThat(template3.getType()).isSameAs(template1.getType());
+		assertThat(template2.getDetailExtractions().get(0).getPattern()).isSameAs(
+				template1.getDetailExtractions().get(0).getPattern());
+		assertThat(template1.getHeaders()).isSameAs(template1.getParameters());
+		assertThat(interner.intern(new String("/foo/bar.tax"))).isSameAs(template1.getUri());
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.google.inject.Key;
+import com.mgmtp.perfload.core.client.config.scope.ExecutionScope;
+
+/**
+ * @author agent
+ */
+public class WebSocketManagerCloseListenerTest {
+
+	private final ExecutionScope executionScope = new ExecutionScope();
+	private final WebSocketManagerCloseListener listener = new WebSocketManagerCloseListener(executionScope);
+
+	@Test
+	public void testNoWebSocketManagerIsCreated() {
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, new HashMap<>());
+		listener.runFinished(null);
+		assertThat(executionScope.exitScope(executionId)).isEmpty();
+	}
+
+	@Test
+	public void testCreatedWebSocketManagerIsClosed() {
+		AtomicBoolean closed = new AtomicBoolean();
+		runFinished(closed);
+		assertThat(closed.get()).isTrue();
+	}
+
+	@Test
+	public void testPooledWebSocketManagerIsNotClosed() {
+		AtomicBoolean closed = new AtomicBoolean();
+		listener.setExecutionPooling("true");
+		runFinished(closed);
+		assertThat(closed.get()).isFalse();
+	}
+
+	private void runFinished(final AtomicBoolean closed) {
+		Map<Key<?>, Object> scopeCache = new HashMap<>();
+		scopeCache.put(Key.get(WebSocketManager.class), new WebSocketManager() {
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		});
+
+		UUID executionId = UUID.randomUUID();
+		executionScope.enterScope(executionId, scopeCache);
+		listener.runFinished(null);
+		executionScope.exitScope(executionId);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.client.web.websocket;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.UUID;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.mgmtp.perfload.core.client.web.constants.WebConstants;
+import com.mgmtp.perfload.core.client.web.flow.ExecutionContext;
+import com.mgmtp.perfload.core.client.web.okhttp.OkHttpManager;
+import com.mgmtp.perfload.core.client.web.response.ResponseInfo;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.Body;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.DetailExtraction;
+import com.mgmtp.perfload.core.client.web.template.RequestTemplate.HeaderExtraction;
+
+/**
+ * @author agent
+ */
+public class WebSocketRequestHandlerTest {
+	private MockWebServer server;
+	private WebSocketManager webSocketManager;
+	private WebSocketRequestHandler requestHandler;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+			@Override
+			public void onOpen(final WebSocket webSocket, final Response response) {
+				webSocket.send("welcome");
+			}
+
+			@Override
+			public void onMessage(final WebSocket webSocket, final String text) {
+				webSocket.send("ack");
+				webSocket.send("echo: " + text);
+			}
+
+			@Override
+			public void onClosing(final WebSocket webSocket, final int code, final String reason) {
+				webSocket.close(code, null);
+			}
+		}));
+		server.start();
+
+		OkHttpClient client = new OkHttpClient();
+		webSocketManager = new WebSocketManager();
+		requestHandler = new WebSocketRequestHandler(() -> new OkHttpManager(() -> client), () -> webSocketManager,
+				() -> "ws://" + server.getHostName() + ":" + server.getPort(), UUID::randomUUID, () -> "myOperation",
+				Request.Builder::new);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		webSocketManager.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testConversation() throws Exception {
+		ResponseInfo responseInfo = execute(WebSocketRequestHandler.CONNECT, null, null);
+		assertEquals(responseInfo.getStatusCode(), 101);
+
+		responseInfo = execute(WebSocketRequestHandler.AWAIT, null, null);
+		assertEquals(responseInfo.getBodyAsString(), "welcome");
+
+		// the "ack" message is skipped
+		responseInfo = execute(WebSocketRequestHandler.SEND, "hello", "^echo");
+		assertEquals(responseInfo.getBodyAsString(), "echo: hello");
+
+		responseInfo = execute(WebSocketRequestHandler.CLOSE, null, null);
+		assertEquals(responseInfo.getBodyAsString(), "");
+		assertEquals(webSocketManager.get("ws://" + server.getHostName() + ":" + server.getPort() + "/push"), null);
+	}
+
+	@Test(expectedExceptions = SocketTimeoutException.class)
+	public void testAwaitTimeout() throws Exception {
+		requestHandler.setTimeout("200");
+		execute(WebSocketRequestHandler.CONNECT, null, null);
+		execute(WebSocketRequestHandler.AWAIT, null, "never");
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testSendWithoutConnect() throws Exception {
+		execute(WebSocketRequestHandler.SEND, "hello", null);
+	}
+
+	@Test
+	public void testExecutionContextIsUsedInsteadOfProviders() throws Exception {
+		OkHttpClient client = new OkHttpClient();
+		requestHandler = new WebSocketRequestHandler(() -> {
+			throw new AssertionError("HTTP client must be taken from the context");
+		}, () -> webSocketManager, () -> {
+			throw new AssertionError("target host must be taken from the context");
+		}, () -> {
+			throw new AssertionError("execution id must be taken from the context");
+		}, () -> {
+			throw new AssertionError("operation must be taken from the context");
+		}, Request.Builder::new);
+		ExecutionContext context = new ExecutionContext(UUID.randomUUID(), "myOperation", "myTarget", 1,
+				"ws://" + server.getHostName() + ":" + server.getPort(), null, new OkHttpManager(() -> client));
+
+		ResponseInfo responseInfo = requestHandler.execute(context, createTemplate(WebSocketRequestHandler.CONNECT, null, null),
+				UUID.randomUUID());
+		assertEquals(responseInfo.getStatusCode(), 101);
+		assertEquals(responseInfo.getExecutionId(), context.getExecutionId());
+		assertEquals(server.takeRequest().getHeader(WebConstants.OPERATION_HEADER), "myOperation");
+
+		responseInfo = requestHandler.execute(context, createTemplate(WebSocketRequestHandler.CLOSE, null, null),
+				UUID.randomUUID());
+		assertEquals(responseInfo.getExecutionId(), context.getExecutionId());
+	}
+
+	private ResponseInfo execute(final String type, final String body, final String await) throws Exception {
+		return requestHandler.execute(createTemplate(type, body, await), UUID.randomUUID());
+	}
+
+	private static RequestTemplate createTemplate(final String type, final String body, final String await)
+			throws IOException {
+		return new RequestTemplate(type, "false", "/push", null, ImmutableSetMultimap.<String, String>of(),
+				await != null ? ImmutableSetMultimap.of(WebSocketRequestHandler.AWAIT_PARAM, await)
+						: ImmutableSetMultimap.<String, String>of(),
+				body != null ? Body.create(body) : null, ImmutableList.<HeaderExtraction>of(),
+				ImmutableList.<DetailExtraction>of(), "true");
+	}
+}
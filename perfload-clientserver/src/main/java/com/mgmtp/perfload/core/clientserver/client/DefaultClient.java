@@ -18,8 +18,6 @@ package com.mgmtp.perfload.core.clientserver.client;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.Serializable;
-import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -30,15 +28,15 @@ import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.socket.oio.OioClientSocketChannelFactory;
 import org.jboss.netty.handler.codec.serialization.ClassResolvers;
-import org.jboss.netty.handler.codec.serialization.ObjectDecoder;
-import org.jboss.netty.handler.codec.serialization.ObjectEncoder;
 
+import com.mgmtp.perfload.core.clientserver.codec.PayloadCodec;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadDecoder;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadEncoder;
 import com.mgmtp.perfload.core.clientserver.handshake.ClientHandshakeHandler;
 import com.mgmtp.perfload.core.clientserver.handshake.Handshake;
 import com.mgmtp.perfload.core.clientserver.server.DefaultServer;
-import com.mgmtp.perfload.core.clientserver.util.DaemonThreadFactory;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 
 /**
  * Client for the server. Messages to the server are sent asynchronously. A
@@ -56,13 +54,15 @@ public final class DefaultClient implements Client {
 	private final String clientId;
 	private final String host;
 	private final int port;
+	private final Transport transport;
 	private final ClientBootstrap bootstrap;
 	private final ClientHandler clientHandler = new ClientHandler();
 
 	private volatile Channel channel;
 
 	/**
-	 * Creates a new instance that talks to a {@link DefaultServer} on the specified host and port.
+	 * Creates a new instance that talks to a {@link DefaultServer} on the specified host and port
+	 * using the transport configured with the system property {@value Transport#SYSTEM_PROPERTY}.
 	 * 
 	 * @param clientId
 	 *            A unique id. No two clients with the same id can access the same
@@ -73,29 +73,49 @@ public final class DefaultClient implements Client {
 	 *            The port the {@link DefaultServer} runs on
 	 */
 	public DefaultClient(final String clientId, final String host, final int port) {
+		this(clientId, host, port, Transport.fromSystemProperty());
+	}
+
+	/**
+	 * Creates a new instance that talks to a {@link DefaultServer} on the specified host and port.
+	 * 
+	 * @param clientId
+	 *            A unique id. No two clients with the same id can access the same
+	 *            {@link DefaultServer}
+	 * @param host
+	 *            The host the {@link DefaultServer} runs on
+	 * @param port
+	 *            The port the {@link DefaultServer} runs on
+	 * @param transport
+	 *            The transport
+	 */
+	public DefaultClient(final String clientId, final String host, final int port, final Transport transport) {
 		this.clientId = clientId;
 		this.host = host;
 		this.port = port;
+		this.transport = transport;
 
 		// Configure the client.
-		bootstrap = new ClientBootstrap(
-				new OioClientSocketChannelFactory(Executors.newCachedThreadPool(new DaemonThreadFactory())));
+		bootstrap = new ClientBootstrap(transport.createClientChannelFactory());
 
 		// Set up the pipeline factory.
 		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
 			@Override
 			public ChannelPipeline getPipeline() throws Exception {
 				return Channels.pipeline(
-						new ObjectEncoder(ENCODER_ESTIMATED_LENGTH),
-						new ObjectDecoder(DECODER_ESTIMATED_LENGTH, ClassResolvers.weakCachingResolver(null)),
-						new ClientHandshakeHandler(new Handshake(clientId), HANDSHAKE_TIMEOUT_MILLIS),
+						new PayloadEncoder(ENCODER_ESTIMATED_LENGTH),
+						new PayloadDecoder(DECODER_ESTIMATED_LENGTH, ClassResolvers.weakCachingResolver(null)),
+						new ClientHandshakeHandler(new Handshake(clientId, PayloadCodec.NAME), HANDSHAKE_TIMEOUT_MILLIS),
 						clientHandler);
 			}
 		});
 
 		bootstrap.setOption("tcpNoDelay", true);
 		bootstrap.setOption("keepAlive", true);
-		bootstrap.setOption("soTimeout", 10000L);
+		if (transport == Transport.OIO) {
+			// Only supported by blocking sockets
+			bootstrap.setOption("soTimeout", 10000L);
+		}
 	}
 
 	@Override
@@ -109,7 +129,7 @@ public final class DefaultClient implements Client {
 	@Override
 	public synchronized void connect() {
 		checkArgument(channel == null, "Client seems to already be connected.");
-		channel = bootstrap.connect(new InetSocketAddress(host, port)).awaitUninterruptibly().getChannel();
+		channel = bootstrap.connect(transport.createClientAddress(host, port)).awaitUninterruptibly().getChannel();
 	}
 
 	@Override
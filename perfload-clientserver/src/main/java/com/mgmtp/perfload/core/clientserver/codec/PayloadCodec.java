@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.codec;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.handler.codec.frame.CorruptedFrameException;
+
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.config.LoadProfileEvent;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+import com.mgmtp.perfload.core.common.config.ProcessKey;
+import com.mgmtp.perfload.core.common.config.TestConfig;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+import com.mgmtp.perfload.core.common.util.StatusInfoType;
+
+/**
+ * Schema-based binary encoding for {@link Payload} objects whose content is one of the types
+ * exchanged between console, daemons, and clients. Integers are written as zig-zag varints,
+ * strings as length-prefixed UTF-8, enums as ordinals, and the optional fields of a
+ * {@link StatusInfo} behind a presence bitmask. Any other content, e. g. a jar manifest, is not
+ * supported and must be sent using Java serialization (see {@link #canEncode(Object)}).
+ * <p>
+ * The format relies on both peers having the same enum and field layouts. It is therefore only
+ * used if both sides announce the same codec {@link #NAME} during the handshake. The name must be
+ * changed whenever the format changes.
+ * </p>
+ * 
+ * @author agent
+ */
+public final class PayloadCodec {
+
+	/**
+	 * The name of the codec announced during the handshake.
+	 */
+	public static final String NAME = "perfload-binary-6";
+
+	private static final byte CONTENT_NULL = 0;
+	private static final byte CONTENT_STATUS_INFO = 1;
+	private static final byte CONTENT_PROCESS_CONFIG = 2;
+	private static final byte CONTENT_TEST_CONFIG = 3;
+	private static final byte CONTENT_LOAD_PROFILE_EVENT = 4;
+	private static final byte CONTENT_PROCESS_KEY = 5;
+	private static final byte CONTENT_INTEGER = 6;
+	private static final byte CONTENT_STRING = 7;
+	private static final byte CONTENT_STATUS_INFO_BATCH = 8;
+	private static final byte CONTENT_TEST_JAR_CHUNK = 9;
+	private static final byte CONTENT_LONG = 10;
+	private static final byte CONTENT_LONG_ARRAY = 11;
+
+	private static final int PROCESS_ID = 1;
+	private static final int DAEMON_ID = 1 << 1;
+	private static final int THREAD_ID = 1 << 2;
+	private static final int OPERATION = 1 << 3;
+	private static final int TARGET = 1 << 4;
+	private static final int ERROR = 1 << 5;
+	private static final int ERROR_VALUE = 1 << 6;
+	private static final int ACTIVE_THREADS = 1 << 7;
+	private static final int STACK_TRACE = 1 << 8;
+	private static final int FINISHED = 1 << 9;
+	private static final int FINISHED_VALUE = 1 << 10;
+
+	private static final PayloadType[] PAYLOAD_TYPES = PayloadType.values();
+	private static final StatusInfoType[] STATUS_INFO_TYPES = StatusInfoType.values();
+
+	private PayloadCodec() {
+		// don't allow instantiation
+	}
+
+	/**
+	 * @param msg
+	 *            the message to check
+	 * @return {@code true} if the message is a {@link Payload} the content of which can be
+	 *         encoded by this codec
+	 */
+	public static boolean canEncode(final Object msg) {
+		if (msg == null || msg.getClass() != Payload.class) {
+			return false;
+		}
+		Object content = ((Payload) msg).getContent();
+		return content == null || contentType(content) != -1;
+	}
+
+	/**
+	 * Writes the specified payload to the buffer.
+	 * 
+	 * @param payload
+	 *            the payload; {@link #canEncode(Object)} must return {@code true} for it
+	 * @param buffer
+	 *            the target buffer
+	 */
+	public static void encode(final Payload payload, final ChannelBuffer buffer) {
+		buffer.writeByte(payload.getPayloadType().ordinal());
+		Serializable content = payload.getContent();
+		if (content == null) {
+			buffer.writeByte(CONTENT_NULL);
+			return;
+		}
+
+		byte contentType = contentType(content);
+		buffer.writeByte(contentType);
+		switch (contentType) {
+			case CONTENT_STATUS_INFO:
+				writeStatusInfo(buffer, (StatusInfo) content);
+				break;
+			case CONTENT_PROCESS_CONFIG:
+				ProcessConfig processConfig = (ProcessConfig) content;
+				writeInt(buffer, processConfig.getProcessId());
+				writeInt(buffer, processConfig.getDaemonId());
+				List<String> jvmArgs = processConfig.getJvmArgs();
+				writeInt(buffer, jvmArgs.size());
+				for (String jvmArg : jvmArgs) {
+					writeString(buffer, jvmArg);
+				}
+				writeString(buffer, processConfig.getPlacement());
+				break;
+			case CONTENT_TEST_CONFIG:
+				writeTestConfig(buffer, (TestConfig) content);
+				break;
+			case CONTENT_LOAD_PROFILE_EVENT:
+				writeLoadProfileEvent(buffer, (LoadProfileEvent) content);
+				break;
+			case CONTENT_PROCESS_KEY:
+				ProcessKey processKey = (ProcessKey) content;
+				writeInt(buffer, processKey.getDaemonId());
+				writeInt(buffer, processKey.getProcessId());
+				break;
+			case CONTENT_INTEGER:
+				writeInt(buffer, (Integer) content);
+				break;
+			case CONTENT_STRING:
+				writeString(buffer, (String) content);
+				break;
+			case CONTENT_STATUS_INFO_BATCH:
+				StatusInfo[] batch = (StatusInfo[]) content;
+				writeInt(buffer, batch.length);
+				for (StatusInfo statusInfo : batch) {
+					writeStatusInfo(buffer, statusInfo);
+				}
+				break;
+			case CONTENT_TEST_JAR_CHUNK:
+				TestJarChunk chunk = (TestJarChunk) content;
+				writeString(buffer, chunk.getChecksum());
+				writeVarLong(buffer, chunk.getOffset());
+				writeInt(buffer, chunk.getData().length);
+				buffer.writeBytes(chunk.getData());
+				break;
+			case CONTENT_LONG:
+				buffer.writeLong((Long) content);
+				break;
+			case CONTENT_LONG_ARRAY:
+				long[] values = (long[]) content;
+				writeInt(buffer, values.length);
+				for (long value : values) {
+					buffer.writeLong(value);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Content cannot be encoded: " + content.getClass().getName());
+		}
+	}
+
+	/**
+	 * Reads a payload from the buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer positioned at the start of an encoded payload
+	 * @return the payload
+	 * @throws CorruptedFrameException
+	 *             if the buffer does not contain a valid payload
+	 */
+	public static Payload decode(final ChannelBuffer buffer) throws CorruptedFrameException {
+		PayloadType payloadType = PAYLOAD_TYPES[checkOrdinal(buffer.readUnsignedByte(), PAYLOAD_TYPES.length)];
+		byte contentType = buffer.readByte();
+		switch (contentType) {
+			case CONTENT_NULL:
+				return new Payload(payloadType);
+			case CONTENT_STATUS_INFO:
+				return new Payload(payloadType, readStatusInfo(buffer));
+			case CONTENT_PROCESS_CONFIG:
+				int processId = readInt(buffer);
+				int daemonId = readInt(buffer);
+				int size = readCount(buffer);
+				List<String> jvmArgs = new ArrayList<>(size);
+				for (int i = 0; i < size; ++i) {
+					jvmArgs.add(readString(buffer));
+				}
+				return new Payload(payloadType, new ProcessConfig(processId, daemonId, jvmArgs, readString(buffer)));
+			case CONTENT_TEST_CONFIG:
+				return new Payload(payloadType, readTestConfig(buffer));
+			case CONTENT_LOAD_PROFILE_EVENT:
+				return new Payload(payloadType, readLoadProfileEvent(buffer));
+			case CONTENT_PROCESS_KEY:
+				return new Payload(payloadType, new ProcessKey(readInt(buffer), readInt(buffer)));
+			case CONTENT_INTEGER:
+				return new Payload(payloadType, readInt(buffer));
+			case CONTENT_STRING:
+				return new Payload(payloadType, readString(buffer));
+			case CONTENT_STATUS_INFO_BATCH:
+				StatusInfo[] batch = new StatusInfo[readCount(buffer)];
+				for (int i = 0; i < batch.length; ++i) {
+					batch[i] = readStatusInfo(buffer);
+				}
+				return new Payload(payloadType, batch);
+			case CONTENT_TEST_JAR_CHUNK:
+				String checksum = readString(buffer);
+				long offset = readVarLong(buffer);
+				byte[] data = new byte[readCount(buffer)];
+				buffer.readBytes(data);
+				return new Payload(payloadType, new TestJarChunk(checksum, offset, data));
+			case CONTENT_LONG:
+				return new Payload(payloadType, buffer.readLong());
+			case CONTENT_LONG_ARRAY:
+				long[] values = new long[readCount(buffer)];
+				for (int i = 0; i < values.length; ++i) {
+					values[i] = buffer.readLong();
+				}
+				return new Payload(payloadType, values);
+			default:
+				throw new CorruptedFrameException("Unknown content type: " + contentType);
+		}
+	}
+
+	private static byte contentType(final Object content) {
+		Class<?> clazz = content.getClass();
+		if (clazz == StatusInfo.class) {
+			return CONTENT_STATUS_INFO;
+		}
+		if (clazz == ProcessConfig.class) {
+			return CONTENT_PROCESS_CONFIG;
+		}
+		if (clazz == TestConfig.class) {
+			return CONTENT_TEST_CONFIG;
+		}
+		if (clazz == LoadProfileEvent.class) {
+			return CONTENT_LOAD_PROFILE_EVENT;
+		}
+		if (clazz == ProcessKey.class) {
+			return CONTENT_PROCESS_KEY;
+		}
+		if (clazz == Integer.class) {
+			return CONTENT_INTEGER;
+		}
+		if (clazz == String.class) {
+			return CONTENT_STRING;
+		}
+		if (clazz == StatusInfo[].class) {
+			return CONTENT_STATUS_INFO_BATCH;
+		}
+		if (clazz == TestJarChunk.class) {
+			return CONTENT_TEST_JAR_CHUNK;
+		}
+		if (clazz == Long.class) {
+			return CONTENT_LONG;
+		}
+		if (clazz == long[].class) {
+			return CONTENT_LONG_ARRAY;
+		}
+		return -1;
+	}
+
+	private static void writeStatusInfo(final ChannelBuffer buffer, final StatusInfo statusInfo) {
+		int mask = 0;
+		mask |= statusInfo.getProcessId() != null ? PROCESS_ID : 0;
+		mask |= statusInfo.getDaemonId() != null ? DAEMON_ID : 0;
+		mask |= statusInfo.getThreadId() != null ? THREAD_ID : 0;
+		mask |= statusInfo.getOperation() != null ? OPERATION : 0;
+		mask |= statusInfo.getTarget() != null ? TARGET : 0;
+		mask |= statusInfo.getError() != null ? ERROR : 0;
+		mask |= Boolean.TRUE.equals(statusInfo.getError()) ? ERROR_VALUE : 0;
+		mask |= statusInfo.getActiveThreads() != null ? ACTIVE_THREADS : 0;
+		mask |= statusInfo.getStackTrace() != null ? STACK_TRACE : 0;
+		mask |= statusInfo.getFinished() != null ? FINISHED : 0;
+		mask |= Boolean.TRUE.equals(statusInfo.getFinished()) ? FINISHED_VALUE : 0;
+
+		StatusInfoType type = statusInfo.getType();
+		buffer.writeByte(type == null ? 0 : type.ordinal() + 1);
+		writeVarInt(buffer, mask);
+		if ((mask & PROCESS_ID) != 0) {
+			writeInt(buffer, statusInfo.getProcessId());
+		}
+		if ((mask & DAEMON_ID) != 0) {
+			writeInt(buffer, statusInfo.getDaemonId());
+		}
+		if ((mask & THREAD_ID) != 0) {
+			writeInt(buffer, statusInfo.getThreadId());
+		}
+		if ((mask & OPERATION) != 0) {
+			writeString(buffer, statusInfo.getOperation());
+		}
+		if ((mask & TARGET) != 0) {
+			writeString(buffer, statusInfo.getTarget());
+		}
+		if ((mask & ACTIVE_THREADS) != 0) {
+			writeInt(buffer, statusInfo.getActiveThreads());
+		}
+		if ((mask & STACK_TRACE) != 0) {
+			writeString(buffer, statusInfo.getStackTrace());
+		}
+	}
+
+	private static StatusInfo readStatusInfo(final ChannelBuffer buffer) throws CorruptedFrameException {
+		int typeOrdinal = buffer.readUnsignedByte();
+		StatusInfoType type = typeOrdinal == 0
+				? null
+				: STATUS_INFO_TYPES[checkOrdinal(typeOrdinal - 1, STATUS_INFO_TYPES.length)];
+		int mask = readVarInt(buffer);
+		Integer processId = (mask & PROCESS_ID) != 0 ? readInt(buffer) : null;
+		Integer daemonId = (mask & DAEMON_ID) != 0 ? readInt(buffer) : null;
+
+		StatusInfo.Builder builder = new StatusInfo.Builder(type, processId, daemonId);
+		if ((mask & THREAD_ID) != 0) {
+			builder.threadId(readInt(buffer));
+		}
+		if ((mask & OPERATION) != 0) {
+			builder.operation(readString(buffer));
+		}
+		if ((mask & TARGET) != 0) {
+			builder.target(readString(buffer));
+		}
+		if ((mask & ERROR) != 0) {
+			builder.error((mask & ERROR_VALUE) != 0);
+		}
+		if ((mask & ACTIVE_THREADS) != 0) {
+			builder.activeThreads(readInt(buffer));
+		}
+		if ((mask & STACK_TRACE) != 0) {
+			builder.stackTrace(readString(buffer));
+		}
+		if ((mask & FINISHED) != 0) {
+			builder.finished((mask & FINISHED_VALUE) != 0);
+		}
+		return builder.build();
+	}
+
+	private static void writeTestConfig(final ChannelBuffer buffer, final TestConfig testConfig) {
+		writeInt(buffer, testConfig.getProcessId());
+		writeString(buffer, testConfig.getGuiceModule());
+		PropertiesMap properties = testConfig.getProperties();
+		if (properties == null) {
+			writeInt(buffer, -1);
+		} else {
+			writeInt(buffer, properties.size());
+			for (Map.Entry<String, String> entry : properties.entrySet()) {
+				writeString(buffer, entry.getKey());
+				writeString(buffer, entry.getValue());
+			}
+		}
+		List<LoadProfileEvent> events = testConfig.getLoadProfileEvents();
+		writeInt(buffer, events.size());
+		for (LoadProfileEvent event : events) {
+			writeLoadProfileEvent(buffer, event);
+		}
+	}
+
+	private static TestConfig readTestConfig(final ChannelBuffer buffer) throws CorruptedFrameException {
+		int processId = readInt(buffer);
+		String guiceModule = readString(buffer);
+		int propertiesSize = readInt(buffer);
+		PropertiesMap properties = null;
+		if (propertiesSize >= 0) {
+			properties = new PropertiesMap();
+			for (int i = 0; i < propertiesSize; ++i) {
+				properties.put(readString(buffer), readString(buffer));
+			}
+		}
+		int eventsSize = readCount(buffer);
+		List<LoadProfileEvent> events = new ArrayList<>(eventsSize);
+		for (int i = 0; i < eventsSize; ++i) {
+			events.add(readLoadProfileEvent(buffer));
+		}
+		return new TestConfig(processId, guiceModule, properties, events);
+	}
+
+	private static void writeLoadProfileEvent(final ChannelBuffer buffer, final LoadProfileEvent event) {
+		writeVarLong(buffer, event.getStartTime() << 1 ^ event.getStartTime() >> 63);
+		writeString(buffer, event.getOperation());
+		writeString(buffer, event.getTarget());
+		writeInt(buffer, event.getDaemonId());
+		writeInt(buffer, event.getProcessId());
+	}
+
+	private static LoadProfileEvent readLoadProfileEvent(final ChannelBuffer buffer) throws CorruptedFrameException {
+		long zigZag = readVarLong(buffer);
+		long startTime = zigZag >>> 1 ^ -(zigZag & 1);
+		return new LoadProfileEvent(startTime, readString(buffer), readString(buffer), readInt(buffer), readInt(buffer));
+	}
+
+	private static int readCount(final ChannelBuffer buffer) throws CorruptedFrameException {
+		// every element takes at least one byte
+		int count = readInt(buffer);
+		if (count < 0 || count > buffer.readableBytes()) {
+			throw new CorruptedFrameException("Invalid element count: " + count);
+		}
+		return count;
+	}
+
+	private static int checkOrdinal(final int ordinal, final int count) throws CorruptedFrameException {
+		if (ordinal >= count) {
+			throw new CorruptedFrameException("Invalid enum ordinal: " + ordinal);
+		}
+		return ordinal;
+	}
+
+	private static void writeInt(final ChannelBuffer buffer, final int value) {
+		writeVarInt(buffer, value << 1 ^ value >> 31);
+	}
+
+	private static int readInt(final ChannelBuffer buffer) throws CorruptedFrameException {
+		int zigZag = readVarInt(buffer);
+		return zigZag >>> 1 ^ -(zigZag & 1);
+	}
+
+	private static void writeString(final ChannelBuffer buffer, final String value) {
+		if (value == null) {
+			writeVarInt(buffer, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		writeVarInt(buffer, bytes.length + 1);
+		buffer.writeBytes(bytes);
+	}
+
+	private static String readString(final ChannelBuffer buffer) throws CorruptedFrameException {
+		int length = readVarInt(buffer) - 1;
+		if (length < 0) {
+			return null;
+		}
+		if (length > buffer.readableBytes()) {
+			throw new CorruptedFrameException("String length exceeds frame: " + length);
+		}
+		String value = buffer.toString(buffer.readerIndex(), length, UTF_8);
+		buffer.skipBytes(length);
+		return value;
+	}
+
+	private static void writeVarInt(final ChannelBuffer buffer, final int value) {
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			buffer.writeByte(v & 0x7F | 0x80);
+			v >>>= 7;
+		}
+		buffer.writeByte(v);
+	}
+
+	private static int readVarInt(final ChannelBuffer buffer) throws CorruptedFrameException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.readByte();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new CorruptedFrameException("Malformed varint.");
+	}
+
+	private static void writeVarLong(final ChannelBuffer buffer, final long value) {
+		long v = value;
+		while ((v & ~0x7FL) != 0L) {
+			buffer.writeByte((int) (v & 0x7F | 0x80));
+			v >>>= 7;
+		}
+		buffer.writeByte((int) v);
+	}
+
+	private static long readVarLong(final ChannelBuffer buffer) throws CorruptedFrameException {
+		long value = 0L;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = buffer.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new CorruptedFrameException("Malformed varlong.");
+	}
+}
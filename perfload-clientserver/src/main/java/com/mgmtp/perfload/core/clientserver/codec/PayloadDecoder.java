@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.codec;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.TooLongFrameException;
+import org.jboss.netty.handler.codec.serialization.ClassResolver;
+import org.jboss.netty.handler.codec.serialization.ObjectDecoder;
+
+/**
+ * {@link ObjectDecoder} that additionally decodes frames written by {@link PayloadEncoder} with the
+ * binary {@link PayloadCodec}. Both formats are always accepted, so the decoder does not depend on
+ * the outcome of the handshake. Serialized frames start with the serialization stream version
+ * ({@code 5}) after the length prefix, binary frames with {@link #BINARY_MARKER}.
+ * 
+ * @author agent
+ */
+public class PayloadDecoder extends ObjectDecoder {
+
+	/**
+	 * The first byte of a binary frame after the length prefix.
+	 */
+	public static final byte BINARY_MARKER = (byte) 0xC1;
+
+	private final int maxObjectSize;
+
+	/**
+	 * @param maxObjectSize
+	 *            the maximum byte length of a frame
+	 * @param classResolver
+	 *            the class resolver for serialized frames
+	 */
+	public PayloadDecoder(final int maxObjectSize, final ClassResolver classResolver) {
+		super(maxObjectSize, classResolver);
+		this.maxObjectSize = maxObjectSize;
+	}
+
+	@Override
+	protected Object decode(final ChannelHandlerContext ctx, final Channel channel, final ChannelBuffer buffer)
+			throws Exception {
+		if (buffer.readableBytes() < 5) {
+			return null;
+		}
+
+		int readerIndex = buffer.readerIndex();
+		if (buffer.getByte(readerIndex + 4) != BINARY_MARKER) {
+			return super.decode(ctx, channel, buffer);
+		}
+
+		int frameLength = buffer.getInt(readerIndex);
+		if (frameLength < 1 || frameLength > maxObjectSize) {
+			throw new TooLongFrameException("Frame length exceeds " + maxObjectSize + ": " + frameLength);
+		}
+		if (buffer.readableBytes() < frameLength + 4) {
+			return null;
+		}
+
+		ChannelBuffer frame = buffer.slice(readerIndex + 5, frameLength - 1);
+		buffer.skipBytes(frameLength + 4);
+		return PayloadCodec.decode(frame);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.codec;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.serialization.ObjectEncoder;
+
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+
+/**
+ * {@link ObjectEncoder} that writes {@link Payload} objects using the {@link PayloadCodec} once the
+ * binary codec has been negotiated during the handshake (see {@link #enableBinaryCodec()}). Until
+ * then, and for any content the codec does not support, objects are serialized as usual. Binary
+ * frames use the same length prefix as serialized frames followed by
+ * {@link PayloadDecoder#BINARY_MARKER}, so {@link PayloadDecoder} can tell them apart.
+ * 
+ * @author agent
+ */
+public class PayloadEncoder extends ObjectEncoder {
+
+	private static final int BINARY_ESTIMATED_LENGTH = 256;
+
+	private volatile boolean binaryCodecEnabled;
+
+	/**
+	 * @param estimatedLength
+	 *            the estimated byte length of serialized objects
+	 */
+	public PayloadEncoder(final int estimatedLength) {
+		super(estimatedLength);
+	}
+
+	/**
+	 * Switches to the binary codec for all subsequent messages the codec supports.
+	 */
+	public void enableBinaryCodec() {
+		binaryCodecEnabled = true;
+	}
+
+	public boolean isBinaryCodecEnabled() {
+		return binaryCodecEnabled;
+	}
+
+	@Override
+	protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) throws Exception {
+		if (!binaryCodecEnabled || !PayloadCodec.canEncode(msg)) {
+			return super.encode(ctx, channel, msg);
+		}
+
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(BINARY_ESTIMATED_LENGTH, ctx.getChannel().getConfig()
+				.getBufferFactory());
+		buffer.writeInt(0);
+		buffer.writeByte(PayloadDecoder.BINARY_MARKER);
+		PayloadCodec.encode((Payload) msg, buffer);
+		buffer.setInt(0, buffer.writerIndex() - 4);
+		return buffer;
+	}
+}
@@ -29,6 +29,9 @@ import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.DownstreamMessageEvent;
 import org.jboss.netty.channel.MessageEvent;
 
+import com.mgmtp.perfload.core.clientserver.codec.PayloadCodec;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadEncoder;
+
 /**
  * Handshake handler for the client side.
  * 
@@ -58,6 +61,14 @@ public final class ClientHandshakeHandler extends AbstractHandshakeHandler {
 		// Everything went okay!
 		log.debug("Server returned correct id.");
 
+		// Switch to the binary codec if the server accepted it.
+		// This must happen before enqueued messages are flushed.
+		PayloadEncoder encoder = ctx.getPipeline().get(PayloadEncoder.class);
+		if (encoder != null && PayloadCodec.NAME.equals(receivedHandshake.getCodec())) {
+			log.debug("Using binary codec: {}", PayloadCodec.NAME);
+			encoder.enableBinaryCodec();
+		}
+
 		// Flush messages *directly* downwards.
 		// Calling ctx.getChannel().write() here would cause the messages
 		// to be inserted at the top of the pipeline, thus causing them
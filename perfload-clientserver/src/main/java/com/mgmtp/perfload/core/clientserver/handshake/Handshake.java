@@ -19,7 +19,10 @@ import java.io.Serializable;
 
 /**
  * Simple POJO used for handshakes. The handshake is kept simple without any challenge-response
- * scenario.
+ * scenario. Besides the client id, it carries the name of the binary codec a peer supports. The
+ * client announces its codec, and the server returns it if it supports it, too. The codec is not
+ * considered by {@link #equals(Object)}, and peers that do not know the field just ignore it and
+ * stay with Java serialization.
  * 
  * @author rnaegele
  */
@@ -28,19 +31,40 @@ public final class Handshake implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	private final String clientId;
+	private final String codec;
 
 	/**
 	 * @param clientId
 	 *            The id of the client that wants to connect to the server.
 	 */
 	public Handshake(final String clientId) {
+		this(clientId, null);
+	}
+
+	/**
+	 * @param clientId
+	 *            The id of the client that wants to connect to the server.
+	 * @param codec
+	 *            the name of the supported binary codec, or {@code null} if only Java
+	 *            serialization is supported
+	 */
+	public Handshake(final String clientId, final String codec) {
 		this.clientId = clientId;
+		this.codec = codec;
 	}
 
 	public String getClientId() {
 		return clientId;
 	}
 
+	/**
+	 * @return the name of the supported binary codec, or {@code null} if only Java serialization
+	 *         is supported
+	 */
+	public String getCodec() {
+		return codec;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
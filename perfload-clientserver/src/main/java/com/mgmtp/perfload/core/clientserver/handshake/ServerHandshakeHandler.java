@@ -28,6 +28,8 @@ import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.DownstreamMessageEvent;
 import org.jboss.netty.channel.MessageEvent;
 
+import com.mgmtp.perfload.core.clientserver.codec.PayloadCodec;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadEncoder;
 import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
 
 /**
@@ -53,9 +55,15 @@ public final class ServerHandshakeHandler extends AbstractHandshakeHandler {
 
 	@Override
 	protected void handleHandshakeMessage(final ChannelHandlerContext ctx, final MessageEvent e) {
-		// Simply return the received handshake
+		// Return the received handshake, accepting the binary codec if both sides support it
 		Handshake handshake = (Handshake) e.getMessage();
-		writeDownstream(ctx, handshake);
+		PayloadEncoder encoder = ctx.getPipeline().get(PayloadEncoder.class);
+		boolean binaryCodec = encoder != null && PayloadCodec.NAME.equals(handshake.getCodec());
+		writeDownstream(ctx, new Handshake(handshake.getClientId(), binaryCodec ? PayloadCodec.NAME : null));
+		if (binaryCodec) {
+			log.debug("Using binary codec: {}", PayloadCodec.NAME);
+			encoder.enableBinaryCodec();
+		}
 
 		// After the handshake we can remove the handshake handler
 		// from the pipeline because it is no longer needed.
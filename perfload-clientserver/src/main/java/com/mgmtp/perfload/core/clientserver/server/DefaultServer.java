@@ -18,8 +18,6 @@ package com.mgmtp.perfload.core.clientserver.server;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.Serializable;
-import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
@@ -27,17 +25,16 @@ import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.socket.oio.OioServerSocketChannelFactory;
 import org.jboss.netty.handler.codec.serialization.ClassResolvers;
-import org.jboss.netty.handler.codec.serialization.ObjectDecoder;
-import org.jboss.netty.handler.codec.serialization.ObjectEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadDecoder;
+import com.mgmtp.perfload.core.clientserver.codec.PayloadEncoder;
 import com.mgmtp.perfload.core.clientserver.handshake.ServerHandshakeHandler;
 import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
-import com.mgmtp.perfload.core.clientserver.util.DaemonThreadFactory;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 
 /**
  * Represents a server. Messages to the clients are sent asynchronously. A
@@ -55,43 +52,78 @@ public final class DefaultServer implements Server {
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private final int port;
+	private final Transport transport;
 	private final ServerBootstrap bootstrap;
+	private final ServerBootstrap localBootstrap;
 	private final ChannelContainer channelContainer = new ChannelContainer();
 	private final ServerHandler serverHandler = new ServerHandler(channelContainer);
 
 	private Channel serverChannel;
+	private Channel localServerChannel;
 
 	/**
-	 * Creates a new server instance on the specified port.
+	 * Creates a new server instance on the specified port using the transport configured with the
+	 * system property {@value Transport#SYSTEM_PROPERTY}.
 	 * 
 	 * @param port
 	 *            The port
 	 */
 	public DefaultServer(final int port) {
+		this(port, Transport.fromSystemProperty());
+	}
+
+	/**
+	 * Creates a new server instance on the specified port.
+	 * 
+	 * @param port
+	 *            The port
+	 * @param transport
+	 *            The transport
+	 */
+	public DefaultServer(final int port, final Transport transport) {
+		this(port, transport, false);
+	}
+
+	/**
+	 * Creates a new server instance on the specified port.
+	 * 
+	 * @param port
+	 *            The port
+	 * @param transport
+	 *            The transport
+	 * @param localAccess
+	 *            if {@code true}, the server additionally accepts connections from clients in the
+	 *            same VM using {@link Transport#LOCAL}
+	 */
+	public DefaultServer(final int port, final Transport transport, final boolean localAccess) {
 		this.port = port;
+		this.transport = transport;
 
+		bootstrap = createBootstrap(transport);
+		localBootstrap = localAccess && transport != Transport.LOCAL ? createBootstrap(Transport.LOCAL) : null;
+	}
+
+	private ServerBootstrap createBootstrap(final Transport bootstrapTransport) {
 		// Configure the server.
-		bootstrap = new ServerBootstrap(
-				new OioServerSocketChannelFactory(
-						Executors.newCachedThreadPool(new DaemonThreadFactory()),
-						Executors.newCachedThreadPool(new DaemonThreadFactory())));
+		ServerBootstrap serverBootstrap = new ServerBootstrap(bootstrapTransport.createServerChannelFactory());
 
 		// Set up the pipeline factory.
-		bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+		serverBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
 			@Override
 			public ChannelPipeline getPipeline() throws Exception {
 				return Channels.pipeline(
-						new ObjectEncoder(ENCODER_ESTIMATED_LENGTH), // 1 MB default size
-						new ObjectDecoder(DECODER_ESTIMATED_LENGTH, ClassResolvers.weakCachingResolver(null)), // 20 MB max. size - should be largely sufficient
+						new PayloadEncoder(ENCODER_ESTIMATED_LENGTH), // 1 MB default size
+						new PayloadDecoder(DECODER_ESTIMATED_LENGTH, ClassResolvers.weakCachingResolver(null)), // 20 MB max. size - should be largely sufficient
 						new ServerHandshakeHandler(channelContainer, HANDSHAKE_TIMEOUT_MILLIS),
 						serverHandler);
 			}
 		});
 
-		bootstrap.setOption("tcpNoDelay", true);
-		bootstrap.setOption("keepAlive", true);
-		bootstrap.setOption("child.tcpNoDelay", true);
-		bootstrap.setOption("child.keepAlive", true);
+		serverBootstrap.setOption("tcpNoDelay", true);
+		serverBootstrap.setOption("keepAlive", true);
+		serverBootstrap.setOption("child.tcpNoDelay", true);
+		serverBootstrap.setOption("child.keepAlive", true);
+		return serverBootstrap;
 	}
 
 	@Override
@@ -99,8 +131,13 @@ public final class DefaultServer implements Server {
 		checkArgument(serverChannel == null, "Server channel already assigned.");
 
 		// Bind and start to accept incoming connections.
-		serverChannel = bootstrap.bind(new InetSocketAddress(port));
-		log.info("Successfully bound server to port {}", port);
+		serverChannel = bootstrap.bind(transport.createServerAddress(port));
+		log.info("Successfully bound server to port {} using transport {}", port, transport);
+
+		if (localBootstrap != null) {
+			localServerChannel = localBootstrap.bind(Transport.LOCAL.createServerAddress(port));
+			log.info("Accepting connections from the same VM using transport {}", Transport.LOCAL);
+		}
 	}
 
 	@Override
@@ -114,6 +151,9 @@ public final class DefaultServer implements Server {
 			if (serverChannel != null && serverChannel.isOpen()) {
 				serverChannel.close().awaitUninterruptibly(CHANNEL_CLOSING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 			}
+			if (localServerChannel != null && localServerChannel.isOpen()) {
+				localServerChannel.close().awaitUninterruptibly(CHANNEL_CLOSING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
 			for (Channel channel : channelContainer.getChannels()) {
 				if (channel.isOpen()) {
 					channel.close().awaitUninterruptibly(CHANNEL_CLOSING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
@@ -121,7 +161,11 @@ public final class DefaultServer implements Server {
 			}
 		} finally {
 			serverChannel = null;
+			localServerChannel = null;
 			bootstrap.releaseExternalResources();
+			if (localBootstrap != null) {
+				localBootstrap.releaseExternalResources();
+			}
 		}
 	}
 
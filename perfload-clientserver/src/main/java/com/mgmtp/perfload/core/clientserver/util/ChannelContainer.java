@@ -64,6 +64,20 @@ public class ChannelContainer {
 		channels.inverse().remove(channel);
 	}
 
+	/**
+	 * Changes the id of a channel that has already been added.
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @param newId
+	 *            the new id
+	 */
+	public synchronized void renameChannel(final Channel channel, final String newId) {
+		checkArgument(!channels.containsKey(newId), "A channel with clientId " + newId + " has already been added.");
+		checkArgument(channels.inverse().remove(channel) != null, "Channel has not been added: " + channel);
+		channels.put(newId, channel);
+	}
+
 	/**
 	 * Gets the channel with the specified id.
 	 * 
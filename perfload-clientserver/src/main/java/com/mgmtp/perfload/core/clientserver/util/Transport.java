@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.util;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ServerChannelFactory;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.jboss.netty.channel.local.DefaultLocalServerChannelFactory;
+import org.jboss.netty.channel.local.LocalAddress;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.channel.socket.oio.OioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.oio.OioServerSocketChannelFactory;
+
+/**
+ * <p>
+ * The transport used for the communication between console, daemons, and test processes.
+ * </p>
+ * <p>
+ * The transport may be selected with the system property {@value #SYSTEM_PROPERTY}, e. g.
+ * {@code -Dperfload.transport=nio}. {@link #OIO} is the default.
+ * </p>
+ * 
+ * @author agent
+ */
+public enum Transport {
+
+	/**
+	 * Blocking I/O using one thread per connection.
+	 */
+	OIO {
+		@Override
+		public ServerChannelFactory createServerChannelFactory() {
+			return new OioServerSocketChannelFactory(
+					Executors.newCachedThreadPool(new DaemonThreadFactory()),
+					Executors.newCachedThreadPool(new DaemonThreadFactory()));
+		}
+
+		@Override
+		public ChannelFactory createClientChannelFactory() {
+			return new OioClientSocketChannelFactory(Executors.newCachedThreadPool(new DaemonThreadFactory()));
+		}
+	},
+
+	/**
+	 * Non-blocking I/O multiplexing all connections on a small, fixed number of selector threads
+	 * (epoll on Linux). Message listeners are called on these threads, so they must not block for
+	 * a long time, because this would delay messages of other connections.
+	 */
+	NIO {
+		@Override
+		public ServerChannelFactory createServerChannelFactory() {
+			return new NioServerSocketChannelFactory(
+					Executors.newCachedThreadPool(new DaemonThreadFactory()),
+					Executors.newCachedThreadPool(new DaemonThreadFactory()));
+		}
+
+		@Override
+		public ChannelFactory createClientChannelFactory() {
+			// A client has a single connection, so a single worker thread is sufficient.
+			return new NioClientSocketChannelFactory(
+					Executors.newCachedThreadPool(new DaemonThreadFactory()),
+					Executors.newCachedThreadPool(new DaemonThreadFactory()), 1, 1);
+		}
+	},
+
+	/**
+	 * In-memory transport between a server and clients running in the same VM. Messages are passed
+	 * on in the thread writing them, without any socket or selector involved. The port only serves
+	 * as the name of the server's address.
+	 */
+	LOCAL {
+		@Override
+		public ServerChannelFactory createServerChannelFactory() {
+			return new DefaultLocalServerChannelFactory();
+		}
+
+		@Override
+		public ChannelFactory createClientChannelFactory() {
+			return new DefaultLocalClientChannelFactory();
+		}
+
+		@Override
+		public SocketAddress createServerAddress(final int port) {
+			return new LocalAddress(LOCAL_ADDRESS_PREFIX + port);
+		}
+
+		@Override
+		public SocketAddress createClientAddress(final String host, final int port) {
+			return new LocalAddress(LOCAL_ADDRESS_PREFIX + port);
+		}
+	};
+
+	private static final String LOCAL_ADDRESS_PREFIX = "perfload-";
+
+	/**
+	 * The system property for selecting the transport.
+	 */
+	public static final String SYSTEM_PROPERTY = "perfload.transport";
+
+	/**
+	 * @return a new factory for server channels, which must be released after use
+	 */
+	public abstract ServerChannelFactory createServerChannelFactory();
+
+	/**
+	 * @return a new factory for client channels, which must be released after use
+	 */
+	public abstract ChannelFactory createClientChannelFactory();
+
+	/**
+	 * @param port
+	 *            the server port
+	 * @return the address a server binds to
+	 */
+	public SocketAddress createServerAddress(final int port) {
+		return new InetSocketAddress(port);
+	}
+
+	/**
+	 * @param host
+	 *            the server host
+	 * @param port
+	 *            the server port
+	 * @return the address a client connects to
+	 */
+	public SocketAddress createClientAddress(final String host, final int port) {
+		return new InetSocketAddress(host, port);
+	}
+
+	/**
+	 * Returns the transport configured with the system property {@value #SYSTEM_PROPERTY}, or
+	 * {@link #OIO} if the property is not set.
+	 * 
+	 * @return the transport
+	 * @throws IllegalArgumentException
+	 *             if the property value is not the name of a transport
+	 */
+	public static Transport fromSystemProperty() {
+		String value = System.getProperty(SYSTEM_PROPERTY);
+		return value == null ? OIO : valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+	}
+}
@@ -29,6 +29,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Predicates;
@@ -39,6 +41,7 @@ import com.mgmtp.perfload.core.clientserver.server.DefaultServer;
 import com.mgmtp.perfload.core.clientserver.server.Server;
 import com.mgmtp.perfload.core.clientserver.server.ServerMessageListener;
 import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 
 /**
  * @author rnaegele
@@ -48,10 +51,23 @@ public class ClientServerTest {
 	private final Logger log = LoggerFactory.getLogger(getClass());
 
 	private static final int PORT = 4242;
-	private final Server server = new DefaultServer(PORT);
+	private final Transport transport;
+	private Server server;
+
+	@Factory(dataProvider = "transports")
+	public ClientServerTest(final Transport transport) {
+		this.transport = transport;
+	}
+
+	@DataProvider
+	public static Object[][] transports() {
+		return new Object[][] { { Transport.OIO }, { Transport.NIO }, { Transport.LOCAL } };
+	}
 
 	@BeforeMethod
 	public void startServer() {
+		// A server cannot be bound again after shutdown
+		server = new DefaultServer(PORT, transport);
 		server.bind();
 	}
 
@@ -86,15 +102,15 @@ public class ClientServerTest {
 
 		server.addServerMessageListener(serverListener);
 
-		final Client consoleClient = new DefaultClient("console", "localhost", PORT);
+		final Client consoleClient = new DefaultClient("console", "localhost", PORT, transport);
 		consoleClient.addClientMessageListener(clientListener);
 		assertEquals("console", consoleClient.getClientId());
 
-		final Client client1 = new DefaultClient("testproc1", "localhost", PORT);
+		final Client client1 = new DefaultClient("testproc1", "localhost", PORT, transport);
 		client1.addClientMessageListener(clientListener);
 		assertEquals("testproc1", client1.getClientId());
 
-		final Client client2 = new DefaultClient("testproc2", "localhost", PORT);
+		final Client client2 = new DefaultClient("testproc2", "localhost", PORT, transport);
 		client2.addClientMessageListener(clientListener);
 		assertEquals("testproc2", client2.getClientId());
 
@@ -137,4 +153,35 @@ public class ClientServerTest {
 		assertFalse(client1.isConnected());
 		assertFalse(client2.isConnected());
 	}
+
+	@Test
+	public void testLocalAccess() throws InterruptedException {
+		final CountDownLatch serverLatch = new CountDownLatch(2);
+		Server localAccessServer = new DefaultServer(PORT + 1, transport, true);
+		localAccessServer.addServerMessageListener(new ServerMessageListener() {
+			@Override
+			public void messageReceived(final ChannelHandlerContext ctx, final ChannelContainer channelContainer,
+					final MessageEvent e) {
+				serverLatch.countDown();
+			}
+		});
+		localAccessServer.bind();
+		try {
+			Client client = new DefaultClient("testproc1", "localhost", PORT + 1, transport);
+			Client localClient = new DefaultClient("testproc2", "localhost", PORT + 1, Transport.LOCAL);
+			client.connect();
+			localClient.connect();
+			assertTrue(client.isConnected());
+			assertTrue(localClient.isConnected());
+
+			client.sendMessage("foo");
+			localClient.sendMessage("foo");
+			assertTrue(serverLatch.await(1L, TimeUnit.SECONDS));
+
+			client.disconnect();
+			localClient.disconnect();
+		} finally {
+			localAccessServer.shutdown();
+		}
+	}
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+import com.mgmtp.perfload.core.common.util.StatusInfoType;
+
+/**
+ * Benchmark comparing the {@link PayloadCodec} with Java serialization for a typical status
+ * message, which is the most frequent message sent by test processes. Each benchmark encodes and
+ * decodes one message. Run with {@link #main(String[])}, which also prints the encoded sizes.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadCodecBenchmark {
+
+	final Payload payload = createPayload();
+	final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(256);
+
+	@Benchmark
+	public Object binary() throws Exception {
+		buffer.clear();
+		PayloadCodec.encode(payload, buffer);
+		return PayloadCodec.decode(buffer);
+	}
+
+	@Benchmark
+	public Object serialization() throws IOException, ClassNotFoundException {
+		byte[] bytes = serialize(payload);
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return ois.readObject();
+		}
+	}
+
+	static Payload createPayload() {
+		StatusInfo statusInfo = new StatusInfo.Builder(StatusInfoType.RUN_FINISHED, 3, 2)
+				.threadId(42)
+				.operation("myOperation")
+				.target("myTarget")
+				.error(false)
+				.activeThreads(100)
+				.finished(true)
+				.build();
+		return new Payload(PayloadType.STATUS, statusInfo);
+	}
+
+	static byte[] serialize(final Object object) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(object);
+		}
+		return baos.toByteArray();
+	}
+
+	public static void main(final String[] args) throws RunnerException, IOException {
+		Payload payload = createPayload();
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		PayloadCodec.encode(payload, buffer);
+		System.out.printf("Encoded size: binary=%d bytes, serialization=%d bytes%n", buffer.readableBytes(),
+				serialize(payload).length);
+
+		new Runner(new OptionsBuilder().include(PayloadCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.clientserver.codec;
+
+import static com.mgmtp.perfload.core.common.util.LtUtils.toDefaultString;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.serialization.ClassResolvers;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.config.LoadProfileEvent;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+import com.mgmtp.perfload.core.common.config.ProcessKey;
+import com.mgmtp.perfload.core.common.config.TestConfig;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
+import com.mgmtp.perfload.core.common.util.PropertiesMap;
+import com.mgmtp.perfload.core.common.util.StatusInfo;
+import com.mgmtp.perfload.core.common.util.StatusInfoType;
+
+/**
+ * @author agent
+ */
+public class PayloadCodecTest {
+
+	@DataProvider(name = "payloads")
+	public Object[][] createPayloads() {
+		StatusInfo fullStatusInfo = new StatusInfo.Builder(StatusInfoType.RUN_FINISHED, 3, 2)
+				.threadId(42)
+				.operation("myOperation")
+				.target("myTarget")
+				.error(true)
+				.activeThreads(17)
+				.throwable(new IllegalStateException("äöü"))
+				.finished(false)
+				.build();
+		StatusInfo sparseStatusInfo = new StatusInfo.Builder(StatusInfoType.RUN_STARTED, 1, null).build();
+
+		return new Object[][] {
+				{ new Payload(PayloadType.ABORT) },
+				{ new Payload(PayloadType.STATUS, fullStatusInfo) },
+				{ new Payload(PayloadType.STATUS, sparseStatusInfo) },
+				{ new Payload(PayloadType.STATUS_BATCH, new StatusInfo[] { fullStatusInfo, sparseStatusInfo }) },
+				{ new Payload(PayloadType.CREATE_TEST_PROC, new ProcessConfig(4, 2, asList("-Xmx1g", "-Dfoo=bar"))) },
+				{ new Payload(PayloadType.TEST_PROC_STARTED, new ProcessConfig(4, 2, asList("-Xmx1g"), "node1 cpus 16-31")) },
+				{ new Payload(PayloadType.TEST_PROC_READY, new ProcessKey(2, 4)) },
+				{ new Payload(PayloadType.CLIENT_COUNT, -1) },
+				{ new Payload(PayloadType.CLIENT_COUNT, Integer.MAX_VALUE) },
+				{ new Payload(PayloadType.ERROR, "some error") },
+				{ new Payload(PayloadType.JAR_CHUNK, new TestJarChunk("abc123", 1L << 33, new byte[] { 1, -1, 0, 42 })) },
+				{ new Payload(PayloadType.START, Long.MIN_VALUE) },
+				{ new Payload(PayloadType.TIME_SYNC, new long[] { 1L, System.nanoTime(), -1L }) }
+		};
+	}
+
+	@Test(dataProvider = "payloads")
+	public void testRoundTrip(final Payload payload) throws Exception {
+		assertTrue(PayloadCodec.canEncode(payload));
+		Payload decoded = roundTrip(payload);
+
+		assertEquals(decoded.getPayloadType(), payload.getPayloadType());
+		Object content = payload.getContent();
+		Object decodedContent = decoded.getContent();
+		if (content == null) {
+			assertNull(decodedContent);
+		} else if (content instanceof Integer || content instanceof Long || content instanceof String
+				|| content instanceof ProcessKey) {
+			assertEquals(decodedContent, content);
+		} else if (content instanceof long[]) {
+			assertEquals(decodedContent, content);
+		} else if (content instanceof TestJarChunk) {
+			TestJarChunk chunk = (TestJarChunk) content;
+			TestJarChunk decodedChunk = (TestJarChunk) decodedContent;
+			assertEquals(decodedChunk.getChecksum(), chunk.getChecksum());
+			assertEquals(decodedChunk.getOffset(), chunk.getOffset());
+			assertEquals(decodedChunk.getData(), chunk.getData());
+		} else {
+			assertEquals(toDefaultString(decodedContent), toDefaultString(content));
+		}
+	}
+
+	@Test
+	public void testTestConfigRoundTrip() throws Exception {
+		PropertiesMap properties = new PropertiesMap(ImmutableMap.of("foo", "bar", "baz", ""));
+		LoadProfileEvent event = new LoadProfileEvent(-5L, "op", null, 2, 4);
+		TestConfig testConfig = new TestConfig(4, "com.example.TestModule", properties, asList(event, event));
+
+		TestConfig decoded = roundTrip(new Payload(PayloadType.CONFIG, testConfig)).getContent();
+		assertEquals(decoded.getProcessId(), 4);
+		assertEquals(decoded.getGuiceModule(), "com.example.TestModule");
+		assertEquals(decoded.getProperties(), properties);
+		assertEquals(decoded.getLoadProfileEvents().size(), 2);
+		assertEquals(toDefaultString(decoded.getLoadProfileEvents().get(1)), toDefaultString(event));
+	}
+
+	@Test
+	public void testUnsupportedContent() {
+		assertFalse(PayloadCodec.canEncode(new Payload(PayloadType.JAR, new ArrayList<>(asList("foo")))));
+		assertFalse(PayloadCodec.canEncode("foo"));
+		assertFalse(PayloadCodec.canEncode(null));
+	}
+
+	@Test
+	public void testEncoderFallsBackToSerialization() {
+		PayloadEncoder encoder = new PayloadEncoder(256);
+		encoder.enableBinaryCodec();
+		EncoderEmbedder<ChannelBuffer> encoderEmbedder = new EncoderEmbedder<>(encoder);
+		DecoderEmbedder<Object> decoderEmbedder = new DecoderEmbedder<>(
+				new PayloadDecoder(1024 * 1024, ClassResolvers.softCachingResolver(null)));
+
+		Payload binary = new Payload(PayloadType.STATUS, new ProcessKey(1, 2));
+		Payload serialized = new Payload(PayloadType.JAR, new ArrayList<>(asList("foo")));
+		encoderEmbedder.offer(binary);
+		encoderEmbedder.offer(serialized);
+		ChannelBuffer binaryFrame = encoderEmbedder.poll();
+		ChannelBuffer serializedFrame = encoderEmbedder.poll();
+		assertEquals(binaryFrame.getByte(4), PayloadDecoder.BINARY_MARKER);
+		assertEquals(serializedFrame.getByte(4), (byte) 5);
+
+		// both frames in a single buffer split at an arbitrary position
+		ChannelBuffer frames = ChannelBuffers.wrappedBuffer(binaryFrame, serializedFrame);
+		decoderEmbedder.offer(frames.slice(0, 3));
+		decoderEmbedder.offer(frames.slice(3, frames.readableBytes() - 3));
+
+		Payload decodedBinary = (Payload) decoderEmbedder.poll();
+		Payload decodedSerialized = (Payload) decoderEmbedder.poll();
+		assertEquals(decodedBinary.getContent(), new ProcessKey(1, 2));
+		assertEquals(decodedSerialized.getPayloadType(), PayloadType.JAR);
+		assertEquals(decodedSerialized.getContent(), asList("foo"));
+	}
+
+	private static Payload roundTrip(final Payload payload) throws Exception {
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		PayloadCodec.encode(payload, buffer);
+		Payload decoded = PayloadCodec.decode(buffer);
+		assertFalse(buffer.readable());
+		return decoded;
+	}
+}
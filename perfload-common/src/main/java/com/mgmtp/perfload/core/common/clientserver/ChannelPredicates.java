@@ -25,6 +25,7 @@ import com.google.common.base.Predicate;
 public final class ChannelPredicates {
 	static final String CONSOLE = "console";
 	static final String TESTPROC = "testproc";
+	static final String POOLED = "pooled";
 
 	private ChannelPredicates() {
 		// don't allow instantiation
@@ -48,6 +49,16 @@ public final class ChannelPredicates {
 		return startsWith(TESTPROC);
 	}
 
+	/**
+	 * Creates a new Predicate for channels of pre-started test processes that have not been
+	 * assigned to a test process yet.
+	 * 
+	 * @return a {@link Predicate} which applies to channels whose id starts with "pooled".
+	 */
+	public static Predicate<String> isPooledChannel() {
+		return startsWith(POOLED);
+	}
+
 	private static Predicate<String> startsWith(final String prefix) {
 		return new StartsWithPredicate(prefix);
 	}
@@ -33,10 +33,14 @@ public enum PayloadType {
 	/** Configuration is sent to the daemons that send the relevant parts on to the test processes. */
 	CONFIG,
 
-	/** Jars are sent to the daemons */
+	/** Sent by a daemon to the console when all jars of the current manifest are available. */
 	JAR,
 
-	/** The start of the test is triggered. */
+	/**
+	 * The start of the test is triggered. The content may be the instant the test is to start at
+	 * in nanoseconds since the epoch (see {@link com.mgmtp.perfload.core.common.util.LtUtils#currentTimeNanos()})
+	 * according to the receiver's clock. Without content, the test starts immediately.
+	 */
 	START,
 
 	/** Status information is sent by the processes. */
@@ -73,5 +77,47 @@ public enum PayloadType {
 	/**
 	 * Provides the number of connected clients.
 	 */
-	CLIENT_COUNT;
+	CLIENT_COUNT,
+
+	/**
+	 * Status information is sent by the processes as an array of status objects. Passed on to the
+	 * console as is.
+	 */
+	STATUS_BATCH,
+
+	/**
+	 * The list of test jars is sent to the daemons. Daemons answer with {@link #JAR_REQUEST} or,
+	 * if they already have all jars, with {@link #JAR}.
+	 */
+	JAR_MANIFEST,
+
+	/**
+	 * Sent by a daemon to the console requesting the jars it does not have yet.
+	 */
+	JAR_REQUEST,
+
+	/**
+	 * A chunk of a requested jar is sent to a daemon.
+	 */
+	JAR_CHUNK,
+
+	/**
+	 * Sent by the console to a daemon in order to estimate the offset between their clocks. The
+	 * content is a {@code long[]}. The daemon sends it back with its current time according to
+	 * {@link com.mgmtp.perfload.core.common.util.LtUtils#currentTimeNanos()} appended.
+	 */
+	TIME_SYNC,
+
+	/**
+	 * Sent by a pre-started test process to the daemon when it has warmed up and is ready to be
+	 * assigned to a test process. The content is the process' pool slot.
+	 */
+	TEST_PROC_POOLED,
+
+	/**
+	 * Sent by the daemon to a pre-started test process in order to turn it into a regular test
+	 * process. The content is the array of command-line arguments the process would otherwise have
+	 * been started with.
+	 */
+	TEST_PROC_ASSIGN;
 }
@@ -34,6 +34,7 @@ public class ProcessConfig implements Serializable {
 	private final int processId;
 	private final int daemonId;
 	private final List<String> jvmArgs;
+	private final String placement;
 
 	/**
 	 * @param processId
@@ -44,6 +45,21 @@ public class ProcessConfig implements Serializable {
 	 *            a list of VM arguments for the Java process
 	 */
 	public ProcessConfig(final int processId, final int daemonId, final List<String> jvmArgs) {
+		this(processId, daemonId, jvmArgs, null);
+	}
+
+	/**
+	 * @param processId
+	 *            the 1-based integer id of the process
+	 * @param daemonId
+	 *            the 1-based integer id of the daemon that starts the process
+	 * @param jvmArgs
+	 *            a list of VM arguments for the Java process
+	 * @param placement
+	 *            a description of the CPUs and memory the daemon has placed the process on, may be
+	 *            {@code null}
+	 */
+	public ProcessConfig(final int processId, final int daemonId, final List<String> jvmArgs, final String placement) {
 		checkArgument(processId > 0, "'processId' must be an integer value greater than 0.");
 		checkArgument(daemonId > 0, "'daemonId' must be an integer value greater than 0.");
 		checkArgument(jvmArgs != null, "'jvmArgs' must not be null.");
@@ -51,6 +67,7 @@ public class ProcessConfig implements Serializable {
 		this.processId = processId;
 		this.daemonId = daemonId;
 		this.jvmArgs = ImmutableList.copyOf(jvmArgs);
+		this.placement = placement;
 	}
 
 	public int getProcessId() {
@@ -68,6 +85,23 @@ public class ProcessConfig implements Serializable {
 		return jvmArgs;
 	}
 
+	/**
+	 * @return a description of the CPUs and memory the daemon has placed the process on, or
+	 *         {@code null} if the process has not been placed
+	 */
+	public String getPlacement() {
+		return placement;
+	}
+
+	/**
+	 * @param newPlacement
+	 *            the placement description, may be {@code null}
+	 * @return a copy of this config with the specified placement
+	 */
+	public ProcessConfig withPlacement(final String newPlacement) {
+		return new ProcessConfig(processId, daemonId, jvmArgs, newPlacement);
+	}
+
 	@Override
 	public String toString() {
 		return toDefaultString(this);
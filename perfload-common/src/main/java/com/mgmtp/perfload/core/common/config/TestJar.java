@@ -16,50 +16,100 @@
 package com.mgmtp.perfload.core.common.config;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.util.Arrays.copyOf;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Arrays;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 /**
- * Represents a jar file needed by a test process.
+ * Represents a jar file needed by a test process. Jars are identified by the SHA-256 checksum of
+ * their content, which allows daemons to cache them across test runs. The content itself is not
+ * part of this object. It is transferred in {@link TestJarChunk}s read from the local file, which
+ * is only available on the console.
  * 
  * @author rnaegele
  */
 public class TestJar implements Serializable {
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	private final String name;
-	private final byte[] content;
+	private final String checksum;
+	private final long size;
+	private final transient File file;
 
 	/**
 	 * @param name
 	 *            the file name
-	 * @param content
-	 *            the content of the file
+	 * @param checksum
+	 *            the hex-encoded SHA-256 checksum of the file content
+	 * @param size
+	 *            the size of the file in bytes
+	 * @param file
+	 *            the local file; may be {@code null}
 	 */
-	public TestJar(final String name, final byte[] content) {
+	public TestJar(final String name, final String checksum, final long size, final File file) {
 		checkArgument(name != null, "'name' must not be null.");
-		checkArgument(content != null && content.length > 0, "'content' must not be null or empty.");
+		checkArgument(checksum != null, "'checksum' must not be null.");
+		checkArgument(size > 0, "'size' must be greater than 0.");
 
 		this.name = name;
-		this.content = copyOf(content, content.length);
+		this.checksum = checksum;
+		this.size = size;
+		this.file = file;
+	}
+
+	/**
+	 * Creates a test jar for the specified file computing its checksum.
+	 * 
+	 * @param name
+	 *            the file name
+	 * @param file
+	 *            the file
+	 * @return the test jar
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static TestJar fromFile(final String name, final File file) throws IOException {
+		String checksum = Files.asByteSource(file).hash(Hashing.sha256()).toString();
+		return new TestJar(name, checksum, file.length(), file);
 	}
 
 	public String getName() {
 		return name;
 	}
 
-	public byte[] getContent() {
-		return copyOf(content, content.length);
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the local file, or {@code null} if this object was received from a remote process
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the name of the file in a content-addressed cache, which is derived from the checksum
+	 */
+	public String getCacheFileName() {
+		return checksum + ".jar";
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(content);
+		result = prime * result + checksum.hashCode();
 		result = prime * result + name.hashCode();
+		result = prime * result + (int) (size ^ size >>> 32);
 		return result;
 	}
 
@@ -75,12 +125,20 @@ public class TestJar implements Serializable {
 			return false;
 		}
 		TestJar other = (TestJar) obj;
-		if (!Arrays.equals(content, other.content)) {
+		if (!checksum.equals(other.checksum)) {
 			return false;
 		}
 		if (!name.equals(other.name)) {
 			return false;
 		}
+		if (size != other.size) {
+			return false;
+		}
 		return true;
 	}
+
+	@Override
+	public String toString() {
+		return name + " (" + checksum + ", " + size + " bytes)";
+	}
 }
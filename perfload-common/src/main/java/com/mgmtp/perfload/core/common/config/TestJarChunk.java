@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.common.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+
+/**
+ * A chunk of the content of a {@link TestJar}. Chunks of a jar are sent in order.
+ * <p>
+ * For the sake of performance, the data array is neither copied when the chunk is created nor
+ * when it is accessed. It must not be modified afterwards.
+ * </p>
+ * 
+ * @author agent
+ */
+public class TestJarChunk implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String checksum;
+	private final long offset;
+	private final byte[] data;
+
+	/**
+	 * @param checksum
+	 *            the checksum of the jar the chunk belongs to
+	 * @param offset
+	 *            the offset of the chunk within the jar
+	 * @param data
+	 *            the data of the chunk
+	 */
+	public TestJarChunk(final String checksum, final long offset, final byte[] data) {
+		checkArgument(checksum != null, "'checksum' must not be null.");
+		checkArgument(offset >= 0, "'offset' must not be negative.");
+		checkArgument(data != null && data.length > 0, "'data' must not be null or empty.");
+
+		this.checksum = checksum;
+		this.offset = offset;
+		this.data = data;
+	}
+
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return checksum + " [" + offset + ", " + (offset + data.length) + ")";
+	}
+}
@@ -18,7 +18,6 @@ package com.mgmtp.perfload.core.common.config;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static com.google.common.collect.Lists.newArrayListWithExpectedSize;
 import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
-import static com.google.common.io.Files.toByteArray;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.startsWith;
 
@@ -160,8 +159,7 @@ public class XmlConfigReader {
 		List<TestJar> result = newArrayListWithCapacity(jarElems.size());
 		for (Element jarElem : jarElems) {
 			String fileName = jarElem.getTextTrim();
-			byte[] jarBytes = toByteArray(new File(jarDir, fileName));
-			result.add(new TestJar(fileName, jarBytes));
+			result.add(TestJar.fromFile(fileName, new File(jarDir, fileName)));
 		}
 		return ImmutableList.copyOf(result);
 	}
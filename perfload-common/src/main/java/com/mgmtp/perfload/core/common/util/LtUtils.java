@@ -15,6 +15,9 @@
  */
 package com.mgmtp.perfload.core.common.util;
 
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
@@ -41,6 +44,51 @@ public final class LtUtils {
 		}
 	}
 
+	/**
+	 * Returns the current wall-clock time in nanoseconds since the epoch. The value is taken from
+	 * {@link Instant#now()} and thus advances in steps of {@link #wallClockGranularityNanos()},
+	 * which is typically a microsecond or less since Java 9, but a millisecond on Java 8. Use
+	 * {@link System#nanoTime()} for measuring short intervals.
+	 * 
+	 * @return the current time in nanoseconds since the epoch
+	 */
+	public static long currentTimeNanos() {
+		Instant now = Instant.now();
+		return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+	}
+
+	/**
+	 * Returns the smallest step observed by which {@link #currentTimeNanos()} advances. The
+	 * granularity is measured on first use, which takes a few steps of the clock.
+	 * 
+	 * @return the granularity of the wall clock in nanoseconds
+	 */
+	public static long wallClockGranularityNanos() {
+		return WallClockGranularity.NANOS;
+	}
+
+	private static final class WallClockGranularity {
+		private static final long NANOS = measure();
+
+		private static long measure() {
+			long granularity = Long.MAX_VALUE;
+			long previous = currentTimeNanos();
+			// the first step is usually incomplete
+			for (int i = 0; i < 4; ++i) {
+				long now;
+				do {
+					now = currentTimeNanos();
+				} while (now == previous);
+				if (i > 0) {
+					granularity = Math.min(granularity, now - previous);
+				}
+				previous = now;
+			}
+			LOG.debug("Granularity of the wall clock: {} ns", granularity);
+			return granularity;
+		}
+	}
+
 	/**
 	 * Creates a string representation of the specified object using {@link ToStringBuilder} with
 	 * {@link ToStringStyle#SHORT_PREFIX_STYLE}.
@@ -19,6 +19,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
 import org.dom4j.Document;
@@ -52,6 +53,25 @@ public final class Dom4jReader {
 	 */
 	public static Document loadDocument(final InputSource xmlSource, final Source schemaSource, final boolean xIncludeAware,
 			final String encoding) throws ParserConfigurationException, SAXException, DocumentException {
+		return loadDocument(xmlSource, compileSchema(schemaSource), xIncludeAware, encoding);
+	}
+
+	/**
+	 * Creates a DOM4J documents from the specified {@link InputSource} and validates it against the
+	 * given precompiled schema. Compiled schemas are thread-safe, so callers that load many
+	 * documents against the same schema should compile it only once using
+	 * {@link #compileSchema(Source)}.
+	 * 
+	 * @param xmlSource
+	 *            the source for the XML document
+	 * @param schema
+	 *            the compiled schema
+	 * @param xIncludeAware
+	 *            specifies whether XIncludes should be supported
+	 * @return the DOM4J document
+	 */
+	public static Document loadDocument(final InputSource xmlSource, final Schema schema, final boolean xIncludeAware,
+			final String encoding) throws ParserConfigurationException, SAXException, DocumentException {
 
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 		factory.setValidating(true); // turn on validation
@@ -64,8 +84,7 @@ public final class Dom4jReader {
 			factory.setFeature("http://apache.org/xml/features/xinclude/fixup-base-uris", false);
 		}
 
-		SchemaFactory schemaFactory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-		factory.setSchema(schemaFactory.newSchema(schemaSource));
+		factory.setSchema(schema);
 
 		SAXParser parser = factory.newSAXParser();
 		SAXReader reader = new SAXReader(parser.getXMLReader());
@@ -88,4 +107,16 @@ public final class Dom4jReader {
 			throws ParserConfigurationException, SAXException, DocumentException {
 		return loadDocument(xmlSource, schemaSource, true, encoding);
 	}
+
+	/**
+	 * Compiles the given XML schema.
+	 * 
+	 * @param schemaSource
+	 *            the source for the schema
+	 * @return the compiled, thread-safe schema
+	 */
+	public static Schema compileSchema(final Source schemaSource) throws SAXException {
+		SchemaFactory schemaFactory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
+		return schemaFactory.newSchema(schemaSource);
+	}
 }
@@ -15,7 +15,7 @@
  */
 package com.mgmtp.perfload.core.common.config;
 
-import static com.google.common.io.Files.toByteArray;
+import static com.google.common.io.Files.asByteSource;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.entry;
 
@@ -27,6 +27,7 @@ import java.util.Map.Entry;
 import org.fest.assertions.api.GUAVA;
 import org.testng.annotations.Test;
 
+import com.google.common.hash.Hashing;
 import com.mgmtp.perfload.core.common.util.PropertiesMap;
 
 /**
@@ -48,9 +49,12 @@ public class XmlConfigReaderTest {
 
 		for (int j = 0; j < testJars.size(); ++j) {
 			TestJar actual = testJars.get(j);
-			byte[] content = toByteArray(new File("src/test/resources/test-lib/test" + (j + 1) + ".jar"));
-			TestJar expected = new TestJar("test" + (j + 1) + ".jar", content);
+			File file = new File("src/test/resources/test-lib/test" + (j + 1) + ".jar");
+			String checksum = asByteSource(file).hash(Hashing.sha256()).toString();
+			TestJar expected = new TestJar("test" + (j + 1) + ".jar", checksum, file.length(), null);
 			assertThat(actual).isEqualTo(expected);
+			assertThat(actual.getFile()).isEqualTo(file);
+			assertThat(actual.getCacheFileName()).isEqualTo(checksum + ".jar");
 		}
 
 		List<ProcessConfig> processConfigs = config.getProcessConfigs();
@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.testng.annotations.Test;
 
@@ -57,4 +58,12 @@ public class LtUtilsTest {
 			assertThat(ex.getCause()).isInstanceOf(AbortionException.class);
 		}
 	}
+
+	@Test
+	public void testWallClockGranularity() {
+		long granularity = LtUtils.wallClockGranularityNanos();
+		assertThat(granularity).isGreaterThan(0L);
+		// a millisecond on Java 8, about 15 ms on old Windows versions
+		assertThat(granularity).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20L));
+	}
 }
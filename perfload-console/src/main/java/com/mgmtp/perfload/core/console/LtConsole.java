@@ -27,6 +27,7 @@ import com.mgmtp.perfload.core.common.config.ProcessConfig;
 import com.mgmtp.perfload.core.common.config.ProcessKey;
 import com.mgmtp.perfload.core.common.config.TestConfig;
 import com.mgmtp.perfload.core.common.config.TestJar;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
 import com.mgmtp.perfload.core.common.config.TestplanConfig;
 import com.mgmtp.perfload.core.common.config.XmlConfigReader;
 import com.mgmtp.perfload.core.common.util.MemoryInfo;
@@ -38,20 +39,34 @@ import com.mgmtp.perfload.core.console.model.Daemon;
 import com.mgmtp.perfload.core.console.status.FileStatusTransformer;
 import com.mgmtp.perfload.core.console.status.StatusHandler;
 import com.mgmtp.perfload.core.console.status.StatusTransformer;
+import com.mgmtp.perfload.core.console.util.ClockSynchronizer;
+import com.mgmtp.perfload.core.console.util.ClockSynchronizer.ClockOffset;
+import com.mgmtp.perfload.core.console.util.DaemonFanOut;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +74,10 @@ import java.util.concurrent.TimeoutException;
 
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+import static com.mgmtp.perfload.core.common.util.LtUtils.currentTimeNanos;
+import static com.mgmtp.perfload.core.common.util.LtUtils.wallClockGranularityNanos;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
@@ -71,6 +90,9 @@ public final class LtConsole {
 
 	private static final Logger LOG = LoggerFactory.getLogger(LtConsole.class);
 
+	private static final int JAR_CHUNK_SIZE = 512 * 1024;
+	private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(500L);
+
 	private final Map<Integer, Client> clients = newHashMapWithExpectedSize(4);
 
 	private volatile CountDownLatch connectLatch;
@@ -82,6 +104,8 @@ public final class LtConsole {
 	private final TestplanConfig config;
 	private final ExecutorService execService;
 	private final StatusHandler statusHandler = new StatusHandler();
+	private final DaemonFanOut fanOut = new DaemonFanOut(TimeUnit.MINUTES.toMillis(2L));
+	private final ClockSynchronizer clockSynchronizer = new ClockSynchronizer(8, 5000L);
 	private final StatusTransformer statusTransformer;
 	private final LtMetaInfoHandler metaInfoHandler;
 	private final List<Daemon> daemons;
@@ -126,7 +150,7 @@ public final class LtConsole {
 
 		int totalProcessCount = config.getTotalProcessCount();
 		connectLatch = new CountDownLatch(totalProcessCount);
-		jarLatch = new CountDownLatch(daemons.size() * config.getTestJars().size());
+		jarLatch = new CountDownLatch(daemons.size());
 		readyLatch = new CountDownLatch(totalProcessCount);
 		doneLatch = new CountDownLatch(totalProcessCount);
 
@@ -237,6 +261,22 @@ public final class LtConsole {
 					case JAR:
 						jarLatch.countDown();
 						break;
+					case JAR_REQUEST:
+						final String[] checksums = payload.getContent();
+						final Channel channel = e.getChannel();
+						execService.execute(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									streamJars(channel, checksums);
+								} catch (Exception ex) {
+									LOG.error("Error transferring jars", ex);
+									testSuccessful = false;
+									abortTest();
+								}
+							}
+						});
+						break;
 					case TEST_PROC_CONNECTED:
 						connectLatch.countDown();
 						break;
@@ -265,6 +305,9 @@ public final class LtConsole {
 						doneLatch.countDown();
 						break;
 					}
+					case TIME_SYNC:
+						clockSynchronizer.responseReceived(payload.<long[]>getContent());
+						break;
 					case CLIENT_COUNT:
 						int count = payload.getContent();
 						clientCount += count;
@@ -275,6 +318,11 @@ public final class LtConsole {
 						LOG.debug("Received status info: {}", si);
 						statusHandler.addStatusInfo(si);
 						break;
+					case STATUS_BATCH:
+						StatusInfo[] batch = payload.getContent();
+						LOG.debug("Received status info batch: {} entries", batch.length);
+						statusHandler.addStatusInfos(batch);
+						break;
 					default:
 						//
 				}
@@ -292,90 +340,158 @@ public final class LtConsole {
 		}
 	}
 
-	private void connectToDaemons() throws ConnectException {
+	private void connectToDaemons() throws ConnectException, InterruptedException {
 		LOG.info("Connecting to daemons...");
 
-		boolean connected = true;
-		for (Client client : clients.values()) {
-			LOG.info("Connecting to daemon {}", client.getClientId());
-			client.connect();
-			if (!client.isConnected()) {
-				connected = false;
-				LOG.error("Could not connect to daemon: {}", client.getClientId());
-			}
-		}
-
-		if (!connected) {
+		try {
+			fanOut.execute("Connecting", clients, (daemonId, client) -> {
+				LOG.info("Connecting to daemon {}", client.getClientId());
+				client.connect();
+				if (!client.isConnected()) {
+					throw new ConnectException("Could not connect to daemon: " + client.getClientId());
+				}
+				return null;
+			});
+		} catch (ExecutionException | TimeoutException ex) {
 			// set to null so the shutdown hook will not try to abort and disconnect
 			doneLatch = null;
 			throw new ConnectException("Could not connect to at least one daemon.");
 		}
 	}
 
-	private void sendJars() throws InterruptedException, TimeoutException {
-		List<TestJar> testJars = config.getTestJars();
-		if (testJars.isEmpty()) {
-			while (jarLatch.getCount() > 0) {
-				jarLatch.countDown();
+	private void sendJars() throws InterruptedException, ExecutionException, TimeoutException {
+		TestJar[] testJars = config.getTestJars().toArray(new TestJar[0]);
+		fanOut.execute("Sending jar manifest", clients, (daemonId, client) -> {
+			LOG.info("Sending jar manifest to daemon {}", daemonId);
+			// Daemons request the jars they have not cached yet
+			return client.sendMessage(new Payload(PayloadType.JAR_MANIFEST, testJars));
+		});
+	}
+
+	private void streamJars(final Channel channel, final String[] checksums) throws IOException, InterruptedException,
+			TimeoutException {
+		for (String checksum : checksums) {
+			TestJar jar = findTestJar(checksum);
+			LOG.info("Transferring jar file to {}: {}", channel.getRemoteAddress(), jar);
+
+			try (FileChannel fileChannel = FileChannel.open(jar.getFile().toPath(), StandardOpenOption.READ)) {
+				long size = fileChannel.size();
+				for (long position = 0L; position < size;) {
+					// Read directly into the array sent, the chunk does not copy it
+					byte[] data = new byte[(int) Math.min(JAR_CHUNK_SIZE, size - position)];
+					ByteBuffer buffer = ByteBuffer.wrap(data);
+					while (buffer.hasRemaining()) {
+						if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+							throw new EOFException("Jar file was truncated: " + jar.getFile());
+						}
+					}
+
+					// Await sending of the message. Otherwise chunks might pile up in memory causing an OOME.
+					TestJarChunk chunk = new TestJarChunk(checksum, position, data);
+					if (!channel.write(new Payload(PayloadType.JAR_CHUNK, chunk)).await(30L, TimeUnit.SECONDS)) {
+						throw new TimeoutException("Timeout waiting for jar chunk to be sent.");
+					}
+					position += data.length;
+				}
 			}
 		}
+	}
 
-		for (Daemon daemon : daemons) {
-			int daemonId = daemon.getId();
-			LOG.info("Transferring jars to daemon {}", daemonId);
-			Client client = clients.get(daemonId);
-
-			// Send jars separately in order to save memory
-			for (TestJar jar : testJars) {
-				LOG.debug("Transferring jar file: {}", jar.getName());
-				// Await sending of the message. Otherwise jars might pile up in memory causing an OOME.
-				if (!client.sendMessage(new Payload(PayloadType.JAR, jar)).await(30L, TimeUnit.SECONDS)) {
-					throw new TimeoutException("Timeout waiting for jar to be sent.");
-				}
+	private TestJar findTestJar(final String checksum) {
+		for (TestJar jar : config.getTestJars()) {
+			if (jar.getChecksum().equals(checksum)) {
+				return jar;
 			}
 		}
+		throw new IllegalArgumentException("Unknown jar requested: " + checksum);
 	}
 
-	private void createTestProcesses() throws InterruptedException, TimeoutException {
+	private void createTestProcesses() throws InterruptedException, ExecutionException, TimeoutException {
 		awaitLatch(jarLatch, "Timeout waiting for jars to be transferred to daemons.");
 
 		LOG.info("Starting test processes...");
-		for (ProcessConfig pc : config.getProcessConfigs()) {
-			LOG.debug("Starting test process: {}", pc);
-			clients.get(pc.getDaemonId()).sendMessage(new Payload(PayloadType.CREATE_TEST_PROC, pc));
-		}
+		fanOut.execute("Starting test processes", clients, (daemonId, client) -> {
+			ChannelFuture future = null;
+			for (ProcessConfig pc : config.getProcessConfigs()) {
+				if (pc.getDaemonId() == daemonId) {
+					LOG.debug("Starting test process: {}", pc);
+					future = client.sendMessage(new Payload(PayloadType.CREATE_TEST_PROC, pc));
+				}
+			}
+			return future;
+		});
 	}
 
-	private void sendConfiguration() throws InterruptedException, TimeoutException {
+	private void sendConfiguration() throws InterruptedException, ExecutionException, TimeoutException {
 		awaitLatch(connectLatch, "Timeout waiting for configuration to be sent to clients.");
 
 		LOG.info("Transferring test configuration");
-
-		for (Daemon daemon : daemons) {
-			int daemonId = daemon.getId();
-			// Send test config
+		fanOut.execute("Transferring test configuration", clients, (daemonId, client) -> {
 			LOG.debug("Transferring test configuration to daemon {}", daemonId);
-			Client client = clients.get(daemonId);
-
+			ChannelFuture future = null;
 			for (Entry<ProcessKey, TestConfig> entry : config.getTestConfigs().entrySet()) {
 				if (entry.getKey().getDaemonId() == daemonId) {
-					client.sendMessage(new Payload(PayloadType.CONFIG, entry.getValue()));
+					future = client.sendMessage(new Payload(PayloadType.CONFIG, entry.getValue()));
 				}
 			}
-		}
+			return future;
+		});
 	}
 
-	private void runTest() throws InterruptedException, TimeoutException {
+	private void runTest() throws InterruptedException, ExecutionException, TimeoutException {
 		awaitLatch(readyLatch, "Timeout waiting until test is ready to be started.");
 
-		startTimestamp = ZonedDateTime.now();
+		Map<Integer, ClockOffset> clockOffsets = synchronizeClocks();
+		long maxRoundTripNanos = 0L;
+		for (ClockOffset clockOffset : clockOffsets.values()) {
+			maxRoundTripNanos = Math.max(maxRoundTripNanos, clockOffset.getRoundTripNanos());
+		}
+
+		// leave enough time for the START signal to reach all test processes
+		long startInstant = currentTimeNanos() + START_DELAY_NANOS + maxRoundTripNanos;
+		startTimestamp = clockOffsets.isEmpty()
+				? ZonedDateTime.now()
+				: ZonedDateTime.ofInstant(Instant.ofEpochSecond(0L, startInstant), ZoneId.systemDefault());
 		LOG.info("Running test...");
 
-		Payload payload = new Payload(PayloadType.START);
-		for (Client client : clients.values()) {
+		fanOut.execute("Sending START signal", clients, (daemonId, client) -> {
 			LOG.debug("Sending START signal to daemon {}", client.getClientId());
-			client.sendMessage(payload);
+			ClockOffset clockOffset = clockOffsets.get(daemonId);
+			return client.sendMessage(clockOffset != null
+					? new Payload(PayloadType.START, startInstant + clockOffset.getOffsetNanos())
+					: new Payload(PayloadType.START));
+		});
+	}
+
+	private Map<Integer, ClockOffset> synchronizeClocks() throws InterruptedException {
+		LOG.info("Synchronizing clocks (wall clock granularity: {} us)...", NANOSECONDS.toMicros(wallClockGranularityNanos()));
+
+		Map<Integer, ClockOffset> clockOffsets = new ConcurrentHashMap<>();
+		try {
+			fanOut.execute("Synchronizing clocks", clients, (daemonId, client) -> {
+				ClockOffset clockOffset = clockSynchronizer.synchronize(daemonId, client);
+				LOG.info("Clock offset of daemon {}: {} us (round trip: {} us, error: at most {} us)", daemonId,
+						NANOSECONDS.toMicros(clockOffset.getOffsetNanos()), NANOSECONDS.toMicros(clockOffset.getRoundTripNanos()),
+						NANOSECONDS.toMicros(clockOffset.getErrorNanos()));
+				clockOffsets.put(daemonId, clockOffset);
+				return null;
+			});
+		} catch (ExecutionException | TimeoutException ex) {
+			LOG.warn("Could not synchronize clocks. Test processes start when they receive the START signal.", ex);
+			return emptyMap();
+		}
+
+		long minOffset = Long.MAX_VALUE;
+		long maxOffset = Long.MIN_VALUE;
+		long maxError = 0L;
+		for (ClockOffset clockOffset : clockOffsets.values()) {
+			minOffset = Math.min(minOffset, clockOffset.getOffsetNanos());
+			maxOffset = Math.max(maxOffset, clockOffset.getOffsetNanos());
+			maxError = Math.max(maxError, clockOffset.getErrorNanos());
 		}
+		LOG.info("Clock skew between daemons: {} us. Estimated start skew after compensation: at most {} us",
+				NANOSECONDS.toMicros(maxOffset - minOffset), NANOSECONDS.toMicros(2 * maxError));
+		return clockOffsets;
 	}
 
 	private void runStatusTransformer() {
@@ -406,16 +522,24 @@ public final class LtConsole {
 		execService.shutdownNow();
 
 		LOG.info("Disconnecting from daemons...");
-		for (Client client : clients.values()) {
-			LOG.info("Disconnecting from daemon {}", client.getClientId());
-			client.sendMessage(new Payload(PayloadType.CONSOLE_DISCONNECTING));
+		try {
+			fanOut.execute("Disconnecting", clients, (daemonId, client) -> {
+				LOG.info("Disconnecting from daemon {}", client.getClientId());
+				client.sendMessage(new Payload(PayloadType.CONSOLE_DISCONNECTING));
 
-			if (shutdownDaemons) {
-				LOG.info("Shutting down daemon {}", client.getClientId());
-				client.sendMessage(new Payload(PayloadType.SHUTDOWN_DAEMON));
-			}
+				if (shutdownDaemons) {
+					LOG.info("Shutting down daemon {}", client.getClientId());
+					client.sendMessage(new Payload(PayloadType.SHUTDOWN_DAEMON));
+				}
 
-			client.disconnect();
+				client.disconnect();
+				return null;
+			});
+		} catch (ExecutionException | TimeoutException ex) {
+			// Logging is enough here
+			LOG.error(ex.getMessage());
+		} finally {
+			fanOut.shutdown();
 		}
 	}
 
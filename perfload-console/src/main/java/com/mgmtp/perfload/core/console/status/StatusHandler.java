@@ -55,6 +55,24 @@ public class StatusHandler {
 	 *            The status info object
 	 */
 	public void addStatusInfo(final StatusInfo statusInfo) {
+		addStatusInfo(statusInfo, currentTimestamp());
+	}
+
+	/**
+	 * Applies a batch of status info objects in the order given. Thread activities resulting from
+	 * the batch share the same timestamp.
+	 * 
+	 * @param statusInfos
+	 *            The status info objects
+	 */
+	public void addStatusInfos(final StatusInfo... statusInfos) {
+		String timestamp = currentTimestamp();
+		for (StatusInfo statusInfo : statusInfos) {
+			addStatusInfo(statusInfo, timestamp);
+		}
+	}
+
+	private void addStatusInfo(final StatusInfo statusInfo, final String timestamp) {
 		StatusInfoKey key = new StatusInfoKey(statusInfo.getDaemonId(), statusInfo.getProcessId(), statusInfo.getThreadId());
 		StatusInfo si = statusInfoMap.get(key);
 
@@ -65,12 +83,12 @@ public class StatusHandler {
 				// Another thread was faster and we already have an entry for this key.
 				// So we recursively call this method to update the existing entry.
 				log.debug("Recursively updating status info: {}", statusInfo);
-				addStatusInfo(statusInfo);
+				addStatusInfo(statusInfo, timestamp);
 			} else {
-				addThreadActivity(statusInfo.getDaemonId(), statusInfo.getProcessId(), statusInfo.getActiveThreads());
+				addThreadActivity(statusInfo.getDaemonId(), statusInfo.getProcessId(), statusInfo.getActiveThreads(), timestamp);
 			}
 		} else {
-			log.debug("Updating status info {}:" + statusInfo);
+			log.debug("Updating status info: {}", statusInfo);
 
 			if (statusInfo.getType() == StatusInfoType.PROCESS_FINISHED) {
 				final Integer daemonId = statusInfo.getDaemonId();
@@ -93,7 +111,7 @@ public class StatusHandler {
 							.build();
 					updates.put(entry.getKey(), siNew);
 
-					addThreadActivity(siNew.getDaemonId(), siNew.getProcessId(), 0);
+					addThreadActivity(siNew.getDaemonId(), siNew.getProcessId(), 0, timestamp);
 				}
 
 				statusInfoMap.putAll(updates);
@@ -109,7 +127,12 @@ public class StatusHandler {
 		}
 	}
 
-	private void addThreadActivity(final Integer daemonId, final Integer processId, final int activeThreads) {
+	private static String currentTimestamp() {
+		return TIMESTAMP_FORMAT.format(Calendar.getInstance());
+	}
+
+	private void addThreadActivity(final Integer daemonId, final Integer processId, final int activeThreads,
+			final String timestamp) {
 		StatusInfoKey key = new StatusInfoKey(daemonId, processId, null);
 
 		Deque<ThreadActivity> taDeque = threadActivities.get(key);
@@ -120,7 +143,6 @@ public class StatusHandler {
 				taDeque = newDeque;
 			}
 		}
-		String timestamp = TIMESTAMP_FORMAT.format(Calendar.getInstance());
 		taDeque.offerLast(new ThreadActivity(daemonId, processId, activeThreads, timestamp));
 	}
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.console.util;
+
+import static com.mgmtp.perfload.core.common.util.LtUtils.currentTimeNanos;
+import static com.mgmtp.perfload.core.common.util.LtUtils.wallClockGranularityNanos;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+
+/**
+ * Estimates the offsets between the clock of the console and the clocks of the daemons using
+ * NTP-style {@link PayloadType#TIME_SYNC} exchanges over the existing channels. For each exchange,
+ * the console records the send time {@code t0} and the receive time {@code t2}, while the daemon
+ * adds its own time {@code t1}. Assuming symmetric network delays, the daemon's clock is ahead of
+ * the console's by {@code t1 - (t0 + t2) / 2} with an error of at most half the round trip time.
+ * The exchange with the shortest round trip is used.
+ * <p>
+ * The wall clock may be coarse (a millisecond on Java 8), so the console reads it only once per
+ * synchronization and derives {@code t0} and {@code t2} from {@link System#nanoTime()}. The
+ * daemon's time {@code t1} and the console's reading of the wall clock are still subject to the
+ * wall clock's granularity, which is added to the error of the estimate.
+ * 
+ * @author agent
+ */
+public class ClockSynchronizer {
+
+	private final ConcurrentMap<Integer, BlockingQueue<long[]>> responses = new ConcurrentHashMap<>();
+	private final int exchanges;
+	private final long timeoutMillis;
+
+	/**
+	 * @param exchanges
+	 *            the number of exchanges per daemon
+	 * @param timeoutMillis
+	 *            the maximum time in milliseconds to wait for each response
+	 */
+	public ClockSynchronizer(final int exchanges, final long timeoutMillis) {
+		this.exchanges = exchanges;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Estimates the clock offset of a daemon. Must not be called concurrently for the same daemon.
+	 * 
+	 * @param daemonId
+	 *            the id of the daemon
+	 * @param client
+	 *            the client connected to the daemon
+	 * @return the estimated offset
+	 * @throws TimeoutException
+	 *             if the daemon did not respond in time
+	 */
+	public ClockOffset synchronize(final int daemonId, final Client client) throws InterruptedException, TimeoutException {
+		BlockingQueue<long[]> queue = getQueue(daemonId);
+		queue.clear();
+
+		long granularity = wallClockGranularityNanos();
+		long wallClockOrigin = currentTimeNanos();
+		long nanoTimeOrigin = System.nanoTime();
+
+		ClockOffset best = null;
+		for (int i = 0; i < exchanges; ++i) {
+			long sendNanoTime = System.nanoTime();
+			long t0 = wallClockOrigin + sendNanoTime - nanoTimeOrigin;
+			client.sendMessage(new Payload(PayloadType.TIME_SYNC, new long[] { daemonId, t0 }));
+
+			long[] times;
+			do {
+				times = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+				if (times == null) {
+					throw new TimeoutException("Timeout waiting for clock synchronization with daemon " + daemonId);
+				}
+				// skip responses to earlier exchanges that timed out
+			} while (times[0] != t0);
+
+			long t1 = times[1];
+			long roundTrip = times[2] - sendNanoTime;
+			ClockOffset offset = new ClockOffset(t1 - (t0 + roundTrip / 2), roundTrip, roundTrip / 2 + granularity);
+			if (best == null || offset.getRoundTripNanos() < best.getRoundTripNanos()) {
+				best = offset;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Must be called when a {@link PayloadType#TIME_SYNC} response is received.
+	 * 
+	 * @param response
+	 *            the content of the response
+	 */
+	public void responseReceived(final long[] response) {
+		long receiveNanoTime = System.nanoTime();
+		getQueue((int) response[0]).offer(new long[] { response[1], response[2], receiveNanoTime });
+	}
+
+	private BlockingQueue<long[]> getQueue(final int daemonId) {
+		return responses.computeIfAbsent(daemonId, id -> new LinkedBlockingQueue<>());
+	}
+
+	/**
+	 * The estimated offset of a daemon's clock.
+	 */
+	public static final class ClockOffset {
+		private final long offsetNanos;
+		private final long roundTripNanos;
+		private final long errorNanos;
+
+		public ClockOffset(final long offsetNanos, final long roundTripNanos, final long errorNanos) {
+			this.offsetNanos = offsetNanos;
+			this.roundTripNanos = roundTripNanos;
+			this.errorNanos = errorNanos;
+		}
+
+		/**
+		 * @return the time in nanoseconds the daemon's clock is ahead of the console's clock
+		 */
+		public long getOffsetNanos() {
+			return offsetNanos;
+		}
+
+		/**
+		 * @return the round trip time of the exchange the estimate is based on
+		 */
+		public long getRoundTripNanos() {
+			return roundTripNanos;
+		}
+
+		/**
+		 * @return the maximum error of the estimate, i. e. half the round trip time plus the
+		 *         granularity of the wall clock
+		 */
+		public long getErrorNanos() {
+			return errorNanos;
+		}
+	}
+}
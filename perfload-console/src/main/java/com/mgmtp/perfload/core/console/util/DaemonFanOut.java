@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.console.util;
+
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.netty.channel.ChannelFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mgmtp.perfload.core.clientserver.client.Client;
+
+/**
+ * Performs an operation on all daemons in parallel. Each daemon is handled by its own task, so a
+ * slow or unreachable daemon does not delay the others. Tasks wait for each other before they
+ * start the operation, so messages such as {@code START} leave the console at nearly the same
+ * time. Progress is logged, and failures are collected per daemon.
+ * 
+ * @author agent
+ */
+public class DaemonFanOut {
+	private static final Logger LOG = LoggerFactory.getLogger(DaemonFanOut.class);
+
+	private static final long ALIGNMENT_TIMEOUT_MILLIS = 1000L;
+
+	private final ExecutorService execService = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("perfload-daemon-fanout-%d").setDaemon(true).build());
+	private final long timeoutMillis;
+
+	/**
+	 * @param timeoutMillis
+	 *            the maximum time in milliseconds an operation may take for all daemons
+	 */
+	public DaemonFanOut(final long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * An operation on a single daemon.
+	 */
+	public interface DaemonOperation {
+
+		/**
+		 * @param daemonId
+		 *            the id of the daemon
+		 * @param client
+		 *            the client connected to the daemon
+		 * @return the future of the last message sent, which is awaited before the operation is
+		 *         considered complete; may be {@code null}
+		 */
+		ChannelFuture execute(int daemonId, Client client) throws Exception;
+	}
+
+	/**
+	 * Executes an operation on all daemons in parallel and waits until it has completed.
+	 * 
+	 * @param phase
+	 *            a description of the operation for logging
+	 * @param clients
+	 *            the clients to the daemons by daemon id
+	 * @param operation
+	 *            the operation
+	 * @throws ExecutionException
+	 *             if the operation failed for at least one daemon; the cause is the first failure,
+	 *             all failures are logged
+	 * @throws TimeoutException
+	 *             if the operation did not complete in time for at least one daemon
+	 */
+	public void execute(final String phase, final Map<Integer, Client> clients, final DaemonOperation operation)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		int count = clients.size();
+		if (count == 0) {
+			return;
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		CyclicBarrier barrier = new CyclicBarrier(count);
+		CompletionService<Integer> completionService = new ExecutorCompletionService<>(execService);
+		Map<Future<Integer>, Integer> pending = newHashMapWithExpectedSize(count);
+		for (Entry<Integer, Client> entry : clients.entrySet()) {
+			int daemonId = entry.getKey();
+			Client client = entry.getValue();
+			Future<Integer> future = completionService.submit(() -> {
+				awaitAlignment(barrier);
+				ChannelFuture channelFuture = operation.execute(daemonId, client);
+				if (channelFuture != null) {
+					long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (!channelFuture.await(Math.max(remainingMillis, 0L))) {
+						throw new TimeoutException("Timeout waiting for message to be sent.");
+					}
+					if (!channelFuture.isSuccess()) {
+						throw new IOException("Error sending message.", channelFuture.getCause());
+					}
+				}
+				return daemonId;
+			});
+			pending.put(future, daemonId);
+		}
+
+		SortedMap<Integer, Throwable> failures = new TreeMap<>();
+		SortedSet<Integer> timedOut = new TreeSet<>();
+		try {
+			for (int done = 1; done <= count; ++done) {
+				Future<Integer> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (future == null) {
+					break;
+				}
+				Integer daemonId = pending.remove(future);
+				try {
+					future.get();
+					LOG.info("{}: {} of {} daemons done", phase, done, count);
+				} catch (ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof TimeoutException) {
+						timedOut.add(daemonId);
+					} else {
+						LOG.error("{} failed for daemon {}", phase, daemonId, cause);
+						failures.put(daemonId, cause);
+					}
+				}
+			}
+		} finally {
+			for (Future<Integer> future : pending.keySet()) {
+				future.cancel(true);
+			}
+		}
+
+		if (!failures.isEmpty()) {
+			throw new ExecutionException(phase + " failed for daemons " + failures.keySet(),
+					failures.get(failures.firstKey()));
+		}
+		timedOut.addAll(pending.values());
+		if (!timedOut.isEmpty()) {
+			throw new TimeoutException(phase + " timed out for daemons " + timedOut);
+		}
+	}
+
+	/**
+	 * Shuts down the threads of this fan-out. Running operations are interrupted.
+	 */
+	public void shutdown() {
+		execService.shutdownNow();
+	}
+
+	private static void awaitAlignment(final CyclicBarrier barrier) throws InterruptedException {
+		try {
+			barrier.await(ALIGNMENT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (BrokenBarrierException | TimeoutException ex) {
+			// Not all tasks got a thread in time, so start unaligned
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.console.util;
+
+import static com.mgmtp.perfload.core.common.util.LtUtils.currentTimeNanos;
+import static com.mgmtp.perfload.core.common.util.LtUtils.wallClockGranularityNanos;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.console.util.ClockSynchronizer.ClockOffset;
+
+/**
+ * @author agent
+ */
+public class ClockSynchronizerTest {
+
+	private static final long DAEMON_OFFSET_NANOS = TimeUnit.SECONDS.toNanos(5L);
+	private static final long EPSILON_NANOS = TimeUnit.MILLISECONDS.toNanos(200L);
+
+	@Test
+	public void testOffsetIsEstimated() throws Exception {
+		final ClockSynchronizer synchronizer = new ClockSynchronizer(4, 1000L);
+		Client client = mock(Client.class);
+		when(client.sendMessage(any(Serializable.class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(final InvocationOnMock invocation) {
+				// daemon with a clock that is ahead
+				long[] request = ((Payload) invocation.getArguments()[0]).getContent();
+				synchronizer.responseReceived(new long[] { request[0], request[1], currentTimeNanos() + DAEMON_OFFSET_NANOS });
+				return null;
+			}
+		});
+
+		ClockOffset offset = synchronizer.synchronize(1, client);
+
+		verify(client, times(4)).sendMessage(any(Serializable.class));
+		assertTrue(Math.abs(offset.getOffsetNanos() - DAEMON_OFFSET_NANOS) < EPSILON_NANOS, String.valueOf(offset.getOffsetNanos()));
+		assertTrue(offset.getRoundTripNanos() >= 0L);
+		assertTrue(offset.getErrorNanos() >= offset.getRoundTripNanos() / 2 + wallClockGranularityNanos());
+	}
+
+	@Test(expectedExceptions = TimeoutException.class)
+	public void testTimeout() throws Exception {
+		ClockSynchronizer synchronizer = new ClockSynchronizer(4, 50L);
+		synchronizer.synchronize(1, mock(Client.class));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.console.util;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.channel.SucceededChannelFuture;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.clientserver.client.Client;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+
+/**
+ * @author agent
+ */
+public class DaemonFanOutTest {
+
+	private DaemonFanOut fanOut;
+
+	@BeforeMethod
+	public void setUp() {
+		fanOut = new DaemonFanOut(1000L);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		fanOut.shutdown();
+	}
+
+	@Test
+	public void testAllDaemonsSucceed() throws Exception {
+		Map<Integer, Client> clients = createClients(3);
+		for (Client client : clients.values()) {
+			when(client.sendMessage(any(Serializable.class))).thenReturn(new SucceededChannelFuture(mock(Channel.class)));
+		}
+
+		fanOut.execute("Test", clients, (daemonId, client) -> client.sendMessage(new Payload(PayloadType.START)));
+
+		for (Client client : clients.values()) {
+			verify(client).sendMessage(any(Serializable.class));
+		}
+	}
+
+	@Test
+	public void testFailuresAreCollectedPerDaemon() throws Exception {
+		Map<Integer, Client> clients = createClients(3);
+		try {
+			fanOut.execute("Test", clients, (daemonId, client) -> {
+				if (daemonId != 2) {
+					throw new IOException("Daemon " + daemonId);
+				}
+				return null;
+			});
+			fail("Expected ExecutionException");
+		} catch (ExecutionException ex) {
+			assertEquals(ex.getMessage(), "Test failed for daemons [1, 3]");
+			assertEquals(ex.getCause().getMessage(), "Daemon 1");
+		}
+	}
+
+	@Test
+	public void testTimeoutNamesPendingDaemons() throws Exception {
+		Map<Integer, Client> clients = createClients(2);
+		try {
+			fanOut.execute("Test", clients, (daemonId, client) -> {
+				// never completes for daemon 2
+				return daemonId == 2 ? new DefaultChannelFuture(mock(Channel.class), false) : null;
+			});
+			fail("Expected TimeoutException");
+		} catch (TimeoutException ex) {
+			assertEquals(ex.getMessage(), "Test timed out for daemons [2]");
+		}
+	}
+
+	private static Map<Integer, Client> createClients(final int count) {
+		Map<Integer, Client> clients = new TreeMap<>();
+		for (int i = 1; i <= count; ++i) {
+			Client client = mock(Client.class);
+			when(client.getClientId()).thenReturn("daemon" + i);
+			clients.put(i, client);
+		}
+		return clients;
+	}
+}
@@ -25,16 +25,21 @@ import com.mgmtp.perfload.core.clientserver.server.DefaultServer;
 import com.mgmtp.perfload.core.clientserver.server.Server;
 import com.mgmtp.perfload.core.clientserver.server.ServerMessageListener;
 import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 import com.mgmtp.perfload.core.common.clientserver.Payload;
 import com.mgmtp.perfload.core.common.clientserver.PayloadType;
 import com.mgmtp.perfload.core.common.config.ProcessConfig;
 import com.mgmtp.perfload.core.common.config.TestConfig;
 import com.mgmtp.perfload.core.common.config.TestJar;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
 import com.mgmtp.perfload.core.common.util.StreamGobbler;
 import com.mgmtp.perfload.core.daemon.util.AbstractClientRunner;
+import com.mgmtp.perfload.core.daemon.util.CpuPlacement;
 import com.mgmtp.perfload.core.daemon.util.ForkedProcessClientRunner;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import com.mgmtp.perfload.core.daemon.util.InJvmClientRunner;
+import com.mgmtp.perfload.core.daemon.util.JarCache;
+import com.mgmtp.perfload.core.daemon.util.SharedArchiveCache;
+import com.mgmtp.perfload.core.daemon.util.WarmProcessPool;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
@@ -42,13 +47,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -58,7 +62,11 @@ import java.util.concurrent.TimeUnit;
 import static com.google.common.base.Joiner.on;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.mgmtp.perfload.core.common.clientserver.ChannelPredicates.isConsoleChannel;
+import static com.mgmtp.perfload.core.common.clientserver.ChannelPredicates.isPooledChannel;
 import static com.mgmtp.perfload.core.common.clientserver.ChannelPredicates.isTestprocChannel;
+import static com.mgmtp.perfload.core.common.util.LtUtils.currentTimeNanos;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 
 /**
  * Represents a perfLoad daemon process. A perfLoad daemon is responsible for spawning test
@@ -70,6 +78,7 @@ import static com.mgmtp.perfload.core.common.clientserver.ChannelPredicates.isTe
 public class LtDaemon {
 	private final CountDownLatch doneLatch = new CountDownLatch(1);
 	private final Server server;
+	private final WarmProcessPool warmProcessPool;
 
 	/**
 	 * Creates a new instance.
@@ -79,7 +88,21 @@ public class LtDaemon {
 	 * @param server               the {@link Server} implementation for the daemon
 	 */
 	public LtDaemon(final File clientDir, final AbstractClientRunner abstractClientRunner, final Server server) {
+		this(clientDir, abstractClientRunner, server, null);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param clientDir            the client's installation and working directory
+	 * @param abstractClientRunner the {@link AbstractClientRunner} implementation used to run client processes
+	 * @param server               the {@link Server} implementation for the daemon
+	 * @param warmProcessPool      the pool of pre-started test processes; may be {@code null}
+	 */
+	public LtDaemon(final File clientDir, final AbstractClientRunner abstractClientRunner, final Server server,
+			final WarmProcessPool warmProcessPool) {
 		this.server = server;
+		this.warmProcessPool = warmProcessPool;
 		this.server.addServerMessageListener(new DaemonMessageListener(clientDir, abstractClientRunner));
 	}
 
@@ -102,8 +125,25 @@ public class LtDaemon {
 			File clientDir = new File(new File(System.getProperty("user.dir")).getParentFile(), "client");
 			ExecutorService execService = Executors.newCachedThreadPool();
 			StreamGobbler gobbler = new StreamGobbler(execService);
-			Server server = new DefaultServer(cliArgs.port);
-			LtDaemon daemon = new LtDaemon(clientDir, new ForkedProcessClientRunner(execService, gobbler), server);
+			Server server = new DefaultServer(cliArgs.port, Transport.fromSystemProperty(), cliArgs.inJvm);
+			String javaHome = System.getenv("JAVA_HOME");
+			CpuPlacement cpuPlacement = cliArgs.cpuPartitions > 0
+					? new CpuPlacement(cliArgs.cpuPartitions, cliArgs.heapPerCpuMb, javaHome != null ? new File(javaHome) : null)
+					: null;
+			SharedArchiveCache sharedArchiveCache = cliArgs.appCds && javaHome != null
+					? new SharedArchiveCache(new File(clientDir, "cds-cache"), new File(javaHome), execService)
+					: null;
+			AbstractClientRunner clientRunner = cliArgs.inJvm
+					? new InJvmClientRunner(execService)
+					: new ForkedProcessClientRunner(execService, gobbler, cpuPlacement, sharedArchiveCache);
+			if (cliArgs.inJvm && cliArgs.warmPoolSize > 0) {
+				// Test processes in the daemon's VM share the daemon's warm classes anyways
+				log().warn("Ignoring warm pool size for test processes running in the daemon's VM.");
+			}
+			WarmProcessPool warmProcessPool = cliArgs.warmPoolSize > 0 && !cliArgs.inJvm
+					? new WarmProcessPool(clientRunner, clientDir, cliArgs.warmPoolSize, cliArgs.warmPoolJvmArgs)
+					: null;
+			LtDaemon daemon = new LtDaemon(clientDir, clientRunner, server, warmProcessPool);
 			daemon.execute();
 			execService.shutdown();
 			execService.awaitTermination(10L, TimeUnit.SECONDS);
@@ -168,12 +208,18 @@ public class LtDaemon {
 						//
 					}
 				}
+				if (warmProcessPool != null) {
+					warmProcessPool.shutdown();
+				}
 				server.shutdown();
 				log().info("Good bye.");
 			}
 		});
 
 		server.bind();
+		if (warmProcessPool != null) {
+			warmProcessPool.start(server.getPort());
+		}
 
 		try {
 			// Keep the daemon alive
@@ -187,44 +233,16 @@ public class LtDaemon {
 
 	private final class DaemonMessageListener implements ServerMessageListener {
 		private final ExecutorService execService = Executors.newCachedThreadPool();
-		private final Set<String> testJarNames = new ConcurrentSkipListSet<>();
 		private final File clientDir;
 		private final AbstractClientRunner abstractClientRunner;
+		private final JarCache jarCache;
 
-		private volatile File testLibDir;
+		private volatile Set<String> testJarFileNames = emptySet();
 
 		public DaemonMessageListener(final File clientDir, final AbstractClientRunner abstractClientRunner) {
 			this.clientDir = clientDir;
 			this.abstractClientRunner = abstractClientRunner;
-
-		}
-
-		private void deleteTestLibDir() {
-			if (testLibDir != null) {
-				synchronized (this) {
-					if (testLibDir != null) {
-						log().debug("Deleting test lib directory: {}", testLibDir);
-						try {
-							FileUtils.forceDelete(testLibDir);
-						} catch (IOException ex) {
-							// ignored
-						}
-						testLibDir = null;
-					}
-				}
-			}
-		}
-
-		private void createTestLibDir() throws IOException {
-			if (testLibDir == null) {
-				synchronized (this) {
-					if (testLibDir == null) {
-						testLibDir = new File(clientDir, "lib_daemon_" + System.nanoTime());
-						log().debug("Creating test lib directory: {}", testLibDir);
-					}
-				}
-				FileUtils.forceMkdir(testLibDir);
-			}
+			this.jarCache = new JarCache(new File(clientDir, "jar-cache"));
 		}
 
 		@Override
@@ -233,7 +251,16 @@ public class LtDaemon {
 				final Payload payload = (Payload) e.getMessage();
 				switch (payload.getPayloadType()) {
 					case CONSOLE_DISCONNECTING:
-						deleteTestLibDir();
+						jarCache.cancel();
+						if (warmProcessPool != null) {
+							// The test is over, so it is safe to warm up new processes
+							warmProcessPool.replenish();
+						}
+						break;
+					case TEST_PROC_POOLED:
+						if (warmProcessPool != null) {
+							warmProcessPool.processReady(payload.<Integer>getContent(), e.getChannel());
+						}
 						break;
 					case SHUTDOWN_DAEMON:
 						log().info("Shutdown was requested.");
@@ -241,7 +268,7 @@ public class LtDaemon {
 						doneLatch.countDown();
 						break;
 					case ERROR:
-						deleteTestLibDir();
+						jarCache.cancel();
 						channelContainer.getChannel(isConsoleChannel()).write(payload);
 						break;
 					case CREATE_TEST_PROC:
@@ -259,16 +286,24 @@ public class LtDaemon {
 									arguments.add(String.valueOf(pc.getDaemonId()));
 									arguments.add("-daemonPort");
 									arguments.add(String.valueOf(server.getPort()));
-									if (!testJarNames.isEmpty()) {
+									Set<String> jarFileNames = testJarFileNames;
+									if (!jarFileNames.isEmpty()) {
 										arguments.add("-testLibDir");
-										arguments.add(testLibDir.getAbsolutePath());
+										arguments.add(jarCache.getCacheDir().getAbsolutePath());
 										arguments.add("-testJars");
-										arguments.add(on(';').join(testJarNames));
+										arguments.add(on(';').join(jarFileNames));
 									}
 
-									Future<Integer> runResult = abstractClientRunner.runClient(clientDir, pc, arguments);
+									Future<Integer> runResult = warmProcessPool != null
+											? warmProcessPool.assign(pc, arguments, channelContainer)
+											: null;
+									ProcessConfig startedConfig = pc;
+									if (runResult == null) {
+										runResult = abstractClientRunner.runClient(clientDir, pc, arguments);
+										startedConfig = pc.withPlacement(abstractClientRunner.getPlacement(pc));
+									}
 
-									channel.write(new Payload(PayloadType.TEST_PROC_STARTED, pc));
+									channel.write(new Payload(PayloadType.TEST_PROC_STARTED, startedConfig));
 
 									int exitCode = runResult.get();
 									if (exitCode != 0) {
@@ -290,6 +325,7 @@ public class LtDaemon {
 						channelContainer.getChannel(isConsoleChannel()).write(payload);
 						break;
 					case STATUS:
+					case STATUS_BATCH:
 					case TEST_PROC_CONNECTED:
 					case TEST_PROC_READY:
 					case TEST_PROC_STARTED:
@@ -304,37 +340,66 @@ public class LtDaemon {
 						}
 						break;
 					case ABORT:
-						deleteTestLibDir();
+						jarCache.cancel();
 						for (Channel channel : channelContainer.getChannels(isTestprocChannel())) {
 							if (channel.isConnected()) {
 								channel.write(payload);
 							}
 						}
 						break;
-					case JAR:
-						TestJar jar = payload.getContent();
-						OutputStream os = null;
-						String jarName = jar.getName();
-						log().debug("Received jar file: {}", jarName);
+					case JAR_MANIFEST: {
+						TestJar[] jars = payload.getContent();
+						log().debug("Received jar manifest: {}", (Object) jars);
 						try {
-							createTestLibDir();
-							os = new FileOutputStream(new File(testLibDir, jarName));
-							IOUtils.write(jar.getContent(), os);
-							log().debug("Received jar file to: {}", testLibDir);
-							testJarNames.add(jarName);
+							Set<String> jarFileNames = new LinkedHashSet<>();
+							for (TestJar jar : jars) {
+								jarFileNames.add(jar.getCacheFileName());
+							}
+							testJarFileNames = jarFileNames;
 
-							// Write an empty jar response back to the console, so it knows
-							// the jar was correctly received and stored.
-							e.getChannel().write(new Payload(PayloadType.JAR));
+							List<TestJar> missing = jarCache.prepare(asList(jars));
+							if (missing.isEmpty()) {
+								// Write an empty jar response back to the console, so it knows
+								// all jars are available.
+								e.getChannel().write(new Payload(PayloadType.JAR));
+							} else {
+								log().info("Requesting {} out of {} jars", missing.size(), jars.length);
+								String[] checksums = new String[missing.size()];
+								for (int i = 0; i < checksums.length; ++i) {
+									checksums[i] = missing.get(i).getChecksum();
+								}
+								e.getChannel().write(new Payload(PayloadType.JAR_REQUEST, checksums));
+							}
+						} catch (IOException ex) {
+							log().error("Error preparing jar cache: {}", jarCache.getCacheDir(), ex);
+							e.getChannel().write(new Payload(PayloadType.ERROR));
+						}
+						break;
+					}
+					case JAR_CHUNK:
+						TestJarChunk chunk = payload.getContent();
+						try {
+							if (jarCache.write(chunk)) {
+								log().info("All jars received");
+								e.getChannel().write(new Payload(PayloadType.JAR));
+							}
 						} catch (IOException ex) {
-							log().error("Error saving jar files: {}", jarName, ex);
+							log().error("Error saving jar chunk: {}", chunk, ex);
 							e.getChannel().write(new Payload(PayloadType.ERROR));
-						} finally {
-							IOUtils.closeQuietly(os);
 						}
 						break;
+					case TIME_SYNC: {
+						long now = currentTimeNanos();
+						long[] request = payload.getContent();
+						long[] response = Arrays.copyOf(request, request.length + 1);
+						response[request.length] = now;
+						e.getChannel().write(new Payload(PayloadType.TIME_SYNC, response));
+						break;
+					}
 					case CLIENT_COUNT:
-						e.getChannel().write(new Payload(PayloadType.CLIENT_COUNT, channelContainer.getChannels().size()));
+						// Idle pre-started processes do not count
+						int clientCount = channelContainer.getChannels(Predicates.not(isPooledChannel())).size();
+						e.getChannel().write(new Payload(PayloadType.CLIENT_COUNT, clientCount));
 						break;
 					case CONFIG:
 						TestConfig config = payload.getContent();
@@ -15,6 +15,9 @@
  */
 package com.mgmtp.perfload.core.daemon;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -34,6 +37,29 @@ public class LtDaemonArgs {
 	@Parameter(names = "-shutdown", description = "Shuts down a running daemon.")
 	boolean shutdown;
 
+	@Parameter(names = "-inJvm", description = "Runs test processes inside the daemon's VM instead of forking "
+			+ "them. The daemon's heap must be sized for all test processes.")
+	boolean inJvm;
+
+	@Parameter(names = "-cpuPartitions", description = "The number of partitions the CPUs are divided into for "
+			+ "forked test processes. Processes are bound to their partition using numactl or taskset, if available.")
+	int cpuPartitions;
+
+	@Parameter(names = "-heapPerCpuMb", description = "The maximum heap size in megabytes per CPU of a partition "
+			+ "for forked test processes, unless configured explicitly. Requires -cpuPartitions.")
+	int heapPerCpuMb;
+
+	@Parameter(names = "-appCds", description = "Records the classes loaded by forked test processes and builds "
+			+ "AppCDS archives for subsequent processes. Requires Java 11 or later for test processes.")
+	boolean appCds;
+
+	@Parameter(names = "-warmPoolSize", description = "The number of test processes to start ahead of time.")
+	int warmPoolSize;
+
+	@Parameter(names = "-warmPoolJvmArgs", description = "Comma-separated JVM arguments for test processes started "
+			+ "ahead of time. Only test processes with the same JVM arguments are taken from the pool.")
+	List<String> warmPoolJvmArgs = new ArrayList<>();
+
 	@Override
 	public String toString() {
 		return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
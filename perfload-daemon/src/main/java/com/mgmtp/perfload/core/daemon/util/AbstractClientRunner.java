@@ -52,4 +52,38 @@ public abstract class AbstractClientRunner {
 	 */
 	public abstract Future<Integer> runClient(File clientDir, ProcessConfig procConfig, List<String> arguments);
 
+	/**
+	 * Asynchronously runs a client process that is started ahead of time and is assigned to a test
+	 * process later on (see {@link WarmProcessPool}). Not all implementations support this.
+	 * 
+	 * @param clientDir
+	 *            the client's installation directory
+	 * @param slot
+	 *            the process' slot in the pool
+	 * @param jvmArgs
+	 *            the JVM arguments for the process
+	 * @param arguments
+	 *            command-line arguments for the process
+	 * @return a future representing the process' exit code
+	 * @throws UnsupportedOperationException
+	 *             if this implementation does not support pre-started processes
+	 */
+	public Future<Integer> runPooledClient(final File clientDir, final int slot, final List<String> jvmArgs,
+			final List<String> arguments) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support pre-started processes.");
+	}
+
+	/**
+	 * Describes where a process run by {@link #runClient(File, ProcessConfig, List)} is placed,
+	 * e. g. on which CPUs.
+	 * 
+	 * @param procConfig
+	 *            the {@link ProcessConfig} object
+	 * @return the placement description, or {@code null} if this implementation does not place
+	 *         processes
+	 */
+	public String getPlacement(final ProcessConfig procConfig) {
+		return null;
+	}
+
 }
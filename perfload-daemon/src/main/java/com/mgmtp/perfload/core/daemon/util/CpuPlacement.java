@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+
+/**
+ * <p>
+ * Partitions the CPUs of the machine across forked test processes, so that they do not compete
+ * for cores and, on NUMA machines, allocate their memory on the node their CPUs belong to.
+ * Partitions never span NUMA nodes. Consecutive partitions alternate between nodes, and test
+ * processes are assigned to partitions round-robin by process id.
+ * </p>
+ * <p>
+ * Processes are bound to their partition using {@code numactl} or, if not available,
+ * {@code taskset}. Without either of them, only the JVM is sized for the partition: the number of
+ * processors the JVM assumes, its GC threads, and optionally its heap. JVM arguments of the test
+ * process configuration take precedence over the sizing. The number of processors is only set if
+ * the Java installation test processes are forked with supports it, i. e. for Java 8u191 or later.
+ * </p>
+ * <p>
+ * Only the CPUs the daemon itself may run on are partitioned, so that CPU sets restricting the
+ * daemon, e. g. in containers, are respected.
+ * </p>
+ * 
+ * @author agent
+ */
+public class CpuPlacement {
+
+	private static final File NODES_DIR = new File("/sys/devices/system/node");
+	private static final File PROC_STATUS_FILE = new File("/proc/self/status");
+	private static final String CPUS_ALLOWED_LIST = "Cpus_allowed_list:";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final List<Partition> partitions;
+	private final int heapPerCpuMb;
+	private final String binder;
+	private final boolean activeProcessorCount;
+
+	/**
+	 * Creates a placement for the CPUs of this machine.
+	 * 
+	 * @param partitionCount
+	 *            the number of partitions to create
+	 * @param heapPerCpuMb
+	 *            the maximum heap size in megabytes per CPU of a partition, or {@code 0} for not
+	 *            sizing the heap
+	 * @param javaHome
+	 *            the Java installation test processes are forked with, or {@code null} if unknown
+	 */
+	public CpuPlacement(final int partitionCount, final int heapPerCpuMb, final File javaHome) {
+		this(readTopology(), partitionCount, heapPerCpuMb, findBinder(),
+				javaHome != null ? SharedArchiveCache.readJavaVersion(javaHome) : null);
+	}
+
+	/**
+	 * @param cpusByNode
+	 *            the CPUs of each NUMA node, {@code -1} if the node is unknown
+	 * @param partitionCount
+	 *            the number of partitions to create
+	 * @param heapPerCpuMb
+	 *            the maximum heap size in megabytes per CPU of a partition, or {@code 0} for not
+	 *            sizing the heap
+	 * @param binder
+	 *            {@code numactl}, {@code taskset}, or {@code null} for not binding processes
+	 * @param javaVersion
+	 *            the version of the Java installation test processes are forked with, or
+	 *            {@code null} if unknown
+	 */
+	CpuPlacement(final SortedMap<Integer, List<Integer>> cpusByNode, final int partitionCount, final int heapPerCpuMb,
+			final String binder, final String javaVersion) {
+		checkArgument(partitionCount > 0, "'partitionCount' must be greater than 0.");
+		checkArgument(!cpusByNode.isEmpty(), "'cpusByNode' must not be empty.");
+		this.partitions = createPartitions(cpusByNode, partitionCount);
+		this.heapPerCpuMb = heapPerCpuMb;
+		this.binder = binder;
+		this.activeProcessorCount = javaVersion != null && supportsActiveProcessorCount(javaVersion);
+
+		if (partitions.size() < partitionCount) {
+			log.warn("Only {} CPUs available for {} partitions.", partitions.size(), partitionCount);
+		}
+		if (binder == null) {
+			log.warn("Neither numactl nor taskset found. Test processes are not bound to CPUs.");
+		}
+		if (!activeProcessorCount) {
+			log.warn("Test processes use Java {}, which does not support -XX:ActiveProcessorCount.", javaVersion);
+		}
+		log.info("CPU partitions for test processes: {}", partitions);
+	}
+
+	private static List<Partition> createPartitions(final SortedMap<Integer, List<Integer>> cpusByNode,
+			final int partitionCount) {
+		int nodeCount = cpusByNode.size();
+		int chunksPerNode = (partitionCount + nodeCount - 1) / nodeCount;
+
+		List<Partition> result = newArrayList();
+		for (int chunk = 0; chunk < chunksPerNode; ++chunk) {
+			for (Map.Entry<Integer, List<Integer>> entry : cpusByNode.entrySet()) {
+				List<Integer> cpus = entry.getValue();
+				int chunks = Math.min(chunksPerNode, cpus.size());
+				if (chunk < chunks && result.size() < partitionCount) {
+					// Chunk sizes differ by at most one CPU
+					int from = cpus.size() * chunk / chunks;
+					int to = cpus.size() * (chunk + 1) / chunks;
+					result.add(new Partition(entry.getKey(), cpus.subList(from, to)));
+				}
+			}
+		}
+		return ImmutableList.copyOf(result);
+	}
+
+	/**
+	 * Places a test process.
+	 * 
+	 * @param procConfig
+	 *            the process' configuration
+	 * @return the placement
+	 */
+	public Placement place(final ProcessConfig procConfig) {
+		Partition partition = partitions.get((procConfig.getProcessId() - 1) % partitions.size());
+		int cpuCount = partition.cpus.size();
+		String cpuList = partition.getCpuList();
+
+		List<String> commandPrefix = newArrayList();
+		if ("numactl".equals(binder)) {
+			commandPrefix.add(binder);
+			commandPrefix.add("--physcpubind=" + cpuList);
+			if (partition.node >= 0) {
+				commandPrefix.add("--membind=" + partition.node);
+			}
+		} else if ("taskset".equals(binder)) {
+			commandPrefix.add(binder);
+			commandPrefix.add("-c");
+			commandPrefix.add(cpuList);
+		}
+
+		List<String> processJvmArgs = procConfig.getJvmArgs();
+		List<String> jvmArgs = newArrayList();
+		if (activeProcessorCount) {
+			addUnlessPresent(jvmArgs, processJvmArgs, "-XX:ActiveProcessorCount=", cpuCount);
+		}
+		addUnlessPresent(jvmArgs, processJvmArgs, "-XX:ParallelGCThreads=", cpuCount);
+		addUnlessPresent(jvmArgs, processJvmArgs, "-XX:ConcGCThreads=", Math.max(1, (cpuCount + 3) / 4));
+		if (heapPerCpuMb > 0) {
+			addUnlessPresent(jvmArgs, processJvmArgs, "-Xmx", cpuCount * heapPerCpuMb + "m");
+		}
+
+		return new Placement(partition, binder, commandPrefix, jvmArgs);
+	}
+
+	private static void addUnlessPresent(final List<String> jvmArgs, final List<String> processJvmArgs, final String option,
+			final Object value) {
+		for (String arg : processJvmArgs) {
+			if (arg.startsWith(option)) {
+				return;
+			}
+		}
+		jvmArgs.add(option + value);
+	}
+
+	/**
+	 * @param javaVersion
+	 *            a Java version string, e. g. {@code 1.8.0_292} or {@code 17.0.2}
+	 * @return {@code true} if the Java version supports {@code -XX:ActiveProcessorCount}, which
+	 *         was added in Java 10 and backported to Java 8u191
+	 */
+	static boolean supportsActiveProcessorCount(final String javaVersion) {
+		int featureVersion = SharedArchiveCache.featureVersion(javaVersion);
+		if (featureVersion != 8) {
+			return featureVersion >= 10;
+		}
+		int underscore = javaVersion.indexOf('_');
+		if (underscore < 0) {
+			return false;
+		}
+		String update = javaVersion.substring(underscore + 1);
+		int end = CharMatcher.inRange('0', '9').negate().indexIn(update);
+		update = end < 0 ? update : update.substring(0, end);
+		return !update.isEmpty() && Integer.parseInt(update) >= 191;
+	}
+
+	private static SortedMap<Integer, List<Integer>> readTopology() {
+		List<Integer> allowedCpus = readAllowedCpus();
+		SortedMap<Integer, List<Integer>> cpusByNode = new TreeMap<>();
+		File[] nodeDirs = NODES_DIR.listFiles();
+		if (nodeDirs != null) {
+			for (File nodeDir : nodeDirs) {
+				String name = nodeDir.getName();
+				File cpuListFile = new File(nodeDir, "cpulist");
+				if (name.matches("node\\d+") && cpuListFile.isFile()) {
+					try {
+						List<Integer> cpus = parseCpuList(Files.asCharSource(cpuListFile, StandardCharsets.US_ASCII).read());
+						if (allowedCpus != null) {
+							cpus.retainAll(allowedCpus);
+						}
+						if (!cpus.isEmpty()) {
+							cpusByNode.put(Integer.valueOf(name.substring(4)), cpus);
+						}
+					} catch (IOException ex) {
+						LoggerFactory.getLogger(CpuPlacement.class).warn("Could not read " + cpuListFile, ex);
+					}
+				}
+			}
+		}
+		if (cpusByNode.isEmpty()) {
+			// No NUMA information, e. g. not on Linux
+			List<Integer> cpus = allowedCpus;
+			if (cpus == null || cpus.isEmpty()) {
+				cpus = newArrayList();
+				for (int cpu = 0; cpu < Runtime.getRuntime().availableProcessors(); ++cpu) {
+					cpus.add(cpu);
+				}
+			}
+			cpusByNode.put(-1, cpus);
+		}
+		return cpusByNode;
+	}
+
+	/**
+	 * @return the CPUs this process may run on, or {@code null} if unknown, e. g. not on Linux
+	 */
+	private static List<Integer> readAllowedCpus() {
+		if (PROC_STATUS_FILE.isFile()) {
+			try {
+				return parseAllowedCpus(Files.asCharSource(PROC_STATUS_FILE, StandardCharsets.US_ASCII).readLines());
+			} catch (IOException ex) {
+				LoggerFactory.getLogger(CpuPlacement.class).warn("Could not read " + PROC_STATUS_FILE, ex);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the allowed CPUs from the lines of {@code /proc/<pid>/status}.
+	 * 
+	 * @param statusLines
+	 *            the lines of the status file
+	 * @return the allowed CPUs, or {@code null} if not present
+	 */
+	static List<Integer> parseAllowedCpus(final List<String> statusLines) {
+		for (String line : statusLines) {
+			if (line.startsWith(CPUS_ALLOWED_LIST)) {
+				return parseCpuList(line.substring(CPUS_ALLOWED_LIST.length()));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses a Linux CPU list, e. g. {@code 0-15,64-79}.
+	 * 
+	 * @param cpuList
+	 *            the CPU list
+	 * @return the CPUs
+	 */
+	static List<Integer> parseCpuList(final String cpuList) {
+		List<Integer> cpus = newArrayList();
+		for (String range : Splitter.on(',').trimResults().omitEmptyStrings().split(cpuList)) {
+			int dash = range.indexOf('-');
+			int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+			int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1));
+			for (int cpu = first; cpu <= last; ++cpu) {
+				cpus.add(cpu);
+			}
+		}
+		return cpus;
+	}
+
+	private static String findBinder() {
+		String path = System.getenv("PATH");
+		if (path != null) {
+			for (String binder : ImmutableList.of("numactl", "taskset")) {
+				for (String dir : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(path)) {
+					if (new File(dir, binder).canExecute()) {
+						return binder;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A set of CPUs belonging to the same NUMA node.
+	 */
+	static final class Partition {
+		private final int node;
+		private final List<Integer> cpus;
+
+		Partition(final int node, final List<Integer> cpus) {
+			this.node = node;
+			this.cpus = ImmutableList.copyOf(cpus);
+		}
+
+		/**
+		 * @return the CPUs as Linux CPU list, e. g. {@code 0-15,64-79}
+		 */
+		String getCpuList() {
+			StringBuilder sb = new StringBuilder();
+			int i = 0;
+			while (i < cpus.size()) {
+				int j = i;
+				while (j + 1 < cpus.size() && cpus.get(j + 1) == cpus.get(j) + 1) {
+					++j;
+				}
+				if (sb.length() > 0) {
+					sb.append(',');
+				}
+				sb.append(cpus.get(i));
+				if (j > i) {
+					sb.append('-').append(cpus.get(j));
+				}
+				i = j + 1;
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public String toString() {
+			return (node >= 0 ? "node" + node + " " : "") + "cpus " + getCpuList();
+		}
+	}
+
+	/**
+	 * The placement of a test process.
+	 */
+	public static final class Placement {
+		private final Partition partition;
+		private final String binder;
+		private final List<String> commandPrefix;
+		private final List<String> jvmArgs;
+
+		Placement(final Partition partition, final String binder, final List<String> commandPrefix,
+				final List<String> jvmArgs) {
+			this.partition = partition;
+			this.binder = binder;
+			this.commandPrefix = ImmutableList.copyOf(commandPrefix);
+			this.jvmArgs = ImmutableList.copyOf(jvmArgs);
+		}
+
+		/**
+		 * @return the command binding the process to its CPUs, to be put in front of the Java
+		 *         command; empty if processes are not bound
+		 */
+		public List<String> getCommandPrefix() {
+			return commandPrefix;
+		}
+
+		/**
+		 * @return JVM arguments sizing the JVM for its CPUs, not including those already present
+		 *         in the process' configuration
+		 */
+		public List<String> getJvmArgs() {
+			return jvmArgs;
+		}
+
+		@Override
+		public String toString() {
+			return partition + (binder != null ? " (" + binder + ")" : " (unbound)");
+		}
+	}
+}
@@ -18,9 +18,12 @@ package com.mgmtp.perfload.core.daemon.util;
 import static com.google.common.base.Joiner.on;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -29,10 +32,14 @@ import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Splitter;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
 import com.mgmtp.perfload.core.common.config.ProcessConfig;
 import com.mgmtp.perfload.core.common.util.LoggingGobbleCallback;
 import com.mgmtp.perfload.core.common.util.LoggingGobbleCallback.Level;
 import com.mgmtp.perfload.core.common.util.StreamGobbler;
+import com.mgmtp.perfload.core.daemon.util.CpuPlacement.Placement;
+import com.mgmtp.perfload.core.daemon.util.SharedArchiveCache.Fork;
 
 /**
  * {@link AbstractClientRunner} implementation that forks new client processes.
@@ -43,6 +50,8 @@ public class ForkedProcessClientRunner extends AbstractClientRunner {
 
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final StreamGobbler gobbler;
+	private final CpuPlacement cpuPlacement;
+	private final SharedArchiveCache sharedArchiveCache;
 
 	/**
 	 * @param execService
@@ -51,12 +60,90 @@ public class ForkedProcessClientRunner extends AbstractClientRunner {
 	 *            captures stdout and stderr of the process
 	 */
 	public ForkedProcessClientRunner(final ExecutorService execService, final StreamGobbler gobbler) {
+		this(execService, gobbler, null);
+	}
+
+	/**
+	 * @param execService
+	 *            the {@link ExecutorService} for running client processes
+	 * @param gobbler
+	 *            captures stdout and stderr of the process
+	 * @param cpuPlacement
+	 *            places processes on CPUs, may be {@code null}
+	 */
+	public ForkedProcessClientRunner(final ExecutorService execService, final StreamGobbler gobbler,
+			final CpuPlacement cpuPlacement) {
+		this(execService, gobbler, cpuPlacement, null);
+	}
+
+	/**
+	 * @param execService
+	 *            the {@link ExecutorService} for running client processes
+	 * @param gobbler
+	 *            captures stdout and stderr of the process
+	 * @param cpuPlacement
+	 *            places processes on CPUs, may be {@code null}
+	 * @param sharedArchiveCache
+	 *            provides AppCDS archives for processes, may be {@code null}
+	 */
+	public ForkedProcessClientRunner(final ExecutorService execService, final StreamGobbler gobbler,
+			final CpuPlacement cpuPlacement, final SharedArchiveCache sharedArchiveCache) {
 		super(execService);
 		this.gobbler = gobbler;
+		this.cpuPlacement = cpuPlacement;
+		this.sharedArchiveCache = sharedArchiveCache;
 	}
 
 	@Override
 	public Future<Integer> runClient(final File clientDir, final ProcessConfig procConfig, final List<String> arguments) {
+		List<String> systemProperties = newArrayList(
+				"-DdaemonId=" + procConfig.getDaemonId(),
+				"-DprocessId=" + procConfig.getProcessId());
+		String prefix = "[daemon" + procConfig.getDaemonId() + "|process" + procConfig.getProcessId() + "] ";
+		List<String> commandPrefix = emptyList();
+		List<String> jvmArgs = newArrayList();
+
+		if (cpuPlacement != null) {
+			Placement placement = cpuPlacement.place(procConfig);
+			log.info("Placing test process {} on {}", procConfig.getProcessId(), placement);
+			commandPrefix = placement.getCommandPrefix();
+			jvmArgs.addAll(placement.getJvmArgs());
+		}
+
+		Fork archiveFork = null;
+		if (sharedArchiveCache != null) {
+			archiveFork = sharedArchiveCache.prepare(getTestJarNames(arguments), getClasspathEntries(clientDir));
+			jvmArgs.addAll(archiveFork.getJvmArgs());
+		}
+
+		jvmArgs.addAll(procConfig.getJvmArgs());
+		return runProcess(clientDir, commandPrefix, systemProperties, jvmArgs, prefix, arguments, archiveFork);
+	}
+
+	private List<String> getTestJarNames(final List<String> arguments) {
+		int index = arguments.indexOf("-testJars");
+		return index >= 0 && index + 1 < arguments.size()
+				? asList(arguments.get(index + 1).split(";"))
+				: emptyList();
+	}
+
+	@Override
+	public String getPlacement(final ProcessConfig procConfig) {
+		return cpuPlacement != null ? cpuPlacement.place(procConfig).toString() : null;
+	}
+
+	@Override
+	public Future<Integer> runPooledClient(final File clientDir, final int slot, final List<String> jvmArgs,
+			final List<String> arguments) {
+		// The process id is not known yet. It is only used for naming the log file.
+		List<String> systemProperties = newArrayList("-DprocessId=pooled" + slot);
+		String prefix = "[pooled" + slot + "] ";
+		return runProcess(clientDir, emptyList(), systemProperties, jvmArgs, prefix, arguments, null);
+	}
+
+	private Future<Integer> runProcess(final File clientDir, final List<String> commandPrefix,
+			final List<String> systemProperties, final List<String> jvmArgs, final String prefix,
+			final List<String> arguments, final Fork archiveFork) {
 		return execService.submit(new Callable<Integer>() {
 			@Override
 			public Integer call() throws IOException, InterruptedException {
@@ -70,29 +157,39 @@ public class ForkedProcessClientRunner extends AbstractClientRunner {
 				}
 				File javaExe = new File(javaHome, new File("bin", "java").getPath());
 
-				List<String> commands = newArrayList();
+				List<String> commands = newArrayList(commandPrefix);
 				commands.add(javaExe.getPath());
-				maybeAddMaxHeap(commands, procConfig.getJvmArgs());
+				maybeAddMaxHeap(commands, jvmArgs);
 				File logbackFile = new File(clientDir, "logback.xml");
 				if (logbackFile.exists()) {
 					log.info("Using custom logback config file: {}", logbackFile);
 					commands.add("-Dlogback.configurationFile=" + logbackFile.getAbsolutePath());
 				}
-				commands.add("-DdaemonId=" + procConfig.getDaemonId());
-				commands.add("-DprocessId=" + procConfig.getProcessId());
-				commands.addAll(procConfig.getJvmArgs());
-				commands.addAll(buildClasspath());
+				commands.addAll(systemProperties);
+				String transport = System.getProperty(Transport.SYSTEM_PROPERTY);
+				if (transport != null) {
+					// Test processes talk to the daemon using the same transport
+					commands.add("-D" + Transport.SYSTEM_PROPERTY + "=" + transport);
+				}
+				commands.addAll(jvmArgs);
+				List<String> classpath = buildClasspath();
+				commands.addAll(classpath);
 				commands.addAll(arguments);
 
 				log.info("Running test process: {}", on(' ').join(commands));
 				Process process = new ProcessBuilder(commands).directory(clientDir).start();
 
 				// Grab output of the process
-				String prefix = "[daemon" + procConfig.getDaemonId() + "|process" + procConfig.getProcessId() + "] ";
 				gobbler.addStream(process.getInputStream(), "UTF-8", new LoggingGobbleCallback(Level.INFO, prefix));
 				gobbler.addStream(process.getErrorStream(), "UTF-8", new LoggingGobbleCallback(Level.ERROR, prefix));
 
-				return process.waitFor();
+				int exitCode = process.waitFor();
+				if (archiveFork != null) {
+					// Archives are built using the classpath, i. e. without the main class or jar
+					List<String> javaCommand = newArrayList(javaExe.getPath(), "-classpath", classpath.get(1));
+					sharedArchiveCache.processTerminated(archiveFork, exitCode, clientDir, javaCommand);
+				}
+				return exitCode;
 			}
 
 		});
@@ -107,6 +204,28 @@ public class ForkedProcessClientRunner extends AbstractClientRunner {
 		commands.add("-Xmx256m");
 	}
 
+	/**
+	 * @return the entries of the classpath built by {@link #buildClasspath()}; for the client jar,
+	 *         these are all jars in the client's lib directory, which includes those referenced by
+	 *         its manifest
+	 */
+	private List<File> getClasspathEntries(final File clientDir) {
+		List<File> entries = newArrayList();
+		if (getClass().getPackage().getImplementationVersion() == null) {
+			for (String entry : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(
+					System.getProperty("java.class.path"))) {
+				entries.add(new File(entry));
+			}
+		} else {
+			File[] jars = new File(clientDir, "lib").listFiles((dir, name) -> name.endsWith(".jar"));
+			if (jars != null) {
+				Arrays.sort(jars);
+				entries.addAll(asList(jars));
+			}
+		}
+		return entries;
+	}
+
 	private List<String> buildClasspath() {
 		String version = getClass().getPackage().getImplementationVersion();
 		List<String> commands = newArrayListWithCapacity(3);
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static com.google.common.base.Joiner.on;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+
+/**
+ * <p>
+ * {@link AbstractClientRunner} implementation that runs test processes inside the daemon's VM
+ * instead of forking new processes. Test processes talk to the daemon in memory using
+ * {@link Transport#LOCAL}, so the daemon's server must accept local connections.
+ * </p>
+ * <p>
+ * The perfLoad client classes are loaded only once by a class loader shared by all test
+ * processes, so they share classes already compiled by the JIT. Therefore, client classes must not
+ * keep per-process state, or references to testplan classes, in static fields. Classes also
+ * available to the daemon, e. g. Netty, are taken from the daemon. Each test process loads the
+ * testplan's classes in its own class loader. JVM arguments of test processes are ignored,
+ * because all test processes share the daemon's heap.
+ * </p>
+ * 
+ * @author agent
+ */
+public class InJvmClientRunner extends AbstractClientRunner {
+
+	private static final String LT_PROCESS_CLASS = "com.mgmtp.perfload.core.client.LtProcess";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final String entryClassName;
+
+	private Method runMethod;
+
+	/**
+	 * @param execService
+	 *            the {@link ExecutorService} for running client processes
+	 */
+	public InJvmClientRunner(final ExecutorService execService) {
+		this(execService, LT_PROCESS_CLASS);
+	}
+
+	/**
+	 * @param execService
+	 *            the {@link ExecutorService} for running client processes
+	 * @param entryClassName
+	 *            the name of the class providing the static method {@code int run(String[])}
+	 */
+	InJvmClientRunner(final ExecutorService execService, final String entryClassName) {
+		super(execService);
+		this.entryClassName = entryClassName;
+	}
+
+	@Override
+	public Future<Integer> runClient(final File clientDir, final ProcessConfig procConfig, final List<String> arguments) {
+		if (!procConfig.getJvmArgs().isEmpty()) {
+			log.warn("Ignoring JVM arguments of test process running in the daemon's VM: {}", procConfig.getJvmArgs());
+		}
+
+		final List<String> argsList = new ArrayList<>(arguments);
+		argsList.add("-inJvm");
+		argsList.add("true");
+		// The daemon's working directory is not the client directory
+		argsList.add("-clientDir");
+		argsList.add(clientDir.getAbsolutePath());
+		final String threadName = "daemon" + procConfig.getDaemonId() + "-process" + procConfig.getProcessId();
+
+		log.info("Running test process in the daemon's VM with arguments: {}", on(' ').join(argsList));
+
+		return execService.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				Method run = getRunMethod(clientDir);
+
+				Thread thread = Thread.currentThread();
+				String originalName = thread.getName();
+				ClassLoader originalLoader = thread.getContextClassLoader();
+				thread.setName(threadName);
+				try {
+					return (Integer) run.invoke(null, (Object) argsList.toArray(new String[argsList.size()]));
+				} catch (InvocationTargetException ex) {
+					Throwable cause = ex.getCause();
+					Throwables.throwIfInstanceOf(cause, Exception.class);
+					Throwables.throwIfUnchecked(cause);
+					throw new RuntimeException(cause);
+				} finally {
+					// Pooled threads are reused
+					thread.setName(originalName);
+					thread.setContextClassLoader(originalLoader);
+				}
+			}
+		});
+	}
+
+	private synchronized Method getRunMethod(final File clientDir) throws Exception {
+		if (runMethod == null) {
+			Class<?> entryClass = Class.forName(entryClassName, true, createClientClassLoader(clientDir));
+			runMethod = entryClass.getMethod("run", String[].class);
+		}
+		return runMethod;
+	}
+
+	private ClassLoader createClientClassLoader(final File clientDir) throws Exception {
+		ClassLoader daemonLoader = getClass().getClassLoader();
+		String version = getClass().getPackage().getImplementationVersion();
+		if (version == null) {
+			// No manifest i. e. we are running in an IDE, client classes are on the classpath
+			return daemonLoader;
+		}
+
+		// The client jar's manifest references its dependencies
+		File clientJar = new File(new File(clientDir, "lib"), String.format("perfload-client-%s.jar", version));
+		log.info("Loading client classes from: {}", clientJar);
+		return new URLClassLoader(new URL[] { clientJar.toURI().toURL() }, daemonLoader);
+	}
+}
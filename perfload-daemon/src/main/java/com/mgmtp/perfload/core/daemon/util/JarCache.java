@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.mgmtp.perfload.core.common.config.TestJar;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
+
+/**
+ * Persistent, content-addressed cache for test jars on a daemon. Jars are stored under their
+ * checksum (see {@link TestJar#getCacheFileName()}), so they survive across test runs and only
+ * jars that changed need to be transferred. Missing jars are received in {@link TestJarChunk}s,
+ * which are written to a temporary file through a {@link FileChannel}. The file is moved into the
+ * cache once it is complete and its checksum has been verified. All methods are synchronized.
+ * 
+ * @author agent
+ */
+public class JarCache {
+	private static final Logger LOG = LoggerFactory.getLogger(JarCache.class);
+
+	private final File cacheDir;
+
+	private final Map<String, Download> downloads = new LinkedHashMap<>();
+
+	/**
+	 * @param cacheDir
+	 *            the cache directory; created if it does not exist
+	 */
+	public JarCache(final File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	/**
+	 * Prepares the cache for the specified jars. Downloads are started for all jars that are not
+	 * cached yet. Previous downloads that are still in progress are cancelled.
+	 * 
+	 * @param jars
+	 *            the jars needed for the test
+	 * @return the missing jars, one per checksum
+	 * @throws IOException
+	 *             if the cache directory cannot be created
+	 */
+	public synchronized List<TestJar> prepare(final Collection<TestJar> jars) throws IOException {
+		cancel();
+		Files.createDirectories(cacheDir.toPath());
+
+		List<TestJar> missing = new ArrayList<>();
+		for (TestJar jar : jars) {
+			File file = new File(cacheDir, jar.getCacheFileName());
+			if (file.length() == jar.getSize() || downloads.containsKey(jar.getChecksum())) {
+				continue;
+			}
+			LOG.debug("Jar not cached: {}", jar);
+			downloads.put(jar.getChecksum(), new Download(jar, file));
+			missing.add(jar);
+		}
+		return missing;
+	}
+
+	/**
+	 * Writes a chunk of a missing jar.
+	 * 
+	 * @param chunk
+	 *            the chunk
+	 * @return {@code true} if all missing jars are complete
+	 * @throws IOException
+	 *             if the chunk cannot be written or a completed jar does not match its checksum
+	 */
+	public synchronized boolean write(final TestJarChunk chunk) throws IOException {
+		Download download = downloads.get(chunk.getChecksum());
+		checkState(download != null, "No download in progress for checksum %s", chunk.getChecksum());
+		try {
+			if (download.write(chunk)) {
+				downloads.remove(chunk.getChecksum());
+			}
+		} catch (IOException | RuntimeException ex) {
+			downloads.remove(chunk.getChecksum());
+			download.abort();
+			throw ex;
+		}
+		return downloads.isEmpty();
+	}
+
+	/**
+	 * Cancels all downloads in progress deleting their temporary files.
+	 */
+	public synchronized void cancel() {
+		for (Download download : downloads.values()) {
+			download.abort();
+		}
+		downloads.clear();
+	}
+
+	private static final class Download {
+		private final TestJar jar;
+		private final File file;
+		private final Path tempFile;
+		private final Hasher hasher = Hashing.sha256().newHasher();
+		private FileChannel channel;
+		private long position;
+
+		Download(final TestJar jar, final File file) {
+			this.jar = jar;
+			this.file = file;
+			this.tempFile = new File(file.getParentFile(), file.getName() + ".part").toPath();
+		}
+
+		boolean write(final TestJarChunk chunk) throws IOException {
+			if (chunk.getOffset() != position) {
+				throw new IOException("Unexpected offset for " + jar + ": " + chunk.getOffset() + " != " + position);
+			}
+			if (channel == null) {
+				channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+			}
+
+			byte[] data = chunk.getData();
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			hasher.putBytes(data);
+			position += data.length;
+
+			if (position < jar.getSize()) {
+				return false;
+			}
+
+			channel.close();
+			String checksum = hasher.hash().toString();
+			if (position != jar.getSize() || !checksum.equals(jar.getChecksum())) {
+				throw new IOException("Checksum mismatch for " + jar + ": " + checksum + ", " + position + " bytes");
+			}
+			Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOG.debug("Jar cached: {}", jar);
+			return true;
+		}
+
+		void abort() {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+				Files.deleteIfExists(tempFile);
+			} catch (IOException ex) {
+				LOG.warn("Could not delete temporary file: {}", tempFile, ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static com.google.common.base.Joiner.on;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+
+/**
+ * <p>
+ * Persistent cache of AppCDS archives for forked test processes, which share the classes in an
+ * archive instead of loading and verifying them on startup. Archives are created per perfLoad
+ * version, Java version, classpath, and set of test jars. Classpath entries are identified by
+ * their paths, sizes and modification times, so rebuilt jars get a new archive instead of one the
+ * JVM would silently reject. The first process started for a combination
+ * records the classes it loads. Once it has terminated successfully, an archive is built from the
+ * class list in the background. Subsequent processes use the archive. Processes started in the
+ * meantime run without archive. If building the archive fails, no further attempt is made until
+ * the daemon is restarted.
+ * </p>
+ * <p>
+ * AppCDS requires Java 11 or later. With older Java versions, processes never use an archive.
+ * All methods are synchronized.
+ * </p>
+ * 
+ * @author agent
+ */
+public class SharedArchiveCache {
+	private static final Logger LOG = LoggerFactory.getLogger(SharedArchiveCache.class);
+
+	private static final int MIN_JAVA_VERSION = 11;
+	private static final long DUMP_TIMEOUT_MINUTES = 5L;
+
+	private final File cacheDir;
+	private final String javaVersion;
+	private final ExecutorService execService;
+
+	/** Combinations being recorded, being built, or for which building failed */
+	private final Set<String> pending = new HashSet<>();
+
+	/**
+	 * @param cacheDir
+	 *            the cache directory; created if it does not exist
+	 * @param javaHome
+	 *            the Java installation test processes are forked with
+	 * @param execService
+	 *            the {@link ExecutorService} for building archives
+	 */
+	public SharedArchiveCache(final File cacheDir, final File javaHome, final ExecutorService execService) {
+		this(cacheDir, readJavaVersion(javaHome), execService);
+	}
+
+	/**
+	 * @param cacheDir
+	 *            the cache directory; created if it does not exist
+	 * @param javaVersion
+	 *            the version of the Java installation test processes are forked with, or
+	 *            {@code null} if unknown
+	 * @param execService
+	 *            the {@link ExecutorService} for building archives
+	 */
+	SharedArchiveCache(final File cacheDir, final String javaVersion, final ExecutorService execService) {
+		this.cacheDir = cacheDir;
+		this.execService = execService;
+		if (javaVersion == null || featureVersion(javaVersion) < MIN_JAVA_VERSION) {
+			LOG.warn("AppCDS requires Java {} or later, but test processes use Java {}. Archives are disabled.",
+					MIN_JAVA_VERSION, javaVersion);
+			this.javaVersion = null;
+		} else {
+			this.javaVersion = javaVersion;
+		}
+	}
+
+	/**
+	 * Prepares the start of a test process.
+	 * 
+	 * @param testJarNames
+	 *            the names of the test jars the process uses
+	 * @param classpath
+	 *            the entries of the process' classpath, including those referenced by the
+	 *            manifest of an executable jar
+	 * @return the fork, whose JVM arguments must be passed to the process
+	 */
+	public synchronized Fork prepare(final Collection<String> testJarNames, final List<File> classpath) {
+		if (javaVersion == null) {
+			return new Fork(null, ImmutableList.<String>of());
+		}
+
+		String key = createKey(testJarNames, classpath);
+		File archiveFile = new File(cacheDir, key + ".jsa");
+		if (archiveFile.isFile()) {
+			return new Fork(null, ImmutableList.of("-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath()));
+		}
+		if (pending.contains(key) || !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			return new Fork(null, ImmutableList.<String>of());
+		}
+
+		LOG.info("Recording classes for AppCDS archive {}", key);
+		pending.add(key);
+		File classListFile = new File(cacheDir, key + ".classlist");
+		return new Fork(key, ImmutableList.of("-XX:DumpLoadedClassList=" + classListFile.getAbsolutePath()));
+	}
+
+	/**
+	 * Must be called when a forked test process has terminated. Starts building an archive, if the
+	 * process successfully recorded a class list.
+	 * 
+	 * @param fork
+	 *            the fork returned by {@link #prepare(Collection, List)}
+	 * @param exitCode
+	 *            the exit code of the test process
+	 * @param workingDir
+	 *            the working directory of the test process
+	 * @param javaCommand
+	 *            the Java executable and the classpath options of the test process; the archive
+	 *            can only be used with the same classpath
+	 */
+	public synchronized void processTerminated(final Fork fork, final int exitCode, final File workingDir,
+			final List<String> javaCommand) {
+		final String key = fork.recordingKey;
+		if (key == null) {
+			return;
+		}
+
+		final File classListFile = new File(cacheDir, key + ".classlist");
+		if (exitCode != 0 || !classListFile.isFile()) {
+			// Try again with the next process
+			LOG.warn("Recording classes for AppCDS archive {} failed.", key);
+			pending.remove(key);
+			return;
+		}
+
+		execService.submit(new Runnable() {
+			@Override
+			public void run() {
+				buildArchive(key, classListFile, workingDir, javaCommand);
+			}
+		});
+	}
+
+	private void buildArchive(final String key, final File classListFile, final File workingDir,
+			final List<String> javaCommand) {
+		File archiveFile = new File(cacheDir, key + ".jsa");
+		File tmpFile = new File(cacheDir, key + ".jsa.tmp");
+		File logFile = new File(cacheDir, key + ".log");
+
+		List<String> commands = newArrayList(javaCommand.get(0));
+		commands.add("-Xshare:dump");
+		commands.add("-XX:SharedClassListFile=" + classListFile.getAbsolutePath());
+		commands.add("-XX:SharedArchiveFile=" + tmpFile.getAbsolutePath());
+		commands.addAll(javaCommand.subList(1, javaCommand.size()));
+
+		try {
+			LOG.info("Building AppCDS archive: {}", on(' ').join(commands));
+			Process process = new ProcessBuilder(commands)
+					.directory(workingDir)
+					.redirectErrorStream(true)
+					.redirectOutput(logFile)
+					.start();
+			if (!process.waitFor(DUMP_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+				process.destroy();
+				throw new IOException("Timeout building archive.");
+			}
+			if (process.exitValue() != 0 || !tmpFile.isFile()) {
+				throw new IOException("Building archive failed with exit code " + process.exitValue() + ".");
+			}
+			// Processes must never see a partially written archive
+			Files.move(tmpFile.toPath(), archiveFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			LOG.info("Built AppCDS archive {}", archiveFile);
+			synchronized (this) {
+				pending.remove(key);
+			}
+		} catch (IOException | RuntimeException ex) {
+			LOG.error("Could not build AppCDS archive " + key + ". See " + logFile + " for details.", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private String createKey(final Collection<String> testJarNames, final List<File> classpath) {
+		String version = getClass().getPackage().getImplementationVersion();
+		StringBuilder sb = new StringBuilder();
+		sb.append(version).append('\n').append(javaVersion);
+		for (File entry : classpath) {
+			// The JVM rejects an archive if a classpath entry has changed
+			sb.append('\n').append(entry.getAbsolutePath()).append(' ').append(entry.length()).append(' ')
+					.append(entry.lastModified());
+		}
+		for (String testJarName : new TreeSet<>(testJarNames)) {
+			sb.append('\n').append(testJarName);
+		}
+		return Hashing.sha256().hashString(sb, UTF_8).toString();
+	}
+
+	/**
+	 * @param javaHome
+	 *            a Java installation
+	 * @return the installation's version, or {@code null} if unknown
+	 */
+	static String readJavaVersion(final File javaHome) {
+		// The release file is present in any JDK or JRE since Java 7
+		File releaseFile = new File(javaHome, "release");
+		if (releaseFile.isFile()) {
+			Properties release = new Properties();
+			try (Reader reader = Files.newBufferedReader(releaseFile.toPath(), UTF_8)) {
+				release.load(reader);
+				String version = release.getProperty("JAVA_VERSION");
+				if (version != null) {
+					return CharMatcher.is('"').trimFrom(version);
+				}
+			} catch (IOException ex) {
+				LOG.warn("Could not read " + releaseFile, ex);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param javaVersion
+	 *            a Java version string, e. g. {@code 1.8.0_292} or {@code 17.0.2}
+	 * @return the feature version, e. g. {@code 8} or {@code 17}
+	 */
+	static int featureVersion(final String javaVersion) {
+		String version = javaVersion.startsWith("1.") ? javaVersion.substring(2) : javaVersion;
+		int end = CharMatcher.inRange('0', '9').negate().indexIn(version);
+		return Integer.parseInt(end < 0 ? version : version.substring(0, end));
+	}
+
+	/**
+	 * A test process to be started.
+	 */
+	public static final class Fork {
+		private final String recordingKey;
+		private final List<String> jvmArgs;
+
+		Fork(final String recordingKey, final List<String> jvmArgs) {
+			this.recordingKey = recordingKey;
+			this.jvmArgs = jvmArgs;
+		}
+
+		/**
+		 * @return the JVM arguments for either using an archive or recording a class list, may be
+		 *         empty
+		 */
+		public List<String> getJvmArgs() {
+			return jvmArgs;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Future;
+
+import org.jboss.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+
+/**
+ * Keeps a number of test processes started ahead of time. Pre-started processes load the core
+ * classes and warm up the JIT, connect to the daemon, and then wait until they are assigned to a
+ * test process. On assignment, they receive the command-line arguments they would otherwise have
+ * been started with and continue like a regular test process, which saves the JVM startup and
+ * warm-up time when a test is started.
+ * <p>
+ * Only test processes whose JVM arguments match the pool's JVM arguments can be served from the
+ * pool. The pool is not replenished while a test is running, so warming up new processes does
+ * not interfere with the test.
+ * </p>
+ * 
+ * @author agent
+ */
+public class WarmProcessPool {
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final AbstractClientRunner clientRunner;
+	private final File clientDir;
+	private final int size;
+	private final List<String> jvmArgs;
+
+	private final Map<Integer, Future<Integer>> startingProcesses = Maps.newHashMap();
+	private final Queue<PooledProcess> idleProcesses = Queues.newArrayDeque();
+	private int daemonPort = -1;
+	private int slotCounter;
+
+	/**
+	 * @param clientRunner
+	 *            the runner for starting the processes; must support
+	 *            {@link AbstractClientRunner#runPooledClient(File, int, List, List)}
+	 * @param clientDir
+	 *            the client's installation directory
+	 * @param size
+	 *            the number of processes to keep ready
+	 * @param jvmArgs
+	 *            the JVM arguments for the processes
+	 */
+	public WarmProcessPool(final AbstractClientRunner clientRunner, final File clientDir, final int size,
+			final List<String> jvmArgs) {
+		checkArgument(size > 0, "Pool size must be greater than zero.");
+		this.clientRunner = clientRunner;
+		this.clientDir = clientDir;
+		this.size = size;
+		this.jvmArgs = ImmutableList.copyOf(jvmArgs);
+	}
+
+	/**
+	 * Starts the processes of the pool.
+	 * 
+	 * @param port
+	 *            the port of the daemon's server the processes connect to
+	 */
+	public synchronized void start(final int port) {
+		this.daemonPort = port;
+		log.info("Starting {} pre-started test processes...", size);
+		replenish();
+	}
+
+	/**
+	 * Starts new processes until the pool is full again. Processes that have died while idle are
+	 * removed.
+	 */
+	public synchronized void replenish() {
+		checkState(daemonPort != -1, "Pool has not been started.");
+		for (PooledProcess process : newArrayList(idleProcesses)) {
+			if (!process.channel.isConnected()) {
+				idleProcesses.remove(process);
+			}
+		}
+		for (Future<Integer> exitCode : newArrayList(startingProcesses.values())) {
+			if (exitCode.isDone()) {
+				startingProcesses.values().remove(exitCode);
+			}
+		}
+
+		for (int i = idleProcesses.size() + startingProcesses.size(); i < size; ++i) {
+			int slot = ++slotCounter;
+			List<String> arguments = ImmutableList.of("-pooled", "-poolSlot", String.valueOf(slot),
+					"-daemonPort", String.valueOf(daemonPort));
+			startingProcesses.put(slot, clientRunner.runPooledClient(clientDir, slot, jvmArgs, arguments));
+		}
+	}
+
+	/**
+	 * Must be called when a pre-started process has sent {@link PayloadType#TEST_PROC_POOLED}.
+	 * 
+	 * @param slot
+	 *            the process' pool slot
+	 * @param channel
+	 *            the channel to the process
+	 */
+	public synchronized void processReady(final int slot, final Channel channel) {
+		Future<Integer> exitCode = startingProcesses.remove(slot);
+		if (exitCode == null) {
+			log.warn("Unknown pre-started process: {}", slot);
+			channel.close();
+			return;
+		}
+		log.info("Pre-started test process {} is ready.", slot);
+		idleProcesses.add(new PooledProcess(slot, channel, exitCode));
+	}
+
+	/**
+	 * Assigns an idle process to a test process if possible.
+	 * 
+	 * @param procConfig
+	 *            the configuration of the test process
+	 * @param arguments
+	 *            the command-line arguments for the test process
+	 * @param channelContainer
+	 *            the daemon's channels; the process' channel is renamed to the id of the test process
+	 * @return a future representing the exit code of the assigned process, or {@code null} if no
+	 *         suitable process is available
+	 */
+	public synchronized Future<Integer> assign(final ProcessConfig procConfig, final List<String> arguments,
+			final ChannelContainer channelContainer) {
+		if (!jvmArgs.equals(procConfig.getJvmArgs())) {
+			log.info("JVM arguments of test process {} do not match the pool's.", procConfig.getProcessId());
+			return null;
+		}
+
+		for (PooledProcess process; (process = idleProcesses.poll()) != null;) {
+			if (!process.channel.isConnected()) {
+				continue;
+			}
+			log.info("Assigning pre-started test process {} to test process {}", process.slot, procConfig.getProcessId());
+			channelContainer.renameChannel(process.channel, "testproc" + procConfig.getProcessId());
+			process.channel.write(new Payload(PayloadType.TEST_PROC_ASSIGN, arguments.toArray(new String[arguments.size()])));
+			return process.exitCode;
+		}
+
+		log.info("No pre-started test process available for test process {}", procConfig.getProcessId());
+		return null;
+	}
+
+	/**
+	 * Closes the channels to idle processes, which makes them exit.
+	 */
+	public synchronized void shutdown() {
+		for (PooledProcess process : idleProcesses) {
+			process.channel.close();
+		}
+		idleProcesses.clear();
+	}
+
+	private static final class PooledProcess {
+		private final int slot;
+		private final Channel channel;
+		private final Future<Integer> exitCode;
+
+		public PooledProcess(final int slot, final Channel channel, final Future<Integer> exitCode) {
+			this.slot = slot;
+			this.channel = channel;
+			this.exitCode = exitCode;
+		}
+	}
+}
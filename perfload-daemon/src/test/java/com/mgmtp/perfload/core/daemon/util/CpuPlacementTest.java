@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+import com.mgmtp.perfload.core.daemon.util.CpuPlacement.Placement;
+
+/**
+ * Unit test for {@link CpuPlacement}.
+ *
+ * @author agent
+ */
+public class CpuPlacementTest {
+
+	private static SortedMap<Integer, List<Integer>> twoNodes() {
+		SortedMap<Integer, List<Integer>> cpusByNode = new TreeMap<>();
+		cpusByNode.put(0, CpuPlacement.parseCpuList("0-7"));
+		cpusByNode.put(1, CpuPlacement.parseCpuList("8-15"));
+		return cpusByNode;
+	}
+
+	private static ProcessConfig process(final int processId, final String... jvmArgs) {
+		return new ProcessConfig(processId, 1, ImmutableList.copyOf(jvmArgs));
+	}
+
+	@Test
+	public void testParseCpuList() {
+		assertEquals(CpuPlacement.parseCpuList("0-2,8,10-11\n"), ImmutableList.of(0, 1, 2, 8, 10, 11));
+	}
+
+	@Test
+	public void testParseAllowedCpus() {
+		assertEquals(CpuPlacement.parseAllowedCpus(ImmutableList.of("Name:\tjava", "Cpus_allowed:\tf0",
+				"Cpus_allowed_list:\t4-7", "Mems_allowed_list:\t0")), ImmutableList.of(4, 5, 6, 7));
+		assertNull(CpuPlacement.parseAllowedCpus(ImmutableList.of("Name:\tjava")));
+	}
+
+	@Test
+	public void testSupportsActiveProcessorCount() {
+		assertFalse(CpuPlacement.supportsActiveProcessorCount("1.7.0_80"));
+		assertFalse(CpuPlacement.supportsActiveProcessorCount("1.8.0"));
+		assertFalse(CpuPlacement.supportsActiveProcessorCount("1.8.0_181"));
+		assertTrue(CpuPlacement.supportsActiveProcessorCount("1.8.0_191"));
+		assertTrue(CpuPlacement.supportsActiveProcessorCount("1.8.0_292-b10"));
+		assertFalse(CpuPlacement.supportsActiveProcessorCount("9.0.4"));
+		assertTrue(CpuPlacement.supportsActiveProcessorCount("10"));
+		assertTrue(CpuPlacement.supportsActiveProcessorCount("17.0.2"));
+	}
+
+	@Test
+	public void testJvmSizingWithoutActiveProcessorCount() {
+		CpuPlacement cpuPlacement = new CpuPlacement(twoNodes(), 4, 0, null, "1.8.0_181");
+
+		assertEquals(cpuPlacement.place(process(1)).getJvmArgs(),
+				ImmutableList.of("-XX:ParallelGCThreads=4", "-XX:ConcGCThreads=1"));
+
+		cpuPlacement = new CpuPlacement(twoNodes(), 4, 0, null, null);
+		assertEquals(cpuPlacement.place(process(1)).getJvmArgs(),
+				ImmutableList.of("-XX:ParallelGCThreads=4", "-XX:ConcGCThreads=1"));
+	}
+
+	@Test
+	public void testPartitionsAlternateBetweenNodes() {
+		CpuPlacement cpuPlacement = new CpuPlacement(twoNodes(), 4, 0, "numactl", "17.0.2");
+
+		assertEquals(cpuPlacement.place(process(1)).getCommandPrefix(),
+				ImmutableList.of("numactl", "--physcpubind=0-3", "--membind=0"));
+		assertEquals(cpuPlacement.place(process(2)).getCommandPrefix(),
+				ImmutableList.of("numactl", "--physcpubind=8-11", "--membind=1"));
+		assertEquals(cpuPlacement.place(process(3)).getCommandPrefix(),
+				ImmutableList.of("numactl", "--physcpubind=4-7", "--membind=0"));
+		assertEquals(cpuPlacement.place(process(4)).toString(), "node1 cpus 12-15 (numactl)");
+
+		// More processes than partitions
+		assertEquals(cpuPlacement.place(process(5)).toString(), "node0 cpus 0-3 (numactl)");
+	}
+
+	@Test
+	public void testTaskset() {
+		CpuPlacement cpuPlacement = new CpuPlacement(twoNodes(), 2, 0, "taskset", "17.0.2");
+
+		assertEquals(cpuPlacement.place(process(2)).getCommandPrefix(), ImmutableList.of("taskset", "-c", "8-15"));
+	}
+
+	@Test
+	public void testJvmSizing() {
+		CpuPlacement cpuPlacement = new CpuPlacement(twoNodes(), 4, 512, null, "17.0.2");
+
+		Placement placement = cpuPlacement.place(process(1));
+		assertEquals(placement.getCommandPrefix(), ImmutableList.of());
+		assertEquals(placement.getJvmArgs(), ImmutableList.of("-XX:ActiveProcessorCount=4", "-XX:ParallelGCThreads=4",
+				"-XX:ConcGCThreads=1", "-Xmx2048m"));
+		assertEquals(placement.toString(), "node0 cpus 0-3 (unbound)");
+	}
+
+	@Test
+	public void testProcessJvmArgsTakePrecedence() {
+		CpuPlacement cpuPlacement = new CpuPlacement(twoNodes(), 2, 512, null, "17.0.2");
+
+		Placement placement = cpuPlacement.place(process(1, "-Xmx1g", "-XX:ParallelGCThreads=2"));
+		assertEquals(placement.getJvmArgs(), ImmutableList.of("-XX:ActiveProcessorCount=8", "-XX:ConcGCThreads=2"));
+	}
+}
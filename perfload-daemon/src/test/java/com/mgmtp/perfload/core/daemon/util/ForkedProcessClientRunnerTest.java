@@ -17,8 +17,12 @@ package com.mgmtp.perfload.core.daemon.util;
 
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import java.io.File;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -69,4 +73,17 @@ public class ForkedProcessClientRunnerTest {
 
 		verify(executor).submit(callableCaptor.getValue());
 	}
+
+	@Test
+	public void testPlacement() {
+		StreamGobbler gobbler = new StreamGobbler(executor);
+		ProcessConfig proConf = new ProcessConfig(1, 1, ImmutableList.<String>of());
+		assertNull(new ForkedProcessClientRunner(executor, gobbler).getPlacement(proConf));
+
+		TreeMap<Integer, List<Integer>> cpusByNode = new TreeMap<>();
+		cpusByNode.put(0, ImmutableList.of(0, 1));
+		CpuPlacement cpuPlacement = new CpuPlacement(cpusByNode, 1, 0, "taskset", "17.0.2");
+		ForkedProcessClientRunner fpcr = new ForkedProcessClientRunner(executor, gobbler, cpuPlacement);
+		assertEquals(fpcr.getPlacement(proConf), "node0 cpus 0-1 (taskset)");
+	}
 }
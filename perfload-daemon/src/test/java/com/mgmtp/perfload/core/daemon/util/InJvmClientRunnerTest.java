@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+
+/**
+ * Unit test for {@link InJvmClientRunner}.
+ *
+ * @author agent
+ */
+public class InJvmClientRunnerTest {
+
+	private ExecutorService execService;
+
+	@BeforeMethod
+	public void setUp() {
+		execService = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		execService.shutdownNow();
+	}
+
+	@Test
+	public void testRunClient() throws Exception {
+		InJvmClientRunner runner = new InJvmClientRunner(execService, FakeProcess.class.getName());
+		ProcessConfig procConfig = new ProcessConfig(2, 1, Collections.<String>emptyList());
+
+		File clientDir = new File("client");
+		int exitCode = runner.runClient(clientDir, procConfig, ImmutableList.of("-processId", "2")).get();
+
+		assertEquals(exitCode, 42);
+		assertEquals(FakeProcess.args, new String[] { "-processId", "2", "-inJvm", "true", "-clientDir",
+				clientDir.getAbsolutePath() });
+		assertEquals(FakeProcess.threadName, "daemon1-process2");
+	}
+
+	@Test
+	public void testThreadIsRestored() throws Exception {
+		InJvmClientRunner runner = new InJvmClientRunner(execService, FakeProcess.class.getName());
+		ProcessConfig procConfig = new ProcessConfig(1, 1, Collections.<String>emptyList());
+		Thread[] thread = new Thread[1];
+		ClassLoader loader = execService.submit(() -> {
+			thread[0] = Thread.currentThread();
+			return thread[0].getContextClassLoader();
+		}).get();
+		String name = thread[0].getName();
+
+		runner.runClient(new File("."), procConfig, ImmutableList.<String>of()).get();
+
+		assertEquals(thread[0].getName(), name);
+		assertSame(thread[0].getContextClassLoader(), loader);
+	}
+
+	@Test
+	public void testFailingProcess() throws Exception {
+		InJvmClientRunner runner = new InJvmClientRunner(execService, FailingProcess.class.getName());
+		ProcessConfig procConfig = new ProcessConfig(1, 1, Collections.<String>emptyList());
+
+		try {
+			runner.runClient(new File("."), procConfig, ImmutableList.<String>of()).get();
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+			return;
+		}
+		throw new AssertionError("Expected ExecutionException");
+	}
+
+	public static class FakeProcess {
+		static volatile String[] args;
+		static volatile String threadName;
+
+		public static int run(final String[] arguments) {
+			args = arguments;
+			threadName = Thread.currentThread().getName();
+			Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[0]));
+			return 42;
+		}
+	}
+
+	public static class FailingProcess {
+		public static int run(final String[] arguments) {
+			throw new IllegalStateException("failed");
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOfRange;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.hash.Hashing;
+import com.mgmtp.perfload.core.common.config.TestJar;
+import com.mgmtp.perfload.core.common.config.TestJarChunk;
+
+/**
+ * @author agent
+ */
+public class JarCacheTest {
+
+	private File cacheDir;
+	private JarCache jarCache;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		cacheDir = Files.createTempDirectory("jar-cache").toFile();
+		jarCache = new JarCache(cacheDir);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(cacheDir);
+	}
+
+	@Test
+	public void testMissingJarsAreCached() throws IOException {
+		byte[] content1 = content(1000);
+		byte[] content2 = content(10);
+		TestJar jar1 = testJar("test1.jar", content1);
+		TestJar jar2 = testJar("test2.jar", content2);
+		TestJar jar2Copy = testJar("test2-copy.jar", content2);
+
+		List<TestJar> missing = jarCache.prepare(asList(jar1, jar2, jar2Copy));
+		assertEquals(missing, asList(jar1, jar2));
+
+		assertFalse(jarCache.write(new TestJarChunk(jar1.getChecksum(), 0L, copyOfRange(content1, 0, 600))));
+		assertFalse(jarCache.write(new TestJarChunk(jar2.getChecksum(), 0L, content2)));
+		assertTrue(jarCache.write(new TestJarChunk(jar1.getChecksum(), 600L, copyOfRange(content1, 600, 1000))));
+
+		assertEquals(Files.readAllBytes(new File(cacheDir, jar1.getCacheFileName()).toPath()), content1);
+		assertEquals(Files.readAllBytes(new File(cacheDir, jar2.getCacheFileName()).toPath()), content2);
+		assertEquals(cacheDir.list().length, 2);
+
+		// second run with a cached and a new jar
+		TestJar jar3 = testJar("test3.jar", content(20));
+		assertEquals(jarCache.prepare(asList(jar1, jar3)), asList(jar3));
+	}
+
+	@Test
+	public void testChecksumMismatch() throws IOException {
+		byte[] content = content(10);
+		TestJar jar = testJar("test.jar", content);
+		jarCache.prepare(asList(jar));
+
+		content[5] = 42;
+		try {
+			jarCache.write(new TestJarChunk(jar.getChecksum(), 0L, content));
+			fail("Expected IOException");
+		} catch (IOException ex) {
+			// expected
+		}
+		assertEquals(cacheDir.list().length, 0);
+	}
+
+	@Test
+	public void testUnexpectedOffset() throws IOException {
+		byte[] content = content(10);
+		TestJar jar = testJar("test.jar", content);
+		jarCache.prepare(asList(jar));
+
+		try {
+			jarCache.write(new TestJarChunk(jar.getChecksum(), 5L, copyOfRange(content, 5, 10)));
+			fail("Expected IOException");
+		} catch (IOException ex) {
+			// expected
+		}
+		assertEquals(jarCache.prepare(asList(jar)), asList(jar));
+	}
+
+	@Test
+	public void testCancel() throws IOException {
+		byte[] content = content(10);
+		TestJar jar = testJar("test.jar", content);
+		jarCache.prepare(asList(jar));
+		jarCache.write(new TestJarChunk(jar.getChecksum(), 0L, copyOfRange(content, 0, 5)));
+		jarCache.cancel();
+
+		assertEquals(cacheDir.list().length, 0);
+	}
+
+	private static byte[] content(final int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			content[i] = (byte) (i * 31 + length);
+		}
+		return content;
+	}
+
+	private static TestJar testJar(final String name, final byte[] content) {
+		return new TestJar(name, Hashing.sha256().hashBytes(content).toString(), content.length, null);
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.mgmtp.perfload.core.daemon.util.SharedArchiveCache.Fork;
+
+/**
+ * Unit test for {@link SharedArchiveCache}.
+ *
+ * @author agent
+ */
+public class SharedArchiveCacheTest {
+
+	private static final List<String> JARS = ImmutableList.of("b.jar", "a.jar");
+	private static final List<File> CLASSPATH = ImmutableList.of(new File("lib/client.jar"));
+	private static final List<String> JAVA_COMMAND = ImmutableList.of("java", "-classpath", "lib/client.jar");
+
+	private File cacheDir;
+	private ExecutorService execService;
+	private SharedArchiveCache cache;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		cacheDir = Files.createTempDirectory("cds-cache").toFile();
+		execService = mock(ExecutorService.class);
+		cache = new SharedArchiveCache(cacheDir, "17.0.2", execService);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(cacheDir);
+	}
+
+	private static String singleArg(final Fork fork) {
+		assertEquals(fork.getJvmArgs().size(), 1);
+		return fork.getJvmArgs().get(0);
+	}
+
+	@Test
+	public void testFeatureVersion() {
+		assertEquals(SharedArchiveCache.featureVersion("1.8.0_292"), 8);
+		assertEquals(SharedArchiveCache.featureVersion("11"), 11);
+		assertEquals(SharedArchiveCache.featureVersion("17.0.2"), 17);
+		assertEquals(SharedArchiveCache.featureVersion("21-ea"), 21);
+	}
+
+	@Test
+	public void testOldJava() {
+		cache = new SharedArchiveCache(cacheDir, "1.8.0_292", execService);
+
+		assertTrue(cache.prepare(JARS, CLASSPATH).getJvmArgs().isEmpty());
+	}
+
+	@Test
+	public void testFirstProcessRecordsClasses() throws IOException {
+		Fork fork = cache.prepare(JARS, CLASSPATH);
+		String arg = singleArg(fork);
+		assertTrue(arg.startsWith("-XX:DumpLoadedClassList="));
+
+		// Only the first process records, order of jars does not matter
+		assertTrue(cache.prepare(ImmutableList.of("a.jar", "b.jar"), CLASSPATH).getJvmArgs().isEmpty());
+		// Different jars record separately
+		assertTrue(singleArg(cache.prepare(ImmutableList.of("a.jar"), CLASSPATH)).startsWith("-XX:DumpLoadedClassList="));
+
+		new File(arg.substring(arg.indexOf('=') + 1)).createNewFile();
+		cache.processTerminated(fork, 0, cacheDir, JAVA_COMMAND);
+		verify(execService).submit(any(Runnable.class));
+
+		// Archive being built
+		assertTrue(cache.prepare(JARS, CLASSPATH).getJvmArgs().isEmpty());
+	}
+
+	@Test
+	public void testFailedRecordingIsRetried() {
+		Fork fork = cache.prepare(JARS, CLASSPATH);
+		cache.processTerminated(fork, 1, cacheDir, JAVA_COMMAND);
+		verify(execService, never()).submit(any(Runnable.class));
+
+		assertTrue(singleArg(cache.prepare(JARS, CLASSPATH)).startsWith("-XX:DumpLoadedClassList="));
+	}
+
+	@Test
+	public void testArchiveIsUsed() throws IOException {
+		String arg = singleArg(cache.prepare(JARS, CLASSPATH));
+		String classList = arg.substring(arg.indexOf('=') + 1);
+		File archive = new File(classList.replace(".classlist", ".jsa"));
+		archive.createNewFile();
+
+		assertEquals(singleArg(cache.prepare(JARS, CLASSPATH)), "-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+	}
+
+	@Test
+	public void testChangedClasspathEntryRecordsAgain() throws IOException {
+		File clientJar = new File(cacheDir, "client.jar");
+		Files.write(clientJar.toPath(), new byte[] { 1 });
+		List<File> classpath = ImmutableList.of(clientJar);
+
+		String arg = singleArg(cache.prepare(JARS, classpath));
+		String classList = arg.substring(arg.indexOf('=') + 1);
+		File archive = new File(classList.replace(".classlist", ".jsa"));
+		archive.createNewFile();
+		assertEquals(singleArg(cache.prepare(JARS, classpath)), "-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+
+		// A rebuilt jar under the same version must not use the stale archive
+		Files.write(clientJar.toPath(), new byte[] { 1, 2 });
+		assertTrue(singleArg(cache.prepare(JARS, classpath)).startsWith("-XX:DumpLoadedClassList="));
+	}
+}
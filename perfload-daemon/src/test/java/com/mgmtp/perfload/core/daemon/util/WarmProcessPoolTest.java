@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.daemon.util;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.jboss.netty.channel.Channel;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.mgmtp.perfload.core.clientserver.util.ChannelContainer;
+import com.mgmtp.perfload.core.common.clientserver.Payload;
+import com.mgmtp.perfload.core.common.clientserver.PayloadType;
+import com.mgmtp.perfload.core.common.config.ProcessConfig;
+
+/**
+ * Unit test for {@link WarmProcessPool}.
+ *
+ * @author agent
+ */
+public class WarmProcessPoolTest {
+
+	private static final List<String> JVM_ARGS = ImmutableList.of("-Xmx1g");
+
+	private AbstractClientRunner clientRunner;
+	private Future<Integer> exitCode;
+	private WarmProcessPool pool;
+
+	@BeforeMethod
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		clientRunner = mock(AbstractClientRunner.class);
+		exitCode = mock(Future.class);
+		when(clientRunner.runPooledClient(any(File.class), anyInt(), anyListOf(String.class), anyListOf(String.class)))
+				.thenReturn(exitCode);
+		pool = new WarmProcessPool(clientRunner, new File("."), 2, JVM_ARGS);
+		pool.start(4242);
+	}
+
+	@Test
+	public void testProcessesAreStarted() {
+		verify(clientRunner).runPooledClient(new File("."), 1, JVM_ARGS,
+				ImmutableList.of("-pooled", "-poolSlot", "1", "-daemonPort", "4242"));
+		verify(clientRunner).runPooledClient(new File("."), 2, JVM_ARGS,
+				ImmutableList.of("-pooled", "-poolSlot", "2", "-daemonPort", "4242"));
+	}
+
+	@Test
+	public void testAssign() {
+		Channel channel = mock(Channel.class);
+		when(channel.isConnected()).thenReturn(true);
+		ChannelContainer channelContainer = new ChannelContainer();
+		channelContainer.addChannel("pooled1", channel);
+		pool.processReady(1, channel);
+
+		List<String> arguments = ImmutableList.of("-processId", "3");
+		Future<Integer> result = pool.assign(new ProcessConfig(3, 1, JVM_ARGS), arguments, channelContainer);
+
+		assertSame(result, exitCode);
+		assertSame(channelContainer.getChannel("testproc3"), channel);
+		assertNull(channelContainer.getChannel("pooled1"));
+
+		ArgumentCaptor<Payload> payloadCaptor = ArgumentCaptor.forClass(Payload.class);
+		verify(channel).write(payloadCaptor.capture());
+		assertEquals(payloadCaptor.getValue().getPayloadType(), PayloadType.TEST_PROC_ASSIGN);
+		assertEquals(payloadCaptor.getValue().<String[]>getContent(), new String[] { "-processId", "3" });
+
+		// only one process was ready
+		assertNull(pool.assign(new ProcessConfig(4, 1, JVM_ARGS), arguments, channelContainer));
+	}
+
+	@Test
+	public void testJvmArgsMustMatch() {
+		Channel channel = mock(Channel.class);
+		when(channel.isConnected()).thenReturn(true);
+		pool.processReady(1, channel);
+
+		assertNull(pool.assign(new ProcessConfig(3, 1, ImmutableList.of("-Xmx2g")), ImmutableList.<String>of(),
+				new ChannelContainer()));
+	}
+
+	@Test
+	public void testReplenish() {
+		Channel channel = mock(Channel.class);
+		when(channel.isConnected()).thenReturn(true);
+		ChannelContainer channelContainer = new ChannelContainer();
+		channelContainer.addChannel("pooled1", channel);
+		pool.processReady(1, channel);
+		pool.assign(new ProcessConfig(3, 1, JVM_ARGS), ImmutableList.<String>of(), channelContainer);
+
+		pool.replenish();
+
+		verify(clientRunner, times(3)).runPooledClient(any(File.class), anyInt(), eq(JVM_ARGS), anyListOf(String.class));
+		verify(clientRunner).runPooledClient(new File("."), 3, JVM_ARGS,
+				ImmutableList.of("-pooled", "-poolSlot", "3", "-daemonPort", "4242"));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2015 mgm technology partners GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mgmtp.perfload.core.test.comp;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.mgmtp.perfload.core.clientserver.server.DefaultServer;
+import com.mgmtp.perfload.core.clientserver.server.Server;
+import com.mgmtp.perfload.core.clientserver.util.DaemonThreadFactory;
+import com.mgmtp.perfload.core.clientserver.util.Transport;
+import com.mgmtp.perfload.core.common.config.TestplanConfig;
+import com.mgmtp.perfload.core.common.config.XmlConfigReader;
+import com.mgmtp.perfload.core.console.LtConsole;
+import com.mgmtp.perfload.core.console.meta.LtMetaInfoHandler;
+import com.mgmtp.perfload.core.console.model.Daemon;
+import com.mgmtp.perfload.core.console.status.FileStatusTransformer;
+import com.mgmtp.perfload.core.console.status.StatusTransformer;
+import com.mgmtp.perfload.core.daemon.LtDaemon;
+import com.mgmtp.perfload.core.daemon.util.InJvmClientRunner;
+
+/**
+ * Runs the test processes inside the daemon's VM, talking to the daemon over
+ * {@link Transport#LOCAL}.
+ *
+ * @author agent
+ */
+public class InJvmComponentTest {
+
+	private static final int DAEMON_PORT = 8043;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final File clientDir = new File("target", "client-injvm");
+
+	@BeforeTest
+	public void startDaemon() throws IOException {
+		log.debug("Starting daemon...");
+
+		FileUtils.forceMkdir(clientDir);
+		ExecutorService executorService = Executors.newFixedThreadPool(2, new DaemonThreadFactory());
+		executorService.submit(new DaemonTask(DAEMON_PORT, clientDir));
+	}
+
+	@AfterTest
+	public void shutdownDaemon() {
+		log.debug("Stopping daemon...");
+
+		LtDaemon.shutdownDaemon(DAEMON_PORT);
+	}
+
+	@Test
+	public void testLoadProfile() throws Exception {
+		XmlConfigReader confReader = new XmlConfigReader(new File("src/test/resources"), "testplan_loadprofile.xml");
+		TestplanConfig config = confReader.readConfig();
+		StatusTransformer transformer = new FileStatusTransformer(config.getTotalThreadCount(), new File("target",
+				"ltStatus-injvm.txt"), new File("target", "loadprofile-injvm.txt"), "UTF-8");
+		LtConsole console = new LtConsole(config, Executors.newCachedThreadPool(new DaemonThreadFactory()),
+				transformer, new LtMetaInfoHandler(), asList(new Daemon(1, "localhost", DAEMON_PORT)), false, false, 300000L);
+		console.execute();
+
+		assertEquals(console.isTestSuccessful(), true);
+	}
+
+	static class DaemonTask implements Callable<Void> {
+
+		private final int port;
+		private final File clientDir;
+
+		public DaemonTask(final int port, final File clientDir) {
+			this.port = port;
+			this.clientDir = clientDir;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			try {
+				ExecutorService executorService = Executors.newCachedThreadPool();
+				Server server = new DefaultServer(port, Transport.fromSystemProperty(), true);
+				LtDaemon daemon = new LtDaemon(clientDir, new InJvmClientRunner(executorService), server);
+				daemon.execute();
+				executorService.shutdown();
+				executorService.awaitTermination(10L, TimeUnit.SECONDS);
+			} finally {
+				FileUtils.forceDelete(clientDir);
+			}
+			return null;
+		}
+	}
+}
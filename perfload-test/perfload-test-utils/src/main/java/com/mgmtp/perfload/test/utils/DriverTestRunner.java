@@ -19,6 +19,7 @@ import com.google.inject.Injector;
 import com.mgmtp.perfload.core.client.config.ModulesLoader;
 import com.mgmtp.perfload.core.client.web.config.AbstractWebLtModule;
 import com.mgmtp.perfload.core.common.util.PropertiesMap;
+import com.mgmtp.perfload.logging.SimpleLogger;
 
 /**
  * Utility class for running a load test driver within a unit test.
@@ -39,7 +40,11 @@ public class DriverTestRunner {
 				new MockClient(), 1, 1);
 
 		Injector inj = ml.createInjector();
-		TestExecutor executor = inj.getInstance(TestExecutor.class);
-		executor.runDriver();
+		try {
+			TestExecutor executor = inj.getInstance(TestExecutor.class);
+			executor.runDriver();
+		} finally {
+			inj.getInstance(SimpleLogger.class).close();
+		}
 	}
 }